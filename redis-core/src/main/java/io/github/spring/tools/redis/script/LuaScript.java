@@ -0,0 +1,133 @@
+package io.github.spring.tools.redis.script;
+
+import lombok.Getter;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+
+/**
+ * 已注册的 lua 脚本
+ * <p>源码和 SHA1 只编码一次，执行时发送 EVALSHA，服务端返回 NOSCRIPT 时重新加载后再执行一次</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ * @see LuaScriptRegistry
+ */
+public final class LuaScript {
+
+  /**
+   * 服务端没有缓存脚本时的错误前缀
+   */
+  private static final String NO_SCRIPT_ERROR = "NOSCRIPT";
+
+  /**
+   * 脚本名称
+   */
+  @Getter
+  private final String name;
+
+  /**
+   * 脚本源码
+   */
+  @Getter
+  private final String source;
+
+  /**
+   * 脚本 SHA1，16 进制小写
+   */
+  @Getter
+  private final String sha1;
+
+  /**
+   * 源码字节
+   */
+  private final byte[] sourceBytes;
+
+  /**
+   * SHA1 字节
+   */
+  private final byte[] sha1Bytes;
+
+  LuaScript(String name, String source) {
+    this.name = Objects.requireNonNull(name);
+    this.source = Objects.requireNonNull(source);
+    this.sourceBytes = source.getBytes(StandardCharsets.UTF_8);
+    this.sha1 = sha1Hex(sourceBytes);
+    this.sha1Bytes = sha1.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * 执行脚本，优先 EVALSHA，NOSCRIPT 时加载后重试一次
+   * <p>pipeline 和事务中命令的结果要到最后才返回，无法在这里处理 NOSCRIPT，需要先调用 {@link #load(RedisConnection)}</p>
+   * @param connection redis 连接
+   * @param returnType 返回类型
+   * @param numKeys key 的数量
+   * @param keysAndArgs key 和参数
+   * @param <T> 返回值类型
+   * @return 执行结果
+   */
+  public <T> T eval(RedisConnection connection, ReturnType returnType, int numKeys, byte[]... keysAndArgs) {
+    try {
+      return connection.evalSha(sha1Bytes, returnType, numKeys, keysAndArgs);
+    } catch (DataAccessException e) {
+      if (!isNoScript(e)) {
+        throw e;
+      }
+      load(connection);
+      return connection.evalSha(sha1Bytes, returnType, numKeys, keysAndArgs);
+    }
+  }
+
+  /**
+   * 加载到服务端脚本缓存，集群连接会加载到所有主节点
+   * @param connection redis 连接
+   */
+  public void load(RedisConnection connection) {
+    connection.scriptLoad(sourceBytes);
+  }
+
+  /**
+   * 异常是否是服务端没有缓存脚本
+   * @param e 异常
+   * @return 结果
+   */
+  public static boolean isNoScript(Throwable e) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause.getMessage() != null && cause.getMessage().contains(NO_SCRIPT_ERROR)) {
+        return true;
+      }
+      if (cause.getCause() == cause) {
+        break;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * 计算 SHA1
+   * @param bytes 源码字节
+   * @return 16 进制小写
+   */
+  private static String sha1Hex(byte[] bytes) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-1").digest(bytes);
+      StringBuilder sb = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return name + "(" + sha1 + ")";
+  }
+}
@@ -0,0 +1,77 @@
+package io.github.spring.tools.redis.script;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * lua 脚本注册表
+ * <p>各模块在类加载时注册自己的脚本，启动时通过 {@link #preload(RedisConnection)} 一次性加载到服务端，
+ * 之后每次调用只发送 40 字节的 SHA1</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+@Slf4j
+public final class LuaScriptRegistry {
+
+  /**
+   * 已注册的脚本，key 为脚本名称
+   */
+  private static final Map<String, LuaScript> SCRIPTS = new ConcurrentHashMap<>();
+
+  private LuaScriptRegistry() {}
+
+  /**
+   * 注册脚本，同名同源码重复注册返回已有的实例
+   * @param name 脚本名称，全局唯一
+   * @param source 脚本源码
+   * @return 脚本
+   */
+  public static LuaScript register(String name, String source) {
+    Objects.requireNonNull(source);
+    LuaScript script = SCRIPTS.computeIfAbsent(name, key -> new LuaScript(key, source));
+    if (!script.getSource().equals(source)) {
+      throw new IllegalArgumentException(String.format("lua 脚本 %s 已注册为不同的内容", name));
+    }
+    return script;
+  }
+
+  /**
+   * 获取已注册的脚本
+   * @param name 脚本名称
+   * @return 脚本，未注册为 null
+   */
+  public static LuaScript get(String name) {
+    return SCRIPTS.get(name);
+  }
+
+  /**
+   * 获取所有已注册的脚本
+   * @return 脚本列表
+   */
+  public static Collection<LuaScript> getScripts() {
+    return Collections.unmodifiableCollection(new ArrayList<>(SCRIPTS.values()));
+  }
+
+  /**
+   * 把所有已注册的脚本加载到服务端
+   * @param connection redis 连接
+   * @return 加载的数量
+   */
+  public static int preload(RedisConnection connection) {
+    int loaded = 0;
+    for (LuaScript script : SCRIPTS.values()) {
+      script.load(connection);
+      loaded++;
+      log.debug("lua 脚本 {} 加载完成", script);
+    }
+    return loaded;
+  }
+}
@@ -0,0 +1,101 @@
+package io.github.spring.tools.redis.reactive;
+
+import io.github.spring.tools.redis.RedisLockReleaseStatus;
+import lombok.Getter;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 响应式锁的持有凭证
+ * <p>获取成功后得到，通过 {@link #release()} 释放，多次释放只会执行一次</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public final class LockHandle {
+
+    /**
+     * 所属的锁
+     */
+    private final ReactiveRedisLock lock;
+
+    /**
+     * 锁的值
+     */
+    @Getter
+    private final String value;
+
+    /**
+     * 获取到锁的时间，毫秒
+     */
+    @Getter
+    private final long lockedMills;
+
+    /**
+     * 是否已交给调用方
+     */
+    private final AtomicBoolean delivered = new AtomicBoolean();
+
+    /**
+     * 是否已释放
+     */
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    /**
+     * 释放状态
+     */
+    @Getter
+    private volatile RedisLockReleaseStatus releaseStatus = RedisLockReleaseStatus.NEW;
+
+    LockHandle(ReactiveRedisLock lock, String value) {
+        this.lock = lock;
+        this.value = value;
+        this.lockedMills = System.currentTimeMillis();
+    }
+
+    /**
+     * 获取锁的 key
+     * @return key
+     */
+    public String getKey() {
+        return lock.getKey();
+    }
+
+    /**
+     * 释放锁，锁已过期或者被他人持有时结果为 false，此时 {@link #isRollback()} 为 true
+     * @return 释放结果
+     */
+    public Mono<Boolean> release() {
+        return Mono.defer(() -> {
+            if (!released.compareAndSet(false, true)) {
+                return Mono.just(releaseStatus == RedisLockReleaseStatus.SUCCESS);
+            }
+            return lock.release(value).doOnNext(result -> releaseStatus = result ? RedisLockReleaseStatus.SUCCESS : RedisLockReleaseStatus.FAIL);
+        });
+    }
+
+    /**
+     * 是否需要回滚，持有期间锁已经丢失
+     * @return 结果
+     */
+    public boolean isRollback() {
+        return releaseStatus == RedisLockReleaseStatus.FAIL;
+    }
+
+    /**
+     * 标记已交给调用方
+     * @return 是否第一次标记
+     */
+    boolean deliver() {
+        return delivered.compareAndSet(false, true);
+    }
+
+    /**
+     * 是否已交给调用方
+     * @return 结果
+     */
+    boolean isDelivered() {
+        return delivered.get();
+    }
+}
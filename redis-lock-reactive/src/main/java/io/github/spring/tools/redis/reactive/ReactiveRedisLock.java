@@ -0,0 +1,176 @@
+package io.github.spring.tools.redis.reactive;
+
+import io.github.spring.tools.redis.RedisLockClient;
+import io.github.spring.tools.redis.RedisLockTokens;
+import io.github.spring.tools.redis.exception.TimeoutLockException;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.lang.Nullable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 基于 ReactiveRedisTemplate 的响应式分布式锁
+ * <p>和 {@link io.github.spring.tools.redis.IRedisLock} 使用相同的 key、值和释放脚本，可以和阻塞的锁互斥；
+ * 获取、重试等待和释放都不阻塞线程，重试间隔由 {@link Mono#delay(Duration)} 调度</p>
+ * <p>获取中的订阅被取消时，如果已经获取成功则立即释放；{@link #execute(Function, Duration)} 在回调结束、出错或者取消时释放</p>
+ * <p>锁不绑定线程，不支持重入</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+@Slf4j
+public class ReactiveRedisLock {
+
+    /**
+     * 释放脚本
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(RedisLockClient.RELEASE_LUA, Long.class);
+
+    /**
+     * redis 实例
+     */
+    private final ReactiveRedisTemplate<String, String> redisTemplate;
+
+    /**
+     * 锁定的 key
+     */
+    @Getter
+    private final String key;
+
+    /**
+     * 锁定时间，秒
+     */
+    @Getter
+    private final int lockSeconds;
+
+    /**
+     * 休眠最小时间
+     */
+    @Getter
+    private final int sleepMinMills;
+
+    /**
+     * 休眠最大时间
+     */
+    @Getter
+    private final int sleepMaxMills;
+
+    ReactiveRedisLock(ReactiveRedisTemplate<String, String> redisTemplate, String key, int lockSeconds, int sleepMinMills, int sleepMaxMills) {
+        this.redisTemplate = Objects.requireNonNull(redisTemplate);
+        this.key = Objects.requireNonNull(key);
+        this.lockSeconds = lockSeconds;
+        this.sleepMinMills = sleepMinMills;
+        this.sleepMaxMills = sleepMaxMills;
+    }
+
+    /**
+     * 尝试获取一次
+     * @return 获取成功发出持有凭证，失败时为空
+     */
+    public Mono<LockHandle> tryLock() {
+        return Mono.defer(() -> {
+            LockHandle handle = new LockHandle(this, RedisLockTokens.next());
+            return redisTemplate.opsForValue().setIfAbsent(key, handle.getValue(), Duration.ofSeconds(lockSeconds))
+                    .flatMap(locked -> {
+                        debugMessage(locked ? "获取锁成功" : "获取锁失败");
+                        return locked && handle.deliver() ? Mono.just(handle) : Mono.<LockHandle>empty();
+                    })
+                    // 结果交给调用方之前被取消，不能确定是否已经获取，按值释放
+                    .doOnCancel(() -> {
+                        if (!handle.isDelivered()) {
+                            handle.release().subscribe();
+                        }
+                    });
+        });
+    }
+
+    /**
+     * 在等待时间内按 [sleepMinMills, sleepMaxMills] 的随机间隔重试获取
+     * @param wait 等待时间
+     * @return 获取成功发出持有凭证，超时为空
+     */
+    public Mono<LockHandle> tryLock(Duration wait) {
+        Objects.requireNonNull(wait);
+        return Mono.defer(() -> retry(System.currentTimeMillis() + wait.toMillis()));
+    }
+
+    /**
+     * 获取锁后执行，执行结束、出错或者取消时释放锁
+     * @param callback 获取锁成功执行的函数
+     * @param wait 等待时间
+     * @param <T> 返回值类型
+     * @return 执行结果，获取失败以 {@link TimeoutLockException} 结束
+     */
+    public <T> Mono<T> execute(Function<LockHandle, Mono<T>> callback, Duration wait) {
+        return execute(callback, null, wait);
+    }
+
+    /**
+     * 获取锁后执行，支持降级，执行结束、出错或者取消时释放锁
+     * @param callback 获取锁成功执行的函数
+     * @param faultCallback 获取失败后的降级函数，=null 时获取失败以 {@link TimeoutLockException} 结束
+     * @param wait 等待时间
+     * @param <T> 返回值类型
+     * @return 执行结果
+     */
+    public <T> Mono<T> execute(Function<LockHandle, Mono<T>> callback, @Nullable Supplier<Mono<T>> faultCallback, Duration wait) {
+        Objects.requireNonNull(callback);
+        return tryLock(wait).map(Optional::of).defaultIfEmpty(Optional.empty()).flatMap(handle -> {
+            if (!handle.isPresent()) {
+                return faultCallback == null ? Mono.error(new TimeoutLockException(key)) : faultCallback.get();
+            }
+            return Mono.usingWhen(Mono.just(handle.get()), callback, LockHandle::release, (h, e) -> h.release(), LockHandle::release);
+        });
+    }
+
+    /**
+     * 重试获取
+     * @param timeout 超时时间点
+     * @return 获取结果
+     */
+    private Mono<LockHandle> retry(long timeout) {
+        return tryLock().switchIfEmpty(Mono.defer(() -> {
+            long remainMills = timeout - System.currentTimeMillis();
+            if (remainMills <= 0) {
+                debugMessage("获取锁超时");
+                return Mono.empty();
+            }
+            long sleepMills = sleepMinMills + (long) ((sleepMaxMills - sleepMinMills) * Math.random());
+            return Mono.delay(Duration.ofMillis(Math.min(sleepMills, remainMills))).then(retry(timeout));
+        }));
+    }
+
+    /**
+     * 按值释放，并发布释放通知
+     * @param value 锁的值
+     * @return 是否释放成功
+     */
+    Mono<Boolean> release(String value) {
+        return redisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(key), Arrays.asList(value, RedisLockClient.releaseChannel(key)))
+                .next()
+                .map(result -> result == 1L)
+                .defaultIfEmpty(false)
+                .doOnNext(result -> debugMessage(result ? "解锁成功" : "解锁失败"));
+    }
+
+    /**
+     * 来一个 debug 消息
+     * @param message 消息
+     */
+    private void debugMessage(String message) {
+        if (log.isDebugEnabled()) {
+            log.debug("{} --> {} 锁 {}", getClass().getSimpleName(), key, message);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package io.github.spring.tools.redis.reactive;
+
+import io.github.spring.tools.redis.RedisLockEnvironment;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.util.StringUtils;
+
+import java.util.Objects;
+
+import static io.github.spring.tools.redis.capable.ILockWritable.*;
+
+/**
+ * 响应式锁构造器
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class ReactiveRedisLockBuilder {
+
+  /**
+   * 锁定的 key
+   */
+  private String key;
+
+  /**
+   * 资源锁定时长, 单位秒
+   */
+  private int lockSeconds = DEFAULT_LOCK_SECONDS;
+
+  /**
+   * 休眠最小时间
+   */
+  private int sleepMinMills = DEFAULT_SLEEP_MIN_MILLS;
+
+  /**
+   * 休眠最大时间
+   */
+  private int sleepMaxMills = DEFAULT_SLEEP_MAX_MILLS;
+
+  /**
+   * key前缀
+   */
+  private String keyPrefix;
+
+  /**
+   * 生成 key 使用的锁环境名称，为空时使用默认环境
+   */
+  private String environment;
+
+  /**
+   * 设置 key
+   * @param key key
+   * @return chain
+   */
+  public ReactiveRedisLockBuilder key(String key){
+    Objects.requireNonNull(key);
+    this.key = key;
+    return this;
+  }
+
+  /**
+   * 设置资源锁定时间，单位秒
+   * @param lockSeconds 锁定时间
+   * @return chain
+   */
+  public ReactiveRedisLockBuilder lockSeconds(int lockSeconds){
+    this.lockSeconds = lockSeconds;
+    return this;
+  }
+
+  /**
+   * 重试休眠最小时间，毫秒
+   * @param sleepMinMills 休眠最小时间
+   * @return chain
+   */
+  public ReactiveRedisLockBuilder sleepMinMills(int sleepMinMills){
+    this.sleepMinMills = sleepMinMills;
+    return this;
+  }
+
+  /**
+   * 重试休眠最大时间，毫秒
+   * @param sleepMaxMills 休眠最大时间
+   * @return chain
+   */
+  public ReactiveRedisLockBuilder sleepMaxMills(int sleepMaxMills){
+    this.sleepMaxMills = sleepMaxMills;
+    return this;
+  }
+
+  /**
+   * key 的前缀，设置后不再使用锁环境的全局前缀，和阻塞锁互斥时需要和阻塞锁最终的 key 一致
+   * @param keyPrefix 前缀
+   * @return chain
+   */
+  public ReactiveRedisLockBuilder keyPrefix(String keyPrefix){
+    this.keyPrefix = keyPrefix;
+    return this;
+  }
+
+  /**
+   * 设置 生成 key 使用的锁环境，未设置前缀时按环境的全局前缀和 hash tag 策略生成 key，和同一环境的阻塞锁互斥
+   * @param environment 环境名称，为空时使用默认环境
+   * @return chain
+   */
+  public ReactiveRedisLockBuilder environment(String environment){
+    this.environment = environment;
+    return this;
+  }
+
+  /**
+   * 开始生成
+   * @param redisTemplate 响应式 redis 实例
+   * @return 响应式锁
+   */
+  public ReactiveRedisLock build(ReactiveRedisTemplate<String, String> redisTemplate){
+    return new ReactiveRedisLock(redisTemplate, getLockKey(), lockSeconds, sleepMinMills, sleepMaxMills);
+  }
+
+  /**
+   * 获取锁最终的 key，未设置前缀时和锁环境生成的 key 一致，没有初始化锁环境时使用原始的 key
+   * @return key
+   */
+  private String getLockKey(){
+    RedisLockEnvironment env = RedisLockEnvironment.getInstance(environment);
+    if (StringUtils.isEmpty(keyPrefix)) {
+      return env == null ? key : env.lockKey(key);
+    }
+    String lockKey = String.format("%s-%s", keyPrefix, key);
+    return env == null ? lockKey : env.hashTagKey(lockKey);
+  }
+
+  /**
+   * 生成
+   * @param key key
+   * @return 生成一个 builder
+   */
+  public static ReactiveRedisLockBuilder builder(String key){
+    return new ReactiveRedisLockBuilder().key(key);
+  }
+}
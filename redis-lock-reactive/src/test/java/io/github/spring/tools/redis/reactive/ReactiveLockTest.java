@@ -0,0 +1,157 @@
+package io.github.spring.tools.redis.reactive;
+
+import io.github.spring.tools.redis.IRedisLock;
+import io.github.spring.tools.redis.RedisLockBuilder;
+import io.github.spring.tools.redis.RedisLockEnvironment;
+import io.github.spring.tools.redis.exception.TimeoutLockException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * 响应式锁测试类
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class ReactiveLockTest {
+
+    private static final String LOCK_KEY = "redis-lock-reactive-test";
+
+    private LettuceConnectionFactory factory;
+
+    private ReactiveStringRedisTemplate redisTemplate;
+
+    @Before
+    public void init() {
+        factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", 6379));
+        factory.afterPropertiesSet();
+        redisTemplate = new ReactiveStringRedisTemplate(factory);
+        redisTemplate.delete(LOCK_KEY).block();
+    }
+
+    @After
+    public void destroy() {
+        redisTemplate.delete(LOCK_KEY).block();
+        factory.destroy();
+    }
+
+    private ReactiveRedisLock newLock() {
+        return ReactiveRedisLockBuilder.builder(LOCK_KEY).sleepMinMills(10).sleepMaxMills(30).build(redisTemplate);
+    }
+
+    /**
+     * 互斥和释放
+     */
+    @Test
+    public void testLockAndRelease() {
+        LockHandle handle = newLock().tryLock().block();
+        Assert.assertNotNull(handle);
+        Assert.assertNull(newLock().tryLock().block());
+        Assert.assertTrue(handle.release().block());
+        // 重复释放不会再次执行
+        Assert.assertTrue(handle.release().block());
+        Assert.assertFalse(redisTemplate.hasKey(LOCK_KEY).block());
+    }
+
+    /**
+     * 等待期间锁被释放后获取成功，超时为空
+     */
+    @Test
+    public void testWait() {
+        LockHandle handle = newLock().tryLock().block();
+        Assert.assertNotNull(handle);
+        Assert.assertNull(newLock().tryLock(Duration.ofMillis(200)).block());
+
+        Mono.delay(Duration.ofMillis(200)).flatMap(t -> handle.release()).subscribe();
+        LockHandle other = newLock().tryLock(Duration.ofSeconds(2)).block();
+        Assert.assertNotNull(other);
+        Assert.assertTrue(other.release().block());
+    }
+
+    /**
+     * 锁过期后被他人获取，释放失败需要回滚
+     */
+    @Test
+    public void testRollback() {
+        LockHandle handle = newLock().tryLock().block();
+        Assert.assertNotNull(handle);
+        redisTemplate.opsForValue().set(LOCK_KEY, "other").block();
+        Assert.assertFalse(handle.release().block());
+        Assert.assertTrue(handle.isRollback());
+    }
+
+    /**
+     * 执行结束和出错都会释放，获取失败走降级
+     */
+    @Test
+    public void testExecute() {
+        ReactiveRedisLock lock = newLock();
+        Assert.assertEquals("ok", lock.execute(handle -> redisTemplate.hasKey(LOCK_KEY).map(held -> held ? "ok" : "fail"), Duration.ofSeconds(1)).block());
+        Assert.assertFalse(redisTemplate.hasKey(LOCK_KEY).block());
+
+        try {
+            lock.execute(handle -> Mono.error(new IllegalStateException()), Duration.ofSeconds(1)).block();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertFalse(redisTemplate.hasKey(LOCK_KEY).block());
+        }
+
+        LockHandle handle = newLock().tryLock().block();
+        Assert.assertNotNull(handle);
+        Assert.assertEquals("fault", lock.execute(h -> Mono.just("ok"), () -> Mono.just("fault"), Duration.ofMillis(100)).block());
+        try {
+            lock.execute(h -> Mono.just("ok"), Duration.ofMillis(100)).block();
+            Assert.fail();
+        } catch (RuntimeException e) {
+            Assert.assertTrue(Exceptions.unwrap(e) instanceof TimeoutLockException);
+            Assert.assertTrue(handle.release().block());
+        }
+    }
+
+    /**
+     * 执行中被取消时释放锁
+     */
+    @Test
+    public void testCancel() throws Exception {
+        Disposable disposable = newLock().execute(handle -> Mono.delay(Duration.ofSeconds(10)), Duration.ofSeconds(1)).subscribe();
+        Thread.sleep(300);
+        Assert.assertTrue(redisTemplate.hasKey(LOCK_KEY).block());
+        disposable.dispose();
+        Thread.sleep(300);
+        Assert.assertFalse(redisTemplate.hasKey(LOCK_KEY).block());
+    }
+
+    /**
+     * 未设置前缀时按锁环境生成 key，和同一环境的阻塞锁互斥
+     */
+    @Test
+    public void testEnvironmentKey() throws Exception {
+        RedisLockEnvironment environment = RedisLockBuilder.builder("").keyPrefix("redis-lock:")
+                .buildEnv("reactive", new StringRedisTemplate(factory));
+        try {
+            ReactiveRedisLock lock = ReactiveRedisLockBuilder.builder(LOCK_KEY).environment("reactive").build(redisTemplate);
+            Assert.assertEquals("redis-lock:-" + LOCK_KEY, lock.getKey());
+            LockHandle handle = lock.tryLock().block();
+            Assert.assertNotNull(handle);
+            IRedisLock blocking = RedisLockBuilder.builder(LOCK_KEY).environment("reactive").build();
+            Assert.assertFalse(blocking.tryLock());
+            Assert.assertTrue(handle.release().block());
+            Assert.assertTrue(blocking.tryLock());
+            Assert.assertNull(lock.tryLock().block());
+            blocking.unlock();
+        } finally {
+            environment.destroy();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package io.github.spring.tools.redis;
+
+import io.github.spring.tools.redis.metrics.MicrometerLockMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 自动装载锁的监控指标，存在 Micrometer 的 MeterRegistry 时所有锁环境都记录指标
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+@Configuration
+@ConditionalOnClass(MeterRegistry.class)
+@AutoConfigureAfter(RedisLockAutoConfiguration.class)
+public class RedisLockMetricsAutoConfiguration {
+
+  /**
+   * 所有单例初始化完成后，给已注册和之后注册的锁环境设置监控指标
+   * @param registries 指标注册表
+   * @return 初始化器
+   */
+  @Bean
+  public SmartInitializingSingleton redisLockMetricsInitializer(ObjectProvider<MeterRegistry> registries){
+    return () -> {
+      MeterRegistry registry = registries.getIfUnique();
+      if (registry != null) {
+        RedisLockEnvironment.setMetricsFactory(environment -> new MicrometerLockMetrics(registry, environment.getName()));
+      }
+    };
+  }
+}
@@ -0,0 +1,54 @@
+package io.github.spring.tools.redis;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 批量锁的获取结果
+ * <p>key 为调用方传入的原始 key，不含前缀</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ * @see RedisBulkLock
+ */
+public class BulkLockResult {
+
+    /**
+     * 本次获取使用的锁的值，所有 key 共用
+     */
+    @Getter
+    private final String value;
+
+    /**
+     * 获取成功的 key
+     */
+    @Getter
+    private final List<String> acquired;
+
+    /**
+     * 没有获取的 key，已被他人持有，或者 redis 熔断中没有访问
+     */
+    @Getter
+    private final List<String> missed;
+
+    BulkLockResult(String value, List<String> acquired, List<String> missed) {
+        this.value = value;
+        this.acquired = Collections.unmodifiableList(acquired);
+        this.missed = Collections.unmodifiableList(missed);
+    }
+
+    /**
+     * 是否全部获取成功
+     * @return 结果
+     */
+    public boolean isAllAcquired() {
+        return missed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BulkLockResult{acquired=%s, missed=%s}", acquired.size(), missed.size());
+    }
+}
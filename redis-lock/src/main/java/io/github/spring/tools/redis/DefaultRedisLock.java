@@ -1,14 +1,28 @@
 package io.github.spring.tools.redis;
 
+import io.github.spring.tools.redis.backoff.IBackoffStrategy;
+import io.github.spring.tools.redis.backoff.RandomBackoffStrategy;
+import io.github.spring.tools.redis.breaker.RedisCircuitBreaker;
 import io.github.spring.tools.redis.capable.ILockWritable;
 import io.github.spring.tools.redis.exception.UnLockFailException;
+import io.github.spring.tools.redis.metrics.AcquireResult;
+import io.github.spring.tools.redis.metrics.IRedisLockMetrics;
+import io.github.spring.tools.redis.store.ILockStore;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.util.StringUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Objects;
-import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -26,6 +40,16 @@ import static io.github.spring.tools.redis.RedisLockStatus.TIMEOUT;
 @Slf4j
 public class DefaultRedisLock implements IRedisLock, ILockWritable {
 
+    /**
+     * 监控指标中的锁类型，每个实现类计算一次
+     */
+    private static final ClassValue<String> METRICS_TYPES = new ClassValue<String>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            return type.getSimpleName();
+        }
+    };
+
     /**
      * 状态
      */
@@ -62,20 +86,175 @@ public class DefaultRedisLock implements IRedisLock, ILockWritable {
     private int spinTimes;
 
     /**
-     * redis 锁客户端
+     * 等待模式
+     */
+    private RedisLockWaitMode waitMode;
+
+    /**
+     * 是否开启看门狗自动续期
+     */
+    private boolean watchdog;
+
+    /**
+     * 看门狗续期租约
+     */
+    private RedisLockWatchdog.Lease lease;
+
+    /**
+     * 是否生成 fencing token
+     */
+    private boolean fencing;
+
+    /**
+     * 本次获取锁得到的 fencing token
+     */
+    private long fencingToken;
+
+    /**
+     * redis 锁客户端，不是 redis 存储时为 null
      */
     private RedisLockClient redisLockClient;
 
     /**
-     * 锁 值
+     * 锁存储
+     */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private ILockStore lockStore;
+
+    /**
+     * 锁 值，由 uuidBytes 生成时第一次使用才创建
      */
     private String uuid;
 
+    /**
+     * 锁 值的编码，热点路径上直接使用
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private byte[] uuidBytes;
+
+    /**
+     * 已经释放过，下次获取时换一个新的值，迟到的释放不会删除下一次获取的锁
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private boolean released;
+
     /**
      * 回滚时抛出异常
      */
     private RuntimeException throwableException;
 
+    /**
+     * 热点路径上复用的编码结果，key 变化后重新编码
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Encoded encoded;
+
+    /**
+     * 所属的锁环境，看门狗、通知器从这里获取，未设置时使用默认环境
+     */
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private RedisLockEnvironment environment;
+
+    /**
+     * 自旋等待的退避策略，未设置时使用随机退避
+     */
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private IBackoffStrategy backoff;
+
+    /**
+     * 熔断时的降级策略，未设置时快速失败
+     */
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private RedisLockDegradePolicy degradePolicy;
+
+    /**
+     * 最近一次获取使用的存储，降级为本地锁时是环境的本地存储，释放时使用
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private ILockStore acquiredStore;
+
+    /**
+     * 最近一次获取是否因为熔断快速失败，此时不再等待
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private boolean rejected;
+
+    /**
+     * 是否在等待中，等待时获取失败会同时查询持有者剩余的租约
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private boolean waiting;
+
+    /**
+     * 等待中最近一次获取失败时持有者剩余的租约，毫秒
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private long holderTtlMills = IBackoffStrategy.UNKNOWN_TTL;
+
+    /**
+     * 获取成功的时间，纳秒
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private long lockedNanos;
+
+    /**
+     * 本次等待尝试获取的次数
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private int attempts;
+
+    /**
+     * 本次等待休眠的次数
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private int sleeps;
+
+    /**
+     * 本次等待是否因为线程中断而结束
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private boolean waitInterrupted;
+
 
     /**
      * 创建一个 redis lock 对象
@@ -85,16 +264,40 @@ public class DefaultRedisLock implements IRedisLock, ILockWritable {
      * @param sleepMinMills 休眠最小值
      * @param sleepMaxMills 休眠最大值
      * @param spinTimes 自旋次数
+     * @param waitMode 等待模式
+     * @param watchdog 是否开启看门狗自动续期
+     * @param fencing 是否生成 fencing token
      * @param throwableException 是否强制抛出异常
      */
-    DefaultRedisLock(RedisTemplate<String, String> redisTemplate, String key, int lockSeconds, int sleepMinMills, int sleepMaxMills, int spinTimes, RuntimeException throwableException) {
+    DefaultRedisLock(RedisTemplate<String, String> redisTemplate, String key, int lockSeconds, int sleepMinMills, int sleepMaxMills, int spinTimes, RedisLockWaitMode waitMode, boolean watchdog, boolean fencing, RuntimeException throwableException) {
+        this(RedisLockEnvironment.lockClient(redisTemplate), key, lockSeconds, sleepMinMills, sleepMaxMills, spinTimes, waitMode, watchdog, fencing, throwableException);
+    }
+
+    /**
+     * 创建一个使用指定存储的锁对象
+     * @param lockStore 锁存储
+     * @param key 锁定的key
+     * @param lockSeconds 锁定时长
+     * @param sleepMinMills 休眠最小值
+     * @param sleepMaxMills 休眠最大值
+     * @param spinTimes 自旋次数
+     * @param waitMode 等待模式
+     * @param watchdog 是否开启看门狗自动续期
+     * @param fencing 是否生成 fencing token
+     * @param throwableException 是否强制抛出异常
+     */
+    DefaultRedisLock(ILockStore lockStore, String key, int lockSeconds, int sleepMinMills, int sleepMaxMills, int spinTimes, RedisLockWaitMode waitMode, boolean watchdog, boolean fencing, RuntimeException throwableException) {
         this.key = key;
         this.lockSeconds = lockSeconds;
         this.sleepMinMills = sleepMinMills;
         this.sleepMaxMills = sleepMaxMills;
         this.spinTimes = spinTimes;
+        this.waitMode = waitMode;
+        this.watchdog = watchdog;
+        this.fencing = fencing;
         this.status = RedisLockStatus.NEW;
-        this.redisLockClient = new RedisLockClient(redisTemplate);
+        this.lockStore = Objects.requireNonNull(lockStore);
+        this.redisLockClient = lockStore instanceof RedisLockClient ? (RedisLockClient) lockStore : null;
         this.throwableException = throwableException;
     }
 
@@ -115,16 +318,46 @@ public class DefaultRedisLock implements IRedisLock, ILockWritable {
 
     @Override
     public RedisLockClient getLockClient() {
+        if (redisLockClient == null) {
+            throw new IllegalStateException(String.format("%s 使用 %s，不支持依赖 redis 的操作", getKey(), lockStore.getClass().getSimpleName()));
+        }
         return redisLockClient;
     }
 
     @Override
     public boolean tryLock() {
-        // 获取锁
-        if (doAcquire(this)){
+        IRedisLockMetrics metrics = getEnvironment().getMetrics();
+        if (metrics == IRedisLockMetrics.NOOP) {
+            return tryAcquire();
+        }
+        // 不等待的获取也计时，尝试 1 次，不休眠
+        long startNanos = System.nanoTime();
+        AcquireResult result = AcquireResult.ERROR;
+        try {
+            boolean acquired = tryAcquire();
+            result = acquired ? AcquireResult.ACQUIRED : AcquireResult.TIMEOUT;
+            return acquired;
+        } finally {
+            metrics.acquire(METRICS_TYPES.get(getClass()), System.nanoTime() - startNanos, 1, 0, result);
+        }
+    }
+
+    /**
+     * 尝试获取一次，等待中的每次重试也调用这里，不单独记录指标
+     * @return 是否获取成功
+     */
+    private boolean tryAcquire() {
+        resetReleasedToken();
+        // 获取锁，熔断中且不能降级时不访问 redis
+        if (selectStore() && doAcquire(this)){
             setStatus(RedisLockStatus.LOCKED);
             // 重置 release
             setReleaseStatus(RedisLockReleaseStatus.NEW);
+            lockedNanos = System.nanoTime();
+            // 开启续期
+            if (watchdog) {
+                lease = watchdog().register(getKey(), getUuid(), getLockSeconds());
+            }
             // 打印日志
             debugMessage("获取锁成功");
             return true;
@@ -141,35 +374,70 @@ public class DefaultRedisLock implements IRedisLock, ILockWritable {
             throw new InterruptedException(String.format("%s 锁的当前状态是 %s 不能再次获取锁", getKey(), getStatus()));
         }
         // 获取成功
+        long startNanos = System.nanoTime();
+        // 没有正常返回时是异常
+        AcquireResult result = AcquireResult.ERROR;
         try{
             if (doAcquire(time, unit)) {
                 setStatus(LOCKED);
+                result = AcquireResult.ACQUIRED;
                 return true;
             }else {
                 // 如果 是 新的，则设置为 长时间
                 if (getStatus() == NEW) {
                     setStatus(TIMEOUT);
                 }
+                result = waitInterrupted ? AcquireResult.INTERRUPTED : AcquireResult.TIMEOUT;
                 return false;
             }
         }catch (TimeoutException ex){
             setStatus(TIMEOUT);
+            result = AcquireResult.TIMEOUT;
             return false;
+        }catch (InterruptedException ex){
+            result = AcquireResult.INTERRUPTED;
+            throw ex;
+        } finally {
+            IRedisLockMetrics metrics = getEnvironment().getMetrics();
+            if (metrics != IRedisLockMetrics.NOOP) {
+                metrics.acquire(METRICS_TYPES.get(getClass()), System.nanoTime() - startNanos, attempts, sleeps, result);
+            }
         }
     }
 
     @Override
     public void unlock() {
+        // 先停止续期
+        if (lease != null) {
+            watchdog().unregister(lease);
+            lease = null;
+        }
+        released = true;
         try {
-            if (doRelease(this)) {
+            // 熔断中不访问 redis，锁等待过期，降级获取的本地锁照常释放
+            boolean circuitOpen = (acquiredStore == null || acquiredStore == lockStore) && isCircuitOpen();
+            if (circuitOpen) {
+                debugMessage("redis 熔断中，等待锁过期");
+            }
+            if (!circuitOpen && doRelease(this)) {
                 unlocked(true);
+                if (lockedNanos != 0) {
+                    long heldNanos = System.nanoTime() - lockedNanos;
+                    getBackoff().released(getKey(), TimeUnit.NANOSECONDS.toMillis(heldNanos));
+                    IRedisLockMetrics metrics = getEnvironment().getMetrics();
+                    if (metrics != IRedisLockMetrics.NOOP) {
+                        metrics.held(METRICS_TYPES.get(getClass()), heldNanos);
+                    }
+                }
                 debugMessage("解锁成功");
             }else {
                 debugMessage("解锁失败");
                 unlocked(false);
+                getEnvironment().getMetrics().releaseLost(METRICS_TYPES.get(getClass()));
             }
         } catch (UnLockFailException e) {
            unlocked(false);
+            getEnvironment().getMetrics().releaseLost(METRICS_TYPES.get(getClass()));
             debugMessage("解锁失败");
            if (throwableException != null) {
                throw throwableException;
@@ -177,14 +445,64 @@ public class DefaultRedisLock implements IRedisLock, ILockWritable {
         }
     }
 
+    /**
+     * 检查熔断器，选择本次获取使用的存储，所有类型的锁获取前都经过这里
+     * @return 是否继续获取，熔断中且不能降级为本地锁时快速失败
+     */
+    private boolean selectStore() {
+        acquiredStore = lockStore;
+        rejected = false;
+        if (isCircuitOpen()) {
+            if (getDegradePolicy() == RedisLockDegradePolicy.FAIL_FAST || !isLocalDegradable()) {
+                rejected = true;
+                debugMessage("redis 熔断中，快速失败");
+                return false;
+            }
+            acquiredStore = getEnvironment().getLocalStore();
+            debugMessage("redis 熔断中，降级为本地锁");
+        }
+        return true;
+    }
+
+    /**
+     * 熔断时是否可以降级为本地锁，只有单 key 的普通锁可以，其它类型的锁依赖 redis 脚本，熔断时总是快速失败
+     * @return 是否可以降级
+     */
+    protected boolean isLocalDegradable() {
+        return true;
+    }
+
+    /**
+     * 获取和释放前检查的熔断器
+     * @return 熔断器，为 null 时不检查
+     */
+    protected RedisCircuitBreaker getCircuitBreaker() {
+        return getEnvironment().getCircuitBreaker();
+    }
+
     /**
      * 立即获取锁
      * @param lock 需要获取所的对象
      * @return 获取所结果
      */
-    private boolean doAcquire(IRedisLock lock) {
-        this.uuid = UUID.randomUUID().toString();
-        return redisLockClient.setNx(lock.getKey(), this.uuid, lock.getLockSeconds());
+    protected boolean doAcquire(IRedisLock lock) {
+        // 一次获取过程中复用锁的值，自旋重试时不再生成，释放后重新生成
+        if (this.uuid == null && this.uuidBytes == null) {
+            this.uuidBytes = RedisLockTokens.nextBytes();
+        }
+        ILockStore store = acquiredStore;
+        if (fencing) {
+            this.fencingToken = store.setNxWithFencing(lock.getKey(), getUuid(), lock.getLockSeconds());
+            return fencingToken > 0;
+        }
+        Encoded current = encoded(lock.getKey());
+        if (waiting) {
+            // 等待中失败时同一次往返拿到持有者剩余的租约
+            long ttl = store.setNxOrPttl(current.keyBytes, uuidBytes(), current.lockSeconds(lock.getLockSeconds()));
+            holderTtlMills = ttl;
+            return ttl == 0;
+        }
+        return store.setNx(current.keyBytes, uuidBytes(), current.expiration(lock.getLockSeconds()));
     }
 
 
@@ -196,7 +514,35 @@ public class DefaultRedisLock implements IRedisLock, ILockWritable {
      * @throws InterruptedException 线程中断
      */
     private boolean doAcquire(long time, TimeUnit unit) throws InterruptedException, TimeoutException {
+        RedisCircuitBreaker breaker = getCircuitBreaker();
+        if (breaker != null && breaker.isOpen() && (getDegradePolicy() == RedisLockDegradePolicy.FAIL_FAST || !isLocalDegradable())) {
+            // 熔断中不等待，也不订阅释放通知
+            debugMessage("redis 熔断中，快速失败");
+            return false;
+        }
         long timeout = System.currentTimeMillis() + unit.toMillis(time);
+        holderTtlMills = IBackoffStrategy.UNKNOWN_TTL;
+        attempts = 0;
+        sleeps = 0;
+        waitInterrupted = false;
+        waiting = true;
+        try {
+            if (waitMode == RedisLockWaitMode.NOTIFY) {
+                return doAcquireByNotify(timeout);
+            }
+            return doAcquireBySpin(timeout);
+        } finally {
+            waiting = false;
+        }
+    }
+
+    /**
+     * 自旋模式的获取，自旋失败后按退避策略休眠
+     * @param timeout 超时时间点
+     * @return 结果
+     * @throws TimeoutException 超时
+     */
+    private boolean doAcquireBySpin(long timeout) throws TimeoutException {
         int times;
         int timesCount = 0;
         do {
@@ -204,21 +550,38 @@ public class DefaultRedisLock implements IRedisLock, ILockWritable {
             // 自旋 times 次
             for (; ;) {
                 checkTimeout(timeout);
+                attempts++;
                 // 如果获取成功则返回成功
-                if (tryLock()){
-                    debugMessage(String.format(" %s次获取成功，自旋 %s 次", timesCount, getSpinTimes() - times + 1));
+                if (tryAcquire()){
+                    if (log.isDebugEnabled()) {
+                        debugMessage(String.format(" %s次获取成功，自旋 %s 次", timesCount, getSpinTimes() - times + 1));
+                    }
                     return true;
                 }
+                if (rejected) {
+                    return false;
+                }
                 if (--times <= 0){
                     break;
                 }
                 timesCount ++;
-                debugMessage(String.format(" %s次获取失败，自旋 %s 次", timesCount, getSpinTimes() - times));
+                if (log.isDebugEnabled()) {
+                    debugMessage(String.format(" %s次获取失败，自旋 %s 次", timesCount, getSpinTimes() - times));
+                }
             }
-            // 随机休眠
+            // 退避休眠，不超过持有者剩余的租约和等待的超时时间
             try {
-                debugMessage(String.format(" %s次获取失败，自旋失败，开始随机休眠", timesCount));
-                Thread.sleep(getSleepMills());
+                long sleepMills = getBackoff().nextSleepMills(getKey(), this, ++sleeps, holderTtlMills);
+                sleepMills = Math.max(1, Math.min(sleepMills, timeout - System.currentTimeMillis()));
+                if (log.isDebugEnabled()) {
+                    debugMessage(String.format(" %s次获取失败，自旋失败，持有者剩余 %s 毫秒，休眠 %s 毫秒", timesCount, holderTtlMills, sleepMills));
+                }
+                Thread.sleep(sleepMills);
+            } catch (InterruptedException e) {
+                // 中断时结束等待，保留中断标记
+                waitInterrupted = true;
+                Thread.currentThread().interrupt();
+                return false;
             } catch (Exception e) {
                 return  false;
             }
@@ -226,6 +589,100 @@ public class DefaultRedisLock implements IRedisLock, ILockWritable {
     }
 
 
+    /**
+     * 上一次获取的锁已经释放时丢弃旧的锁的值，下一次获取使用新的值
+     */
+    private void resetReleasedToken() {
+        if (released) {
+            uuid = null;
+            uuidBytes = null;
+            released = false;
+        }
+    }
+
+    /**
+     * 通知模式的获取，失败后等待释放通知，收到通知或兜底时间到后再重试
+     * @param timeout 超时时间点
+     * @return 结果
+     * @throws InterruptedException 线程中断
+     * @throws TimeoutException 超时
+     */
+    private boolean doAcquireByNotify(long timeout) throws InterruptedException, TimeoutException {
+        resetReleasedToken();
+        RedisLockNotifier notifier = getEnvironment().getNotifier();
+        RedisLockNotifier.Signal signal = subscribeNotify(notifier);
+        try {
+            for (int timesCount = 1; ; timesCount++) {
+                checkTimeout(timeout);
+                // 先记录版本，再尝试获取，避免错过两者之间的释放消息
+                long version = signal.version();
+                attempts++;
+                if (tryAcquire()) {
+                    if (log.isDebugEnabled()) {
+                        debugMessage(String.format(" %s次获取成功", timesCount));
+                    }
+                    return true;
+                }
+                if (rejected) {
+                    return false;
+                }
+                long waitMills = Math.min(DEFAULT_NOTIFY_FALLBACK_MILLS, timeout - System.currentTimeMillis());
+                // 持有者没有释放就过期时收不到通知，租约到期后直接重试
+                if (holderTtlMills > 0) {
+                    waitMills = Math.min(waitMills, holderTtlMills);
+                }
+                if (log.isDebugEnabled()) {
+                    debugMessage(String.format(" %s次获取失败，等待释放通知，最长 %s 毫秒", timesCount, waitMills));
+                }
+                sleeps++;
+                signal.await(version, waitMills);
+            }
+        } finally {
+            unsubscribeNotify(notifier, signal);
+        }
+    }
+
+    @Override
+    public Runnable subscribeRelease(Runnable listener) {
+        if (waitMode != RedisLockWaitMode.NOTIFY) {
+            return null;
+        }
+        RedisLockNotifier notifier = getEnvironment().getNotifier();
+        Collection<String> memberKeys = getMemberKeys();
+        RedisLockNotifier.Signal signal = notifier.subscribe(getKey(), memberKeys);
+        signal.addListener(listener);
+        return () -> {
+            signal.removeListener(listener);
+            notifier.unsubscribe(getKey(), memberKeys, signal);
+        };
+    }
+
+    /**
+     * 通知模式等待前注册等待信号，默认等待锁 key 和成员 key 的释放
+     * @param notifier 通知器
+     * @return 等待信号
+     */
+    protected RedisLockNotifier.Signal subscribeNotify(RedisLockNotifier notifier) {
+        return notifier.subscribe(getKey(), getMemberKeys());
+    }
+
+    /**
+     * 通知模式等待结束后注销等待信号
+     * @param notifier 通知器
+     * @param signal 等待信号
+     */
+    protected void unsubscribeNotify(RedisLockNotifier notifier, RedisLockNotifier.Signal signal) {
+        notifier.unsubscribe(getKey(), getMemberKeys(), signal);
+    }
+
+    /**
+     * 实际锁定的 key，通知模式下任意一个释放时都会唤醒等待者；单 key 锁为空，只等待自身的 key
+     * @return 实际锁定的 key
+     */
+    protected Collection<String> getMemberKeys() {
+        return Collections.emptyList();
+    }
+
     /**
      * 检查 超时
      * @param timeout 检查的时间
@@ -243,18 +700,21 @@ public class DefaultRedisLock implements IRedisLock, ILockWritable {
      * @return 获取所结果
      * @throws UnLockFailException done 状态，释放失败，则抛出磁异常
      */
-    private boolean doRelease(IRedisLock lock) throws UnLockFailException {
-        if (StringUtils.isEmpty(uuid)) {
+    protected boolean doRelease(IRedisLock lock) throws UnLockFailException {
+        if (uuidBytes == null && StringUtils.isEmpty(uuid)) {
             throw new IllegalArgumentException(String.format("redis 共享锁 %s provider data不存在", lock.getKey()));
         }
+        ILockStore store = acquiredStore != null ? acquiredStore : lockStore;
         // 先来 lua 释放
-        if (redisLockClient.releaseByLua(key, uuid)) {
+        Encoded current = encoded(key);
+        if (store.compareAndDelete(current.keyBytes, uuidBytes(), current.channelBytes)) {
             return true;
         }
         // 降级释放
+        getEnvironment().getMetrics().releaseFallback(METRICS_TYPES.get(getClass()));
         // 如果存在，key ，切value == uuid
-        if (uuid.equals(redisLockClient.get(key))) {
-            return redisLockClient.delete(key);
+        if (getUuid().equals(store.get(key))) {
+            return store.delete(key);
         }
         return false;
     }
@@ -265,6 +725,148 @@ public class DefaultRedisLock implements IRedisLock, ILockWritable {
      * @param message 消息
      */
     protected void debugMessage(String message){
-        log.debug(String.format("%s --> %s 锁 %s", getClass().getSimpleName(), getKey(), message));
+        if (log.isDebugEnabled()) {
+            log.debug(String.format("%s --> %s 锁 %s", getClass().getSimpleName(), getKey(), message));
+        }
+    }
+
+    /**
+     * 获取锁的值
+     * @return 锁的值，没有获取过时为 null
+     */
+    public String getUuid() {
+        if (uuid == null && uuidBytes != null) {
+            uuid = new String(uuidBytes, StandardCharsets.ISO_8859_1);
+        }
+        return uuid;
+    }
+
+    /**
+     * 设置锁的值
+     * @param uuid 锁的值
+     */
+    public void setUuid(String uuid) {
+        this.uuid = uuid;
+        this.uuidBytes = null;
+    }
+
+    /**
+     * 锁的值编码，值不变时复用
+     * @return 编码结果
+     */
+    private byte[] uuidBytes() {
+        if (uuidBytes == null) {
+            uuidBytes = RedislockUtils.stringToBytes(uuid);
+        }
+        return uuidBytes;
+    }
+
+    /**
+     * 获取所属的锁环境
+     * @return 锁环境，未设置时为默认环境
+     */
+    public RedisLockEnvironment getEnvironment() {
+        return environment == null ? RedisLockEnvironment.getInstance() : environment;
+    }
+
+    /**
+     * 获取自旋等待的退避策略
+     * @return 退避策略，未设置时为随机退避
+     */
+    public IBackoffStrategy getBackoff() {
+        return backoff == null ? RandomBackoffStrategy.INSTANCE : backoff;
+    }
+
+    /**
+     * 获取熔断时的降级策略
+     * @return 降级策略，未设置时为快速失败
+     */
+    public RedisLockDegradePolicy getDegradePolicy() {
+        return degradePolicy == null ? RedisLockDegradePolicy.FAIL_FAST : degradePolicy;
+    }
+
+    /**
+     * 环境的熔断器是否拒绝访问 redis
+     * @return 是否拒绝
+     */
+    private boolean isCircuitOpen() {
+        RedisCircuitBreaker breaker = getCircuitBreaker();
+        return breaker != null && !breaker.allowRequest();
+    }
+
+    /**
+     * 获取持有的锁所在存储的看门狗，降级为本地锁时是本地存储的看门狗
+     * @return 看门狗
+     */
+    private RedisLockWatchdog watchdog() {
+        if (acquiredStore != null && acquiredStore != lockStore) {
+            return getEnvironment().getLocalWatchdog();
+        }
+        return getEnvironment().getWatchdog();
+    }
+
+    /**
+     * 获取 key 的编码结果，key 不变时复用
+     * @param key 锁 key
+     * @return 编码结果
+     */
+    private Encoded encoded(String key) {
+        Encoded current = encoded;
+        if (current == null || !current.key.equals(key)) {
+            current = new Encoded(key);
+            encoded = current;
+        }
+        return current;
+    }
+
+    /**
+     * 锁 key 相关的编码结果
+     */
+    private static final class Encoded {
+
+        private final String key;
+
+        private final byte[] keyBytes;
+
+        private final byte[] channelBytes;
+
+        private Expiration expiration;
+
+        private byte[] lockSecondsBytes;
+
+        Encoded(String key) {
+            this.key = key;
+            this.keyBytes = RedislockUtils.stringToBytes(key);
+            this.channelBytes = RedislockUtils.stringToBytes(RedisLockClient.releaseChannel(key));
+        }
+
+        /**
+         * 锁定时长，时长不变时复用
+         * @param lockSeconds 锁定时长，秒
+         * @return 过期时间
+         */
+        Expiration expiration(int lockSeconds) {
+            if (expiration == null || expiration.getExpirationTime() != lockSeconds) {
+                expiration = Expiration.seconds(lockSeconds);
+                lockSecondsBytes = null;
+            }
+            return expiration;
+        }
+
+        /**
+         * 锁定时长的 lua 参数，时长不变时复用
+         * @param lockSeconds 锁定时长，秒
+         * @return 编码结果
+         */
+        byte[] lockSeconds(int lockSeconds) {
+            if (expiration == null || expiration.getExpirationTime() != lockSeconds) {
+                expiration = Expiration.seconds(lockSeconds);
+                lockSecondsBytes = null;
+            }
+            if (lockSecondsBytes == null) {
+                lockSecondsBytes = RedislockUtils.stringToBytes(String.valueOf(lockSeconds));
+            }
+            return lockSecondsBytes;
+        }
     }
 }
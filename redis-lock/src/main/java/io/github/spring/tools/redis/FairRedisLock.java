@@ -0,0 +1,103 @@
+package io.github.spring.tools.redis;
+
+import io.github.spring.tools.redis.exception.UnLockFailException;
+import org.springframework.util.StringUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 公平锁
+ * <p>等待者按 FIFO 顺序在 redis 队列中排队，释放锁时直接把锁交给下一个等待者，通知消息带有接手者的 id，
+ * 只唤醒接手的等待者，其他等待者继续等待，不会醒来重试；锁没有交接就释放或者过期时唤醒所有等待者，由队首获取。
+ * 等待者每次重试都会刷新自己在队列中的过期时间，宕机的等待者会被自动移出队列</p>
+ * <p>等待者过期时间使用客户端时间，各节点的时钟偏差需要远小于 {@link #WAITER_TIMEOUT_MILLS}；
+ * 交接后新持有者的锁定时长沿用释放者的 lockSeconds，同一个 key 应使用相同的配置</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class FairRedisLock extends DefaultRedisLock {
+
+    /**
+     * 是否在等待中，等待时获取失败会排队
+     */
+    private boolean waiting;
+
+    /**
+     * 创建一个公平锁，等待时总是使用通知模式
+     * @param redisLockClient 所属锁环境的锁客户端，访问结果记录到环境的熔断器
+     * @param key 锁定的key
+     * @param lockSeconds 锁定时长
+     * @param sleepMinMills 休眠最小值
+     * @param sleepMaxMills 休眠最大值
+     * @param spinTimes 自旋次数
+     * @param watchdog 是否开启看门狗自动续期
+     * @param throwableException 是否强制抛出异常
+     */
+    FairRedisLock(RedisLockClient redisLockClient, String key, int lockSeconds, int sleepMinMills, int sleepMaxMills, int spinTimes, boolean watchdog, RuntimeException throwableException) {
+        super(redisLockClient, key, lockSeconds, sleepMinMills, sleepMaxMills, spinTimes, RedisLockWaitMode.NOTIFY, watchdog, false, throwableException);
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        boolean locked = false;
+        waiting = true;
+        try {
+            locked = super.tryLock(time, unit);
+            return locked;
+        } finally {
+            waiting = false;
+            // 获取失败退出队列，如果锁恰好交接给了自己，则继续交给下一个等待者
+            if (!locked && !isStatus(RedisLockStatus.LOCKED) && !StringUtils.isEmpty(getUuid())) {
+                getRedisLockClient().fairRelease(getKey(), getUuid(), TimeUnit.SECONDS.toMillis(getLockSeconds()));
+            }
+        }
+    }
+
+    @Override
+    protected boolean isLocalDegradable() {
+        return false;
+    }
+
+    @Override
+    protected boolean doAcquire(IRedisLock lock) {
+        return getRedisLockClient().fairAcquire(lock.getKey(), waiterId(), TimeUnit.SECONDS.toMillis(lock.getLockSeconds()), WAITER_TIMEOUT_MILLS, waiting);
+    }
+
+    /**
+     * 按等待者 id 注册，交接消息只唤醒接手的等待者
+     */
+    @Override
+    protected RedisLockNotifier.Signal subscribeNotify(RedisLockNotifier notifier) {
+        return notifier.subscribeWaiter(getKey(), waiterId());
+    }
+
+    @Override
+    protected void unsubscribeNotify(RedisLockNotifier notifier, RedisLockNotifier.Signal signal) {
+        notifier.unsubscribeWaiter(getKey(), waiterId(), signal);
+    }
+
+    /**
+     * 排队使用的等待者 id，同一次获取过程中使用同一个 id
+     * @return 等待者 id
+     */
+    private String waiterId() {
+        if (StringUtils.isEmpty(getUuid())) {
+            setUuid(RedisLockTokens.next());
+        }
+        return getUuid();
+    }
+
+    @Override
+    protected boolean doRelease(IRedisLock lock) throws UnLockFailException {
+        if (StringUtils.isEmpty(getUuid())) {
+            throw new IllegalArgumentException(String.format("redis 共享锁 %s provider data不存在", lock.getKey()));
+        }
+        return getRedisLockClient().fairRelease(lock.getKey(), getUuid(), TimeUnit.SECONDS.toMillis(lock.getLockSeconds()));
+    }
+
+    /**
+     * 等待者在队列中的过期时间，需要大于通知模式的兜底重试间隔
+     */
+    public static final long WAITER_TIMEOUT_MILLS = DEFAULT_NOTIFY_FALLBACK_MILLS * 3;
+}
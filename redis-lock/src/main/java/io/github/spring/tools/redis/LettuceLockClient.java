@@ -0,0 +1,341 @@
+package io.github.spring.tools.redis;
+
+import io.github.spring.tools.redis.script.LuaScript;
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * 基于 lettuce 共享连接的锁客户端
+ * <p>获取、释放、续期、批量锁和限流器读写直接在 {@link LettuceConnectionFactory} 的共享原生连接上发送字节命令，
+ * 不经过 {@link RedisTemplate} 的序列化，也不需要每次借还连接；其余操作仍然走 {@link RedisTemplate}</p>
+ * <p>key 和值统一使用 UTF-8 编码，和锁 key 的编码一致，与应用 {@link RedisTemplate} 配置的序列化无关</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ * @see RedisLockClient#create(RedisTemplate)
+ */
+@Slf4j
+public class LettuceLockClient extends RedisLockClient {
+
+  /**
+   * 连接工厂
+   */
+  private final LettuceConnectionFactory connectionFactory;
+
+  /**
+   * 共享原生连接的命令，线程安全，第一次使用时获取
+   */
+  private volatile RedisClusterAsyncCommands<byte[], byte[]> commands;
+
+  /**
+   * 创建一个 lettuce 锁客户端
+   * @param redisTemplate redis 客户端，连接工厂必须是共享原生连接的 {@link LettuceConnectionFactory}
+   */
+  public LettuceLockClient(RedisTemplate<String, String> redisTemplate) {
+    super(redisTemplate);
+    if (!isSupported(redisTemplate)) {
+      throw new IllegalArgumentException("redisTemplate 的连接工厂不是共享原生连接的 LettuceConnectionFactory");
+    }
+    this.connectionFactory = (LettuceConnectionFactory) redisTemplate.getConnectionFactory();
+  }
+
+  @Override
+  public String get(String key) {
+    byte[] value = execute("get", commands -> commands.get(RedislockUtils.stringToBytes(key)));
+    return value == null ? null : new String(value, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * 设置数据，SET 会清除原来的过期时间，不需要再 PERSIST
+   * @param key key
+   * @param value 值
+   * @param isPersist 是否需要持久化
+   */
+  @Override
+  public void set(String key, String value, boolean isPersist) {
+    execute("set", commands -> commands.set(RedislockUtils.stringToBytes(key), RedislockUtils.stringToBytes(value)));
+  }
+
+  @Override
+  public boolean setNx(byte[] key, byte[] value, Expiration expiration) {
+    SetArgs args = SetArgs.Builder.nx();
+    if (!expiration.isPersistent()) {
+      args.px(expiration.getExpirationTimeInMilliseconds());
+    }
+    try {
+      if ("OK".equals(execute("set-nx", commands -> commands.set(key, value, args)))) {
+        if (log.isDebugEnabled()) {
+          log.debug("lettuce -> {} 获取锁{}数据成功", new String(key, StandardCharsets.UTF_8), new String(value, StandardCharsets.UTF_8));
+        }
+        return true;
+      }
+    } catch (Exception e) {
+      log.error("lettuce -> {} 锁获取超时", new String(key, StandardCharsets.UTF_8), e);
+    }
+    return false;
+  }
+
+  @Override
+  public long setNxOrPttl(byte[] key, byte[] value, byte[] lockSeconds) {
+    try {
+      Long ttl = eval("set-nx-pttl", SET_NX_PTTL_SCRIPT, ScriptOutputType.INTEGER, new byte[][]{key}, value, lockSeconds);
+      if (ttl != null) {
+        if (ttl == 0 && log.isDebugEnabled()) {
+          log.debug("lettuce -> {} 获取锁{}数据成功", new String(key, StandardCharsets.UTF_8), new String(value, StandardCharsets.UTF_8));
+        }
+        return ttl < 0 ? -1L : ttl;
+      }
+    } catch (Exception e) {
+      log.error("lettuce -> {} 锁获取超时", new String(key, StandardCharsets.UTF_8), e);
+    }
+    return -1L;
+  }
+
+  @Override
+  public long setNxWithFencing(String key, String value, int lockSeconds) {
+    try {
+      Long token = eval("fencing-set-nx", FENCING_SET_NX_SCRIPT, ScriptOutputType.INTEGER,
+              new byte[][]{RedislockUtils.stringToBytes(key), RedislockUtils.stringToBytes(fencingKey(key))},
+              RedislockUtils.stringToBytes(value), RedislockUtils.stringToBytes(String.valueOf(lockSeconds)));
+      if (token != null && token > 0) {
+        log.debug("lettuce -> {} 获取锁{}数据成功，fencing token {}", key, value, token);
+        return token;
+      }
+    } catch (Exception e) {
+      log.error("lettuce -> {} 锁获取超时", key, e);
+    }
+    return 0L;
+  }
+
+  @Override
+  public boolean releaseByLua(byte[] key, byte[] value, byte[] channel) {
+    try {
+      Boolean released = eval("release", RELEASE_SCRIPT, ScriptOutputType.BOOLEAN, new byte[][]{key}, value, channel);
+      if (Boolean.TRUE.equals(released)) {
+        if (log.isDebugEnabled()) {
+          log.debug("lettuce -> {} 释放锁成功", new String(key, StandardCharsets.UTF_8));
+        }
+        return true;
+      }
+    } catch (Exception e) {
+      log.error("lettuce -> {} 释放锁超时", new String(key, StandardCharsets.UTF_8), e);
+    }
+    return false;
+  }
+
+  /**
+   * 批量续期，命令连续写出后统一等待结果，和 pipeline 一样只有一次往返
+   * @param keys 锁 key 列表
+   * @param values 锁的值列表
+   * @param leaseMills 续期时长列表，单位毫秒
+   * @return 每个锁的续期结果
+   */
+  @Override
+  public boolean[] renewByLua(String[] keys, String[] values, long[] leaseMills) {
+    return evalBatch("renew-batch", RENEW_SCRIPT, keys, i -> new byte[][]{
+            RedislockUtils.stringToBytes(values[i]), RedislockUtils.stringToBytes(String.valueOf(leaseMills[i]))});
+  }
+
+  @Override
+  public boolean[] setNxBatch(String[] keys, String value, int lockSeconds) {
+    byte[] valueBytes = RedislockUtils.stringToBytes(value);
+    SetArgs args = SetArgs.Builder.nx().ex(lockSeconds);
+    long start = System.nanoTime();
+    boolean failed = true;
+    try {
+      RedisClusterAsyncCommands<byte[], byte[]> current = commands();
+      List<RedisFuture<String>> futures = new ArrayList<>(keys.length);
+      for (String key : keys) {
+        futures.add(current.set(RedislockUtils.stringToBytes(key), valueBytes, args));
+      }
+      boolean[] results = new boolean[keys.length];
+      for (int i = 0; i < keys.length; i++) {
+        results[i] = "OK".equals(await(futures.get(i)));
+      }
+      failed = false;
+      return results;
+    } finally {
+      recordCommand("set-nx-batch", System.nanoTime() - start, failed);
+    }
+  }
+
+  @Override
+  public boolean[] releaseBatch(String[] keys, String value) {
+    byte[] valueBytes = RedislockUtils.stringToBytes(value);
+    return evalBatch("release-batch", RELEASE_SCRIPT, keys, i -> new byte[][]{valueBytes, RedislockUtils.stringToBytes(releaseChannel(keys[i]))});
+  }
+
+  /**
+   * 获取当前 redis 时间，直接发送 TIME，不需要 lua
+   * @return 毫秒
+   */
+  @Override
+  public long queryRedisNow() {
+    List<byte[]> times = execute("time", RedisClusterAsyncCommands::time);
+    if (times == null || times.size() != 2) {
+      throw new IllegalStateException("从 redis 获取 当前服务器时间失败");
+    }
+    long seconds = Long.parseLong(new String(times.get(0), StandardCharsets.UTF_8));
+    long micros = Long.parseLong(new String(times.get(1), StandardCharsets.UTF_8));
+    return seconds * 1000 + micros / 1000;
+  }
+
+  @Override
+  public boolean delete(String key) {
+    Long deleted = execute("delete", commands -> commands.del(RedislockUtils.stringToBytes(key)));
+    return deleted != null && deleted > 0;
+  }
+
+  @Override
+  public long acquirePermits(String key, double permitsPerSecond, double maxPermits, double initStoredPermits, int permits, long maxWaitMills) {
+    byte[][] keysAndArgs = tokenBucketArgs(key, permitsPerSecond, maxPermits, initStoredPermits, permits, maxWaitMills);
+    Long result = eval("token-bucket", TOKEN_BUCKET_SCRIPT, ScriptOutputType.INTEGER, new byte[][]{keysAndArgs[0]},
+            Arrays.copyOfRange(keysAndArgs, 1, keysAndArgs.length));
+    return Objects.requireNonNull(result);
+  }
+
+  /**
+   * 执行脚本，优先 EVALSHA，NOSCRIPT 时改用 EVAL，EVAL 同时会把脚本缓存到执行的节点上
+   * @param command 命令名称，用于监控
+   * @param script 脚本
+   * @param type 返回类型
+   * @param keys key
+   * @param args 参数
+   * @param <T> 返回值类型
+   * @return 执行结果
+   */
+  private <T> T eval(String command, LuaScript script, ScriptOutputType type, byte[][] keys, byte[]... args) {
+    long start = System.nanoTime();
+    boolean failed = true;
+    try {
+      RedisClusterAsyncCommands<byte[], byte[]> current = commands();
+      T result;
+      try {
+        result = await(current.evalsha(script.getSha1(), type, keys, args));
+      } catch (Exception e) {
+        if (!LuaScript.isNoScript(e)) {
+          throw e;
+        }
+        result = await(current.eval(script.getSource(), type, keys, args));
+      }
+      failed = false;
+      return result;
+    } finally {
+      recordCommand(command, System.nanoTime() - start, failed);
+    }
+  }
+
+  /**
+   * 批量执行单 key 脚本，命令连续写出后统一等待结果，集群下 lettuce 按 slot 发往各自的节点，各节点并行执行
+   * @param command 命令名称，用于监控
+   * @param script 脚本
+   * @param keys key 列表
+   * @param args 第 i 个 key 的参数
+   * @return 每个 key 的执行结果
+   */
+  private boolean[] evalBatch(String command, LuaScript script, String[] keys, IntFunction<byte[][]> args) {
+    long start = System.nanoTime();
+    boolean failed = true;
+    try {
+      RedisClusterAsyncCommands<byte[], byte[]> current = commands();
+      List<RedisFuture<Boolean>> futures = new ArrayList<>(keys.length);
+      for (int i = 0; i < keys.length; i++) {
+        futures.add(current.evalsha(script.getSha1(), ScriptOutputType.BOOLEAN, new byte[][]{RedislockUtils.stringToBytes(keys[i])}, args.apply(i)));
+      }
+      boolean[] results = new boolean[keys.length];
+      for (int i = 0; i < keys.length; i++) {
+        Boolean result;
+        try {
+          result = await(futures.get(i));
+        } catch (Exception e) {
+          if (!LuaScript.isNoScript(e)) {
+            throw e;
+          }
+          result = await(current.eval(script.getSource(), ScriptOutputType.BOOLEAN, new byte[][]{RedislockUtils.stringToBytes(keys[i])}, args.apply(i)));
+        }
+        results[i] = Boolean.TRUE.equals(result);
+      }
+      failed = false;
+      return results;
+    } finally {
+      recordCommand(command, System.nanoTime() - start, failed);
+    }
+  }
+
+  /**
+   * 发送一条命令，等待一次往返并记录耗时和结果，获取共享连接失败也记为失败
+   * @param command 命令名称，用于监控
+   * @param call 在共享连接上发送命令
+   * @param <T> 返回值类型
+   * @return 执行结果
+   */
+  private <T> T execute(String command, Function<RedisClusterAsyncCommands<byte[], byte[]>, RedisFuture<T>> call) {
+    long start = System.nanoTime();
+    boolean failed = true;
+    try {
+      T result = await(call.apply(commands()));
+      failed = false;
+      return result;
+    } finally {
+      recordCommand(command, System.nanoTime() - start, failed);
+    }
+  }
+
+  private <T> T await(RedisFuture<T> future) {
+    return LettuceFutures.awaitOrCancel(future, connectionFactory.getTimeout(), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * 获取共享原生连接的命令，连接工厂重置连接后重新获取
+   * @return 命令
+   */
+  @SuppressWarnings("unchecked")
+  private RedisClusterAsyncCommands<byte[], byte[]> commands() {
+    RedisClusterAsyncCommands<byte[], byte[]> current = commands;
+    if (current != null && current.isOpen()) {
+      return current;
+    }
+    synchronized (this) {
+      current = commands;
+      if (current == null || !current.isOpen()) {
+        // 共享连接由连接工厂管理，关闭包装的连接不会关闭共享连接
+        RedisConnection connection = connectionFactory.getConnection();
+        try {
+          current = (RedisClusterAsyncCommands<byte[], byte[]>) connection.getNativeConnection();
+        } finally {
+          connection.close();
+        }
+        commands = current;
+      }
+    }
+    return current;
+  }
+
+  /**
+   * redisTemplate 是否可以使用 lettuce 共享连接
+   * @param redisTemplate redis 客户端
+   * @return 结果
+   */
+  static boolean isSupported(RedisTemplate<String, String> redisTemplate) {
+    RedisConnectionFactory factory = redisTemplate.getConnectionFactory();
+    return factory instanceof LettuceConnectionFactory && ((LettuceConnectionFactory) factory).getShareNativeConnection();
+  }
+}
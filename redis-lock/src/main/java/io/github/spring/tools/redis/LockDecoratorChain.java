@@ -0,0 +1,125 @@
+package io.github.spring.tools.redis;
+
+import io.github.spring.tools.redis.decorator.AbsLockDecorator;
+import org.springframework.core.annotation.OrderUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 预编译的装饰者链
+ * <p>每种装饰者组合只排序、查找构造函数一次，之后包装一个锁只是按顺序调用几次构造函数，不加全局锁</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+final class LockDecoratorChain {
+
+  /**
+   * 装饰者构造函数的统一签名
+   */
+  private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(IRedisLock.class, IRedisLock.class);
+
+  /**
+   * 已编译的装饰者链，key 为装饰者组合
+   */
+  private static final Map<Set<Class<? extends AbsLockDecorator>>, LockDecoratorChain> CHAINS = new ConcurrentHashMap<>();
+
+  /**
+   * 没有装饰者
+   */
+  private static final LockDecoratorChain EMPTY = new LockDecoratorChain(new MethodHandle[0]);
+
+  /**
+   * 比较器
+   */
+  private static final Comparator<Class<? extends AbsLockDecorator>> DECORATOR_COMPARATOR = Comparator.comparing(clazz -> {
+    Integer order = OrderUtils.getOrder(clazz);
+    return order == null ? AbsLockDecorator.ORDER_DEFAULT : order;
+  });
+
+  /**
+   * 按顺序排列的构造函数
+   */
+  private final MethodHandle[] constructors;
+
+  private LockDecoratorChain(MethodHandle[] constructors) {
+    this.constructors = constructors;
+  }
+
+  /**
+   * 获取装饰者组合对应的链，第一次使用时编译
+   * @param classes 单个锁的装饰者
+   * @param globalClasses 全局的装饰者
+   * @return 装饰者链
+   */
+  static LockDecoratorChain of(Set<Class<? extends AbsLockDecorator>> classes, Set<Class<? extends AbsLockDecorator>> globalClasses) {
+    Objects.requireNonNull(classes);
+    Set<Class<? extends AbsLockDecorator>> key;
+    if (globalClasses.isEmpty()) {
+      key = classes;
+    } else if (classes.isEmpty() || globalClasses.containsAll(classes)) {
+      key = globalClasses;
+    } else {
+      key = new HashSet<>(classes);
+      key.addAll(globalClasses);
+    }
+    if (key.isEmpty()) {
+      return EMPTY;
+    }
+    LockDecoratorChain chain = CHAINS.get(key);
+    if (chain == null) {
+      // 传入的集合之后还可能被修改，缓存一份不可变的拷贝
+      chain = CHAINS.computeIfAbsent(Collections.unmodifiableSet(new HashSet<>(key)), LockDecoratorChain::compile);
+    }
+    return chain;
+  }
+
+  /**
+   * 依次安装装饰者
+   * @param lock 基础锁实例
+   * @return 装饰后的锁
+   */
+  IRedisLock decorate(IRedisLock lock) {
+    for (MethodHandle constructor : constructors) {
+      try {
+        lock = (IRedisLock) constructor.invokeExact(lock);
+      } catch (RuntimeException | Error e) {
+        throw e;
+      } catch (Throwable e) {
+        throw new IllegalArgumentException(e);
+      }
+    }
+    return lock;
+  }
+
+  /**
+   * 编译装饰者组合，按 {@link org.springframework.core.annotation.Order} 排序并查找构造函数
+   * @param classes 装饰者组合
+   * @return 装饰者链
+   */
+  private static LockDecoratorChain compile(Set<Class<? extends AbsLockDecorator>> classes) {
+    List<Class<? extends AbsLockDecorator>> decoratorList = new ArrayList<>(classes);
+    decoratorList.sort(DECORATOR_COMPARATOR);
+    MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+    MethodHandle[] constructors = new MethodHandle[decoratorList.size()];
+    for (int i = 0; i < constructors.length; i++) {
+      try {
+        constructors[i] = lookup.findConstructor(decoratorList.get(i), MethodType.methodType(void.class, IRedisLock.class)).asType(CONSTRUCTOR_TYPE);
+      } catch (NoSuchMethodException | IllegalAccessException e) {
+        throw new IllegalArgumentException(String.format("装饰者 %s 需要 public 的 (IRedisLock) 构造函数", decoratorList.get(i).getName()), e);
+      }
+    }
+    return new LockDecoratorChain(constructors);
+  }
+}
@@ -0,0 +1,105 @@
+package io.github.spring.tools.redis;
+
+import io.github.spring.tools.redis.exception.UnLockFailException;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多 key 锁
+ * <p>在一个 lua 中同时锁定多个 key，全部成功或者全部失败，释放时也在一个 lua 中完成，
+ * 代替多个锁嵌套获取，避免 N 次往返和加锁顺序不一致导致的死锁</p>
+ * <p>key 会去重并按字典序排序，每个 key 和单 key 锁使用相同的前缀和 hash tag 策略；Redis Cluster 下所有 key 需要同一个 hash tag，
+ * 通过 {@link RedisLockBuilder#hashTag(String)} 或者锁环境的 {@link io.github.spring.tools.redis.cluster.IHashTagStrategy#fixed(String)} 指定</p>
+ * <p>锁自身的 key 是所有 key 的组合，用于重入和日志，和单 key 锁互斥的是其中每一个 key；等待时任意一个 key 释放或者过期都会唤醒</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class MultiRedisLock extends DefaultRedisLock {
+
+    /**
+     * 实际锁定的 key，已排序
+     */
+    private final String[] keys;
+
+    /**
+     * 创建一个多 key 锁，不支持看门狗和 fencing token
+     * @param redisLockClient 所属锁环境的锁客户端，访问结果记录到环境的熔断器
+     * @param keys 实际锁定的 key，已排序
+     * @param lockSeconds 锁定时长
+     * @param sleepMinMills 休眠最小值
+     * @param sleepMaxMills 休眠最大值
+     * @param spinTimes 自旋次数
+     * @param waitMode 等待模式
+     * @param throwableException 是否强制抛出异常
+     */
+    MultiRedisLock(RedisLockClient redisLockClient, List<String> keys, int lockSeconds, int sleepMinMills, int sleepMaxMills, int spinTimes, RedisLockWaitMode waitMode, RuntimeException throwableException) {
+        super(redisLockClient, compositeKey(keys), lockSeconds, sleepMinMills, sleepMaxMills, spinTimes, waitMode, false, false, throwableException);
+        this.keys = keys.toArray(new String[0]);
+    }
+
+    @Override
+    protected boolean isLocalDegradable() {
+        return false;
+    }
+
+    @Override
+    protected boolean doAcquire(IRedisLock lock) {
+        setUuid(RedisLockTokens.next());
+        return getRedisLockClient().multiAcquire(keys, getUuid(), TimeUnit.SECONDS.toMillis(lock.getLockSeconds()));
+    }
+
+    @Override
+    protected boolean doRelease(IRedisLock lock) throws UnLockFailException {
+        if (StringUtils.isEmpty(getUuid())) {
+            throw new IllegalArgumentException(String.format("redis 共享锁 %s provider data不存在", lock.getKey()));
+        }
+        // 有 key 已经过期时，持有期间可能已被他人获取，视为释放失败
+        return getRedisLockClient().multiRelease(keys, getUuid(), lock.getKey()) == keys.length;
+    }
+
+    @Override
+    protected Collection<String> getMemberKeys() {
+        return Arrays.asList(keys);
+    }
+
+    /**
+     * 获取实际锁定的 key
+     * @return 已排序的 key
+     */
+    public List<String> getKeys() {
+        return Collections.unmodifiableList(Arrays.asList(keys));
+    }
+
+    /**
+     * 生成规范的 key 列表：去重、排序，设置了 hash tag 时给每个 key 加上同一个 hash tag
+     * @param keys 原始 key
+     * @param hashTag hash tag，为空时不处理
+     * @return 规范的 key 列表
+     */
+    static List<String> canonicalKeys(Collection<String> keys, String hashTag) {
+        Objects.requireNonNull(keys);
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("多 key 锁至少需要一个 key");
+        }
+        TreeSet<String> sorted = new TreeSet<>();
+        for (String key : keys) {
+            if (StringUtils.isEmpty(key)) {
+                throw new IllegalArgumentException("多 key 锁的 key 不能为空");
+            }
+            sorted.add(StringUtils.isEmpty(hashTag) ? key : "{" + hashTag + "}" + key);
+        }
+        return new ArrayList<>(sorted);
+    }
+
+    /**
+     * 组合 key
+     * @param keys 已排序的 key
+     * @return 组合后的 key
+     */
+    private static String compositeKey(List<String> keys) {
+        return "multi:" + String.join(",", keys);
+    }
+}
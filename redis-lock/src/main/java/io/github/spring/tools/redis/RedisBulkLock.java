@@ -0,0 +1,144 @@
+package io.github.spring.tools.redis;
+
+import io.github.spring.tools.redis.breaker.RedisCircuitBreaker;
+import io.github.spring.tools.redis.capable.ILockWritable;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 批量锁，一次锁定大量互相独立的 key
+ * <p>和 {@link MultiRedisLock} 的全部成功或者全部失败不同，每个 key 单独获取，结果中分别列出获取成功和被他人持有的 key；
+ * 所有 SET NX 和释放 lua 按 {@link #BATCH_SIZE} 分批通过 pipeline 发送，1 万个 key 只需要 10 次往返</p>
+ * <p>批量锁不等待、不重入，也不支持看门狗，适合批量导入等场景</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+@Slf4j
+public class RedisBulkLock {
+
+    /**
+     * 每个 pipeline 的命令数量
+     */
+    public static final int BATCH_SIZE = 1000;
+
+    /**
+     * 锁定时长，秒
+     */
+    @Getter
+    private final int lockSeconds;
+
+    private final RedisLockClient redisLockClient;
+
+    RedisBulkLock(int lockSeconds, RedisLockClient redisLockClient) {
+        this.lockSeconds = lockSeconds;
+        this.redisLockClient = redisLockClient;
+    }
+
+    /**
+     * 尝试获取所有 key，不等待，重复的 key 只获取一次
+     * <p>某个批次发送失败时，释放已经获取的 key 后抛出异常；redis 熔断中不访问 redis，所有 key 都获取失败</p>
+     * @param keys 原始 key，会合并全局前缀
+     * @return 获取结果
+     */
+    public BulkLockResult tryLock(Collection<String> keys) {
+        Objects.requireNonNull(keys);
+        String[] rawKeys = new LinkedHashSet<>(keys).toArray(new String[0]);
+        String value = RedisLockTokens.next();
+        List<String> acquired = new ArrayList<>(rawKeys.length);
+        List<String> missed = new ArrayList<>();
+        RedisCircuitBreaker breaker = redisLockClient.getCircuitBreaker();
+        if (breaker != null && !breaker.allowRequest()) {
+            log.debug("RedisBulkLock redis 熔断中，快速失败");
+            missed.addAll(Arrays.asList(rawKeys));
+            return new BulkLockResult(value, acquired, missed);
+        }
+        try {
+            for (int from = 0; from < rawKeys.length; from += BATCH_SIZE) {
+                int to = Math.min(from + BATCH_SIZE, rawKeys.length);
+                boolean[] results = redisLockClient.setNxBatch(lockKeys(rawKeys, from, to), value, lockSeconds);
+                for (int i = from; i < to; i++) {
+                    (results[i - from] ? acquired : missed).add(rawKeys[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            // 后面的批次失败时，释放前面批次已经获取的 key，避免一直占用到过期
+            if (!acquired.isEmpty()) {
+                try {
+                    unlock(new BulkLockResult(value, acquired, missed));
+                } catch (RuntimeException releaseException) {
+                    e.addSuppressed(releaseException);
+                }
+            }
+            throw e;
+        }
+        log.debug("RedisBulkLock 获取 {} 个 key，成功 {} 个", rawKeys.length, acquired.size());
+        return new BulkLockResult(value, acquired, missed);
+    }
+
+    /**
+     * 释放 {@link #tryLock(Collection)} 获取成功的所有 key
+     * @param result 获取结果
+     * @return 释放失败的 key，锁已过期或者被他人持有，需要调用方自行回滚
+     */
+    public List<String> unlock(BulkLockResult result) {
+        Objects.requireNonNull(result);
+        String[] rawKeys = result.getAcquired().toArray(new String[0]);
+        List<String> lost = new ArrayList<>();
+        for (int from = 0; from < rawKeys.length; from += BATCH_SIZE) {
+            int to = Math.min(from + BATCH_SIZE, rawKeys.length);
+            boolean[] results = redisLockClient.releaseBatch(lockKeys(rawKeys, from, to), result.getValue());
+            for (int i = from; i < to; i++) {
+                if (!results[i - from]) {
+                    lost.add(rawKeys[i]);
+                }
+            }
+        }
+        if (!lost.isEmpty()) {
+            log.warn("RedisBulkLock {} 个 key 释放失败，锁已过期或者被他人持有", lost.size());
+        }
+        return lost;
+    }
+
+    /**
+     * 合并全局前缀，按 hash tag 策略处理
+     * @param rawKeys 原始 key
+     * @param from 开始下标
+     * @param to 结束下标，不包含
+     * @return 锁的 key
+     */
+    private static String[] lockKeys(String[] rawKeys, int from, int to) {
+        RedisLockEnvironment environment = RedisLockEnvironment.getInstance();
+        String[] lockKeys = new String[to - from];
+        for (int i = from; i < to; i++) {
+            lockKeys[i - from] = environment.lockKey(rawKeys[i], null);
+        }
+        return lockKeys;
+    }
+
+    /**
+     * 创建一个实例，锁定时长为默认值
+     * @return 对象
+     */
+    public static RedisBulkLock create() {
+        return create(ILockWritable.DEFAULT_LOCK_SECONDS);
+    }
+
+    /**
+     * 创建一个实例
+     * @param lockSeconds 锁定时长，秒
+     * @return 对象
+     */
+    public static RedisBulkLock create(int lockSeconds) {
+        Assert.isTrue(lockSeconds > 0, "lockSeconds 必须大于0");
+        return new RedisBulkLock(lockSeconds, RedisLockEnvironment.getInstance().getLockClient());
+    }
+}
@@ -1,6 +1,11 @@
 package io.github.spring.tools.redis;
 
+import io.github.spring.tools.redis.backoff.IBackoffStrategy;
+import io.github.spring.tools.redis.breaker.RedisCircuitBreaker;
+import io.github.spring.tools.redis.cluster.ClusterSlots;
+import io.github.spring.tools.redis.cluster.IHashTagStrategy;
 import io.github.spring.tools.redis.decorator.AbsLockDecorator;
+import io.github.spring.tools.redis.store.ILockStore;
 import lombok.Getter;
 import org.springframework.data.redis.core.RedisTemplate;
 
@@ -42,6 +47,41 @@ public class RedisLockBuilder {
    */
   private int spinTimes = DEFAULT_EMPTY;
 
+  /**
+   * 等待模式，为空时使用全局配置，默认 {@link RedisLockWaitMode#SPIN}
+   */
+  private RedisLockWaitMode waitMode;
+
+  /**
+   * 是否开启看门狗自动续期，为空时使用全局配置，默认关闭
+   */
+  private Boolean watchdog;
+
+  /**
+   * 是否生成 fencing token，为空时使用全局配置，默认关闭
+   */
+  private Boolean fencing;
+
+  /**
+   * 是否公平锁
+   */
+  private boolean fair;
+
+  /**
+   * 多数派锁的独立 redis 节点，为空时使用全局配置，都为空时不使用多数派锁
+   */
+  private List<RedisTemplate<String, String>> quorumTemplates;
+
+  /**
+   * 多 key 锁的 key
+   */
+  private List<String> keys;
+
+  /**
+   * 多 key 锁的 hash tag，为空时集群模式下所有 key 必须已经带有同一个 hash tag，否则创建失败
+   */
+  private String hashTag;
+
   /**
    * key前缀
    */
@@ -57,6 +97,30 @@ public class RedisLockBuilder {
    */
   private Set<Class<? extends AbsLockDecorator>> decorators = new HashSet<>(8);
 
+  /**
+   * 使用的锁环境名称，为空时使用默认环境
+   */
+  private String environment;
+
+  /**
+   * 自旋等待的退避策略
+   */
+  private IBackoffStrategy backoff;
+
+  /**
+   * Redis Cluster 下 key 的 hash tag 策略，属于锁环境
+   */
+  private IHashTagStrategy hashTagStrategy;
+
+  /**
+   * redis 熔断器，属于锁环境
+   */
+  private RedisCircuitBreaker circuitBreaker;
+
+  /**
+   * 熔断时的降级策略
+   */
+  private RedisLockDegradePolicy degradePolicy;
 
   /**
    * 设置 共享锁 key
@@ -120,6 +184,71 @@ public class RedisLockBuilder {
     return this;
   }
 
+  /**
+   * 设置等待模式
+   * @param waitMode 等待模式
+   * @return chain
+   */
+  public RedisLockBuilder waitMode(RedisLockWaitMode waitMode){
+    this.waitMode = waitMode;
+    return this;
+  }
+
+  /**
+   * 开启看门狗，持有锁期间按 lockSeconds 自动续期，释放锁或持有线程结束后停止；
+   * 多 key 锁和多数派锁不支持，显式开启时创建失败，全局默认值对它们不生效
+   * @param watchdog 是否开启
+   * @return chain
+   */
+  public RedisLockBuilder watchdog(boolean watchdog){
+    this.watchdog = watchdog;
+    return this;
+  }
+
+  /**
+   * 开启 fencing token，每次获取锁成功都会得到一个递增的 token，见 {@link IRedisLock#getFencingToken()}
+   * 每个 key 会多一个不过期的计数器；多 key 锁和多数派锁不支持，显式开启时创建失败，全局默认值对它们不生效
+   * @param fencing 是否开启
+   * @return chain
+   */
+  public RedisLockBuilder fencing(boolean fencing){
+    this.fencing = fencing;
+    return this;
+  }
+
+  /**
+   * 使用公平锁，等待者按 FIFO 顺序获取锁，释放时直接交给下一个等待者，见 {@link FairRedisLock}
+   * 公平锁总是使用 {@link RedisLockWaitMode#NOTIFY} 等待，不支持 fencing token，显式设置其他等待模式或者 fencing 时创建失败
+   * @param fair 是否公平锁
+   * @return chain
+   */
+  public RedisLockBuilder fair(boolean fair){
+    this.fair = fair;
+    return this;
+  }
+
+  /**
+   * 使用多数派锁（Redlock），在多个独立的 redis 节点上并行获取，多数成功即获取成功，见 {@link RedisQuorumLock}；
+   * 不能和多 key 锁、公平锁、看门狗、fencing token 同时使用
+   * @param quorumTemplates 独立的 redis 节点，建议奇数个
+   * @return chain
+   */
+  public RedisLockBuilder quorum(List<RedisTemplate<String, String>> quorumTemplates){
+    this.quorumTemplates = quorumTemplates;
+    return this;
+  }
+
+  /**
+   * 多 key 锁的 hash tag，所有 key 在合并前缀前加上同一个 hash tag：{tag}key，Redis Cluster 下落在同一个 slot；
+   * 使用 {tag}key 作为 key 的单 key 锁和它互斥
+   * @param hashTag hash tag
+   * @return chain
+   */
+  public RedisLockBuilder hashTag(String hashTag){
+    this.hashTag = hashTag;
+    return this;
+  }
+
   /**
    * key 的前缀
    * @param keyPrefix
@@ -154,23 +283,224 @@ public class RedisLockBuilder {
     return this;
   }
 
+  /**
+   * 设置 使用的锁环境，环境需要先通过 {@link #buildEnv(String, RedisTemplate)} 注册
+   * @param environment 环境名称，为空时使用默认环境
+   * @return chain 对象
+   */
+  public RedisLockBuilder environment(String environment){
+    this.environment = environment;
+    return this;
+  }
+
+  /**
+   * 设置 自旋等待的退避策略，默认在 sleepMinMills 和 sleepMaxMills 之间随机休眠
+   * @param backoff 退避策略，见 {@link io.github.spring.tools.redis.backoff.AdaptiveBackoffStrategy}
+   * @return chain 对象
+   */
+  public RedisLockBuilder backoff(IBackoffStrategy backoff){
+    this.backoff = backoff;
+    return this;
+  }
+
+  /**
+   * 设置 key 的 hash tag 策略，锁环境级别的配置，在 {@link #buildEnv(RedisTemplate)} 或者全局配置上设置，
+   * 单个锁上设置不生效；多 key 锁使用 {@link #hashTag(String)}
+   * @param hashTagStrategy hash tag 策略，默认 {@link IHashTagStrategy#NONE}
+   * @return chain 对象
+   */
+  public RedisLockBuilder hashTagStrategy(IHashTagStrategy hashTagStrategy){
+    this.hashTagStrategy = hashTagStrategy;
+    return this;
+  }
+
+  /**
+   * 设置 redis 熔断器，锁环境级别的配置，在 {@link #buildEnv(RedisTemplate)} 或者全局配置上设置，单个锁上设置不生效
+   * @param circuitBreaker 熔断器，默认不熔断
+   * @return chain 对象
+   */
+  public RedisLockBuilder circuitBreaker(RedisCircuitBreaker circuitBreaker){
+    this.circuitBreaker = circuitBreaker;
+    return this;
+  }
+
+  /**
+   * 设置 熔断器打开时的降级策略，只对普通锁生效，公平锁、读写锁等依赖 lua 脚本的锁不降级
+   * @param degradePolicy 降级策略，默认 {@link RedisLockDegradePolicy#FAIL_FAST}
+   * @return chain 对象
+   */
+  public RedisLockBuilder degradePolicy(RedisLockDegradePolicy degradePolicy){
+    this.degradePolicy = degradePolicy;
+    return this;
+  }
+
   /**
    * 开始生成
    * @return RedisLock
    */
   public IRedisLock build(){
-    DefaultRedisLock lock = new DefaultRedisLock(
-            RedisLockEnvironment.getInstance().getRedisTemplate(),
-            key,
+    RedisLockEnvironment env = getEnvironmentValue();
+    DefaultRedisLock lock;
+    List<RedisTemplate<String, String>> quorumTemplatesValue = getQuorumTemplatesValue();
+    if (quorumTemplatesValue != null) {
+      if (keys != null || fair) {
+        throw new IllegalStateException("多数派锁不支持多 key 锁和公平锁，不能同时设置");
+      }
+      checkNoLeaseOptions("多数派锁");
+      List<RedisLockClient> nodes = new ArrayList<>(quorumTemplatesValue.size());
+      for (RedisTemplate<String, String> quorumTemplate : quorumTemplatesValue) {
+        nodes.add(env.getQuorumClient(quorumTemplate));
+      }
+      lock = new RedisQuorumLock(
+              nodes,
+              key,
+              getDefaultValue(lockSeconds, DEFAULT_LOCK_SECONDS),
+              getDefaultValue(sleepMinMills, DEFAULT_SLEEP_MIN_MILLS),
+              getDefaultValue(sleepMaxMills, DEFAULT_SLEEP_MAX_MILLS),
+              getDefaultValue(spinTimes, DEFAULT_SPIN_TIME),
+              throwableException
+      );
+    } else if (keys != null) {
+      checkNoLeaseOptions("多 key 锁");
+      lock = new MultiRedisLock(
+              env.getLockClient(),
+              getMultiKeys(),
+              getDefaultValue(lockSeconds, DEFAULT_LOCK_SECONDS),
+              getDefaultValue(sleepMinMills, DEFAULT_SLEEP_MIN_MILLS),
+              getDefaultValue(sleepMaxMills, DEFAULT_SLEEP_MAX_MILLS),
+              getDefaultValue(spinTimes, DEFAULT_SPIN_TIME),
+              getWaitModeValue(),
+              throwableException
+      );
+    } else if (fair) {
+      checkHashTag(env, "公平锁");
+      if (Boolean.TRUE.equals(fencing)) {
+        throw new IllegalStateException("公平锁不支持 fencing token");
+      }
+      if (waitMode != null && waitMode != RedisLockWaitMode.NOTIFY) {
+        throw new IllegalStateException(String.format("公平锁只支持 NOTIFY 等待模式，不支持 %s", waitMode));
+      }
+      lock = new FairRedisLock(
+              env.getLockClient(),
+              key,
+              getDefaultValue(lockSeconds, DEFAULT_LOCK_SECONDS),
+              getDefaultValue(sleepMinMills, DEFAULT_SLEEP_MIN_MILLS),
+              getDefaultValue(sleepMaxMills, DEFAULT_SLEEP_MAX_MILLS),
+              getDefaultValue(spinTimes, DEFAULT_SPIN_TIME),
+              getWatchdogValue(),
+              throwableException
+      );
+    } else {
+      if (getFencingValue()) {
+        checkHashTag(env, "fencing 锁");
+      }
+      lock = new DefaultRedisLock(
+              env.getLockStore(),
+              key,
+              getDefaultValue(lockSeconds, DEFAULT_LOCK_SECONDS),
+              getDefaultValue(sleepMinMills, DEFAULT_SLEEP_MIN_MILLS),
+              getDefaultValue(sleepMaxMills, DEFAULT_SLEEP_MAX_MILLS),
+              getDefaultValue(spinTimes, DEFAULT_SPIN_TIME),
+              getWaitModeValue(),
+              getWatchdogValue(),
+              getFencingValue(),
+              throwableException
+      );
+    }
+    lock.setBackoff(backoff != null ? backoff : env.getDefaults().getBackoff());
+    lock.setDegradePolicy(getDegradePolicyValue());
+    return RedislockUtils.mergeEnv(lock, decorators, keyPrefix, env);
+  }
+
+
+  /**
+   * 生成读写锁，读锁、写锁不经过装饰者包装，见 {@link RedisReadWriteLock}
+   * @return 读写锁
+   */
+  public RedisReadWriteLock buildReadWriteLock(){
+    RedisLockEnvironment env = getEnvironmentValue();
+    checkHashTag(env, "读写锁");
+    return new RedisReadWriteLock(
+            env,
+            env.lockKey(key, keyPrefix),
             getDefaultValue(lockSeconds, DEFAULT_LOCK_SECONDS),
             getDefaultValue(sleepMinMills, DEFAULT_SLEEP_MIN_MILLS),
             getDefaultValue(sleepMaxMills, DEFAULT_SLEEP_MAX_MILLS),
             getDefaultValue(spinTimes, DEFAULT_SPIN_TIME),
+            getWatchdogValue(),
             throwableException
-            );
-    return RedislockUtils.mergeEnv(lock, decorators, keyPrefix);
+    );
   }
 
+  /**
+   * Redis Cluster 下锁和关联数据（fencing 计数器、公平锁队列、读写锁读者集合）在同一个 lua 脚本中访问，
+   * 锁 key 没有 hash tag 时会落在不同的 slot，创建时直接失败，不在执行脚本时报 CROSSSLOT
+   * @param env 锁环境
+   * @param feature 锁的类型，用于提示
+   */
+  private void checkHashTag(RedisLockEnvironment env, String feature){
+    String lockKey = env.lockKey(key, keyPrefix);
+    if (!ClusterSlots.hasHashTag(lockKey) && env.isCluster()) {
+      throw new IllegalStateException(String.format("Redis Cluster 下%s的 key [%s] 没有 hash tag，锁和关联数据不在同一个 slot；"
+              + "请在锁环境上设置 hashTagStrategy(IHashTagStrategy.LOCK_KEY) 或者在 key 中带上 {tag}", feature, lockKey));
+    }
+  }
+
+  /**
+   * 多 key 锁和多数派锁不续期、不生成 fencing token，显式开启看门狗或者 fencing 时直接失败，避免误以为已经生效
+   * @param feature 锁的类型，用于提示
+   */
+  private void checkNoLeaseOptions(String feature){
+    if (Boolean.TRUE.equals(watchdog) || Boolean.TRUE.equals(fencing)) {
+      throw new IllegalStateException(String.format("%s不支持看门狗和 fencing token", feature));
+    }
+  }
+
+  /**
+   * 获取多数派锁的节点，未设置时取全局配置
+   * @return 节点，不使用多数派锁时返回 null
+   */
+  private List<RedisTemplate<String, String>> getQuorumTemplatesValue(){
+    List<RedisTemplate<String, String>> templates = quorumTemplates;
+    if (templates == null) {
+      templates = getEnvironmentValue().getDefaults().getQuorumTemplates();
+    }
+    return templates == null || templates.isEmpty() ? null : templates;
+  }
+
+  /**
+   * 获取多 key 锁最终锁定的 key：设置了 hash tag 时先加上 tag，再和单 key 锁一样合并前缀、按环境的策略处理，最后排序；
+   * 每个 key 和使用相同 key 的单 key 锁一致，两者互斥。Redis Cluster 下所有 key 需要同一个 hash tag，否则创建失败
+   * @return 最终的 key
+   */
+  private List<String> getMultiKeys(){
+    RedisLockEnvironment env = getEnvironmentValue();
+    List<String> lockKeys = new ArrayList<>(keys.size());
+    for (String multiKey : MultiRedisLock.canonicalKeys(keys, hashTag)) {
+      lockKeys.add(env.lockKey(multiKey, keyPrefix));
+    }
+    lockKeys = MultiRedisLock.canonicalKeys(lockKeys, null);
+    if (env.isCluster()) {
+      String tag = ClusterSlots.hashTag(lockKeys.get(0));
+      for (String lockKey : lockKeys) {
+        if (tag == null || !tag.equals(ClusterSlots.hashTag(lockKey))) {
+          throw new IllegalStateException(String.format("Redis Cluster 下多 key 锁的所有 key 需要同一个 hash tag，%s 不满足；"
+                  + "请通过 hashTag(...) 指定，或者在锁环境上设置 hashTagStrategy(IHashTagStrategy.fixed(...))", lockKeys));
+        }
+      }
+    }
+    return lockKeys;
+  }
+
+  /**
+   * 获取使用的锁环境
+   * @return 锁环境，未设置名称时为默认环境
+   */
+  private RedisLockEnvironment getEnvironmentValue(){
+    RedisLockEnvironment env = RedisLockEnvironment.getInstance(environment);
+    Objects.requireNonNull(env, "锁环境未初始化");
+    return env;
+  }
 
   /**
    * 获取默认值
@@ -182,6 +512,52 @@ public class RedisLockBuilder {
     return value == DEFAULT_EMPTY ? defaultValue : value;
   }
 
+  /**
+   * 获取等待模式，未设置时取全局配置
+   * @return 等待模式
+   */
+  private RedisLockWaitMode getWaitModeValue(){
+    if (waitMode != null) {
+      return waitMode;
+    }
+    RedisLockWaitMode envWaitMode = getEnvironmentValue().getDefaults().getWaitMode();
+    return envWaitMode == null ? RedisLockWaitMode.SPIN : envWaitMode;
+  }
+
+  /**
+   * 获取是否开启看门狗，未设置时取全局配置
+   * @return 是否开启
+   */
+  private boolean getWatchdogValue(){
+    if (watchdog != null) {
+      return watchdog;
+    }
+    return Boolean.TRUE.equals(getEnvironmentValue().getDefaults().getWatchdog());
+  }
+
+  /**
+   * 获取是否开启 fencing token，未设置时取全局配置
+   * @return 是否开启
+   */
+  private boolean getFencingValue(){
+    if (fencing != null) {
+      return fencing;
+    }
+    return Boolean.TRUE.equals(getEnvironmentValue().getDefaults().getFencing());
+  }
+
+  /**
+   * 获取熔断时的降级策略，未设置时取全局配置
+   * @return 降级策略
+   */
+  private RedisLockDegradePolicy getDegradePolicyValue(){
+    if (degradePolicy != null) {
+      return degradePolicy;
+    }
+    RedisLockDegradePolicy envDegradePolicy = getEnvironmentValue().getDefaults().getDegradePolicy();
+    return envDegradePolicy == null ? RedisLockDegradePolicy.FAIL_FAST : envDegradePolicy;
+  }
+
   /**
    * 是否默认值
    * @param value 检查的值
@@ -192,13 +568,49 @@ public class RedisLockBuilder {
   }
 
   /**
-   * 设置 全局环境
+   * 设置 全局环境，保留原始类型的参数以兼容注入原始类型 redisTemplate 的配置
    * @param redisTemplate 设置 环境
    * @return 环境对象
    */
+  @SuppressWarnings({"unchecked", "rawtypes"})
   public RedisLockEnvironment buildEnv(RedisTemplate redisTemplate){
-    new RedisLockEnvironment(redisTemplate, this);
-    return RedisLockEnvironment.getInstance();
+    return buildEnv(RedisLockEnvironment.DEFAULT_NAME, redisTemplate);
+  }
+
+  /**
+   * 设置 命名的锁环境，名称为 {@link RedisLockEnvironment#DEFAULT_NAME} 时替换默认环境
+   * @param name 环境名称
+   * @param redisTemplate 设置 环境
+   * @return 环境对象
+   */
+  public RedisLockEnvironment buildEnv(String name, RedisTemplate<String, String> redisTemplate){
+    RedisLockEnvironment env = new RedisLockEnvironment(name, redisTemplate, this);
+    // 启动时预加载 lua 脚本，之后只发送 SHA1
+    env.getLockClient().loadScripts();
+    return env;
+  }
+
+  /**
+   * 设置 使用指定锁存储的全局环境，例如单机部署时使用 {@link io.github.spring.tools.redis.store.MemoryLockStore}
+   * @param lockStore 锁存储
+   * @return 环境对象
+   */
+  public RedisLockEnvironment buildEnv(ILockStore lockStore){
+    return buildEnv(RedisLockEnvironment.DEFAULT_NAME, lockStore);
+  }
+
+  /**
+   * 设置 使用指定锁存储的命名环境，名称为 {@link RedisLockEnvironment#DEFAULT_NAME} 时替换默认环境
+   * @param name 环境名称
+   * @param lockStore 锁存储
+   * @return 环境对象
+   */
+  public RedisLockEnvironment buildEnv(String name, ILockStore lockStore){
+    RedisLockEnvironment env = new RedisLockEnvironment(name, lockStore, this);
+    if (env.isRedis()) {
+      env.getLockClient().loadScripts();
+    }
+    return env;
   }
 
   /**
@@ -211,6 +623,27 @@ public class RedisLockBuilder {
   }
 
 
+  /**
+   * 生成多 key 锁，所有 key 在一个 lua 中同时锁定和释放，见 {@link MultiRedisLock}
+   * @param keys 要锁定的 key
+   * @return 生成一个 builder
+   */
+  public static RedisLockBuilder multiBuilder(String... keys){
+    return multiBuilder(Arrays.asList(keys));
+  }
+
+  /**
+   * 生成多 key 锁，所有 key 在一个 lua 中同时锁定和释放，见 {@link MultiRedisLock}
+   * @param keys 要锁定的 key
+   * @return 生成一个 builder
+   */
+  public static RedisLockBuilder multiBuilder(Collection<String> keys){
+    Objects.requireNonNull(keys);
+    RedisLockBuilder builder = new RedisLockBuilder();
+    builder.keys = new ArrayList<>(keys);
+    return builder.key(String.join(",", new TreeSet<>(keys)));
+  }
+
   /**
    * 默认空数据
    */
@@ -1,28 +1,165 @@
 package io.github.spring.tools.redis;
 
+import io.github.spring.tools.redis.breaker.RedisCircuitBreaker;
+import io.github.spring.tools.redis.cluster.ClusterSlots;
+import io.github.spring.tools.redis.metrics.IRedisLockMetrics;
+import io.github.spring.tools.redis.script.LuaScript;
+import io.github.spring.tools.redis.script.LuaScriptRegistry;
+import io.github.spring.tools.redis.store.ILockStore;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
 import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
 import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 /**
- * 基于spring 的共享锁客户端
+ * 基于spring 的共享锁客户端，{@link ILockStore} 的 redis 实现
  * @author Fenghu.Shi
  * @version 1.0
  */
 @Slf4j
-public class RedisLockClient {
+public class RedisLockClient implements ILockStore {
 
   /**
    * 解锁的lua脚本
+   * KEYS: 锁; ARGV: 锁的值, 通知频道
    */
-  private static final String RELEASE_LUA;
+  public static final String RELEASE_LUA;
+
+  /**
+   * 获取锁并生成 fencing token 的lua脚本，获取成功返回递增的 token，失败返回 0
+   */
+  private static final String FENCING_SET_NX_LUA = "if redis.call(\"set\",KEYS[1],ARGV[1],\"NX\",\"EX\",ARGV[2]) then return redis.call(\"incr\",KEYS[2]) else return 0 end";
+
+  /**
+   * 获取锁的lua脚本，获取成功返回 0，失败返回持有者剩余的毫秒数，持有者没有过期时间时返回 -1
+   * KEYS: 锁; ARGV: 锁的值, 锁定秒数
+   */
+  private static final String SET_NX_PTTL_LUA = "if redis.call(\"set\",KEYS[1],ARGV[1],\"NX\",\"EX\",ARGV[2]) then return 0 end local ttl = redis.call(\"pttl\",KEYS[1]) if ttl == 0 then return 1 end return ttl";
+
+  /**
+   * 公平锁获取的lua脚本
+   * KEYS: 锁, 等待队列, 等待者过期时间; ARGV: 等待者id, 锁定毫秒, 当前毫秒, 等待者过期毫秒, 是否排队
+   * 先清理队头已过期的等待者；锁已交接给自己或者锁空闲且自己是队头时获取成功；否则排到队尾并刷新过期时间
+   */
+  private static final String FAIR_ACQUIRE_LUA;
+
+  /**
+   * 公平锁释放的lua脚本
+   * KEYS: 锁, 等待队列, 等待者过期时间; ARGV: 等待者id, 交接后的锁定毫秒, 当前毫秒, 通知频道, 交接消息前缀
+   * 先把自己移出队列，如果持有锁，则直接交给下一个未过期的等待者，通知消息为交接消息前缀加上接手者 id，只唤醒接手者；没有等待者时通知消息为锁 key
+   */
+  private static final String FAIR_RELEASE_LUA;
+
+  /**
+   * 读锁获取的lua脚本
+   * KEYS: 写锁, 读者集合, 写意向; ARGV: 读者id, 租期毫秒, 当前毫秒
+   * 先清理租期已过的读者；没有写者持有、也没有写者在等待时加入读者集合
+   */
+  private static final String READ_ACQUIRE_LUA;
+
+  /**
+   * 读锁释放的lua脚本
+   * KEYS: 读者集合; ARGV: 读者id, 通知频道, 写锁
+   */
+  private static final String READ_RELEASE_LUA = "if redis.call(\"zrem\",KEYS[1],ARGV[1]) == 1 then redis.call(\"publish\",ARGV[2],ARGV[3]) return 1 else return 0 end";
+
+  /**
+   * 写锁获取的lua脚本
+   * KEYS: 写锁, 读者集合, 写意向, 版本号; ARGV: 写者id, 锁定毫秒, 当前毫秒, 写意向毫秒, 是否等待
+   * 没有写者和读者时获取成功并递增版本号，返回新的版本号；失败时如果在等待中则登记写意向，阻止新的读者进入，返回 0
+   */
+  private static final String WRITE_ACQUIRE_LUA;
+
+  /**
+   * 取消写意向的lua脚本，只取消自己登记的写意向，并唤醒被阻挡的读者
+   * KEYS: 写意向; ARGV: 写者id, 通知频道, 写锁
+   */
+  private static final String WRITE_CANCEL_LUA = "if redis.call(\"get\",KEYS[1]) == ARGV[1] then redis.call(\"del\",KEYS[1]) redis.call(\"publish\",ARGV[2],ARGV[3]) return 1 else return 0 end";
+
+  /**
+   * 乐观读的lua脚本，没有写者持有时返回当前版本号，否则返回 0
+   * KEYS: 写锁, 版本号
+   */
+  private static final String OPTIMISTIC_READ_LUA = "if redis.call(\"exists\",KEYS[1]) == 1 then return 0 end redis.call(\"setnx\",KEYS[2],1) return tonumber(redis.call(\"get\",KEYS[2]))";
+
+  /**
+   * 信号量获取的lua脚本
+   * KEYS: 持有者集合; ARGV: 估算的 redis 毫秒, 租期毫秒, 最大许可数, 许可id...
+   * 使用 redis 的 TIME 计算租期，redis 3.2 以下脚本中读取 TIME 后不能再写入，使用客户端估算的 redis 时间；
+   * 先清理租期已过的许可，剩余许可足够时一次加入所有许可id，否则返回 0
+   */
+  private static final String SEMAPHORE_ACQUIRE_LUA;
+
+  /**
+   * 信号量释放的lua脚本
+   * KEYS: 持有者集合; ARGV: 通知频道, 信号量 key, 许可id...
+   * 返回实际释放的许可数，有释放时发布通知
+   */
+  private static final String SEMAPHORE_RELEASE_LUA;
+
+  /**
+   * 多 key 锁获取的lua脚本，所有 key 都空闲时一次全部锁定，否则一个都不锁定
+   * KEYS: 所有锁 key; ARGV: 锁的值, 锁定毫秒
+   */
+  private static final String MULTI_ACQUIRE_LUA;
+
+  /**
+   * 多 key 锁释放的lua脚本，只删除值一致的 key，并在每个 key 的通知频道发布消息
+   * KEYS: 所有锁 key; ARGV: 锁的值, 通知频道前缀, 多 key 锁自身的通知频道
+   * 返回实际释放的 key 数量
+   */
+  private static final String MULTI_RELEASE_LUA;
+
+  /**
+   * 续期的lua脚本，只有锁的值一致时才延长过期时间
+   */
+  private static final String RENEW_LUA = "if redis.call(\"get\",KEYS[1]) == ARGV[1] then return redis.call(\"pexpire\",KEYS[1],ARGV[2]) else return 0 end";
+
+  /**
+   * 锁释放通知频道前缀
+   */
+  public static final String RELEASE_CHANNEL_PREFIX = "redis-lock:release:";
+
+  /**
+   * 公平锁交接消息前缀，释放频道的消息为前缀加上接手的等待者 id 时只唤醒该等待者
+   */
+  public static final String HANDOFF_MESSAGE_PREFIX = "redis-lock:handoff:";
+
+  /**
+   * key 过期事件频道，消息体是过期的 key，需要 redis 开启 notify-keyspace-events Ex
+   */
+  public static final String EXPIRED_CHANNEL_PATTERN = "__keyevent@*__:expired";
+
+  /**
+   * fencing token 计数器后缀
+   */
+  public static final String FENCING_KEY_SUFFIX = ":fencing";
+
+  /**
+   * 令牌桶的lua脚本，补充、检查和消费在一个脚本中完成，数据格式和 {@link io.github.spring.tools.redis.concurrent.RateLimiterData#toArrayString()} 一致
+   * KEYS: 限流数据; ARGV: 每秒令牌数, 最大令牌数, 初始令牌数, 获取数量, 最多等待毫秒, 客户端估算的 redis 毫秒
+   * 支持 replicate_commands（redis 3.2+）时使用服务端 TIME，否则使用客户端传入的时间；
+   * 令牌足够时返回 0，不够但在等待时间内可以补足时预支并返回需要等待的毫秒数，否则返回 -1；获取数量小于 0 时取走所有完整的令牌，返回取走的数量
+   */
+  private static final String TOKEN_BUCKET_LUA;
 
   /**
    * 获取当前时间的LUA命令
@@ -33,15 +170,258 @@ public class RedisLockClient {
     StringBuilder sb = new StringBuilder();
     sb.append("if redis.call(\"get\",KEYS[1]) == ARGV[1] ");
     sb.append("then ");
-    sb.append("    return redis.call(\"del\",KEYS[1]) ");
+    sb.append("    redis.call(\"del\",KEYS[1]) ");
+    sb.append("    redis.call(\"publish\",ARGV[2],KEYS[1]) ");
+    sb.append("    return 1 ");
     sb.append("else ");
     sb.append("    return 0 ");
     sb.append("end ");
     RELEASE_LUA = sb.toString();
+
+    sb = new StringBuilder();
+    sb.append("while true do ");
+    sb.append("    local head = redis.call(\"lindex\",KEYS[2],0) ");
+    sb.append("    if not head then break end ");
+    sb.append("    local deadline = redis.call(\"zscore\",KEYS[3],head) ");
+    sb.append("    if deadline and tonumber(deadline) > tonumber(ARGV[3]) then break end ");
+    sb.append("    redis.call(\"lpop\",KEYS[2]) ");
+    sb.append("    redis.call(\"zrem\",KEYS[3],head) ");
+    sb.append("end ");
+    sb.append("local owner = redis.call(\"get\",KEYS[1]) ");
+    sb.append("if owner == ARGV[1] then ");
+    sb.append("    return 1 ");
+    sb.append("end ");
+    sb.append("if not owner then ");
+    sb.append("    local head = redis.call(\"lindex\",KEYS[2],0) ");
+    sb.append("    if (not head) or head == ARGV[1] then ");
+    sb.append("        redis.call(\"set\",KEYS[1],ARGV[1],\"PX\",ARGV[2]) ");
+    sb.append("        if head then ");
+    sb.append("            redis.call(\"lpop\",KEYS[2]) ");
+    sb.append("            redis.call(\"zrem\",KEYS[3],ARGV[1]) ");
+    sb.append("        end ");
+    sb.append("        return 1 ");
+    sb.append("    end ");
+    sb.append("end ");
+    sb.append("if ARGV[5] == \"1\" then ");
+    sb.append("    if redis.call(\"zadd\",KEYS[3],tonumber(ARGV[3]) + tonumber(ARGV[4]),ARGV[1]) == 1 then ");
+    sb.append("        redis.call(\"rpush\",KEYS[2],ARGV[1]) ");
+    sb.append("    end ");
+    sb.append("    redis.call(\"pexpire\",KEYS[2],ARGV[4]) ");
+    sb.append("    redis.call(\"pexpire\",KEYS[3],ARGV[4]) ");
+    sb.append("end ");
+    sb.append("return 0 ");
+    FAIR_ACQUIRE_LUA = sb.toString();
+
+    sb = new StringBuilder();
+    sb.append("redis.call(\"lrem\",KEYS[2],0,ARGV[1]) ");
+    sb.append("redis.call(\"zrem\",KEYS[3],ARGV[1]) ");
+    sb.append("if redis.call(\"get\",KEYS[1]) ~= ARGV[1] then ");
+    sb.append("    return 0 ");
+    sb.append("end ");
+    sb.append("local successor = nil ");
+    sb.append("while true do ");
+    sb.append("    local head = redis.call(\"lpop\",KEYS[2]) ");
+    sb.append("    if not head then break end ");
+    sb.append("    local deadline = redis.call(\"zscore\",KEYS[3],head) ");
+    sb.append("    redis.call(\"zrem\",KEYS[3],head) ");
+    sb.append("    if deadline and tonumber(deadline) > tonumber(ARGV[3]) then ");
+    sb.append("        successor = head ");
+    sb.append("        break ");
+    sb.append("    end ");
+    sb.append("end ");
+    sb.append("if successor then ");
+    sb.append("    redis.call(\"set\",KEYS[1],successor,\"PX\",ARGV[2]) ");
+    sb.append("    redis.call(\"publish\",ARGV[4],ARGV[5] .. successor) ");
+    sb.append("else ");
+    sb.append("    redis.call(\"del\",KEYS[1]) ");
+    sb.append("    redis.call(\"publish\",ARGV[4],KEYS[1]) ");
+    sb.append("end ");
+    sb.append("return 1 ");
+    FAIR_RELEASE_LUA = sb.toString();
+
+    sb = new StringBuilder();
+    sb.append("redis.call(\"zremrangebyscore\",KEYS[2],\"-inf\",ARGV[3]) ");
+    sb.append("if redis.call(\"exists\",KEYS[1]) == 1 or redis.call(\"exists\",KEYS[3]) == 1 then ");
+    sb.append("    return 0 ");
+    sb.append("end ");
+    sb.append("redis.call(\"zadd\",KEYS[2],tonumber(ARGV[3]) + tonumber(ARGV[2]),ARGV[1]) ");
+    sb.append("if redis.call(\"pttl\",KEYS[2]) < tonumber(ARGV[2]) then ");
+    sb.append("    redis.call(\"pexpire\",KEYS[2],ARGV[2]) ");
+    sb.append("end ");
+    sb.append("return 1 ");
+    READ_ACQUIRE_LUA = sb.toString();
+
+    sb = new StringBuilder();
+    sb.append("redis.call(\"zremrangebyscore\",KEYS[2],\"-inf\",ARGV[3]) ");
+    sb.append("if redis.call(\"exists\",KEYS[1]) == 0 and redis.call(\"zcard\",KEYS[2]) == 0 then ");
+    sb.append("    redis.call(\"set\",KEYS[1],ARGV[1],\"PX\",ARGV[2]) ");
+    sb.append("    if redis.call(\"get\",KEYS[3]) == ARGV[1] then ");
+    sb.append("        redis.call(\"del\",KEYS[3]) ");
+    sb.append("    end ");
+    sb.append("    return redis.call(\"incr\",KEYS[4]) ");
+    sb.append("end ");
+    sb.append("if ARGV[5] == \"1\" then ");
+    sb.append("    local intent = redis.call(\"get\",KEYS[3]) ");
+    sb.append("    if (not intent) or intent == ARGV[1] then ");
+    sb.append("        redis.call(\"set\",KEYS[3],ARGV[1],\"PX\",ARGV[4]) ");
+    sb.append("    end ");
+    sb.append("end ");
+    sb.append("return 0 ");
+    WRITE_ACQUIRE_LUA = sb.toString();
+
+    sb = new StringBuilder();
+    sb.append("local now ");
+    sb.append("if redis.replicate_commands and pcall(redis.replicate_commands) then ");
+    sb.append("    local time = redis.call(\"time\") ");
+    sb.append("    now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000) ");
+    sb.append("else ");
+    sb.append("    now = tonumber(ARGV[1]) ");
+    sb.append("end ");
+    sb.append("redis.call(\"zremrangebyscore\",KEYS[1],\"-inf\",now) ");
+    sb.append("if redis.call(\"zcard\",KEYS[1]) + #ARGV - 3 > tonumber(ARGV[3]) then ");
+    sb.append("    return 0 ");
+    sb.append("end ");
+    sb.append("local deadline = now + tonumber(ARGV[2]) ");
+    sb.append("for i = 4, #ARGV do ");
+    sb.append("    redis.call(\"zadd\",KEYS[1],deadline,ARGV[i]) ");
+    sb.append("end ");
+    sb.append("if redis.call(\"pttl\",KEYS[1]) < tonumber(ARGV[2]) then ");
+    sb.append("    redis.call(\"pexpire\",KEYS[1],ARGV[2]) ");
+    sb.append("end ");
+    sb.append("return 1 ");
+    SEMAPHORE_ACQUIRE_LUA = sb.toString();
+
+    sb = new StringBuilder();
+    sb.append("local released = 0 ");
+    sb.append("for i = 3, #ARGV do ");
+    sb.append("    released = released + redis.call(\"zrem\",KEYS[1],ARGV[i]) ");
+    sb.append("end ");
+    sb.append("if released > 0 then ");
+    sb.append("    redis.call(\"publish\",ARGV[1],ARGV[2]) ");
+    sb.append("end ");
+    sb.append("return released ");
+    SEMAPHORE_RELEASE_LUA = sb.toString();
+
+    sb = new StringBuilder();
+    sb.append("for i = 1, #KEYS do ");
+    sb.append("    if redis.call(\"exists\",KEYS[i]) == 1 then ");
+    sb.append("        return 0 ");
+    sb.append("    end ");
+    sb.append("end ");
+    sb.append("for i = 1, #KEYS do ");
+    sb.append("    redis.call(\"set\",KEYS[i],ARGV[1],\"PX\",ARGV[2]) ");
+    sb.append("end ");
+    sb.append("return 1 ");
+    MULTI_ACQUIRE_LUA = sb.toString();
+
+    sb = new StringBuilder();
+    sb.append("local released = 0 ");
+    sb.append("for i = 1, #KEYS do ");
+    sb.append("    if redis.call(\"get\",KEYS[i]) == ARGV[1] then ");
+    sb.append("        redis.call(\"del\",KEYS[i]) ");
+    sb.append("        redis.call(\"publish\",ARGV[2] .. KEYS[i],KEYS[i]) ");
+    sb.append("        released = released + 1 ");
+    sb.append("    end ");
+    sb.append("end ");
+    sb.append("if released > 0 then ");
+    sb.append("    redis.call(\"publish\",ARGV[3],ARGV[3]) ");
+    sb.append("end ");
+    sb.append("return released ");
+    MULTI_RELEASE_LUA = sb.toString();
+
+    sb = new StringBuilder();
+    sb.append("local now ");
+    sb.append("if redis.replicate_commands and pcall(redis.replicate_commands) then ");
+    sb.append("    local time = redis.call(\"time\") ");
+    sb.append("    now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000) ");
+    sb.append("else ");
+    sb.append("    now = tonumber(ARGV[6]) ");
+    sb.append("end ");
+    sb.append("local rate = tonumber(ARGV[1]) ");
+    sb.append("local maxPermits = tonumber(ARGV[2]) ");
+    sb.append("local permits = tonumber(ARGV[4]) ");
+    sb.append("local last = now ");
+    sb.append("local stored = tonumber(ARGV[3]) ");
+    sb.append("local data = redis.call(\"get\",KEYS[1]) ");
+    sb.append("if data then ");
+    sb.append("    local fields = {} ");
+    sb.append("    for field in string.gmatch(data, \"[^,]+\") do fields[#fields + 1] = tonumber(field) end ");
+    sb.append("    if #fields == 4 and fields[2] and fields[3] then ");
+    sb.append("        last = fields[2] ");
+    sb.append("        stored = fields[3] ");
+    sb.append("    end ");
+    sb.append("end ");
+    sb.append("if now > last then ");
+    sb.append("    stored = math.min(maxPermits, stored + (now - last) * rate / 1000) ");
+    sb.append("    last = now ");
+    sb.append("end ");
+    sb.append("local result = 0 ");
+    sb.append("if permits < 0 then ");
+    sb.append("    result = math.max(0, math.floor(stored)) ");
+    sb.append("    stored = stored - result ");
+    sb.append("elseif stored >= permits then ");
+    sb.append("    stored = stored - permits ");
+    sb.append("else ");
+    sb.append("    result = math.ceil((permits - stored) * 1000 / rate) ");
+    sb.append("    if result > tonumber(ARGV[5]) then ");
+    sb.append("        result = -1 ");
+    sb.append("    else ");
+    sb.append("        stored = stored - permits ");
+    sb.append("    end ");
+    sb.append("end ");
+    sb.append("redis.call(\"set\",KEYS[1],ARGV[1] .. \",\" .. last .. \",\" .. stored .. \",\" .. ARGV[2]) ");
+    sb.append("return result ");
+    TOKEN_BUCKET_LUA = sb.toString();
   }
 
+  /**
+   * 注册到脚本注册表的脚本，执行时只发送 SHA1
+   */
+  static final LuaScript FENCING_SET_NX_SCRIPT = LuaScriptRegistry.register("redis-lock:fencing-set-nx", FENCING_SET_NX_LUA);
+  static final LuaScript SET_NX_PTTL_SCRIPT = LuaScriptRegistry.register("redis-lock:set-nx-pttl", SET_NX_PTTL_LUA);
+  static final LuaScript RELEASE_SCRIPT = LuaScriptRegistry.register("redis-lock:release", RELEASE_LUA);
+  private static final LuaScript FAIR_ACQUIRE_SCRIPT = LuaScriptRegistry.register("redis-lock:fair-acquire", FAIR_ACQUIRE_LUA);
+  private static final LuaScript FAIR_RELEASE_SCRIPT = LuaScriptRegistry.register("redis-lock:fair-release", FAIR_RELEASE_LUA);
+  private static final LuaScript READ_ACQUIRE_SCRIPT = LuaScriptRegistry.register("redis-lock:read-acquire", READ_ACQUIRE_LUA);
+  private static final LuaScript READ_RELEASE_SCRIPT = LuaScriptRegistry.register("redis-lock:read-release", READ_RELEASE_LUA);
+  private static final LuaScript WRITE_ACQUIRE_SCRIPT = LuaScriptRegistry.register("redis-lock:write-acquire", WRITE_ACQUIRE_LUA);
+  private static final LuaScript WRITE_CANCEL_SCRIPT = LuaScriptRegistry.register("redis-lock:write-cancel", WRITE_CANCEL_LUA);
+  private static final LuaScript OPTIMISTIC_READ_SCRIPT = LuaScriptRegistry.register("redis-lock:optimistic-read", OPTIMISTIC_READ_LUA);
+  private static final LuaScript SEMAPHORE_ACQUIRE_SCRIPT = LuaScriptRegistry.register("redis-lock:semaphore-acquire", SEMAPHORE_ACQUIRE_LUA);
+  private static final LuaScript SEMAPHORE_RELEASE_SCRIPT = LuaScriptRegistry.register("redis-lock:semaphore-release", SEMAPHORE_RELEASE_LUA);
+  private static final LuaScript MULTI_ACQUIRE_SCRIPT = LuaScriptRegistry.register("redis-lock:multi-acquire", MULTI_ACQUIRE_LUA);
+  private static final LuaScript MULTI_RELEASE_SCRIPT = LuaScriptRegistry.register("redis-lock:multi-release", MULTI_RELEASE_LUA);
+  static final LuaScript RENEW_SCRIPT = LuaScriptRegistry.register("redis-lock:renew", RENEW_LUA);
+  private static final LuaScript TIME_SCRIPT = LuaScriptRegistry.register("redis-lock:time", TIME_LUA);
+  static final LuaScript TOKEN_BUCKET_SCRIPT = LuaScriptRegistry.register("redis-lock:token-bucket", TOKEN_BUCKET_LUA);
+
+  /**
+   * 是否引入了 lettuce
+   */
+  private static final boolean LETTUCE_PRESENT = ClassUtils.isPresent("io.lettuce.core.RedisClient", RedisLockClient.class.getClassLoader());
+
   protected final RedisTemplate<String, String> redisTemplate;
 
+  /**
+   * 监控指标，属于锁环境时由环境设置
+   */
+  private volatile IRedisLockMetrics metrics = IRedisLockMetrics.NOOP;
+
+  /**
+   * 熔断器，属于锁环境且环境设置了熔断器时由环境设置
+   */
+  private volatile RedisCircuitBreaker circuitBreaker;
+
+  /**
+   * 是否 Redis Cluster，第一次使用时检查
+   */
+  private volatile Boolean cluster;
+
+  /**
+   * redis 时间和本机时间的差，毫秒，第一次使用令牌桶时查询
+   */
+  private volatile Long clockOffsetMills;
+
   /**
    * 创建一个 redis lock client
    * @param redisTemplate
@@ -50,12 +430,25 @@ public class RedisLockClient {
     this.redisTemplate = redisTemplate;
   }
 
+  /**
+   * 创建 redisTemplate 对应的锁客户端，连接工厂是共享原生连接的 lettuce 时使用 {@link LettuceLockClient}
+   * @param redisTemplate redis 客户端
+   * @return 锁客户端
+   */
+  public static RedisLockClient create(RedisTemplate<String, String> redisTemplate){
+    if (LETTUCE_PRESENT && LettuceLockClient.isSupported(redisTemplate)) {
+      return new LettuceLockClient(redisTemplate);
+    }
+    return new RedisLockClient(redisTemplate);
+  }
+
   /**
    * 获取 get 对应的数据
    * https://redis.io/commands/get
    * @param key 锁的key
    * @return
    */
+  @Override
   public String get(String key) {
     return redisTemplate.opsForValue().get(key);
   }
@@ -74,6 +467,11 @@ public class RedisLockClient {
     }
   }
 
+  @Override
+  public void set(String key, String value){
+    set(key, value, true);
+  }
+
   /**
    * 调用 set nx 接口
    * https://redis.io/commands/set
@@ -83,40 +481,612 @@ public class RedisLockClient {
    * @return 设置结果
    */
   public boolean setNx(String key, String value, int lockSeconds) {
-    return redisTemplate.execute((RedisConnection connection) -> {
-      try {
-       if (connection.set(RedislockUtils.stringToBytes(key), RedislockUtils.stringToBytes(value), Expiration.seconds(lockSeconds), SetOption.SET_IF_ABSENT)) {
-         log.debug("spring data redis -> {} 获取锁{}数据成功", key, value);
-         return true;
-       }
-      } catch (Exception e) {
-        log.error("spring data redis -> {} 锁获取超时", key, e);
-      }
-      return false;
-    });
+    return setNx(RedislockUtils.stringToBytes(key), RedislockUtils.stringToBytes(value), Expiration.seconds(lockSeconds));
+  }
+
+  /**
+   * 调用 set nx 接口，参数已编码，供热点路径复用
+   * https://redis.io/commands/set
+   * @param key 锁 key
+   * @param value 锁的值
+   * @param expiration 锁定时长
+   * @return 设置结果
+   */
+  @Override
+  public boolean setNx(byte[] key, byte[] value, Expiration expiration) {
+    try {
+      if (Boolean.TRUE.equals(execute("set-nx", (RedisConnection connection) -> connection.set(key, value, expiration, SetOption.SET_IF_ABSENT)))) {
+        if (log.isDebugEnabled()) {
+          log.debug("spring data redis -> {} 获取锁{}数据成功", new String(key, StandardCharsets.UTF_8), new String(value, StandardCharsets.UTF_8));
+        }
+        return true;
+      }
+    } catch (Exception e) {
+      log.error("spring data redis -> {} 锁获取超时", new String(key, StandardCharsets.UTF_8), e);
+    }
+    return false;
+  }
+
+  /**
+   * 获取锁，失败时在同一次往返中返回持有者剩余的租约，等待者据此决定休眠时长
+   * https://redis.io/commands/set https://redis.io/commands/pttl
+   * @param key 锁 key
+   * @param value 锁的值
+   * @param lockSeconds 锁定时长，单位秒
+   * @return 获取成功返回 0，失败返回持有者剩余的毫秒数，剩余时间未知时返回 -1
+   */
+  @Override
+  public long setNxOrPttl(byte[] key, byte[] value, byte[] lockSeconds) {
+    try {
+      Long ttl = execute("set-nx-pttl", (RedisConnection connection) -> SET_NX_PTTL_SCRIPT.eval(connection, ReturnType.INTEGER, 1, key, value, lockSeconds));
+      if (ttl != null) {
+        if (ttl == 0 && log.isDebugEnabled()) {
+          log.debug("spring data redis -> {} 获取锁{}数据成功", new String(key, StandardCharsets.UTF_8), new String(value, StandardCharsets.UTF_8));
+        }
+        return ttl < 0 ? -1L : ttl;
+      }
+    } catch (Exception e) {
+      log.error("spring data redis -> {} 锁获取超时", new String(key, StandardCharsets.UTF_8), e);
+    }
+    return -1L;
+  }
+
+  /**
+   * 获取锁，同时在一个 lua 中生成单调递增的 fencing token
+   * https://redis.io/commands/set https://redis.io/commands/incr
+   * @param key 锁 key
+   * @param value 锁的值，一般是UUID
+   * @param lockSeconds 锁定时长，单位秒
+   * @return 获取成功返回 fencing token，失败返回 0
+   */
+  @Override
+  public long setNxWithFencing(String key, String value, int lockSeconds) {
+    try {
+      Long token = execute("fencing-set-nx", (RedisConnection connection) -> FENCING_SET_NX_SCRIPT.eval(connection, ReturnType.INTEGER, 2,
+              RedislockUtils.stringToBytes(key), RedislockUtils.stringToBytes(fencingKey(key)),
+              RedislockUtils.stringToBytes(value), RedislockUtils.stringToBytes(String.valueOf(lockSeconds))));
+      if (token != null && token > 0) {
+        log.debug("spring data redis -> {} 获取锁{}数据成功，fencing token {}", key, value, token);
+        return token;
+      }
+    } catch (Exception e) {
+      log.error("spring data redis -> {} 锁获取超时", key, e);
+    }
+    return 0L;
   }
 
   /**
    * 通过Lua脚本释放锁 https://redis.io/commands/eval
+   * 释放成功后会在 {@link #releaseChannel(String)} 频道发布消息，唤醒等待者
    *
    * @param key 锁 key * @param value 锁的值，一般是UUID
    * @param value 锁值
    * @return
    */
   public boolean releaseByLua(String key, String value) {
-    return redisTemplate.execute((RedisConnection connection) -> {
+    return releaseByLua(RedislockUtils.stringToBytes(key), RedislockUtils.stringToBytes(value), RedislockUtils.stringToBytes(releaseChannel(key)));
+  }
+
+  /**
+   * 通过Lua脚本释放锁，参数已编码，供热点路径复用
+   * @param key 锁 key
+   * @param value 锁值
+   * @param channel 释放通知频道
+   * @return 释放结果
+   */
+  public boolean releaseByLua(byte[] key, byte[] value, byte[] channel) {
+    try {
+      if (Boolean.TRUE.equals(execute("release", (RedisConnection connection) -> RELEASE_SCRIPT.<Boolean>eval(connection, ReturnType.BOOLEAN, 1, key, value, channel)))) {
+        if (log.isDebugEnabled()) {
+          log.debug("spring data redis -> {} 释放锁成功", new String(key, StandardCharsets.UTF_8));
+        }
+        return true;
+      }
+    } catch (Exception e) {
+      log.error("spring data redis -> {} 释放锁超时", new String(key, StandardCharsets.UTF_8), e);
+    }
+    return false;
+  }
+
+  @Override
+  public boolean compareAndDelete(byte[] key, byte[] value, byte[] channel) {
+    return releaseByLua(key, value, channel);
+  }
+
+  /**
+   * 公平锁获取
+   * @param key 锁 key
+   * @param value 等待者id，同一次获取过程中保持不变
+   * @param lockMills 锁定时长，单位毫秒
+   * @param waiterTimeoutMills 等待者在队列中的过期时长，超过该时长没有刷新则被移出队列
+   * @param enqueue 获取失败时是否排队
+   * @return 获取结果
+   */
+  public boolean fairAcquire(String key, String value, long lockMills, long waiterTimeoutMills, boolean enqueue) {
+    try {
+      if (Boolean.TRUE.equals(execute("fair-acquire", (RedisConnection connection) -> FAIR_ACQUIRE_SCRIPT.<Boolean>eval(connection, ReturnType.BOOLEAN, 3,
+              RedislockUtils.stringToBytes(key), RedislockUtils.stringToBytes(fairQueueKey(key)), RedislockUtils.stringToBytes(fairTimeoutKey(key)),
+              RedislockUtils.stringToBytes(value), RedislockUtils.stringToBytes(String.valueOf(lockMills)),
+              RedislockUtils.stringToBytes(String.valueOf(System.currentTimeMillis())), RedislockUtils.stringToBytes(String.valueOf(waiterTimeoutMills)),
+              RedislockUtils.stringToBytes(enqueue ? "1" : "0"))))) {
+        log.debug("spring data redis -> {} 获取公平锁{}成功", key, value);
+        return true;
+      }
+    } catch (Exception e) {
+      log.error("spring data redis -> {} 公平锁获取超时", key, e);
+    }
+    return false;
+  }
+
+  /**
+   * 公平锁释放，同时退出等待队列，持有锁时直接交给下一个等待者
+   * @param key 锁 key
+   * @param value 等待者id
+   * @param lockMills 交接给下一个等待者后的锁定时长，单位毫秒
+   * @return 是否持有并释放了锁
+   */
+  public boolean fairRelease(String key, String value, long lockMills) {
+    try {
+      if (Boolean.TRUE.equals(execute("fair-release", (RedisConnection connection) -> FAIR_RELEASE_SCRIPT.<Boolean>eval(connection, ReturnType.BOOLEAN, 3,
+              RedislockUtils.stringToBytes(key), RedislockUtils.stringToBytes(fairQueueKey(key)), RedislockUtils.stringToBytes(fairTimeoutKey(key)),
+              RedislockUtils.stringToBytes(value), RedislockUtils.stringToBytes(String.valueOf(lockMills)),
+              RedislockUtils.stringToBytes(String.valueOf(System.currentTimeMillis())), RedislockUtils.stringToBytes(releaseChannel(key)),
+              RedislockUtils.stringToBytes(HANDOFF_MESSAGE_PREFIX))))) {
+        log.debug("spring data redis -> {} 释放公平锁成功", key);
+        return true;
+      }
+    } catch (Exception e) {
+      log.error("spring data redis -> {} 释放公平锁超时", key, e);
+    }
+    return false;
+  }
+
+  /**
+   * 读锁获取，没有写者持有并且没有写者在等待时成功
+   * @param key 写锁 key
+   * @param value 读者id
+   * @param leaseMills 读者租期，单位毫秒，租期过后没有释放的读者会被自动清理
+   * @return 获取结果
+   */
+  public boolean readAcquire(String key, String value, long leaseMills) {
+    try {
+      if (Boolean.TRUE.equals(execute("read-acquire", (RedisConnection connection) -> READ_ACQUIRE_SCRIPT.<Boolean>eval(connection, ReturnType.BOOLEAN, 3,
+              RedislockUtils.stringToBytes(key), RedislockUtils.stringToBytes(readersKey(key)), RedislockUtils.stringToBytes(writeIntentKey(key)),
+              RedislockUtils.stringToBytes(value), RedislockUtils.stringToBytes(String.valueOf(leaseMills)),
+              RedislockUtils.stringToBytes(String.valueOf(System.currentTimeMillis())))))) {
+        log.debug("spring data redis -> {} 获取读锁{}成功", key, value);
+        return true;
+      }
+    } catch (Exception e) {
+      log.error("spring data redis -> {} 读锁获取超时", key, e);
+    }
+    return false;
+  }
+
+  /**
+   * 读锁释放，释放后发布通知唤醒等待的写者
+   * @param key 写锁 key
+   * @param value 读者id
+   * @return 是否释放成功
+   */
+  public boolean readRelease(String key, String value) {
+    try {
+      if (Boolean.TRUE.equals(execute("read-release", (RedisConnection connection) -> READ_RELEASE_SCRIPT.<Boolean>eval(connection, ReturnType.BOOLEAN, 1,
+              RedislockUtils.stringToBytes(readersKey(key)),
+              RedislockUtils.stringToBytes(value), RedislockUtils.stringToBytes(releaseChannel(key)), RedislockUtils.stringToBytes(key))))) {
+        log.debug("spring data redis -> {} 释放读锁成功", key);
+        return true;
+      }
+    } catch (Exception e) {
+      log.error("spring data redis -> {} 释放读锁超时", key, e);
+    }
+    return false;
+  }
+
+  /**
+   * 写锁获取，没有写者和读者时成功，成功时递增版本号
+   * @param key 写锁 key
+   * @param value 写者id，同一次获取过程中保持不变
+   * @param lockMills 锁定时长，单位毫秒
+   * @param intentMills 写意向的过期时长，等待中的写者需要在此时间内刷新
+   * @param waiting 获取失败时是否登记写意向
+   * @return 获取成功返回新的版本号，失败返回 0
+   */
+  public long writeAcquire(String key, String value, long lockMills, long intentMills, boolean waiting) {
+    try {
+      Long stamp = execute("write-acquire", (RedisConnection connection) -> WRITE_ACQUIRE_SCRIPT.<Long>eval(connection, ReturnType.INTEGER, 4,
+              RedislockUtils.stringToBytes(key), RedislockUtils.stringToBytes(readersKey(key)),
+              RedislockUtils.stringToBytes(writeIntentKey(key)), RedislockUtils.stringToBytes(stampKey(key)),
+              RedislockUtils.stringToBytes(value), RedislockUtils.stringToBytes(String.valueOf(lockMills)),
+              RedislockUtils.stringToBytes(String.valueOf(System.currentTimeMillis())), RedislockUtils.stringToBytes(String.valueOf(intentMills)),
+              RedislockUtils.stringToBytes(waiting ? "1" : "0")));
+      if (stamp != null && stamp > 0) {
+        log.debug("spring data redis -> {} 获取写锁{}成功，版本号 {}", key, value, stamp);
+        return stamp;
+      }
+    } catch (Exception e) {
+      log.error("spring data redis -> {} 写锁获取超时", key, e);
+    }
+    return 0L;
+  }
+
+  /**
+   * 取消自己登记的写意向，并唤醒被阻挡的读者
+   * @param key 写锁 key
+   * @param value 写者id
+   * @return 是否取消成功
+   */
+  public boolean cancelWriteIntent(String key, String value) {
+    try {
+      return Boolean.TRUE.equals(execute("write-cancel", (RedisConnection connection) -> WRITE_CANCEL_SCRIPT.<Boolean>eval(connection, ReturnType.BOOLEAN, 1,
+              RedislockUtils.stringToBytes(writeIntentKey(key)),
+              RedislockUtils.stringToBytes(value), RedislockUtils.stringToBytes(releaseChannel(key)), RedislockUtils.stringToBytes(key))));
+    } catch (Exception e) {
+      log.error("spring data redis -> {} 取消写意向超时", key, e);
+    }
+    return false;
+  }
+
+  /**
+   * 乐观读，没有写者持有时返回当前版本号
+   * @param key 写锁 key
+   * @return 版本号，有写者持有或者失败时返回 0
+   */
+  public long optimisticRead(String key) {
+    try {
+      Long stamp = execute("optimistic-read", (RedisConnection connection) -> OPTIMISTIC_READ_SCRIPT.<Long>eval(connection, ReturnType.INTEGER, 2,
+              RedislockUtils.stringToBytes(key), RedislockUtils.stringToBytes(stampKey(key))));
+      return stamp == null ? 0L : stamp;
+    } catch (Exception e) {
+      log.error("spring data redis -> {} 乐观读超时", key, e);
+    }
+    return 0L;
+  }
+
+  /**
+   * 获取读写锁当前的版本号
+   * @param key 写锁 key
+   * @return 版本号，不存在时返回 0
+   */
+  public long currentStamp(String key) {
+    try {
+      byte[] stamp = execute("current-stamp", (RedisConnection connection) -> connection.get(RedislockUtils.stringToBytes(stampKey(key))));
+      return stamp == null ? 0L : Long.parseLong(new String(stamp, StandardCharsets.UTF_8));
+    } catch (Exception e) {
+      log.error("spring data redis -> {} 获取版本号超时", key, e);
+    }
+    return 0L;
+  }
+
+  /**
+   * 信号量获取，剩余许可足够时一次获取所有许可，每个许可单独计算租期
+   * @param key 信号量 key
+   * @param permitIds 许可id，每个许可一个
+   * @param maxPermits 最大许可数
+   * @param leaseMills 许可租期，单位毫秒，租期过后没有释放的许可会被自动回收
+   * @return 获取结果
+   */
+  public boolean semaphoreAcquire(String key, String[] permitIds, int maxPermits, long leaseMills) {
+    byte[][] args = new byte[permitIds.length + 4][];
+    args[0] = RedislockUtils.stringToBytes(key);
+    args[1] = RedislockUtils.stringToBytes(String.valueOf(estimatedRedisNow()));
+    args[2] = RedislockUtils.stringToBytes(String.valueOf(leaseMills));
+    args[3] = RedislockUtils.stringToBytes(String.valueOf(maxPermits));
+    for (int i = 0; i < permitIds.length; i++) {
+      args[i + 4] = RedislockUtils.stringToBytes(permitIds[i]);
+    }
+    try {
+      if (Boolean.TRUE.equals(execute("semaphore-acquire", (RedisConnection connection) -> SEMAPHORE_ACQUIRE_SCRIPT.<Boolean>eval(connection, ReturnType.BOOLEAN, 1, args)))) {
+        log.debug("spring data redis -> {} 获取 {} 个许可成功", key, permitIds.length);
+        return true;
+      }
+    } catch (Exception e) {
+      log.error("spring data redis -> {} 许可获取超时", key, e);
+    }
+    return false;
+  }
+
+  /**
+   * 信号量释放，释放后发布通知唤醒等待者
+   * @param key 信号量 key
+   * @param permitIds 要释放的许可id
+   * @return 实际释放的许可数，已过期被回收的许可不计算在内
+   * @throws org.springframework.dao.DataAccessException 访问 redis 失败，许可没有确认释放
+   */
+  public long semaphoreRelease(String key, String[] permitIds) {
+    byte[][] args = new byte[permitIds.length + 3][];
+    args[0] = RedislockUtils.stringToBytes(key);
+    args[1] = RedislockUtils.stringToBytes(releaseChannel(key));
+    args[2] = RedislockUtils.stringToBytes(key);
+    for (int i = 0; i < permitIds.length; i++) {
+      args[i + 3] = RedislockUtils.stringToBytes(permitIds[i]);
+    }
+    return execute("semaphore-release", (RedisConnection connection) -> {
+      Long released = SEMAPHORE_RELEASE_SCRIPT.eval(connection, ReturnType.INTEGER, 1, args);
+      log.debug("spring data redis -> {} 释放 {} 个许可", key, released);
+      return released == null ? 0L : released;
+    });
+  }
+
+  /**
+   * 获取信号量中未过期的许可数
+   * @param key 信号量 key
+   * @return 已被持有的许可数
+   */
+  public long semaphoreHeld(String key) {
+    long now = estimatedRedisNow();
+    try {
+      Long count = execute("semaphore-held", (RedisConnection connection) -> connection.zCount(RedislockUtils.stringToBytes(key), now, Double.POSITIVE_INFINITY));
+      return count == null ? 0L : count;
+    } catch (Exception e) {
+      log.error("spring data redis -> {} 获取许可数超时", key, e);
+    }
+    return 0L;
+  }
+
+  /**
+   * 多 key 锁获取，在一个 lua 中全部锁定或者全部失败
+   * @param keys 锁 key，需要已经排好序
+   * @param value 锁的值，一般是UUID
+   * @param lockMills 锁定时长，单位毫秒
+   * @return 获取结果
+   */
+  public boolean multiAcquire(String[] keys, String value, long lockMills) {
+    byte[][] args = new byte[keys.length + 2][];
+    for (int i = 0; i < keys.length; i++) {
+      args[i] = RedislockUtils.stringToBytes(keys[i]);
+    }
+    args[keys.length] = RedislockUtils.stringToBytes(value);
+    args[keys.length + 1] = RedislockUtils.stringToBytes(String.valueOf(lockMills));
+    try {
+      if (Boolean.TRUE.equals(execute("multi-acquire", (RedisConnection connection) -> MULTI_ACQUIRE_SCRIPT.<Boolean>eval(connection, ReturnType.BOOLEAN, keys.length, args)))) {
+        log.debug("spring data redis -> {} 获取锁{}数据成功", Arrays.toString(keys), value);
+        return true;
+      }
+    } catch (Exception e) {
+      log.error("spring data redis -> {} 锁获取超时", Arrays.toString(keys), e);
+    }
+    return false;
+  }
+
+  /**
+   * 多 key 锁释放，在一个 lua 中释放所有值一致的 key，并发布释放通知
+   * @param keys 锁 key
+   * @param value 锁的值
+   * @param lockKey 多 key 锁自身的 key，在它的通知频道上唤醒等待同一组 key 的等待者
+   * @return 实际释放的 key 数量
+   */
+  public long multiRelease(String[] keys, String value, String lockKey) {
+    byte[][] args = new byte[keys.length + 3][];
+    for (int i = 0; i < keys.length; i++) {
+      args[i] = RedislockUtils.stringToBytes(keys[i]);
+    }
+    args[keys.length] = RedislockUtils.stringToBytes(value);
+    args[keys.length + 1] = RedislockUtils.stringToBytes(RELEASE_CHANNEL_PREFIX);
+    args[keys.length + 2] = RedislockUtils.stringToBytes(releaseChannel(lockKey));
+    try {
+      Long released = execute("multi-release", (RedisConnection connection) -> MULTI_RELEASE_SCRIPT.<Long>eval(connection, ReturnType.INTEGER, keys.length, args));
+      log.debug("spring data redis -> {} 释放 {} 个锁", Arrays.toString(keys), released);
+      return released == null ? 0L : released;
+    } catch (Exception e) {
+      log.error("spring data redis -> {} 释放锁超时", Arrays.toString(keys), e);
+    }
+    return 0L;
+  }
+
+  /**
+   * 在一个 pipeline 中批量续期，只有锁的值一致时才延长过期时间
+   * @param keys 锁 key 列表
+   * @param values 锁的值列表，和 keys 一一对应
+   * @param leaseMills 续期时长列表，单位毫秒
+   * @return 每个锁的续期结果
+   */
+  public boolean[] renewByLua(String[] keys, String[] values, long[] leaseMills) {
+    return executeBatch("renew-batch", keys, (connection, i) ->
+            RENEW_SCRIPT.eval(connection, ReturnType.BOOLEAN, 1, RedislockUtils.stringToBytes(keys[i]), RedislockUtils.stringToBytes(values[i]), RedislockUtils.stringToBytes(String.valueOf(leaseMills[i]))));
+  }
+
+  @Override
+  public boolean[] renew(String[] keys, String[] values, long[] leaseMills) {
+    return renewByLua(keys, values, leaseMills);
+  }
+
+  /**
+   * 在一个 pipeline 中批量 set nx，所有 key 使用同一个值
+   * @param keys 锁 key 列表
+   * @param value 锁的值
+   * @param lockSeconds 锁定时长，单位秒
+   * @return 每个 key 的获取结果
+   */
+  public boolean[] setNxBatch(String[] keys, String value, int lockSeconds) {
+    byte[] valueBytes = RedislockUtils.stringToBytes(value);
+    Expiration expiration = Expiration.seconds(lockSeconds);
+    return executeBatch("set-nx-batch", keys, (connection, i) ->
+            connection.set(RedislockUtils.stringToBytes(keys[i]), valueBytes, expiration, SetOption.SET_IF_ABSENT));
+  }
+
+  /**
+   * 在一个 pipeline 中批量释放，只释放值一致的 key，释放成功后在各自的频道发布消息
+   * @param keys 锁 key 列表
+   * @param value 锁的值
+   * @return 每个 key 的释放结果
+   */
+  public boolean[] releaseBatch(String[] keys, String value) {
+    byte[] valueBytes = RedislockUtils.stringToBytes(value);
+    return executeBatch("release-batch", keys, (connection, i) ->
+            RELEASE_SCRIPT.eval(connection, ReturnType.BOOLEAN, 1, RedislockUtils.stringToBytes(keys[i]), valueBytes, RedislockUtils.stringToBytes(releaseChannel(keys[i]))));
+  }
+
+  /**
+   * 批量执行，每个 key 一条命令，单机时通过一个 pipeline 发送
+   * <p>Redis Cluster 下 spring data redis 的集群连接不支持 pipeline，按节点分组后各组并行执行，
+   * 耗时取决于 key 最多的节点，而不是 key 的总数；lettuce 直连由 {@link LettuceLockClient} 异步批量发送</p>
+   * @param command 命令名称，用于监控
+   * @param keys key 列表
+   * @param batch 执行第 i 个 key 的命令
+   * @return 每个 key 的执行结果
+   */
+  private boolean[] executeBatch(String command, String[] keys, BatchCommand batch) {
+    long start = System.nanoTime();
+    boolean failed = true;
+    try {
+      boolean[] values;
+      if (isCluster()) {
+        values = executeClusterBatch(keys, batch);
+      } else {
+        values = toBooleans(executeScriptPipelined((RedisConnection connection) -> {
+          for (int i = 0; i < keys.length; i++) {
+            batch.execute(connection, i);
+          }
+          return null;
+        }), keys.length);
+      }
+      failed = false;
+      return values;
+    } finally {
+      recordCommand(command, System.nanoTime() - start, failed);
+    }
+  }
+
+  /**
+   * 集群下批量执行，按 key 所在的节点分组，每组在自己的连接上执行，各组并行
+   * <p>其他组提交到工作线程，当前线程执行第一组后，还没有开始的组由当前线程直接执行，工作线程繁忙时不会互相等待</p>
+   * @param keys key 列表
+   * @param batch 执行第 i 个 key 的命令
+   * @return 每个 key 的执行结果
+   */
+  private boolean[] executeClusterBatch(String[] keys, BatchCommand batch) {
+    boolean[] results = new boolean[keys.length];
+    List<FutureTask<Void>> tasks = new ArrayList<>();
+    for (List<Integer> group : groupByNode(keys)) {
+      tasks.add(new FutureTask<>(() -> redisTemplate.execute((RedisConnection connection) -> {
+        for (int i : group) {
+          results[i] = Boolean.TRUE.equals(batch.execute(connection, i));
+        }
+        return null;
+      })));
+    }
+    for (int i = 1; i < tasks.size(); i++) {
+      RedisLockExecutors.worker().execute(tasks.get(i));
+    }
+    RuntimeException failure = null;
+    for (FutureTask<Void> task : tasks) {
+      task.run();
       try {
-        if (connection.eval(RedislockUtils.stringToBytes(RELEASE_LUA), ReturnType.BOOLEAN, 1, RedislockUtils.stringToBytes(key), RedislockUtils.stringToBytes(value))) {
-          log.debug("spring data redis -> {} 释放锁成功", key);
-          return true;
+        task.get();
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
         }
-      } catch (Exception e) {
-        log.error("spring data redis -> {} 释放锁超时", key, e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("等待批量命令执行被中断", e);
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    return results;
+  }
+
+  /**
+   * 按 key 所在的节点分组，组内保持原来的顺序；连接不是集群连接时按 slot 分组
+   * @param keys key 列表
+   * @return 每组 key 的下标
+   */
+  private Collection<List<Integer>> groupByNode(String[] keys) {
+    Map<Integer, List<Integer>> slots = ClusterSlots.groupBySlot(keys);
+    return redisTemplate.execute((RedisConnection connection) -> {
+      if (!(connection instanceof RedisClusterConnection)) {
+        return slots.values();
       }
-      return false;
+      RedisClusterConnection clusterConnection = (RedisClusterConnection) connection;
+      Map<RedisClusterNode, List<Integer>> nodes = new LinkedHashMap<>();
+      for (Map.Entry<Integer, List<Integer>> slot : slots.entrySet()) {
+        nodes.computeIfAbsent(clusterConnection.clusterGetNodeForSlot(slot.getKey()), node -> new ArrayList<>()).addAll(slot.getValue());
+      }
+      return nodes.values();
     });
   }
 
+  /**
+   * 执行包含 lua 脚本的 pipeline，pipeline 中无法逐条处理 NOSCRIPT，加载后整体重试一次
+   * @param callback pipeline 回调
+   * @return pipeline 结果
+   */
+  private List<Object> executeScriptPipelined(RedisCallback<?> callback) {
+    try {
+      return redisTemplate.executePipelined(callback);
+    } catch (Exception e) {
+      if (!LuaScript.isNoScript(e)) {
+        throw e;
+      }
+      loadScripts();
+      return redisTemplate.executePipelined(callback);
+    }
+  }
+
+  /**
+   * 执行一次 redis 往返并记录耗时
+   * @param command 命令名称，用于监控
+   * @param action 回调
+   * @param <T> 返回值类型
+   * @return 执行结果
+   */
+  private <T> T execute(String command, RedisCallback<T> action) {
+    long start = System.nanoTime();
+    boolean failed = true;
+    try {
+      T result = redisTemplate.execute(action);
+      failed = false;
+      return result;
+    } finally {
+      recordCommand(command, System.nanoTime() - start, failed);
+    }
+  }
+
+  /**
+   * 记录一次 redis 往返的耗时和结果，同时提供给监控指标和熔断器
+   * @param command 命令名称，用于监控
+   * @param nanos 耗时，纳秒
+   * @param failed 是否失败
+   */
+  protected void recordCommand(String command, long nanos, boolean failed) {
+    metrics.command(command, nanos);
+    RedisCircuitBreaker breaker = circuitBreaker;
+    if (breaker != null) {
+      breaker.record(nanos, failed);
+    }
+  }
+
+  /**
+   * pipeline 结果转换成 boolean 数组
+   * @param results pipeline 结果
+   * @param size 命令数量
+   * @return 结果
+   */
+  private static boolean[] toBooleans(List<Object> results, int size) {
+    boolean[] values = new boolean[size];
+    for (int i = 0; i < size && i < results.size(); i++) {
+      values[i] = Boolean.TRUE.equals(results.get(i));
+    }
+    return values;
+  }
+
+  /**
+   * 把所有已注册的 lua 脚本加载到服务端，加载失败不影响使用，第一次执行时会按需加载
+   * @return 加载的数量
+   */
+  public int loadScripts() {
+    try {
+      Integer loaded = redisTemplate.execute((RedisConnection connection) -> LuaScriptRegistry.preload(connection));
+      return loaded == null ? 0 : loaded;
+    } catch (Exception e) {
+      log.warn("spring data redis -> 预加载 lua 脚本失败", e);
+    }
+    return 0;
+  }
+
   /**
    * 执行 script
    * @param script 要执行的 script
@@ -133,7 +1103,7 @@ public class RedisLockClient {
    * @return 结果
    */
   public long queryRedisNow(){
-    List<byte[]> times = execScriptList(TIME_LUA);
+    List<byte[]> times = redisTemplate.execute((RedisConnection connection) -> TIME_SCRIPT.eval(connection, ReturnType.MULTI, 0));
     StringBuilder strs = new StringBuilder();
     Objects.requireNonNull(times);
     Assert.isTrue(times.size()  == 2, "从 redis 获取 当前服务器时间失败");
@@ -141,21 +1111,188 @@ public class RedisLockClient {
     // 取秒
     strs.append(new String(times.get(0)));
     strs.append(new String(times.get(1)).substring(0, 3));
-    System.out.println("now is " + new String(times.get(0)) + new String(times.get(1)));
     return Long.valueOf(strs.toString());
   }
 
+  @Override
+  public long currentTimeMillis() {
+    return queryRedisNow();
+  }
+
+  /**
+   * 令牌桶获取，一次往返，不需要加锁；redis 3.2 以下脚本中读取 TIME 后不能再写入，使用客户端估算的 redis 时间
+   * @param key 限流数据 key
+   * @param permitsPerSecond 每秒产生的令牌数
+   * @param maxPermits 最大存储的令牌数量
+   * @param initStoredPermits 第一次初始化时存储的令牌数量
+   * @param permits 获取的令牌数量，小于 0 时取走所有完整的令牌
+   * @param maxWaitMills 最多等待的毫秒数
+   * @return 令牌足够时返回 0，需要等待时返回等待的毫秒数，获取失败返回 -1；取走所有令牌时返回取走的数量
+   */
+  @Override
+  public long acquirePermits(String key, double permitsPerSecond, double maxPermits, double initStoredPermits, int permits, long maxWaitMills) {
+    byte[][] keysAndArgs = tokenBucketArgs(key, permitsPerSecond, maxPermits, initStoredPermits, permits, maxWaitMills);
+    Long result = execute("token-bucket", (RedisConnection connection) -> TOKEN_BUCKET_SCRIPT.eval(connection, ReturnType.INTEGER, 1, keysAndArgs));
+    return Objects.requireNonNull(result);
+  }
+
+  /**
+   * 生成令牌桶脚本的 key 和参数
+   * @param key 限流数据 key
+   * @param permitsPerSecond 每秒产生的令牌数
+   * @param maxPermits 最大存储的令牌数量
+   * @param initStoredPermits 第一次初始化时存储的令牌数量
+   * @param permits 获取的令牌数量
+   * @param maxWaitMills 最多等待的毫秒数
+   * @return key 和参数
+   */
+  byte[][] tokenBucketArgs(String key, double permitsPerSecond, double maxPermits, double initStoredPermits, int permits, long maxWaitMills) {
+    return new byte[][]{
+            RedislockUtils.stringToBytes(key),
+            RedislockUtils.stringToBytes(String.valueOf(permitsPerSecond)),
+            RedislockUtils.stringToBytes(String.valueOf(maxPermits)),
+            RedislockUtils.stringToBytes(String.valueOf(initStoredPermits)),
+            RedislockUtils.stringToBytes(String.valueOf(permits)),
+            RedislockUtils.stringToBytes(String.valueOf(maxWaitMills)),
+            RedislockUtils.stringToBytes(String.valueOf(estimatedRedisNow()))
+    };
+  }
+
+  /**
+   * 按第一次查询的时间差估算 redis 当前时间
+   * @return 毫秒
+   */
+  private long estimatedRedisNow() {
+    Long offset = clockOffsetMills;
+    if (offset == null) {
+      offset = queryRedisNow() - System.currentTimeMillis();
+      clockOffsetMills = offset;
+    }
+    return System.currentTimeMillis() + offset;
+  }
+
   /**
    * 删除 key
    * https://redis.io/commands/del
    * @param key 锁 key
    * @return
    */
+  @Override
   public boolean delete(String key) {
     return redisTemplate.delete(key);
   }
 
 
+  /**
+   * 获取 key 的 fencing token 计数器，计数器不过期，保证 token 一直递增
+   * @param key 锁 key
+   * @return 计数器 key
+   */
+  public static String fencingKey(String key) {
+    return key + FENCING_KEY_SUFFIX;
+  }
+
+  /**
+   * 获取公平锁的等待队列 key
+   * @param key 锁 key
+   * @return 等待队列 key
+   */
+  public static String fairQueueKey(String key) {
+    return key + ":queue";
+  }
+
+  /**
+   * 获取公平锁的等待者过期时间 key
+   * @param key 锁 key
+   * @return 等待者过期时间 key
+   */
+  public static String fairTimeoutKey(String key) {
+    return key + ":timeout";
+  }
+
+  /**
+   * 获取读写锁的读者集合 key
+   * @param key 写锁 key
+   * @return 读者集合 key
+   */
+  public static String readersKey(String key) {
+    return key + ":readers";
+  }
+
+  /**
+   * 获取读写锁的写意向 key
+   * @param key 写锁 key
+   * @return 写意向 key
+   */
+  public static String writeIntentKey(String key) {
+    return key + ":write-intent";
+  }
+
+  /**
+   * 获取读写锁的版本号 key，版本号不过期，每次获取写锁时递增
+   * @param key 写锁 key
+   * @return 版本号 key
+   */
+  public static String stampKey(String key) {
+    return key + ":stamp";
+  }
+
+  /**
+   * 获取 key 的释放通知频道
+   * @param key 锁 key
+   * @return 频道名称
+   */
+  public static String releaseChannel(String key) {
+    return RELEASE_CHANNEL_PREFIX + key;
+  }
+
+  /**
+   * 是否连接的是 Redis Cluster，第一次使用时检查
+   * @return 是否集群
+   */
+  public boolean isCluster(){
+    Boolean current = cluster;
+    if (current == null) {
+      current = redisTemplate.execute((RedisConnection connection) -> connection instanceof RedisClusterConnection);
+      cluster = current;
+    }
+    return Boolean.TRUE.equals(current);
+  }
+
+  /**
+   * 获取 监控指标
+   * @return 监控指标
+   */
+  public IRedisLockMetrics getMetrics(){
+    return metrics;
+  }
+
+  /**
+   * 设置 监控指标
+   * @param metrics 监控指标
+   */
+  @Override
+  public void setMetrics(IRedisLockMetrics metrics){
+    this.metrics = Objects.requireNonNull(metrics);
+  }
+
+  /**
+   * 获取 熔断器
+   * @return 熔断器，未设置时为 null
+   */
+  public RedisCircuitBreaker getCircuitBreaker(){
+    return circuitBreaker;
+  }
+
+  /**
+   * 设置 熔断器，之后每次访问 redis 的结果都会记录到熔断器
+   * @param circuitBreaker 熔断器，为 null 时不记录
+   */
+  @Override
+  public void setCircuitBreaker(RedisCircuitBreaker circuitBreaker){
+    this.circuitBreaker = circuitBreaker;
+  }
+
   /**
    * 获取 redis  template
    * @return redis template 对象
@@ -164,4 +1301,19 @@ public class RedisLockClient {
     return redisTemplate;
   }
 
+  /**
+   * 批量执行中的一条命令
+   */
+  @FunctionalInterface
+  private interface BatchCommand {
+
+    /**
+     * 执行第 index 个 key 的命令
+     * @param connection 连接，pipeline 中执行时返回 null，结果在 pipeline 结束后返回
+     * @param index key 的下标
+     * @return 执行结果
+     */
+    Object execute(RedisConnection connection, int index);
+  }
+
 }
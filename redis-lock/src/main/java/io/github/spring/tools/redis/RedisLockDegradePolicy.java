@@ -0,0 +1,23 @@
+package io.github.spring.tools.redis;
+
+/**
+ * redis 熔断时的降级策略
+ * <p>锁环境设置了 {@link io.github.spring.tools.redis.breaker.RedisCircuitBreaker}，熔断器打开期间获取锁的处理方式</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public enum RedisLockDegradePolicy {
+
+    /**
+     * 立即获取失败，tryLock(time, unit) 不再等待，默认策略
+     */
+    FAIL_FAST,
+
+    /**
+     * 降级为本进程内的锁，只在当前进程内互斥，熔断器关闭后新的获取重新使用 redis
+     * <p>只对单 key 的普通锁生效，公平锁、多 key 锁、读写锁、多数派锁依赖 redis 脚本，熔断时仍然快速失败</p>
+     */
+    LOCAL;
+
+}
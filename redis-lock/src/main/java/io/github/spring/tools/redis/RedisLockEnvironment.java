@@ -1,14 +1,27 @@
 package io.github.spring.tools.redis;
 
+import io.github.spring.tools.redis.breaker.RedisCircuitBreaker;
 import io.github.spring.tools.redis.capable.ILockWritable;
+import io.github.spring.tools.redis.cluster.IHashTagStrategy;
+import io.github.spring.tools.redis.metrics.IRedisLockMetrics;
+import io.github.spring.tools.redis.store.ILockStore;
+import io.github.spring.tools.redis.store.MemoryLockStore;
 import lombok.Getter;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.util.StringUtils;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * 共享锁环境变量
+ * <p>默认环境之外可以按名称注册多个环境，每个环境连接各自的 Redis，拥有独立的全局参数、通知器和看门狗；
+ * 锁通过 {@link RedisLockBuilder#environment(String)} 选择使用的环境</p>
+ * <p>环境也可以使用其他的 {@link ILockStore}，例如单机部署时使用内存存储，此时只支持普通锁和限流器</p>
  *
  * @author Fenghu.Shi
  * @version 1.2.0
@@ -20,6 +33,27 @@ public class RedisLockEnvironment {
    */
   private static RedisLockEnvironment INSTANCE;
 
+  /**
+   * 默认环境的名称
+   */
+  public static final String DEFAULT_NAME = "default";
+
+  /**
+   * 所有环境，key 为环境名称
+   */
+  private static final Map<String, RedisLockEnvironment> ENVIRONMENTS = new ConcurrentHashMap<>();
+
+  /**
+   * 为每个环境创建监控指标，之后注册的环境也会使用
+   */
+  private static volatile Function<RedisLockEnvironment, IRedisLockMetrics> metricsFactory;
+
+  /**
+   * 环境名称
+   */
+  @Getter
+  private final String name;
+
   /**
    * 存储全局参数
    */
@@ -27,21 +61,103 @@ public class RedisLockEnvironment {
   private RedisLockBuilder builder;
 
   /**
-   * redis 魔板类
+   * redis 魔板类，不是 redis 环境时为 null
    */
-  @Getter
   private RedisTemplate<String, String> redisTemplate;
 
   /**
-   * 构造一个 实例
+   * 共享的锁客户端，使用环境 redisTemplate 的锁都复用这一个，不是 redis 环境时为 null
+   */
+  private RedisLockClient lockClient;
+
+  /**
+   * 锁存储，redis 环境时就是 {@link #lockClient}
+   */
+  @Getter
+  private final ILockStore lockStore;
+
+  /**
+   * 监控指标
+   */
+  @Getter
+  private volatile IRedisLockMetrics metrics = IRedisLockMetrics.NOOP;
+
+  /**
+   * redis 熔断器，未设置时为 null
+   */
+  @Getter
+  private final RedisCircuitBreaker circuitBreaker;
+
+  /**
+   * 熔断时降级使用的本地锁存储，第一次降级时创建
+   */
+  private volatile MemoryLockStore localStore;
+
+  /**
+   * 本地锁存储的续期看门狗，第一次降级时创建
+   */
+  private volatile RedisLockWatchdog localWatchdog;
+
+  /**
+   * 锁释放通知器，第一次使用时创建
+   */
+  private volatile RedisLockNotifier notifier;
+
+  /**
+   * 锁续期看门狗，第一次使用时创建
+   */
+  private volatile RedisLockWatchdog watchdog;
+
+  /**
+   * 多数派锁节点的客户端，按 redisTemplate 缓存，所有多数派锁共享脚本缓存、监控指标和每个节点的熔断器
+   */
+  private final Map<RedisTemplate<String, String>, RedisLockClient> quorumClients = new ConcurrentHashMap<>();
+
+  /**
+   * 构造一个 默认环境实例
    * @param redisTemplate redis 客户端
    */
   RedisLockEnvironment(RedisTemplate<String, String> redisTemplate, RedisLockBuilder builder){
-    Objects.requireNonNull(redisTemplate);
+    this(DEFAULT_NAME, redisTemplate, builder);
+  }
+
+  /**
+   * 构造一个 实例，名称为 {@link #DEFAULT_NAME} 时同时作为默认环境
+   * @param name 环境名称
+   * @param redisTemplate redis 客户端
+   */
+  RedisLockEnvironment(String name, RedisTemplate<String, String> redisTemplate, RedisLockBuilder builder){
+    this(name, RedisLockClient.create(Objects.requireNonNull(redisTemplate)), builder);
+  }
+
+  /**
+   * 构造一个 使用指定存储的实例，名称为 {@link #DEFAULT_NAME} 时同时作为默认环境
+   * @param name 环境名称
+   * @param lockStore 锁存储
+   */
+  RedisLockEnvironment(String name, ILockStore lockStore, RedisLockBuilder builder){
+    Objects.requireNonNull(name);
+    Objects.requireNonNull(lockStore);
     Objects.requireNonNull(builder);
+    this.name = name;
     this.builder = builder;
-    this.redisTemplate = redisTemplate;
-    INSTANCE = this;
+    this.lockStore = lockStore;
+    this.circuitBreaker = builder.getCircuitBreaker();
+    if (circuitBreaker != null) {
+      lockStore.setCircuitBreaker(circuitBreaker);
+    }
+    if (lockStore instanceof RedisLockClient) {
+      this.lockClient = (RedisLockClient) lockStore;
+      this.redisTemplate = lockClient.getRedisTemplate();
+    }
+    Function<RedisLockEnvironment, IRedisLockMetrics> factory = metricsFactory;
+    if (factory != null) {
+      setMetrics(factory.apply(this));
+    }
+    ENVIRONMENTS.put(name, this);
+    if (DEFAULT_NAME.equals(name)) {
+      INSTANCE = this;
+    }
   }
 
 
@@ -53,6 +169,30 @@ public class RedisLockEnvironment {
     return INSTANCE;
   }
 
+  /**
+   * 按名称获取 实例
+   * @param name 环境名称，为空时返回默认环境
+   * @return 环境实例
+   */
+  public static RedisLockEnvironment getInstance(String name){
+    if (StringUtils.isEmpty(name)) {
+      return INSTANCE;
+    }
+    RedisLockEnvironment environment = ENVIRONMENTS.get(name);
+    if (environment == null) {
+      throw new IllegalArgumentException(String.format("未注册名称为 %s 的锁环境", name));
+    }
+    return environment;
+  }
+
+  /**
+   * 获取 所有已注册的环境
+   * @return 环境实例
+   */
+  public static Collection<RedisLockEnvironment> getInstances(){
+    return Collections.unmodifiableCollection(ENVIRONMENTS.values());
+  }
+
   /**
    * 获取 已设置的 builder
    * @return
@@ -62,6 +202,219 @@ public class RedisLockEnvironment {
     return INSTANCE.builder;
   }
 
+  /**
+   * 获取 本环境的全局参数
+   * @return 创建环境的 builder
+   */
+  public RedisLockBuilder getDefaults(){
+    return builder;
+  }
+
+
+  /**
+   * 是否 redis 环境，只有 redis 环境支持公平锁、读写锁、多 key 锁等依赖 lua 脚本的锁
+   * @return 是否 redis 环境
+   */
+  public boolean isRedis(){
+    return lockClient != null;
+  }
+
+  /**
+   * 获取 redis 模板类
+   * @return redis 模板类
+   * @throws IllegalStateException 不是 redis 环境
+   */
+  public RedisTemplate<String, String> getRedisTemplate(){
+    checkRedis();
+    return redisTemplate;
+  }
+
+  /**
+   * 获取 共享的 redis 锁客户端
+   * @return 锁客户端
+   * @throws IllegalStateException 不是 redis 环境
+   */
+  public RedisLockClient getLockClient(){
+    checkRedis();
+    return lockClient;
+  }
+
+  /**
+   * 检查是否 redis 环境
+   */
+  private void checkRedis(){
+    if (lockClient == null) {
+      throw new IllegalStateException(String.format("锁环境 %s 使用 %s，不支持依赖 redis 的锁", name, lockStore.getClass().getSimpleName()));
+    }
+  }
+
+  /**
+   * 获取 redisTemplate 对应的锁客户端，和任一环境使用同一个 redisTemplate 时复用该环境的客户端
+   * @param redisTemplate redis 客户端
+   * @return 锁客户端
+   */
+  static RedisLockClient lockClient(RedisTemplate<String, String> redisTemplate){
+    RedisLockEnvironment environment = INSTANCE;
+    if (environment != null && environment.redisTemplate == redisTemplate) {
+      return environment.lockClient;
+    }
+    for (RedisLockEnvironment named : ENVIRONMENTS.values()) {
+      if (named.redisTemplate == redisTemplate) {
+        return named.lockClient;
+      }
+    }
+    return RedisLockClient.create(redisTemplate);
+  }
+
+  /**
+   * 获取多数派锁节点的客户端，第一次使用时创建并缓存，节点就是环境自己的 redis 时使用环境的客户端
+   * <p>每个节点使用独立的熔断器，参数和环境的熔断器相同，一个节点故障不会让其他节点熔断</p>
+   * @param redisTemplate 节点的 redis 客户端
+   * @return 锁客户端
+   */
+  public RedisLockClient getQuorumClient(RedisTemplate<String, String> redisTemplate){
+    Objects.requireNonNull(redisTemplate);
+    if (redisTemplate == this.redisTemplate) {
+      return lockClient;
+    }
+    return quorumClients.computeIfAbsent(redisTemplate, template -> {
+      RedisLockClient client = RedisLockClient.create(template);
+      client.setMetrics(metrics);
+      if (circuitBreaker != null) {
+        client.setCircuitBreaker(circuitBreaker.copy());
+      }
+      return client;
+    });
+  }
+
+  /**
+   * 设置 监控指标，环境的锁存储和多数派锁节点的客户端同时使用
+   * @param metrics 监控指标
+   */
+  public void setMetrics(IRedisLockMetrics metrics){
+    this.metrics = Objects.requireNonNull(metrics);
+    lockStore.setMetrics(metrics);
+    for (RedisLockClient client : quorumClients.values()) {
+      client.setMetrics(metrics);
+    }
+  }
+
+  /**
+   * 设置 所有环境的监控指标，已注册的环境立即生效，之后注册的环境创建时生效
+   * @param factory 按环境创建监控指标
+   */
+  public static void setMetricsFactory(Function<RedisLockEnvironment, IRedisLockMetrics> factory){
+    metricsFactory = factory;
+    for (RedisLockEnvironment environment : ENVIRONMENTS.values()) {
+      environment.setMetrics(factory == null ? IRedisLockMetrics.NOOP : factory.apply(environment));
+    }
+  }
+
+  /**
+   * 获取锁释放通知器，整个环境共享一个订阅连接
+   * @return 通知器
+   */
+  public RedisLockNotifier getNotifier(){
+    if (notifier == null) {
+      synchronized (this) {
+        if (notifier == null) {
+          notifier = redisTemplate != null ? new RedisLockNotifier(redisTemplate) : new RedisLockNotifier(lockStore);
+        }
+      }
+    }
+    return notifier;
+  }
+
+  /**
+   * 获取锁续期看门狗，整个环境共享一个
+   * @return 看门狗
+   */
+  public RedisLockWatchdog getWatchdog(){
+    if (watchdog == null) {
+      synchronized (this) {
+        if (watchdog == null) {
+          watchdog = new RedisLockWatchdog(lockStore, circuitBreaker);
+        }
+      }
+    }
+    return watchdog;
+  }
+
+  /**
+   * 熔断器是否允许访问 redis，信号量、限流器等不经过 {@link DefaultRedisLock} 的操作访问 redis 前检查
+   * @return 是否允许，没有熔断器时总是允许
+   */
+  public boolean allowRequest(){
+    return circuitBreaker == null || circuitBreaker.allowRequest();
+  }
+
+  /**
+   * 获取熔断时降级使用的本地锁存储，本地锁释放时同样唤醒通知器上的等待者
+   * @return 本地锁存储
+   */
+  public MemoryLockStore getLocalStore(){
+    if (localStore == null) {
+      synchronized (this) {
+        if (localStore == null) {
+          MemoryLockStore store = new MemoryLockStore();
+          store.subscribe(key -> {
+            // 没有创建通知器时也没有等待者
+            RedisLockNotifier current = notifier;
+            if (current != null) {
+              current.wakeUp(key);
+            }
+          });
+          localWatchdog = new RedisLockWatchdog(store);
+          localStore = store;
+        }
+      }
+    }
+    return localStore;
+  }
+
+  /**
+   * 获取本地锁存储的续期看门狗
+   * @return 看门狗
+   */
+  public RedisLockWatchdog getLocalWatchdog(){
+    getLocalStore();
+    return localWatchdog;
+  }
+
+  /**
+   * 是否连接的是 Redis Cluster
+   * @return 是否集群
+   */
+  public boolean isCluster(){
+    return lockClient != null && lockClient.isCluster();
+  }
+
+  /**
+   * 释放环境持有的资源，并取消注册，之后不能再按名称获取
+   * <p>创建环境时传入的锁存储属于这个环境，一起销毁，例如停止 {@link MemoryLockStore} 的时间轮</p>
+   */
+  public synchronized void destroy(){
+    ENVIRONMENTS.remove(name, this);
+    if (INSTANCE == this) {
+      INSTANCE = null;
+    }
+    if (notifier != null) {
+      notifier.destroy();
+      notifier = null;
+    }
+    if (watchdog != null) {
+      watchdog.destroy();
+      watchdog = null;
+    }
+    if (localStore != null) {
+      localWatchdog.destroy();
+      localStore.destroy();
+      localWatchdog = null;
+      localStore = null;
+    }
+    quorumClients.clear();
+    lockStore.destroy();
+  }
 
   /**
    * 开始设置
@@ -75,6 +428,9 @@ public class RedisLockEnvironment {
     }
     // 开启设置
     ILockWritable writable = (ILockWritable) lock;
+    if (lock instanceof DefaultRedisLock) {
+      ((DefaultRedisLock) lock).setEnvironment(this);
+    }
     if (!builder.isDefault(builder.getLockSeconds())){
       writable.setLockSeconds(builder.getLockSeconds());
     }
@@ -88,10 +444,50 @@ public class RedisLockEnvironment {
       writable.setLockSeconds(builder.getSleepMaxMills());
     }
 
-    // 设置 prefix
+    // 设置 prefix 和 hash tag
+    writable.setKey(lockKey(lock.getKey(), keyPrefix));
+  }
+
+  /**
+   * 获取锁最终的 key，合并全局前缀后按 hash tag 策略处理，和构造器生成的锁一致；不经过构造器的锁（例如响应式锁）通过这里互斥
+   * @param key 锁的 key
+   * @return 最终的 key
+   */
+  public String lockKey(String key){
+    return lockKey(key, null);
+  }
+
+  /**
+   * 获取锁最终的 key，合并前缀后按 hash tag 策略处理
+   * @param key 锁的 key
+   * @param keyPrefix 单独设置的 key 前缀，设置后不再使用全局前缀
+   * @return 最终的 key
+   */
+  String lockKey(String key, String keyPrefix){
+    return hashTagKey(mergeKey(key, keyPrefix));
+  }
+
+  /**
+   * 按环境的 hash tag 策略处理 key，限流器、信号量等不使用锁前缀的数据也通过这里保证和锁一致
+   * @param key key
+   * @return 处理后的 key
+   */
+  public String hashTagKey(String key){
+    IHashTagStrategy strategy = builder.getHashTagStrategy();
+    return strategy == null ? key : strategy.apply(key);
+  }
+
+  /**
+   * 合并全局的 key 前缀
+   * @param key 锁的 key
+   * @param keyPrefix 单独设置的 key 前缀，设置后不再使用全局前缀
+   * @return 最终的 key
+   */
+  String mergeKey(String key, String keyPrefix){
     if (!StringUtils.isEmpty(builder.getKeyPrefix()) && StringUtils.isEmpty(keyPrefix)) {
-      writable.setKey(String.format("%s-%s", builder.getKeyPrefix(), lock.getKey()));
+      return String.format("%s-%s", builder.getKeyPrefix(), key);
     }
+    return key;
   }
 
 
@@ -0,0 +1,113 @@
+package io.github.spring.tools.redis;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 共享锁 共用的线程池
+ * <p>所有定时任务共用一个守护线程的调度器，不为单个锁创建线程</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public final class RedisLockExecutors {
+
+    /**
+     * 共用调度器
+     */
+    private static volatile ScheduledThreadPoolExecutor scheduler;
+
+    /**
+     * 共用工作线程池
+     */
+    private static volatile ExecutorService worker;
+
+    /**
+     * 异步回调线程池
+     */
+    private static volatile ExecutorService callback;
+
+    private RedisLockExecutors() {}
+
+    /**
+     * 获取共用调度器，第一次使用时创建
+     * @return 调度器
+     */
+    public static ScheduledExecutorService scheduler() {
+        if (scheduler == null) {
+            synchronized (RedisLockExecutors.class) {
+                if (scheduler == null) {
+                    AtomicInteger index = new AtomicInteger();
+                    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(SCHEDULER_THREADS, r -> {
+                        Thread thread = new Thread(r, "redis-lock-scheduler-" + index.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    // 取消的任务立即移除，避免大量短时任务堆积在队列中
+                    executor.setRemoveOnCancelPolicy(true);
+                    scheduler = executor;
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    /**
+     * 获取共用工作线程池，用于并行访问多个 redis 节点等阻塞操作，空闲线程会自动回收
+     * @return 工作线程池
+     */
+    public static ExecutorService worker() {
+        if (worker == null) {
+            synchronized (RedisLockExecutors.class) {
+                if (worker == null) {
+                    AtomicInteger index = new AtomicInteger();
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(WORKER_THREADS, WORKER_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                        Thread thread = new Thread(r, "redis-lock-worker-" + index.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    executor.allowCoreThreadTimeOut(true);
+                    worker = executor;
+                }
+            }
+        }
+        return worker;
+    }
+
+    /**
+     * 获取异步回调的默认线程池，业务回调和锁内部的任务分开，长时间执行的回调不会阻塞锁的获取和续期
+     * <p>按需创建线程，空闲线程会自动回收，需要限制并发时调用方应传入自己的线程池</p>
+     * @return 回调线程池
+     */
+    public static ExecutorService callback() {
+        if (callback == null) {
+            synchronized (RedisLockExecutors.class) {
+                if (callback == null) {
+                    AtomicInteger index = new AtomicInteger();
+                    callback = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+                        Thread thread = new Thread(r, "redis-lock-callback-" + index.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return callback;
+    }
+
+    /**
+     * 工作线程数
+     */
+    private static final int WORKER_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    /**
+     * 调度线程数
+     */
+    private static final int SCHEDULER_THREADS = 2;
+}
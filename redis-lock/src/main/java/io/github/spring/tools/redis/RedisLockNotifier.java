@@ -0,0 +1,339 @@
+package io.github.spring.tools.redis;
+
+import io.github.spring.tools.redis.store.ILockStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 锁释放通知器
+ * <p>每个 JVM 共享一个订阅连接，监听锁释放频道和 key 过期事件，唤醒本地等待该 key 的线程</p>
+ * <p>key 过期事件需要 redis 开启 notify-keyspace-events Ex，未开启时只依赖释放消息和兜底定时重试</p>
+ * <p>不是 redis 的锁存储直接订阅存储的释放、过期事件，不需要订阅连接</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+@Slf4j
+public class RedisLockNotifier implements MessageListener {
+
+    /**
+     * 订阅容器
+     */
+    private final RedisMessageListenerContainer container;
+
+    /**
+     * 消息分发线程
+     */
+    private final ExecutorService dispatcher;
+
+    /**
+     * 订阅线程，jedis 的订阅会一直阻塞该线程，所以和分发线程分开
+     */
+    private final ExecutorService subscriber;
+
+    /**
+     * 各个 key 的等待信号
+     */
+    private final ConcurrentHashMap<String, Signal> signals = new ConcurrentHashMap<>(64);
+
+    /**
+     * 多 key 锁的成员 key 到组合 key 的映射，值为等待者数量；成员 key 释放时唤醒等待组合 key 的线程
+     */
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Integer>> members = new ConcurrentHashMap<>();
+
+    /**
+     * 公平锁等待者的信号，锁 key -> 等待者 id -> 信号；交接消息只唤醒接手的等待者
+     */
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Signal>> waiters = new ConcurrentHashMap<>();
+
+    /**
+     * 创建一个通知器，并开始订阅
+     * @param redisTemplate redis 客户端
+     */
+    RedisLockNotifier(RedisTemplate<String, String> redisTemplate) {
+        Objects.requireNonNull(redisTemplate);
+        this.dispatcher = newDaemonExecutor("redis-lock-notifier");
+        this.subscriber = newDaemonExecutor("redis-lock-subscriber");
+        this.container = new RedisMessageListenerContainer();
+        this.container.setConnectionFactory(redisTemplate.getConnectionFactory());
+        this.container.setTaskExecutor(dispatcher);
+        this.container.setSubscriptionExecutor(subscriber);
+        this.container.addMessageListener(this, Arrays.asList(new PatternTopic(RedisLockClient.RELEASE_CHANNEL_PREFIX + "*"), new PatternTopic(RedisLockClient.EXPIRED_CHANNEL_PATTERN)));
+        this.container.afterPropertiesSet();
+        this.container.start();
+    }
+
+    /**
+     * 创建一个订阅锁存储事件的通知器
+     * @param lockStore 锁存储
+     */
+    RedisLockNotifier(ILockStore lockStore) {
+        Objects.requireNonNull(lockStore);
+        this.dispatcher = null;
+        this.subscriber = null;
+        this.container = null;
+        lockStore.subscribe(this::wakeUp);
+    }
+
+    /**
+     * 注册一个 key 的等待者
+     * @param key 锁的 key
+     * @return 等待信号
+     */
+    public Signal subscribe(String key) {
+        return signals.compute(key, (k, signal) -> {
+            if (signal == null) {
+                signal = new Signal();
+            }
+            signal.waiters++;
+            return signal;
+        });
+    }
+
+    /**
+     * 注册一个等待多个 key 的等待者，任意一个成员 key 释放或者过期时唤醒
+     * @param key 组合 key
+     * @param memberKeys 成员 key
+     * @return 等待信号
+     */
+    public Signal subscribe(String key, Collection<String> memberKeys) {
+        for (String member : memberKeys) {
+            members.compute(member, (k, keys) -> {
+                if (keys == null) {
+                    keys = new ConcurrentHashMap<>(4);
+                }
+                keys.merge(key, 1, Integer::sum);
+                return keys;
+            });
+        }
+        return subscribe(key);
+    }
+
+    /**
+     * 注销等待者，最后一个等待者离开时移除信号
+     * @param key 锁的 key
+     * @param signal 等待信号
+     */
+    public void unsubscribe(String key, Signal signal) {
+        signals.computeIfPresent(key, (k, current) -> current == signal && --current.waiters <= 0 ? null : current);
+    }
+
+    /**
+     * 注销等待多个 key 的等待者
+     * @param key 组合 key
+     * @param memberKeys 成员 key
+     * @param signal 等待信号
+     */
+    public void unsubscribe(String key, Collection<String> memberKeys, Signal signal) {
+        for (String member : memberKeys) {
+            members.computeIfPresent(member, (k, keys) -> {
+                keys.computeIfPresent(key, (c, count) -> count <= 1 ? null : count - 1);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+        unsubscribe(key, signal);
+    }
+
+    /**
+     * 注册一个公平锁等待者，只有锁交接给它，或者锁没有交接就释放、过期时唤醒
+     * @param key 锁的 key
+     * @param waiterId 等待者 id，和排队使用的 id 一致
+     * @return 等待信号
+     */
+    public Signal subscribeWaiter(String key, String waiterId) {
+        Signal signal = new Signal();
+        waiters.compute(key, (k, keyWaiters) -> {
+            if (keyWaiters == null) {
+                keyWaiters = new ConcurrentHashMap<>(4);
+            }
+            keyWaiters.put(waiterId, signal);
+            return keyWaiters;
+        });
+        return signal;
+    }
+
+    /**
+     * 注销公平锁等待者
+     * @param key 锁的 key
+     * @param waiterId 等待者 id
+     * @param signal 等待信号
+     */
+    public void unsubscribeWaiter(String key, String waiterId, Signal signal) {
+        waiters.computeIfPresent(key, (k, keyWaiters) -> {
+            keyWaiters.remove(waiterId, signal);
+            return keyWaiters.isEmpty() ? null : keyWaiters;
+        });
+    }
+
+    /**
+     * 锁交接给了等待者，只唤醒该等待者，等待者不在本地时忽略
+     * @param key 锁的 key
+     * @param waiterId 接手的等待者 id
+     */
+    public void handOff(String key, String waiterId) {
+        ConcurrentHashMap<String, Signal> keyWaiters = waiters.get(key);
+        Signal signal = keyWaiters == null ? null : keyWaiters.get(waiterId);
+        if (signal != null) {
+            signal.signalAll();
+        }
+    }
+
+    /**
+     * 唤醒等待 key 的线程，以及等待包含该 key 的多 key 锁的线程
+     * @param key 锁的 key
+     */
+    public void wakeUp(String key) {
+        Signal signal = signals.get(key);
+        if (signal != null) {
+            signal.signalAll();
+        }
+        ConcurrentHashMap<String, Signal> keyWaiters = waiters.get(key);
+        if (keyWaiters != null) {
+            keyWaiters.values().forEach(Signal::signalAll);
+        }
+        ConcurrentHashMap<String, Integer> composites = members.get(key);
+        if (composites != null) {
+            for (String composite : composites.keySet()) {
+                Signal compositeSignal = signals.get(composite);
+                if (compositeSignal != null) {
+                    compositeSignal.signalAll();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        // 过期事件的 key 在消息体中
+        if (!channel.startsWith(RedisLockClient.RELEASE_CHANNEL_PREFIX)) {
+            wakeUp(body);
+            return;
+        }
+        // 释放频道的 key 在频道名中，公平锁交接时消息体是接手的等待者
+        String key = channel.substring(RedisLockClient.RELEASE_CHANNEL_PREFIX.length());
+        if (body.startsWith(RedisLockClient.HANDOFF_MESSAGE_PREFIX)) {
+            handOff(key, body.substring(RedisLockClient.HANDOFF_MESSAGE_PREFIX.length()));
+        } else {
+            wakeUp(key);
+        }
+    }
+
+    /**
+     * 停止订阅
+     */
+    public void destroy() {
+        if (container == null) {
+            return;
+        }
+        try {
+            container.destroy();
+        } catch (Exception e) {
+            log.error("redis lock notifier 关闭失败", e);
+        }
+        dispatcher.shutdownNow();
+        subscriber.shutdownNow();
+    }
+
+    /**
+     * 创建一个单线程的守护线程池
+     * @param name 线程名称
+     * @return 线程池
+     */
+    private static ExecutorService newDaemonExecutor(String name) {
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 单个 key 的等待信号
+     */
+    public static final class Signal {
+
+        /**
+         * 等待者数量，只在 signals.compute 中读写
+         */
+        private int waiters;
+
+        /**
+         * 通知版本号
+         */
+        private long version;
+
+        /**
+         * 通知监听器，异步获取锁时由通知触发下一次尝试
+         */
+        private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+        /**
+         * 获取当前版本，重试前记录，避免错过两次检查之间的通知
+         * @return 版本号
+         */
+        public synchronized long version() {
+            return version;
+        }
+
+        /**
+         * 版本未变化时等待通知或超时
+         * @param seenVersion 重试前记录的版本
+         * @param mills 最长等待毫秒
+         * @throws InterruptedException 线程中断
+         */
+        public synchronized void await(long seenVersion, long mills) throws InterruptedException {
+            if (version == seenVersion && mills > 0) {
+                wait(mills);
+            }
+        }
+
+        /**
+         * 添加通知监听器，监听器在通知线程中执行，不能阻塞
+         * @param listener 监听器
+         */
+        public void addListener(Runnable listener) {
+            listeners.add(listener);
+        }
+
+        /**
+         * 移除通知监听器
+         * @param listener 监听器
+         */
+        public void removeListener(Runnable listener) {
+            listeners.remove(listener);
+        }
+
+        /**
+         * 唤醒所有等待者
+         */
+        void signalAll() {
+            synchronized (this) {
+                version++;
+                notifyAll();
+            }
+            for (Runnable listener : listeners) {
+                try {
+                    listener.run();
+                } catch (Exception e) {
+                    log.error("redis lock 通知监听器执行失败", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.spring.tools.redis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 锁的值生成器
+ * <p>进程启动时生成一次随机前缀，之后只递增计数器，不再访问 SecureRandom；
+ * 前缀保证不同进程之间不重复，计数器保证进程内不重复</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public final class RedisLockTokens {
+
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * 进程唯一的前缀
+     */
+    private static final char[] PREFIX = (UUID.randomUUID().toString() + ":").toCharArray();
+
+    /**
+     * 前缀的编码，前缀只有 ASCII 字符
+     */
+    private static final byte[] PREFIX_BYTES = new String(PREFIX).getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * 计数器
+     */
+    private static final AtomicLong COUNTER = new AtomicLong();
+
+    private RedisLockTokens() {}
+
+    /**
+     * 生成一个新的锁的值
+     * @return 锁的值
+     */
+    public static String next() {
+        long sequence = COUNTER.incrementAndGet();
+        int digits = Math.max(1, (64 - Long.numberOfLeadingZeros(sequence) + 3) >> 2);
+        char[] chars = new char[PREFIX.length + digits];
+        System.arraycopy(PREFIX, 0, chars, 0, PREFIX.length);
+        for (int i = chars.length - 1; i >= PREFIX.length; i--) {
+            chars[i] = DIGITS[(int) (sequence & 0xF)];
+            sequence >>>= 4;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 生成一个新的锁的值，直接返回编码结果，热点路径上不需要再创建字符串和编码
+     * <p>锁的值只有 ASCII 字符，按 ISO-8859-1 解码即可得到 {@link #next()} 格式的字符串</p>
+     * @return 锁的值编码
+     */
+    public static byte[] nextBytes() {
+        long sequence = COUNTER.incrementAndGet();
+        int digits = Math.max(1, (64 - Long.numberOfLeadingZeros(sequence) + 3) >> 2);
+        byte[] bytes = new byte[PREFIX_BYTES.length + digits];
+        System.arraycopy(PREFIX_BYTES, 0, bytes, 0, PREFIX_BYTES.length);
+        for (int i = bytes.length - 1; i >= PREFIX_BYTES.length; i--) {
+            bytes[i] = (byte) DIGITS[(int) (sequence & 0xF)];
+            sequence >>>= 4;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,22 @@
+package io.github.spring.tools.redis;
+
+/**
+ * 获取锁时的等待模式
+ * <p>定义了 tryLock(time, unit) 在锁被占用时的等待方式</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public enum RedisLockWaitMode {
+
+    /**
+     * 自旋 + 随机休眠，默认模式
+     */
+    SPIN,
+
+    /**
+     * 订阅锁释放通知，收到释放或过期消息后再重试，同时保留兜底定时重试
+     */
+    NOTIFY;
+
+}
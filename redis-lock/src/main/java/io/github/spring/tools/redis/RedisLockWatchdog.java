@@ -0,0 +1,200 @@
+package io.github.spring.tools.redis;
+
+import io.github.spring.tools.redis.breaker.RedisCircuitBreaker;
+import io.github.spring.tools.redis.store.ILockStore;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 锁续期看门狗
+ * <p>持有锁期间定时延长锁的过期时间，所有锁共用一个调度器，每次把到期需要续期的锁放在一个 pipeline 中续期</p>
+ * <p>锁释放、持有线程结束或者锁已经被其他人持有时停止续期；熔断器拒绝访问 redis 时跳过这一轮续期，不占用共享的调度线程等待超时</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+@Slf4j
+public class RedisLockWatchdog {
+
+    /**
+     * 锁存储
+     */
+    private final ILockStore lockStore;
+
+    /**
+     * 熔断器，为 null 时不熔断
+     */
+    private final RedisCircuitBreaker circuitBreaker;
+
+    /**
+     * 需要续期的租约
+     */
+    private final Set<Lease> leases = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 定时任务
+     */
+    private final ScheduledFuture<?> future;
+
+    /**
+     * 创建一个看门狗，并开始定时续期
+     * @param lockStore 锁存储
+     */
+    RedisLockWatchdog(ILockStore lockStore) {
+        this(lockStore, null);
+    }
+
+    /**
+     * 创建一个看门狗，并开始定时续期
+     * @param lockStore 锁存储
+     * @param circuitBreaker 熔断器，为 null 时不熔断
+     */
+    RedisLockWatchdog(ILockStore lockStore, RedisCircuitBreaker circuitBreaker) {
+        Objects.requireNonNull(lockStore);
+        this.lockStore = lockStore;
+        this.circuitBreaker = circuitBreaker;
+        this.future = RedisLockExecutors.scheduler().scheduleWithFixedDelay(this::renew, TICK_MILLS, TICK_MILLS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 注册一个需要续期的锁，当前线程作为持有者
+     * @param key 锁的 key
+     * @param value 锁的值
+     * @param lockSeconds 每次续期的时长，单位秒
+     * @return 租约
+     */
+    public Lease register(String key, String value, int lockSeconds) {
+        Lease lease = new Lease(key, value, TimeUnit.SECONDS.toMillis(lockSeconds), Thread.currentThread());
+        leases.add(lease);
+        return lease;
+    }
+
+    /**
+     * 停止续期
+     * @param lease 租约
+     */
+    public void unregister(Lease lease) {
+        if (lease != null) {
+            leases.remove(lease);
+        }
+    }
+
+    /**
+     * 续期所有到期的租约，超过 1/3 租期没有续期的锁视为到期
+     */
+    void renew() {
+        try {
+            long now = System.currentTimeMillis();
+            List<Lease> dueLeases = new ArrayList<>();
+            for (Lease lease : leases) {
+                // 持有线程已经结束，不再续期，等待自然过期
+                if (!lease.owner.isAlive()) {
+                    leases.remove(lease);
+                    log.warn("redis lock watchdog --> {} 锁的持有线程已结束，停止续期", lease.key);
+                    continue;
+                }
+                if (now - lease.renewedMills >= lease.leaseMills / 3) {
+                    dueLeases.add(lease);
+                }
+            }
+            if (dueLeases.isEmpty()) {
+                return;
+            }
+            // 熔断期间不访问 redis，租约保留到下一轮，锁在此期间过期时续期失败后停止
+            if (circuitBreaker != null && !circuitBreaker.allowRequest()) {
+                log.debug("redis lock watchdog --> 熔断器拒绝访问 redis，跳过 {} 个锁的续期", dueLeases.size());
+                return;
+            }
+            int size = dueLeases.size();
+            String[] keys = new String[size];
+            String[] values = new String[size];
+            long[] leaseMills = new long[size];
+            for (int i = 0; i < size; i++) {
+                Lease lease = dueLeases.get(i);
+                keys[i] = lease.key;
+                values[i] = lease.value;
+                leaseMills[i] = lease.leaseMills;
+            }
+            boolean[] results = lockStore.renew(keys, values, leaseMills);
+            for (int i = 0; i < size; i++) {
+                Lease lease = dueLeases.get(i);
+                if (results[i]) {
+                    lease.renewedMills = now;
+                } else {
+                    // 锁已经过期或者被其他人持有
+                    lease.lost = true;
+                    leases.remove(lease);
+                    log.warn("redis lock watchdog --> {} 锁已丢失，停止续期", lease.key);
+                }
+            }
+        } catch (Exception e) {
+            log.error("redis lock watchdog 续期失败", e);
+        }
+    }
+
+    /**
+     * 停止看门狗
+     */
+    public void destroy() {
+        future.cancel(false);
+        leases.clear();
+    }
+
+    /**
+     * 锁租约
+     */
+    public static final class Lease {
+
+        /**
+         * 锁的 key
+         */
+        private final String key;
+
+        /**
+         * 锁的值
+         */
+        private final String value;
+
+        /**
+         * 租期，毫秒
+         */
+        private final long leaseMills;
+
+        /**
+         * 持有线程
+         */
+        private final Thread owner;
+
+        /**
+         * 上一次续期时间
+         */
+        private volatile long renewedMills;
+
+        /**
+         * 是否已经丢失锁
+         */
+        @Getter
+        private volatile boolean lost;
+
+        private Lease(String key, String value, long leaseMills, Thread owner) {
+            this.key = key;
+            this.value = value;
+            this.leaseMills = leaseMills;
+            this.owner = owner;
+            this.renewedMills = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 检查间隔，毫秒
+     */
+    private static final long TICK_MILLS = 500;
+}
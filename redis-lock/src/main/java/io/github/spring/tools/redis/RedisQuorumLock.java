@@ -0,0 +1,169 @@
+package io.github.spring.tools.redis;
+
+import io.github.spring.tools.redis.breaker.RedisCircuitBreaker;
+import io.github.spring.tools.redis.exception.UnLockFailException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多数派锁（Redlock）
+ * <p>同时向 N 个独立的 redis 节点并行发送 SET NX，在有效期内多数节点（N/2+1）成功即获取成功，
+ * 获取耗时接近多数派中最慢的节点，而不是所有节点耗时之和</p>
+ * <p>有效期 = 锁定时长 - 获取耗时 - 时钟漂移（锁定时长的 1% + 2 毫秒），有效期不足时视为失败；
+ * 获取失败或者释放时，在所有节点上异步释放，包括获取时响应较晚的节点</p>
+ * <p>多数派锁只能自旋等待，不支持看门狗和 fencing token</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class RedisQuorumLock extends DefaultRedisLock {
+
+    /**
+     * 每个节点的客户端
+     */
+    private final List<RedisLockClient> nodes;
+
+    /**
+     * 本次获取的有效期截止时间，毫秒
+     */
+    private long validUntilMills;
+
+    /**
+     * 创建一个多数派锁
+     * @param nodes 独立的 redis 节点的客户端，见 {@link RedisLockEnvironment#getQuorumClient(RedisTemplate)}
+     * @param key 锁定的key
+     * @param lockSeconds 锁定时长
+     * @param sleepMinMills 休眠最小值
+     * @param sleepMaxMills 休眠最大值
+     * @param spinTimes 自旋次数
+     * @param throwableException 是否强制抛出异常
+     */
+    RedisQuorumLock(List<RedisLockClient> nodes, String key, int lockSeconds, int sleepMinMills, int sleepMaxMills, int spinTimes, RuntimeException throwableException) {
+        super(nodes.get(0), key, lockSeconds, sleepMinMills, sleepMaxMills, spinTimes, RedisLockWaitMode.SPIN, false, false, throwableException);
+        this.nodes = nodes;
+    }
+
+    /**
+     * 每个节点分别熔断，不检查环境的熔断器
+     */
+    @Override
+    protected RedisCircuitBreaker getCircuitBreaker() {
+        return null;
+    }
+
+    @Override
+    protected boolean isLocalDegradable() {
+        return false;
+    }
+
+    @Override
+    protected boolean doAcquire(IRedisLock lock) {
+        String value = RedisLockTokens.next();
+        setUuid(value);
+        String lockKey = lock.getKey();
+        int lockSeconds = lock.getLockSeconds();
+        long lockMills = TimeUnit.SECONDS.toMillis(lockSeconds);
+        int quorum = nodes.size() / 2 + 1;
+        long startMills = System.currentTimeMillis();
+        // 多数成功或者多数不可能时立即结束，不等待最慢的节点
+        CompletableFuture<Boolean> decision = new CompletableFuture<>();
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        List<CompletableFuture<Boolean>> attempts = new ArrayList<>(nodes.size());
+        for (RedisLockClient node : nodes) {
+            // 熔断中的节点不访问，直接计为失败
+            CompletableFuture<Boolean> attempt = allowRequest(node)
+                    ? CompletableFuture.supplyAsync(() -> node.setNx(lockKey, value, lockSeconds), RedisLockExecutors.worker())
+                    : CompletableFuture.completedFuture(false);
+            attempt.whenComplete((locked, ex) -> {
+                if (Boolean.TRUE.equals(locked)) {
+                    if (succeeded.incrementAndGet() >= quorum) {
+                        decision.complete(true);
+                    }
+                } else if (failed.incrementAndGet() > nodes.size() - quorum) {
+                    decision.complete(false);
+                }
+            });
+            attempts.add(attempt);
+        }
+        boolean locked;
+        try {
+            locked = decision.get(lockMills - drift(lockMills), TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            locked = false;
+        }
+        long validity = lockMills - (System.currentTimeMillis() - startMills) - drift(lockMills);
+        if (locked && validity > 0) {
+            validUntilMills = System.currentTimeMillis() + validity;
+            debugMessage(String.format("%s/%s 个节点获取成功，有效期 %s 毫秒", succeeded.get(), nodes.size(), validity));
+            return true;
+        }
+        debugMessage(String.format("%s/%s 个节点获取成功，有效期 %s 毫秒，未达到多数", succeeded.get(), nodes.size(), validity));
+        // 失败时异步释放，响应较晚的节点在响应后释放
+        for (int i = 0; i < nodes.size(); i++) {
+            RedisLockClient node = nodes.get(i);
+            attempts.get(i).thenAcceptAsync(nodeLocked -> {
+                if (Boolean.TRUE.equals(nodeLocked)) {
+                    node.releaseByLua(lockKey, value);
+                }
+            }, RedisLockExecutors.worker());
+        }
+        return false;
+    }
+
+    @Override
+    protected boolean doRelease(IRedisLock lock) throws UnLockFailException {
+        if (StringUtils.isEmpty(getUuid())) {
+            throw new IllegalArgumentException(String.format("redis 共享锁 %s provider data不存在", lock.getKey()));
+        }
+        String lockKey = lock.getKey();
+        String value = getUuid();
+        // 所有节点异步释放，不等待结果
+        for (RedisLockClient node : nodes) {
+            // 熔断中的节点等待锁过期
+            if (allowRequest(node)) {
+                CompletableFuture.runAsync(() -> node.releaseByLua(lockKey, value), RedisLockExecutors.worker());
+            }
+        }
+        // 超过有效期时，锁可能已被他人获取，视为释放失败
+        return System.currentTimeMillis() < validUntilMills;
+    }
+
+    /**
+     * 获取本次获取的有效期截止时间，超过后锁不再保证互斥
+     * @return 截止时间，毫秒
+     */
+    public long getValidUntilMills() {
+        return validUntilMills;
+    }
+
+    /**
+     * 节点的熔断器是否允许访问
+     * @param node 节点
+     * @return 是否允许，节点没有熔断器时总是允许
+     */
+    private static boolean allowRequest(RedisLockClient node) {
+        RedisCircuitBreaker breaker = node.getCircuitBreaker();
+        return breaker == null || breaker.allowRequest();
+    }
+
+    /**
+     * 时钟漂移
+     * @param lockMills 锁定时长，毫秒
+     * @return 漂移毫秒
+     */
+    private static long drift(long lockMills) {
+        return (long) (lockMills * CLOCK_DRIFT_FACTOR) + 2;
+    }
+
+    /**
+     * 时钟漂移系数
+     */
+    private static final double CLOCK_DRIFT_FACTOR = 0.01;
+}
@@ -0,0 +1,213 @@
+package io.github.spring.tools.redis;
+
+import io.github.spring.tools.redis.exception.UnLockFailException;
+import org.springframework.util.StringUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分布式读写锁
+ * <p>多个读者可以同时持有读锁，写锁与读锁、写锁互斥；等待中的写者会登记写意向，阻止新的读者进入，避免写者饥饿</p>
+ * <p>类似 {@link java.util.concurrent.locks.StampedLock}，支持乐观读：{@link #tryOptimisticRead()} 获取版本号，
+ * 读取完成后用 {@link #validate(long)} 一次往返检查期间是否有写者获取过锁</p>
+ * <p>读锁、写锁每次调用都会生成新的实例，不经过装饰者包装，不支持重入；读锁没有看门狗续期，持有时间不要超过 lockSeconds</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class RedisReadWriteLock {
+
+    /**
+     * 所属的锁环境
+     */
+    private final RedisLockEnvironment environment;
+
+    /**
+     * redis 锁客户端
+     */
+    private final RedisLockClient redisLockClient;
+
+    /**
+     * 锁定的 key，写锁直接使用此 key，和普通锁互斥
+     */
+    private final String key;
+
+    /**
+     * 锁定时长
+     */
+    private final int lockSeconds;
+
+    /**
+     * 休眠最小时间
+     */
+    private final int sleepMinMills;
+
+    /**
+     * 休眠最大时间
+     */
+    private final int sleepMaxMills;
+
+    /**
+     * 自旋次数
+     */
+    private final int spinTimes;
+
+    /**
+     * 写锁是否开启看门狗
+     */
+    private final boolean watchdog;
+
+    /**
+     * 释放失败时抛出的异常
+     */
+    private final RuntimeException throwableException;
+
+    /**
+     * 创建一个读写锁
+     * @param environment 所属的锁环境
+     * @param key 锁定的key，已合并前缀
+     * @param lockSeconds 锁定时长
+     * @param sleepMinMills 休眠最小值
+     * @param sleepMaxMills 休眠最大值
+     * @param spinTimes 自旋次数
+     * @param watchdog 写锁是否开启看门狗自动续期
+     * @param throwableException 是否强制抛出异常
+     */
+    RedisReadWriteLock(RedisLockEnvironment environment, String key, int lockSeconds, int sleepMinMills, int sleepMaxMills, int spinTimes, boolean watchdog, RuntimeException throwableException) {
+        this.environment = environment;
+        this.redisLockClient = environment.getLockClient();
+        this.key = key;
+        this.lockSeconds = lockSeconds;
+        this.sleepMinMills = sleepMinMills;
+        this.sleepMaxMills = sleepMaxMills;
+        this.spinTimes = spinTimes;
+        this.watchdog = watchdog;
+        this.throwableException = throwableException;
+    }
+
+    /**
+     * 创建一个读锁
+     * @return 读锁
+     */
+    public IRedisLock readLock() {
+        ReadLock lock = new ReadLock(redisLockClient, key, lockSeconds, sleepMinMills, sleepMaxMills, spinTimes, throwableException);
+        lock.setEnvironment(environment);
+        return lock;
+    }
+
+    /**
+     * 创建一个写锁，获取成功后 {@link IRedisLock#getFencingToken()} 返回本次的版本号
+     * @return 写锁
+     */
+    public IRedisLock writeLock() {
+        WriteLock lock = new WriteLock(redisLockClient, key, lockSeconds, sleepMinMills, sleepMaxMills, spinTimes, watchdog, throwableException);
+        lock.setEnvironment(environment);
+        return lock;
+    }
+
+    /**
+     * 乐观读，不加锁，返回当前版本号
+     * @return 版本号，有写者持有时返回 0
+     */
+    public long tryOptimisticRead() {
+        return redisLockClient.optimisticRead(key);
+    }
+
+    /**
+     * 检查乐观读期间是否有写者获取过锁
+     * @param stamp {@link #tryOptimisticRead()} 返回的版本号
+     * @return 没有写者获取过锁返回 true，此时读到的数据是一致的
+     */
+    public boolean validate(long stamp) {
+        return stamp != 0 && stamp == redisLockClient.currentStamp(key);
+    }
+
+    /**
+     * 获取 key
+     * @return 锁定的 key
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * 读锁，等待时使用通知模式
+     */
+    private static final class ReadLock extends DefaultRedisLock {
+
+        private ReadLock(RedisLockClient redisLockClient, String key, int lockSeconds, int sleepMinMills, int sleepMaxMills, int spinTimes, RuntimeException throwableException) {
+            super(redisLockClient, key, lockSeconds, sleepMinMills, sleepMaxMills, spinTimes, RedisLockWaitMode.NOTIFY, false, false, throwableException);
+        }
+
+        @Override
+        protected boolean isLocalDegradable() {
+            return false;
+        }
+
+        @Override
+        protected boolean doAcquire(IRedisLock lock) {
+            setUuid(RedisLockTokens.next());
+            return getRedisLockClient().readAcquire(lock.getKey(), getUuid(), TimeUnit.SECONDS.toMillis(lock.getLockSeconds()));
+        }
+
+        @Override
+        protected boolean doRelease(IRedisLock lock) throws UnLockFailException {
+            if (StringUtils.isEmpty(getUuid())) {
+                throw new IllegalArgumentException(String.format("redis 共享锁 %s provider data不存在", lock.getKey()));
+            }
+            return getRedisLockClient().readRelease(lock.getKey(), getUuid());
+        }
+    }
+
+    /**
+     * 写锁，等待时使用通知模式，等待期间登记写意向
+     */
+    private static final class WriteLock extends DefaultRedisLock {
+
+        /**
+         * 是否在等待中，等待时获取失败会登记写意向
+         */
+        private boolean waiting;
+
+        private WriteLock(RedisLockClient redisLockClient, String key, int lockSeconds, int sleepMinMills, int sleepMaxMills, int spinTimes, boolean watchdog, RuntimeException throwableException) {
+            super(redisLockClient, key, lockSeconds, sleepMinMills, sleepMaxMills, spinTimes, RedisLockWaitMode.NOTIFY, watchdog, false, throwableException);
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            boolean locked = false;
+            waiting = true;
+            try {
+                locked = super.tryLock(time, unit);
+                return locked;
+            } finally {
+                waiting = false;
+                // 获取失败撤销写意向，让读者继续进入
+                if (!locked && !StringUtils.isEmpty(getUuid())) {
+                    getRedisLockClient().cancelWriteIntent(getKey(), getUuid());
+                }
+            }
+        }
+
+        @Override
+        protected boolean isLocalDegradable() {
+            return false;
+        }
+
+        @Override
+        protected boolean doAcquire(IRedisLock lock) {
+            // 同一次获取过程中使用同一个 id 登记写意向
+            if (StringUtils.isEmpty(getUuid())) {
+                setUuid(RedisLockTokens.next());
+            }
+            long stamp = getRedisLockClient().writeAcquire(lock.getKey(), getUuid(), TimeUnit.SECONDS.toMillis(lock.getLockSeconds()), WRITE_INTENT_MILLS, waiting);
+            setFencingToken(stamp);
+            return stamp > 0;
+        }
+    }
+
+    /**
+     * 写意向的过期时间，需要大于通知模式的兜底重试间隔，等待中的写者宕机后读者最多被阻挡这么久
+     */
+    public static final long WRITE_INTENT_MILLS = DefaultRedisLock.DEFAULT_NOTIFY_FALLBACK_MILLS * 3;
+}
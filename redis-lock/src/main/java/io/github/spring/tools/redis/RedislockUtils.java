@@ -2,8 +2,6 @@ package io.github.spring.tools.redis;
 
 import io.github.spring.tools.redis.decorator.AbsLockDecorator;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.annotation.OrderUtils;
-import org.springframework.util.CollectionUtils;
 
 import java.nio.charset.StandardCharsets;
 import java.util.*;
@@ -31,54 +29,30 @@ public class RedislockUtils {
 
   /**
    * 装饰 共享锁服务
+   * <p>装饰者链按组合预编译并缓存，不加全局锁</p>
    * @param sharedLock 要包装的 服务
    * @param classes 装饰者类
    * @param keyPrefix key 前缀
    * @return redis 结果
    */
-  public static synchronized IRedisLock mergeEnv(IRedisLock sharedLock, Set<Class<? extends AbsLockDecorator>> classes, String keyPrefix){
-    Objects.requireNonNull(sharedLock);
-    RedisLockEnvironment environment = RedisLockEnvironment.getInstance();
-    // 合并参数
-    environment.merge(sharedLock, keyPrefix);
-    // 合并处理装饰者类
-    return doMergeDecoratorClasses(sharedLock, classes);
+  public static IRedisLock mergeEnv(IRedisLock sharedLock, Set<Class<? extends AbsLockDecorator>> classes, String keyPrefix){
+    return mergeEnv(sharedLock, classes, keyPrefix, RedisLockEnvironment.getInstance());
   }
 
   /**
-   * 合并 装饰者
-   * @param sharedLock 要合并的 基础锁实例
-   * @param classes 装饰者
-   * @return 结果
+   * 使用指定环境的全局参数装饰 共享锁服务
+   * @param sharedLock 要包装的 服务
+   * @param classes 装饰者类
+   * @param keyPrefix key 前缀
+   * @param environment 锁环境
+   * @return redis 结果
    */
-  private static IRedisLock doMergeDecoratorClasses(IRedisLock sharedLock, Set<Class<? extends AbsLockDecorator>> classes){
-    Objects.requireNonNull(classes);
-    RedisLockEnvironment environment = RedisLockEnvironment.getInstance();
-
-    classes = new HashSet<>(classes);
-    classes.addAll(environment.getBuilder().getDecorators());
-    if (CollectionUtils.isEmpty(classes)) {
-      return sharedLock;
-    }
-    List<Class<? extends AbsLockDecorator>> decoratorList = new ArrayList<>(classes);
-    // 排序
-    Collections.sort(decoratorList, DECORATOR_COMPARETOR);
-    //逐个安装
-    for (Class<? extends AbsLockDecorator>  decoratorClass : decoratorList) {
-      try {
-        sharedLock = decoratorClass.getConstructor(IRedisLock.class).newInstance(sharedLock);
-      } catch (Exception e) {
-        throw new IllegalArgumentException(e);
-      }
-    }
-    return sharedLock;
+  public static IRedisLock mergeEnv(IRedisLock sharedLock, Set<Class<? extends AbsLockDecorator>> classes, String keyPrefix, RedisLockEnvironment environment){
+    Objects.requireNonNull(sharedLock);
+    Objects.requireNonNull(environment);
+    // 合并参数
+    environment.merge(sharedLock, keyPrefix);
+    // 合并处理装饰者类
+    return LockDecoratorChain.of(classes, environment.getDefaults().getDecorators()).decorate(sharedLock);
   }
-
-  /**
-   * 比较器
-   */
-  private static final Comparator<Class<? extends AbsLockDecorator>> DECORATOR_COMPARETOR = Comparator.comparing( clazz -> {
-    Integer order = OrderUtils.getOrder(clazz);
-    return order == null ? 1000 : order;
-  });
 }
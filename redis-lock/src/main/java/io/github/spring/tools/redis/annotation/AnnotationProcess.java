@@ -80,18 +80,13 @@ public final class AnnotationProcess {
     //执行结果
     Object processResultObject;
     try{
-      boolean lockResult;
       if (shareLockAnnotation.waitTimeoutMills() <= 0){
-        lockResult = lockObject.tryLock();
+        lockObject.tryLock();
       }else {
-        lockResult = lockObject.tryLock(shareLockAnnotation.waitTimeoutMills(), TimeUnit.MILLISECONDS);
+        lockObject.tryLock(shareLockAnnotation.waitTimeoutMills(), TimeUnit.MILLISECONDS);
       }
-      // 处理关于回退
+      // 获取成功时执行方法，失败时处理回退
       processResultObject = doExecute(lockObject, jp, shareLockAnnotation);
-      // 如果获取锁成功
-      if (lockResult) {
-        processResultObject = jp.proceed();
-      }
     } finally{
       lockObject.unlock();
     }
@@ -233,6 +228,12 @@ public final class AnnotationProcess {
     if (lock.lockedSeconds() != RedisLock.DEFAULT_INT) {
       builder.lockSeconds(lock.lockedSeconds());
     }
+    // 公平锁
+    builder.fair(lock.fair());
+    // 锁环境
+    if (!lock.environment().isEmpty()) {
+      builder.environment(lock.environment());
+    }
     return builder.build();
   }
 
@@ -58,6 +58,16 @@ public @interface RedisLock {
    */
   int waitTimeoutMills() default DEFAULT_INT;
 
+  /**
+   * 是否使用公平锁，等待者按 FIFO 顺序获取锁，见 {@link io.github.spring.tools.redis.FairRedisLock}
+   */
+  boolean fair() default false;
+
+  /**
+   * 使用的锁环境名称，为空时使用默认环境，见 {@link io.github.spring.tools.redis.RedisLockBuilder#environment(String)}
+   */
+  String environment() default "";
+
   /**
    * 获取锁失败抛出的异常，如果定义了异常，则默认
    */
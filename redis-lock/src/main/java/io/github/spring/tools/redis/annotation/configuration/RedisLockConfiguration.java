@@ -1,6 +1,7 @@
 package io.github.spring.tools.redis.annotation.configuration;
 
 import io.github.spring.tools.redis.RedisLockBuilder;
+import io.github.spring.tools.redis.RedisLockEnvironment;
 import io.github.spring.tools.redis.annotation.RedisLockInterceptor;
 import io.github.spring.tools.redis.decorator.AbsLockDecorator;
 import io.github.spring.tools.redis.decorator.ReentrantLockDecorator;
@@ -10,6 +11,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.data.redis.core.RedisTemplate;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.util.Arrays;
 import java.util.List;
 
@@ -41,6 +43,16 @@ public  class RedisLockConfiguration{
     RedisLockBuilder.builder("").keyPrefix("redis-lock:").addDecorators(defaultDecorators()).buildEnv(redisTemplate);
   }
 
+  /**
+   * 释放 lock 环境的资源
+   */
+  @PreDestroy
+  public void destroyRedisLock(){
+    for (RedisLockEnvironment environment : RedisLockEnvironment.getInstances()) {
+      environment.destroy();
+    }
+  }
+
   /**
    * 获取 默认 服务
    * @return 默认支持的 decorator
@@ -0,0 +1,82 @@
+package io.github.spring.tools.redis.backoff;
+
+import io.github.spring.tools.redis.capable.ILockWritable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 自适应退避
+ * <p>休眠 min(持有者剩余租约, 带抖动的指数退避)：第一次休眠从 key 的预计持有时长的一半开始，没有统计时从 sleepMinMills 开始，
+ * 之后每次翻倍直到 sleepMaxMills，再在 [一半, 全部] 之间随机抖动，避免等待者同时醒来</p>
+ * <p>预计持有时长是本进程内同一个 key 最近几次持有时长的指数移动平均，只统计使用本策略实例的锁</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class AdaptiveBackoffStrategy implements IBackoffStrategy {
+
+    /**
+     * 最多统计的 key 数量，超过后清空重新统计
+     */
+    private static final int MAX_KEYS = 4096;
+
+    /**
+     * 指数移动平均中新样本的权重，1 / 2^SMOOTHING_SHIFT
+     */
+    private static final int SMOOTHING_SHIFT = 2;
+
+    /**
+     * 每个 key 的预计持有时长，毫秒
+     */
+    private final Map<String, AtomicLong> holdMills = new ConcurrentHashMap<>();
+
+    @Override
+    public long nextSleepMills(String key, ILockWritable lock, int attempts, long holderTtlMills) {
+        long minMills = Math.max(1, lock.getSleepMinMills());
+        long maxMills = Math.max(minMills, lock.getSleepMaxMills());
+        long baseMills = minMills;
+        long expectedMills = getExpectedHoldMills(key);
+        if (expectedMills > 0) {
+            baseMills = Math.min(maxMills, Math.max(minMills, expectedMills >> 1));
+        }
+        long backoffMills = Math.min(maxMills, baseMills << Math.min(attempts - 1, 20));
+        long sleepMills = (backoffMills >> 1) + ThreadLocalRandom.current().nextLong((backoffMills >> 1) + 1);
+        if (holderTtlMills > 0) {
+            sleepMills = Math.min(sleepMills, holderTtlMills);
+        }
+        return Math.max(1, sleepMills);
+    }
+
+    @Override
+    public void released(String key, long heldMills) {
+        if (heldMills <= 0) {
+            return;
+        }
+        AtomicLong expected = holdMills.get(key);
+        if (expected == null) {
+            if (holdMills.size() >= MAX_KEYS) {
+                holdMills.clear();
+            }
+            expected = holdMills.computeIfAbsent(key, k -> new AtomicLong());
+        }
+        long old;
+        long update;
+        do {
+            old = expected.get();
+            update = old == 0 ? heldMills : old + ((heldMills - old) >> SMOOTHING_SHIFT);
+        } while (!expected.compareAndSet(old, update));
+    }
+
+    /**
+     * 获取 key 的预计持有时长
+     * @param key 锁 key
+     * @return 预计持有毫秒数，没有统计时返回 0
+     */
+    public long getExpectedHoldMills(String key) {
+        AtomicLong expected = holdMills.get(key);
+        return expected == null ? 0 : expected.get();
+    }
+}
@@ -0,0 +1,36 @@
+package io.github.spring.tools.redis.backoff;
+
+import io.github.spring.tools.redis.capable.ILockWritable;
+
+/**
+ * 自旋等待的退避策略
+ * <p>等待中的获取失败时，获取脚本在同一次往返中返回持有者剩余的租约（PTTL），策略据此决定下一次休眠的时长</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public interface IBackoffStrategy {
+
+    /**
+     * 持有者剩余租约未知，例如持有者的 key 没有过期时间
+     */
+    long UNKNOWN_TTL = -1;
+
+    /**
+     * 计算下一次休眠的时长
+     * @param key 锁 key
+     * @param lock 等待中的锁
+     * @param attempts 第几次休眠，从 1 开始
+     * @param holderTtlMills 持有者剩余的租约毫秒数，未知时为 {@link #UNKNOWN_TTL}
+     * @return 休眠毫秒数
+     */
+    long nextSleepMills(String key, ILockWritable lock, int attempts, long holderTtlMills);
+
+    /**
+     * 本进程内的锁释放后回调，可以用来估计每个 key 的持有时长
+     * @param key 锁 key
+     * @param heldMills 本次持有的毫秒数
+     */
+    default void released(String key, long heldMills) {
+    }
+}
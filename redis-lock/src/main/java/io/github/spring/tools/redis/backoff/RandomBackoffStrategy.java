@@ -0,0 +1,24 @@
+package io.github.spring.tools.redis.backoff;
+
+import io.github.spring.tools.redis.capable.ILockWritable;
+
+/**
+ * 随机退避，默认策略
+ * <p>在 sleepMinMills 和 sleepMaxMills 之间随机休眠，已知持有者剩余租约时不超过剩余租约，租约到期后立即重试</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class RandomBackoffStrategy implements IBackoffStrategy {
+
+    /**
+     * 无状态，共享一个实例
+     */
+    public static final RandomBackoffStrategy INSTANCE = new RandomBackoffStrategy();
+
+    @Override
+    public long nextSleepMills(String key, ILockWritable lock, int attempts, long holderTtlMills) {
+        long sleepMills = lock.getSleepMills();
+        return holderTtlMills > 0 ? Math.min(sleepMills, holderTtlMills) : sleepMills;
+    }
+}
@@ -0,0 +1,412 @@
+package io.github.spring.tools.redis.breaker;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * redis 熔断器
+ * <p>锁客户端每次访问 redis 后记录结果，最近 windowSeconds 秒内的调用数达到 minimumCalls，
+ * 且失败率或者慢调用率达到阈值时打开；打开期间锁不再访问 redis，按 {@link io.github.spring.tools.redis.RedisLockDegradePolicy} 快速失败或者降级为本地锁</p>
+ * <p>打开 openMills 毫秒后进入半开状态，放行 halfOpenCalls 次探测，全部成功则关闭，任意一次失败或者超时重新打开；
+ * 半开期间只统计 {@link #allowRequest()} 放行的线程之后的调用结果，没有经过放行的调用（例如打开前已经发出的调用）不计入探测</p>
+ * <pre>
+ * RedisLockBuilder.builder("").circuitBreaker(new RedisCircuitBreaker()).buildEnv(redisTemplate);
+ * </pre>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+@Slf4j
+public class RedisCircuitBreaker {
+
+    /**
+     * 打开的失败率，百分比
+     */
+    @Getter
+    private final int failureRatePercent;
+
+    /**
+     * 打开的慢调用率，百分比
+     */
+    @Getter
+    private final int slowCallRatePercent;
+
+    /**
+     * 慢调用的耗时，纳秒
+     */
+    private final long slowCallNanos;
+
+    /**
+     * 统计窗口内最少的调用数，不足时不打开
+     */
+    @Getter
+    private final int minimumCalls;
+
+    /**
+     * 打开后多久进入半开，毫秒
+     */
+    @Getter
+    private final long openMills;
+
+    /**
+     * 半开状态放行的探测次数
+     */
+    @Getter
+    private final int halfOpenCalls;
+
+    /**
+     * 统计窗口，每秒一个桶
+     */
+    private final Bucket[] buckets;
+
+    /**
+     * 当前状态
+     */
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+
+    /**
+     * 打开的时间，毫秒
+     */
+    private volatile long openedMills;
+
+    /**
+     * 进入半开的时间，毫秒
+     */
+    private volatile long halfOpenedMills;
+
+    /**
+     * 半开状态已放行的探测数
+     */
+    private final AtomicInteger probes = new AtomicInteger();
+
+    /**
+     * 半开状态已成功的探测数
+     */
+    private final AtomicInteger probeSuccesses = new AtomicInteger();
+
+    /**
+     * 半开探测的轮次，每轮开始时加一
+     */
+    private final AtomicLong probeRound = new AtomicLong();
+
+    /**
+     * 当前线程被放行、还没有记录结果的探测，[轮次, 数量]
+     */
+    private final ThreadLocal<long[]> admittedProbes = ThreadLocal.withInitial(() -> new long[2]);
+
+    /**
+     * 使用默认参数创建：10 秒内至少 20 次调用，失败率 50% 或者超过 500 毫秒的慢调用率 80% 时打开，5 秒后半开探测 3 次
+     */
+    public RedisCircuitBreaker() {
+        this(DEFAULT_FAILURE_RATE_PERCENT, DEFAULT_SLOW_CALL_RATE_PERCENT, DEFAULT_SLOW_CALL_MILLS,
+                DEFAULT_MINIMUM_CALLS, DEFAULT_WINDOW_SECONDS, DEFAULT_OPEN_MILLS, DEFAULT_HALF_OPEN_CALLS);
+    }
+
+    /**
+     * 创建一个熔断器
+     * @param failureRatePercent 打开的失败率，百分比
+     * @param slowCallRatePercent 打开的慢调用率，百分比
+     * @param slowCallMills 慢调用的耗时，毫秒，一般小于客户端的超时时间
+     * @param minimumCalls 统计窗口内最少的调用数
+     * @param windowSeconds 统计窗口，秒
+     * @param openMills 打开后多久进入半开，毫秒
+     * @param halfOpenCalls 半开状态放行的探测次数
+     */
+    public RedisCircuitBreaker(int failureRatePercent, int slowCallRatePercent, long slowCallMills, int minimumCalls,
+                               int windowSeconds, long openMills, int halfOpenCalls) {
+        if (failureRatePercent <= 0 || slowCallRatePercent <= 0 || slowCallMills <= 0 || minimumCalls <= 0
+                || windowSeconds <= 0 || openMills <= 0 || halfOpenCalls <= 0) {
+            throw new IllegalArgumentException("熔断器的参数必须大于 0");
+        }
+        this.failureRatePercent = failureRatePercent;
+        this.slowCallRatePercent = slowCallRatePercent;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMills);
+        this.minimumCalls = minimumCalls;
+        this.openMills = openMills;
+        this.halfOpenCalls = halfOpenCalls;
+        this.buckets = new Bucket[windowSeconds];
+        for (int i = 0; i < windowSeconds; i++) {
+            buckets[i] = new Bucket();
+        }
+    }
+
+    /**
+     * 按相同的参数创建一个新的熔断器，统计和状态都是独立的，用于需要分别熔断的多个 redis 节点
+     * @return 新的熔断器
+     */
+    public RedisCircuitBreaker copy() {
+        return new RedisCircuitBreaker(failureRatePercent, slowCallRatePercent, TimeUnit.NANOSECONDS.toMillis(slowCallNanos),
+                minimumCalls, buckets.length, openMills, halfOpenCalls);
+    }
+
+    /**
+     * 是否允许访问 redis，打开期间返回 false；打开时间到后转为半开，只放行 halfOpenCalls 次
+     * @return 是否允许
+     */
+    public boolean allowRequest() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN) {
+            if (System.currentTimeMillis() - openedMills < openMills) {
+                return false;
+            }
+            if (state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+                startProbes();
+                log.info("redis 熔断器半开，开始探测");
+            }
+        } else if (probes.get() >= halfOpenCalls && System.currentTimeMillis() - halfOpenedMills >= openMills) {
+            // 放行的探测没有全部返回结果，下一轮重新放行
+            startProbes();
+        }
+        if (probes.incrementAndGet() > halfOpenCalls) {
+            return false;
+        }
+        long[] admitted = admittedProbes.get();
+        long round = probeRound.get();
+        if (admitted[0] != round) {
+            admitted[0] = round;
+            admitted[1] = 0;
+        }
+        admitted[1]++;
+        return true;
+    }
+
+    /**
+     * 是否在打开期间，和 {@link #allowRequest()} 不同，不会转为半开，也不占用探测次数
+     * @return 是否打开
+     */
+    public boolean isOpen() {
+        return state.get() == State.OPEN && System.currentTimeMillis() - openedMills < openMills;
+    }
+
+    /**
+     * 记录一次访问 redis 的结果
+     * @param nanos 耗时，纳秒
+     * @param failed 是否失败
+     */
+    public void record(long nanos, boolean failed) {
+        boolean bad = failed || nanos >= slowCallNanos;
+        State current = state.get();
+        if (current == State.HALF_OPEN) {
+            if (!consumeProbe()) {
+                // 不是本轮放行的探测，结果不代表 redis 恢复后的状态
+                return;
+            }
+            if (bad) {
+                open(State.HALF_OPEN, "探测失败");
+            } else if (probeSuccesses.incrementAndGet() >= halfOpenCalls && state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+                reset();
+                log.info("redis 熔断器关闭，恢复访问 redis");
+            }
+            return;
+        }
+        if (current == State.OPEN) {
+            // 打开前已经发出的调用，不再统计
+            return;
+        }
+        Bucket bucket = bucket(System.currentTimeMillis() / 1000);
+        bucket.calls.increment();
+        if (failed) {
+            bucket.failures.increment();
+        }
+        if (nanos >= slowCallNanos) {
+            bucket.slowCalls.increment();
+        }
+        // 成功的调用不会让失败率上升，只在失败或者慢调用后计算
+        if (bad) {
+            evaluate();
+        }
+    }
+
+    /**
+     * 获取当前状态，打开时间已到但还没有请求时仍然是打开
+     * @return 状态
+     */
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * 强制关闭，清空统计
+     */
+    public void reset() {
+        for (Bucket bucket : buckets) {
+            bucket.clear(bucket.second);
+        }
+        state.set(State.CLOSED);
+    }
+
+    /**
+     * 计算窗口内的失败率和慢调用率，达到阈值时打开
+     */
+    private void evaluate() {
+        long second = System.currentTimeMillis() / 1000;
+        long calls = 0;
+        long failures = 0;
+        long slowCalls = 0;
+        for (Bucket bucket : buckets) {
+            if (second - bucket.second < buckets.length) {
+                calls += bucket.calls.sum();
+                failures += bucket.failures.sum();
+                slowCalls += bucket.slowCalls.sum();
+            }
+        }
+        if (calls < minimumCalls) {
+            return;
+        }
+        if (failures * 100 >= calls * failureRatePercent) {
+            open(State.CLOSED, String.format("%s 次调用中失败 %s 次", calls, failures));
+        } else if (slowCalls * 100 >= calls * slowCallRatePercent) {
+            open(State.CLOSED, String.format("%s 次调用中慢调用 %s 次", calls, slowCalls));
+        }
+    }
+
+    /**
+     * 消耗当前线程在本轮被放行的一次探测
+     * @return 当前线程在本轮是否有还没有记录结果的探测
+     */
+    private boolean consumeProbe() {
+        long[] admitted = admittedProbes.get();
+        if (admitted[0] != probeRound.get() || admitted[1] <= 0) {
+            return false;
+        }
+        admitted[1]--;
+        return true;
+    }
+
+    /**
+     * 开始一轮半开探测
+     */
+    private void startProbes() {
+        halfOpenedMills = System.currentTimeMillis();
+        probeRound.incrementAndGet();
+        probes.set(0);
+        probeSuccesses.set(0);
+    }
+
+    /**
+     * 打开熔断器
+     * @param expected 期望的当前状态
+     * @param reason 原因
+     */
+    private void open(State expected, String reason) {
+        if (state.get() != expected) {
+            return;
+        }
+        // 先记录时间再切换状态，其他线程看到打开时时间已经更新
+        openedMills = System.currentTimeMillis();
+        if (state.compareAndSet(expected, State.OPEN)) {
+            log.warn("redis 熔断器打开，{} 毫秒内不再访问 redis：{}", openMills, reason);
+        }
+    }
+
+    /**
+     * 获取这一秒的桶，桶属于更早的秒时先清空
+     * @param second 秒
+     * @return 桶
+     */
+    private Bucket bucket(long second) {
+        Bucket bucket = buckets[(int) (second % buckets.length)];
+        if (bucket.second != second) {
+            synchronized (bucket) {
+                if (bucket.second != second) {
+                    bucket.clear(second);
+                }
+            }
+        }
+        return bucket;
+    }
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+
+        /**
+         * 关闭，正常访问 redis
+         */
+        CLOSED,
+
+        /**
+         * 打开，不访问 redis
+         */
+        OPEN,
+
+        /**
+         * 半开，放行少量探测
+         */
+        HALF_OPEN
+
+    }
+
+    /**
+     * 一秒内的统计
+     */
+    private static final class Bucket {
+
+        /**
+         * 所属的秒
+         */
+        private volatile long second;
+
+        private final LongAdder calls = new LongAdder();
+
+        private final LongAdder failures = new LongAdder();
+
+        private final LongAdder slowCalls = new LongAdder();
+
+        /**
+         * 清空并设置所属的秒
+         * @param second 秒
+         */
+        private void clear(long second) {
+            calls.reset();
+            failures.reset();
+            slowCalls.reset();
+            this.second = second;
+        }
+    }
+
+    /**
+     * 默认打开的失败率
+     */
+    public static final int DEFAULT_FAILURE_RATE_PERCENT = 50;
+
+    /**
+     * 默认打开的慢调用率
+     */
+    public static final int DEFAULT_SLOW_CALL_RATE_PERCENT = 80;
+
+    /**
+     * 默认慢调用的耗时
+     */
+    public static final long DEFAULT_SLOW_CALL_MILLS = 500;
+
+    /**
+     * 默认最少的调用数
+     */
+    public static final int DEFAULT_MINIMUM_CALLS = 20;
+
+    /**
+     * 默认统计窗口
+     */
+    public static final int DEFAULT_WINDOW_SECONDS = 10;
+
+    /**
+     * 默认打开时长
+     */
+    public static final long DEFAULT_OPEN_MILLS = 5000;
+
+    /**
+     * 默认半开探测次数
+     */
+    public static final int DEFAULT_HALF_OPEN_CALLS = 3;
+}
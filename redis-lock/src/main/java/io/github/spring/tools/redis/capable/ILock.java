@@ -64,6 +64,15 @@ public interface ILock extends Lock, AutoCloseable, ILockTemplate {
      */
     int getLockSeconds();
 
+    /**
+     * 获取本次获取锁得到的 fencing token，同一个 key 每次获取锁都会递增，
+     * 下游存储可以拒绝 token 比已见过的更小的写入，未开启 fencing 或未获取到锁时返回 0
+     * @return fencing token
+     */
+    default long getFencingToken() {
+        return 0L;
+    }
+
     /**
      * 流程结束
      * @return 是否结束
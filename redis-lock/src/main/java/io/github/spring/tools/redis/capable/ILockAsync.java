@@ -0,0 +1,107 @@
+package io.github.spring.tools.redis.capable;
+
+import io.github.spring.tools.redis.IDoCallback;
+import io.github.spring.tools.redis.RedisLockExecutors;
+import io.github.spring.tools.redis.exception.TimeoutLockException;
+import org.springframework.lang.Nullable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis 锁 异步服务接口定义
+ * <p>不阻塞调用线程：每次尝试在共用工作线程池中执行，两次尝试之间的等待交给共用调度器，
+ * 等待中的获取不占用线程；NOTIFY 等待模式下收到释放通知即再次尝试</p>
+ * <p>业务回调不在锁内部的线程池中执行，默认使用 {@link RedisLockExecutors#callback()}，也可以传入自己的线程池</p>
+ * <p>异步获取的锁不绑定线程，不支持重入，可以在任意线程释放</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ * @see RedisLockExecutors
+ */
+public interface ILockAsync extends ILock {
+
+    /**
+     * 异步获取锁，在等待时间内按 [sleepMinMills, sleepMaxMills] 的随机间隔重试，NOTIFY 等待模式下等待释放通知
+     * @param time 等待时间，小于等于 0 时只尝试一次
+     * @param unit 时间单位
+     * @return 获取结果，超时为 false
+     */
+    default CompletableFuture<Boolean> tryLockAsync(long time, TimeUnit unit) {
+        return LockAsyncSupport.tryLockAsync(this, time, unit);
+    }
+
+    /**
+     * 异步释放锁
+     * @return 释放完成
+     */
+    default CompletableFuture<Void> unlockAsync() {
+        return CompletableFuture.runAsync(this::unlock, RedisLockExecutors.worker());
+    }
+
+    /**
+     * 订阅锁的释放通知，异步获取失败后收到通知即再次尝试，不需要按间隔轮询
+     * @param listener 收到释放通知时执行，在通知线程中调用，不能阻塞
+     * @return 取消订阅，不是 NOTIFY 等待模式时返回 null
+     */
+    @Nullable
+    default Runnable subscribeRelease(Runnable listener) {
+        return null;
+    }
+
+    /**
+     * 异步委托执行，支持降级和回滚，等待特定时间段，语义和 {@link ILock#execute(IDoCallback, IDoCallback, IDoCallback, int, TimeUnit)} 一致
+     * <p>回调函数和释放锁在 executor 中执行，获取失败且没有降级函数时以 {@link TimeoutLockException} 结束</p>
+     * @param callback 获取锁成功执行的函数
+     * @param faultCallback 获取所失败后降级参数
+     * @param rollback 释放资源失败回退操作
+     * @param time 等待时间
+     * @param unit 时间单位
+     * @param executor 执行回调的线程池
+     * @param <T> 返回值类型
+     * @return 返回数据
+     */
+    default <T> CompletableFuture<T> executeAsync(IDoCallback<T> callback, @Nullable IDoCallback<T> faultCallback, @Nullable IDoCallback<T> rollback, int time, TimeUnit unit, Executor executor) {
+        return LockAsyncSupport.executeAsync(this, callback, faultCallback, rollback, time, unit, executor);
+    }
+
+    /**
+     * 异步委托执行，支持降级和回滚，等待特定时间段，回调函数在 {@link RedisLockExecutors#callback()} 中执行
+     * @param callback 获取锁成功执行的函数
+     * @param faultCallback 获取所失败后降级参数
+     * @param rollback 释放资源失败回退操作
+     * @param time 等待时间
+     * @param unit 时间单位
+     * @param <T> 返回值类型
+     * @return 返回数据
+     */
+    default <T> CompletableFuture<T> executeAsync(IDoCallback<T> callback, @Nullable IDoCallback<T> faultCallback, @Nullable IDoCallback<T> rollback, int time, TimeUnit unit) {
+        return executeAsync(callback, faultCallback, rollback, time, unit, RedisLockExecutors.callback());
+    }
+
+    /**
+     * 异步委托执行，支持降级，等待特定时间段
+     * @param callback 获取锁成功执行的函数
+     * @param faultCallback 获取所失败后降级参数
+     * @param time 等待时间
+     * @param unit 时间单位
+     * @param <T> 返回值类型
+     * @return 返回数据
+     */
+    default <T> CompletableFuture<T> executeAsync(IDoCallback<T> callback, @Nullable IDoCallback<T> faultCallback, int time, TimeUnit unit) {
+        return executeAsync(callback, faultCallback, null, time, unit);
+    }
+
+    /**
+     * 异步委托执行，等待特定时间段，获取失败以 {@link TimeoutLockException} 结束
+     * @param callback 获取锁成功执行的函数
+     * @param time 等待时间
+     * @param unit 时间单位
+     * @param <T> 返回值类型
+     * @return 返回数据
+     */
+    default <T> CompletableFuture<T> executeAsync(IDoCallback<T> callback, int time, TimeUnit unit) {
+        return executeAsync(callback, null, time, unit);
+    }
+}
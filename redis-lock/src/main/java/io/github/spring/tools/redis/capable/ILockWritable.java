@@ -3,6 +3,7 @@ package io.github.spring.tools.redis.capable;
 import io.github.spring.tools.redis.RedisLockClient;
 import io.github.spring.tools.redis.RedisLockReleaseStatus;
 import io.github.spring.tools.redis.RedisLockStatus;
+import io.github.spring.tools.redis.store.ILockStore;
 
 /**
  * 定义锁属性变更接口
@@ -141,6 +142,14 @@ public interface ILockWritable {
      */
     RedisLockClient getLockClient();
 
+    /**
+     * 获取 锁存储
+     * @return 锁存储，redis 环境时就是 {@link #getLockClient()}
+     */
+    default ILockStore getLockStore() {
+        return getLockClient();
+    }
+
     /**
      * 默认自旋数量
      */
@@ -160,4 +169,9 @@ public interface ILockWritable {
      * 默认锁定时长，单位秒
      */
     static final int DEFAULT_LOCK_SECONDS = 10;
+
+    /**
+     * 通知模式下的兜底重试间隔，防止释放消息丢失后一直等待
+     */
+    static final int DEFAULT_NOTIFY_FALLBACK_MILLS = 1000;
 }
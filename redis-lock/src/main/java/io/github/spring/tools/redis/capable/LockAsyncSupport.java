@@ -0,0 +1,213 @@
+package io.github.spring.tools.redis.capable;
+
+import io.github.spring.tools.redis.IDoCallback;
+import io.github.spring.tools.redis.RedisLockExecutors;
+import io.github.spring.tools.redis.exception.TimeoutLockException;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ILockAsync} 的默认实现
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+final class LockAsyncSupport {
+
+    private LockAsyncSupport() {}
+
+    /**
+     * 异步获取锁
+     * @param lock 锁
+     * @param time 等待时间
+     * @param unit 时间单位
+     * @return 获取结果
+     */
+    static CompletableFuture<Boolean> tryLockAsync(ILockAsync lock, long time, TimeUnit unit) {
+        Objects.requireNonNull(unit);
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        new AsyncAcquire(lock, result, System.currentTimeMillis() + unit.toMillis(time)).start();
+        return result;
+    }
+
+    /**
+     * 异步委托执行
+     * @param lock 锁
+     * @param callback 获取锁成功执行的函数
+     * @param faultCallback 获取所失败后降级参数
+     * @param rollback 释放资源失败回退操作
+     * @param time 等待时间
+     * @param unit 时间单位
+     * @param executor 执行回调的线程池
+     * @param <T> 返回值类型
+     * @return 返回数据
+     */
+    static <T> CompletableFuture<T> executeAsync(ILockAsync lock, IDoCallback<T> callback, IDoCallback<T> faultCallback, IDoCallback<T> rollback, int time, TimeUnit unit, Executor executor) {
+        Objects.requireNonNull(callback);
+        Objects.requireNonNull(executor);
+        // 通过锁自身获取，装饰者可以把锁标记为跨线程释放
+        return lock.tryLockAsync(time, unit).thenApplyAsync(locked -> {
+            try {
+                if (locked) {
+                    return callback.callback();
+                }
+                // 失败的话，如果没有设置降级函数，则抛出 异常
+                if (faultCallback == null) {
+                    throw new TimeoutLockException(lock.getKey());
+                }
+                return faultCallback.callback();
+            } catch (Throwable e) {
+                throw wrap(e);
+            }
+        }, executor).handleAsync((result, ex) -> {
+            lock.unlock();
+            // 检查是否需要回滚
+            if (lock.isRollback() && rollback != null) {
+                try {
+                    result = rollback.callback();
+                } catch (Throwable e) {
+                    throw wrap(e);
+                }
+            }
+            if (ex != null) {
+                throw wrap(ex);
+            }
+            return result;
+        }, executor);
+    }
+
+    /**
+     * 包装成 CompletionException
+     * @param e 异常
+     * @return 结果
+     */
+    private static CompletionException wrap(Throwable e) {
+        return e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+    }
+
+    /**
+     * 一次异步获取过程
+     * <p>每次尝试在工作线程池中执行，失败后等待下一次触发：NOTIFY 等待模式下由释放通知触发，
+     * 兜底时间到后也会重试；其他模式按随机间隔由调度器触发。同一时刻只有一个尝试在执行</p>
+     */
+    private static final class AsyncAcquire {
+
+        /**
+         * 锁
+         */
+        private final ILockAsync lock;
+
+        /**
+         * 获取结果
+         */
+        private final CompletableFuture<Boolean> result;
+
+        /**
+         * 超时时间点
+         */
+        private final long timeout;
+
+        /**
+         * 是否在等待下一次触发，只有把它从 true 改为 false 的一方可以发起尝试
+         */
+        private final AtomicBoolean waiting = new AtomicBoolean();
+
+        /**
+         * 收到的通知数，尝试失败后发现有新的通知时立即重试，避免错过尝试期间的释放
+         */
+        private final AtomicLong signals = new AtomicLong();
+
+        /**
+         * 是否订阅了释放通知
+         */
+        private boolean notify;
+
+        /**
+         * 下一次兜底重试，通知提前触发时取消
+         */
+        private volatile ScheduledFuture<?> next;
+
+        AsyncAcquire(ILockAsync lock, CompletableFuture<Boolean> result, long timeout) {
+            this.lock = lock;
+            this.result = result;
+            this.timeout = timeout;
+        }
+
+        /**
+         * 订阅释放通知并发起第一次尝试，结束时取消订阅
+         */
+        void start() {
+            Runnable unsubscribe = lock.subscribeRelease(this::onSignal);
+            if (unsubscribe != null) {
+                notify = true;
+                result.whenComplete((locked, e) -> unsubscribe.run());
+            }
+            RedisLockExecutors.worker().execute(this::attempt);
+        }
+
+        /**
+         * 收到释放通知
+         */
+        private void onSignal() {
+            signals.incrementAndGet();
+            fire();
+        }
+
+        /**
+         * 等待中时发起下一次尝试
+         */
+        private void fire() {
+            if (waiting.compareAndSet(true, false)) {
+                ScheduledFuture<?> scheduled = next;
+                if (scheduled != null) {
+                    scheduled.cancel(false);
+                }
+                RedisLockExecutors.worker().execute(this::attempt);
+            }
+        }
+
+        /**
+         * 尝试一次
+         */
+        private void attempt() {
+            // 调用方已经取消
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                long seen = signals.get();
+                if (lock.tryLock()) {
+                    // 结果已被取消，释放刚获取的锁
+                    if (!result.complete(true)) {
+                        lock.unlock();
+                    }
+                    return;
+                }
+                long remainMills = timeout - System.currentTimeMillis();
+                if (remainMills <= 0) {
+                    lock.interrupted();
+                    result.complete(false);
+                    return;
+                }
+                waiting.set(true);
+                if (signals.get() != seen) {
+                    // 尝试期间锁被释放了
+                    fire();
+                    return;
+                }
+                long sleepMills = notify ? ILockWritable.DEFAULT_NOTIFY_FALLBACK_MILLS
+                        : lock.getSleepMinMills() + (long) ((lock.getSleepMaxMills() - lock.getSleepMinMills()) * Math.random());
+                next = RedisLockExecutors.scheduler().schedule(this::fire, Math.min(sleepMills, remainMills), TimeUnit.MILLISECONDS);
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+}
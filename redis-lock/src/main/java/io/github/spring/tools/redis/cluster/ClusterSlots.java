@@ -0,0 +1,68 @@
+package io.github.spring.tools.redis.cluster;
+
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Redis Cluster slot 工具
+ * <p>hash tag 的解析规则和 redis 一致：第一个 { 之后到第一个 } 之间的内容不为空时，只用这部分计算 slot</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public final class ClusterSlots {
+
+    private ClusterSlots() {}
+
+    /**
+     * 获取 key 的 hash tag
+     * @param key key
+     * @return hash tag，没有时返回 null
+     */
+    public static String hashTag(String key) {
+        int start = key.indexOf('{');
+        if (start < 0) {
+            return null;
+        }
+        int end = key.indexOf('}', start + 1);
+        if (end <= start + 1) {
+            return null;
+        }
+        return key.substring(start + 1, end);
+    }
+
+    /**
+     * key 是否带有 hash tag
+     * @param key key
+     * @return 结果
+     */
+    public static boolean hasHashTag(String key) {
+        return hashTag(key) != null;
+    }
+
+    /**
+     * 计算 key 的 slot
+     * @param key key
+     * @return slot
+     */
+    public static int slot(String key) {
+        return ClusterSlotHashUtil.calculateSlot(key);
+    }
+
+    /**
+     * 按 slot 分组，组内保持原来的顺序
+     * @param keys key 列表
+     * @return slot -> key 的下标
+     */
+    public static Map<Integer, List<Integer>> groupBySlot(String[] keys) {
+        Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            groups.computeIfAbsent(slot(keys[i]), slot -> new ArrayList<>()).add(i);
+        }
+        return groups;
+    }
+}
@@ -0,0 +1,46 @@
+package io.github.spring.tools.redis.cluster;
+
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Redis Cluster 下 key 的 hash tag 策略
+ * <p>锁 key 合并前缀后经过策略处理，锁的关联数据（fencing 计数器、公平锁队列、读写锁读者集合等）在处理后的 key 上追加后缀，
+ * 因此只要锁 key 带有 hash tag，锁和关联数据就落在同一个 slot，lua 脚本不会出现 CROSSSLOT</p>
+ * <p>策略属于锁环境，同一个 key 的所有使用者需要使用相同的策略；已经带有 hash tag 的 key 不再处理</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ * @see ClusterSlots
+ */
+@FunctionalInterface
+public interface IHashTagStrategy {
+
+    /**
+     * 不处理，默认策略，key 和之前的版本保持一致
+     */
+    IHashTagStrategy NONE = key -> key;
+
+    /**
+     * 整个锁 key 作为 hash tag：{key}，不同的锁分散到各个 slot，锁和关联数据在同一个 slot
+     */
+    IHashTagStrategy LOCK_KEY = key -> ClusterSlots.hasHashTag(key) ? key : "{" + key + "}";
+
+    /**
+     * 处理 key
+     * @param key 合并前缀后的 key
+     * @return 最终的 key
+     */
+    String apply(String key);
+
+    /**
+     * 所有 key 使用同一个 hash tag：{tag}key，全部落在同一个 slot，批量操作只访问一个节点，但是不能分散压力
+     * @param tag hash tag
+     * @return 策略
+     */
+    static IHashTagStrategy fixed(String tag) {
+        Assert.isTrue(!StringUtils.isEmpty(tag) && tag.indexOf('}') < 0, "hash tag 不能为空，也不能包含 }");
+        String prefix = "{" + tag + "}";
+        return key -> ClusterSlots.hasHashTag(key) ? key : prefix + key;
+    }
+}
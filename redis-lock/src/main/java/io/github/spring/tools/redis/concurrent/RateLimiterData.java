@@ -52,7 +52,7 @@ public class RateLimiterData implements Serializable {
 
 
     /**
-     * 通过 array string 转换
+     * 通过 array string 转换，兼容之前通过 RedisTemplate 的 JSON、JDK 序列化保存的数据
      * @param arrayString 字符串
      * @param permitsPerSecond 每秒生成数量
      * @param maxPermits 最大存储令牌数
@@ -63,7 +63,7 @@ public class RateLimiterData implements Serializable {
         Objects.requireNonNull(arrayString);
         RateLimiterData data = new RateLimiterData();
         // 解析
-        String[] strs = arrayString.split(",");
+        String[] strs = unwrap(arrayString).split(",");
         Assert.isTrue(strs.length == 4, String.format("需要解析的rate limit 字符串[%s] 格式错误", arrayString));
         data.permitsPerSecond = Double.valueOf(strs[0]);
         data.nextFreeTicketMill = Long.valueOf(strs[1]);
@@ -85,6 +85,28 @@ public class RateLimiterData implements Serializable {
     }
 
 
+    /**
+     * 去掉序列化附带的格式，按字节读取之前通过 RedisTemplate 序列化保存的值时，得到的字符串带有这些格式
+     * @param value 保存的值
+     * @return array string
+     */
+    private static String unwrap(String value) {
+        // JSON 字符串，前后带引号
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1);
+        }
+        // JDK 序列化的字符串，头部之后是 2 字节的长度
+        if (value.startsWith(JDK_STRING_HEADER) && value.length() > JDK_STRING_HEADER.length() + 2) {
+            return value.substring(JDK_STRING_HEADER.length() + 2);
+        }
+        return value;
+    }
+
+    /**
+     * JDK 序列化字符串的头部：魔数 AC ED、版本 00 05、字符串类型 74，魔数不是合法的 UTF-8，解码后是 2 个替换字符
+     */
+    private static final String JDK_STRING_HEADER = "\uFFFD\uFFFD\u0000\u0005t";
+
     /**
      * 第一次初始化
      * @param permitsPerSecond 每秒生成数量
@@ -126,6 +148,35 @@ public class RateLimiterData implements Serializable {
         this.storedPermits = Math.min(storedPermits, maxPermits);
     }
 
+    /**
+     * 按毫秒补充令牌后检查和消费，和 redis 令牌桶脚本的计算一致；nextFreeTicketMill 作为上一次补充的时间
+     * @param permits 获取的令牌数量，小于 0 时取走所有完整的令牌
+     * @param maxWaitMills 令牌不够时最多等待的毫秒数
+     * @param now 当前时间
+     * @return 令牌足够时返回 0，需要等待时预支令牌并返回等待的毫秒数，获取失败返回 -1；取走所有令牌时返回取走的数量
+     */
+    public long take(int permits, long maxWaitMills, long now){
+        if (now > this.nextFreeTicketMill){
+            this.storedPermits = Math.min(maxPermits, this.storedPermits + (now - this.nextFreeTicketMill) * this.permitsPerSecond / 1000);
+            this.nextFreeTicketMill = now;
+        }
+        if (permits < 0){
+            long all = Math.max(0, (long) Math.floor(this.storedPermits));
+            this.storedPermits -= all;
+            return all;
+        }
+        if (this.storedPermits >= permits){
+            this.storedPermits -= permits;
+            return 0;
+        }
+        long waitMills = (long) Math.ceil((permits - this.storedPermits) * 1000 / this.permitsPerSecond);
+        if (waitMills > maxWaitMills){
+            return -1;
+        }
+        // 预支，之后产生的令牌先补上欠的数量
+        this.storedPermits -= permits;
+        return waitMills;
+    }
 
     @Override
     public String toString() {
@@ -2,8 +2,9 @@ package io.github.spring.tools.redis.concurrent;
 
 import io.github.spring.tools.redis.IRedisLock;
 import io.github.spring.tools.redis.RedisLockBuilder;
-import io.github.spring.tools.redis.RedisLockClient;
+import io.github.spring.tools.redis.RedisLockEnvironment;
 import io.github.spring.tools.redis.capable.ILockWritable;
+import io.github.spring.tools.redis.store.ILockStore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
@@ -57,7 +58,25 @@ public class RedisRateLimiter {
      */
     private String key;
 
-    private RedisLockClient redisLockClient;
+    /**
+     * 限流数据的 key，按锁环境的 hash tag 策略处理
+     */
+    private String dataKey;
+
+    /**
+     * 锁存储，限流数据和时间都从这里读取
+     */
+    private ILockStore lockStore;
+
+    /**
+     * 使用的锁环境名称，为空时使用默认环境
+     */
+    private String environment;
+
+    /**
+     * 是否原子模式，补充、检查和消费由锁存储一次完成，不加分布式锁
+     */
+    private boolean atomic;
 
     /**
      * 设置
@@ -74,6 +93,18 @@ public class RedisRateLimiter {
     }
 
 
+    /**
+     * 设置是否原子模式
+     * <p>原子模式下每次获取只访问一次锁存储，redis 上由一个 lua 脚本完成补充、检查和消费，不再加分布式锁，高并发时没有锁竞争；
+     * 令牌不够但在超时时间内可以补足时预支令牌，之后在本地等待。锁存储需要支持 {@link ILockStore#acquirePermits}</p>
+     * @param atomic 是否原子模式
+     * @return 当前对象
+     */
+    public RedisRateLimiter atomic(boolean atomic) {
+        this.atomic = atomic;
+        return this;
+    }
+
     /**
      * 检查参数
      * @param b 要检查的值
@@ -103,8 +134,18 @@ public class RedisRateLimiter {
      * @return 令牌数量
      */
     public long tryGetAllPermits(){
+        if (atomic) {
+            if (isCircuitOpen()) {
+                return 0;
+            }
+            try {
+                return lockStore.acquirePermits(newKey(), permitsPerSecond, maxPermits, initStoredPermits, -1, 0);
+            } catch (Exception e) {
+                return 0;
+            }
+        }
         try {
-            try(IRedisLock redisLock = RedisLockBuilder.builder(key).lockSeconds(getLockSeconds(0)).build()){
+            try(IRedisLock redisLock = RedisLockBuilder.builder(key).environment(environment).lockSeconds(getLockSeconds(0)).build()){
                 if (redisLock.tryLock()) {
                     long nowMills = currentRedisTime();
                     long usedMills = System.currentTimeMillis();
@@ -130,14 +171,30 @@ public class RedisRateLimiter {
      * @return 获取结果
      */
     public boolean tryAcquire(int permits, int timeout, TimeUnit unit) throws Exception {
+        boolean acquired = doTryAcquire(permits, timeout, unit);
+        RedisLockEnvironment.getInstance(environment).getMetrics().limiter(acquired);
+        return acquired;
+    }
+
+    /**
+     * 尝试获取 permits 个令牌
+     * @param permits 令牌数量
+     * @param timeout 超时时间
+     * @param unit 单位
+     * @return 获取结果
+     */
+    private boolean doTryAcquire(int permits, int timeout, TimeUnit unit) throws Exception {
         Objects.requireNonNull(key);
         Objects.requireNonNull(unit);
         timeout = max(0, timeout);
         long timeoutMills = max(unit.toMillis(timeout), 0);
         checkPermits(permits);
+        if (atomic) {
+            return doTryAcquireAtomic(permits, timeoutMills);
+        }
         long millsToWait = 0;
         long startLockMills = System.currentTimeMillis();
-        try(IRedisLock redisLock = RedisLockBuilder.builder(key).lockSeconds(getLockSeconds(timeoutMills)).build()){
+        try(IRedisLock redisLock = RedisLockBuilder.builder(key).environment(environment).lockSeconds(getLockSeconds(timeoutMills)).build()){
             // 锁定资源
             if (timeout > 0 ? redisLock.tryLock(timeout, unit) : redisLock.tryLock()) {
                 long nowMills = currentRedisTime();
@@ -172,6 +229,40 @@ public class RedisRateLimiter {
         }
     }
 
+    /**
+     * 原子模式获取，一次访问锁存储，需要等待时令牌已经预支
+     * @param permits 令牌数量
+     * @param timeoutMills 超时毫秒
+     * @return 获取结果
+     */
+    private boolean doTryAcquireAtomic(int permits, long timeoutMills) throws InterruptedException {
+        if (isCircuitOpen()) {
+            return false;
+        }
+        long millsToWait = lockStore.acquirePermits(newKey(), permitsPerSecond, maxPermits, initStoredPermits, permits, timeoutMills);
+        if (millsToWait < 0) {
+            debug(String.format("获取失败，%s 毫秒内不足以获取 %s 令牌", timeoutMills, permits));
+            return false;
+        }
+        if (millsToWait > 0) {
+            debug(String.format("已预支 %s 令牌，等待 %s 毫秒", permits, millsToWait));
+            Thread.sleep(millsToWait);
+        }
+        return true;
+    }
+
+    /**
+     * 原子模式不经过锁，访问锁存储前检查熔断器，熔断中快速失败
+     * @return 是否拒绝
+     */
+    private boolean isCircuitOpen() {
+        if (RedisLockEnvironment.getInstance(environment).allowRequest()) {
+            return false;
+        }
+        debug("redis 熔断中，快速失败");
+        return true;
+    }
+
     /**
      * 获取锁定的时间
      * @param timeoutMills 超时毫秒
@@ -198,7 +289,7 @@ public class RedisRateLimiter {
      * @return 当期那时间，毫秒
      */
     private long currentRedisTime(){
-        return redisLockClient.queryRedisNow();
+        return lockStore.currentTimeMillis();
     }
 
     /**
@@ -216,7 +307,7 @@ public class RedisRateLimiter {
      */
     private void syncToRedis(long permites, long now){
         limiterData.acquire(permites, now);
-        redisLockClient.set(newKey(), limiterData.toArrayString(),true);
+        lockStore.set(newKey(), limiterData.toArrayString());
     }
 
     /**
@@ -224,7 +315,7 @@ public class RedisRateLimiter {
      * @return redis key
      */
     private String newKey(){
-        return String.format("%s%s", DATA_KEY_PREFIX, this.key);
+        return dataKey;
     }
 
     /**
@@ -257,7 +348,7 @@ public class RedisRateLimiter {
      */
     private void restore(long now){
         long startRestoreMills = System.currentTimeMillis();
-        String value = redisLockClient.get(newKey());
+        String value = lockStore.get(newKey());
         now +=  System.currentTimeMillis() - startRestoreMills;
         // 如果存在则根据 value 还原
         if (!StringUtils.isEmpty(value)) {
@@ -302,10 +393,36 @@ public class RedisRateLimiter {
      * @return 对象
      */
     public static RedisRateLimiter create(String key, double permitsPerSecond, double maxBurstSeconds, double initBurstSeconds){
+        return create(null, key, permitsPerSecond, maxBurstSeconds, initBurstSeconds);
+    }
+
+    /**
+     * 在指定的锁环境上创建一个实例，默认最大存储1秒的数量，存储1秒的令牌
+     * @param environment 锁环境名称，为空时使用默认环境
+     * @param key key
+     * @param permitsPerSecond 每秒产生数量
+     * @return 对象
+     */
+    public static RedisRateLimiter create(String environment, String key, double permitsPerSecond) {
+        return create(environment, key, permitsPerSecond, 1.0, 1.0);
+    }
+
+    /**
+     * 在指定的锁环境上创建一个实例
+     * @param environment 锁环境名称，为空时使用默认环境
+     * @param key key
+     * @param permitsPerSecond 每秒产生数量
+     * @param maxBurstSeconds 最大存储描述
+     * @param initBurstSeconds 第一次初始化，默认含有的数量
+     * @return 对象
+     */
+    public static RedisRateLimiter create(String environment, String key, double permitsPerSecond, double maxBurstSeconds, double initBurstSeconds){
         Assert.isTrue(maxBurstSeconds > 0, "maxBurstSeconds 必须大于0");
         RedisRateLimiter limiter = new RedisRateLimiter(permitsPerSecond, maxBurstSeconds * permitsPerSecond, initBurstSeconds * permitsPerSecond, key);
-        // 设置 redis lock client
-        limiter.redisLockClient = ((ILockWritable) RedisLockBuilder.builder(DATA_KEY_PREFIX).build()).getLockClient();
+        limiter.environment = environment;
+        // 设置 锁存储
+        limiter.lockStore = ((ILockWritable) RedisLockBuilder.builder(DATA_KEY_PREFIX).environment(environment).build()).getLockStore();
+        limiter.dataKey = RedisLockEnvironment.getInstance(environment).hashTagKey(DATA_KEY_PREFIX + key);
         return limiter;
     }
 
@@ -0,0 +1,309 @@
+package io.github.spring.tools.redis.concurrent;
+
+import io.github.spring.tools.redis.RedisLockBuilder;
+import io.github.spring.tools.redis.RedisLockClient;
+import io.github.spring.tools.redis.RedisLockTokens;
+import io.github.spring.tools.redis.RedisLockEnvironment;
+import io.github.spring.tools.redis.RedisLockNotifier;
+import io.github.spring.tools.redis.capable.ILockWritable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.Math.max;
+
+/**
+ * 基于 Redis 的分布式信号量，限制整个集群的并发数
+ * <p>每个许可在 redis 的有序集合中单独记录租期，获取和释放都在一个 lua 中完成，租期按 redis 的时间计算，不受各节点时钟偏差影响；
+ * 持有者宕机没有释放的许可会在租期过后自动回收，持有许可的时间不要超过租期</p>
+ * <p>和 {@link java.util.concurrent.Semaphore} 一样，许可不绑定线程，同一个实例获取的许可可以在任意线程释放；
+ * 等待时订阅释放通知，有许可释放时立即重试</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+@Slf4j
+public class RedisSemaphore {
+
+    /**
+     * 信号量的 key
+     */
+    private final String key;
+
+    /**
+     * 最大许可数
+     */
+    private final int maxPermits;
+
+    /**
+     * 每个许可的租期，毫秒
+     */
+    private final long leaseMills;
+
+    /**
+     * 当前实例持有的许可id
+     */
+    private final Deque<String> heldPermits = new ConcurrentLinkedDeque<>();
+
+    private RedisLockClient redisLockClient;
+
+    /**
+     * 所在的锁环境
+     */
+    private RedisLockEnvironment environment;
+
+    /**
+     * 信号量数据的 key，按锁环境的 hash tag 策略处理
+     */
+    private String dataKey;
+
+    /**
+     * 设置
+     * @param key 信号量的 key
+     * @param maxPermits 最大许可数
+     * @param leaseMills 每个许可的租期，毫秒
+     */
+    private RedisSemaphore(String key, int maxPermits, long leaseMills) {
+        this.key = key;
+        this.maxPermits = maxPermits;
+        this.leaseMills = leaseMills;
+    }
+
+    /**
+     * 尝试获取许可，不等待
+     * @param permits 获取的数量
+     * @return 结果
+     */
+    public boolean tryAcquire(int permits) {
+        try {
+            return tryAcquire(permits, 0, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 尝试获取 permits 个许可，剩余许可不足时等待其他持有者释放
+     * @param permits 许可数量
+     * @param timeout 超时时间
+     * @param unit 单位
+     * @return 获取结果
+     * @throws InterruptedException 线程中断
+     */
+    public boolean tryAcquire(int permits, int timeout, TimeUnit unit) throws InterruptedException {
+        Objects.requireNonNull(unit);
+        checkPermits(permits);
+        String[] permitIds = newPermitIds(permits);
+        if (isCircuitOpen()) {
+            return false;
+        }
+        if (doAcquire(permitIds)) {
+            return true;
+        }
+        long timeoutMills = max(unit.toMillis(timeout), 0);
+        if (timeoutMills == 0) {
+            return false;
+        }
+        long deadline = System.currentTimeMillis() + timeoutMills;
+        RedisLockNotifier notifier = environment.getNotifier();
+        RedisLockNotifier.Signal signal = notifier.subscribe(getDataKey());
+        try {
+            for (;;) {
+                // 先记录版本，再尝试获取，避免错过两者之间的释放消息
+                long version = signal.version();
+                if (isCircuitOpen()) {
+                    return false;
+                }
+                if (doAcquire(permitIds)) {
+                    return true;
+                }
+                long waitMills = Math.min(ILockWritable.DEFAULT_NOTIFY_FALLBACK_MILLS, deadline - System.currentTimeMillis());
+                if (waitMills <= 0) {
+                    debug(String.format("等待超时，需 %s 个许可", permits));
+                    return false;
+                }
+                signal.await(version, waitMills);
+            }
+        } finally {
+            notifier.unsubscribe(getDataKey(), signal);
+        }
+    }
+
+    /**
+     * 释放 permits 个当前实例持有的许可
+     * @param permits 释放的数量
+     * @return 实际释放的数量，租期已过被回收的许可不计算在内
+     * @throws org.springframework.dao.DataAccessException 访问 redis 失败，许可仍由当前实例持有，可以再次释放
+     */
+    public int release(int permits) {
+        checkPermits(permits);
+        String[] permitIds = new String[permits];
+        int size = 0;
+        for (; size < permits; size++) {
+            String permitId = heldPermits.pollFirst();
+            if (permitId == null) {
+                break;
+            }
+            permitIds[size] = permitId;
+        }
+        Assert.isTrue(size > 0, String.format("%s 信号量当前实例没有持有许可", key));
+        if (size < permits) {
+            String[] partIds = new String[size];
+            System.arraycopy(permitIds, 0, partIds, 0, size);
+            permitIds = partIds;
+        }
+        int released;
+        try {
+            released = (int) redisLockClient.semaphoreRelease(getDataKey(), permitIds);
+        } catch (RuntimeException e) {
+            // redis 没有确认释放，许可放回，按原来的顺序排在最前面
+            for (int i = permitIds.length - 1; i >= 0; i--) {
+                heldPermits.addFirst(permitIds[i]);
+            }
+            throw e;
+        }
+        if (released < permitIds.length) {
+            log.warn("RedisSemaphore:key={} {} 个许可租期已过，已被回收", key, permitIds.length - released);
+        }
+        return released;
+    }
+
+    /**
+     * 获取当前可用的许可数
+     * @return 可用许可数
+     */
+    public int availablePermits() {
+        return (int) max(0, maxPermits - redisLockClient.semaphoreHeld(getDataKey()));
+    }
+
+    /**
+     * 获取许可
+     * @param permitIds 许可id
+     * @return 获取结果
+     */
+    private boolean doAcquire(String[] permitIds) {
+        if (redisLockClient.semaphoreAcquire(getDataKey(), permitIds, maxPermits, leaseMills)) {
+            for (String permitId : permitIds) {
+                heldPermits.addLast(permitId);
+            }
+            debug(String.format("获取 %s 个许可成功", permitIds.length));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 熔断器是否拒绝访问 redis，熔断中获取许可快速失败，不再等待
+     * @return 是否拒绝
+     */
+    private boolean isCircuitOpen() {
+        if (environment.allowRequest()) {
+            return false;
+        }
+        debug("redis 熔断中，快速失败");
+        return true;
+    }
+
+    /**
+     * 生成许可id
+     * @param permits 许可数量
+     * @return 许可id
+     */
+    private static String[] newPermitIds(int permits) {
+        String prefix = RedisLockTokens.next();
+        String[] permitIds = new String[permits];
+        for (int i = 0; i < permits; i++) {
+            permitIds[i] = prefix + ":" + i;
+        }
+        return permitIds;
+    }
+
+    /**
+     * 检查 许可数量
+     * @param permits 检查的数量
+     */
+    private void checkPermits(int permits) {
+        Assert.isTrue(permits > 0, String.format("Requested permits (%s) must be positive", permits));
+        Assert.isTrue(permits <= maxPermits, String.format("Requested permits (%s) must not exceed max permits (%s)", permits, maxPermits));
+    }
+
+    /**
+     * 生成 key
+     * @return redis key
+     */
+    private String getDataKey() {
+        return dataKey;
+    }
+
+    /**
+     * 创建一个实例，许可租期为默认锁定时长
+     * @param key key
+     * @param maxPermits 最大许可数
+     * @return 对象
+     */
+    public static RedisSemaphore create(String key, int maxPermits) {
+        return create(key, maxPermits, ILockWritable.DEFAULT_LOCK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 创建一个实例
+     * @param key key
+     * @param maxPermits 最大许可数
+     * @param lease 每个许可的租期
+     * @param unit 租期单位
+     * @return 对象
+     */
+    public static RedisSemaphore create(String key, int maxPermits, long lease, TimeUnit unit) {
+        return create(null, key, maxPermits, lease, unit);
+    }
+
+    /**
+     * 在指定的锁环境上创建一个实例，许可租期为默认锁定时长
+     * @param environment 锁环境名称，为空时使用默认环境
+     * @param key key
+     * @param maxPermits 最大许可数
+     * @return 对象
+     */
+    public static RedisSemaphore create(String environment, String key, int maxPermits) {
+        return create(environment, key, maxPermits, ILockWritable.DEFAULT_LOCK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 在指定的锁环境上创建一个实例
+     * @param environment 锁环境名称，为空时使用默认环境
+     * @param key key
+     * @param maxPermits 最大许可数
+     * @param lease 每个许可的租期
+     * @param unit 租期单位
+     * @return 对象
+     */
+    public static RedisSemaphore create(String environment, String key, int maxPermits, long lease, TimeUnit unit) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(unit);
+        Assert.isTrue(maxPermits > 0, "maxPermits 必须大于0");
+        Assert.isTrue(lease > 0, "lease 必须大于0");
+        RedisSemaphore semaphore = new RedisSemaphore(key, maxPermits, unit.toMillis(lease));
+        // 设置 redis lock client
+        semaphore.redisLockClient = ((ILockWritable) RedisLockBuilder.builder(DATA_KEY_PREFIX).environment(environment).build()).getLockClient();
+        semaphore.environment = RedisLockEnvironment.getInstance(environment);
+        semaphore.dataKey = semaphore.environment.hashTagKey(DATA_KEY_PREFIX + key);
+        return semaphore;
+    }
+
+    /**
+     * 消息
+     * @param message 消息内容
+     */
+    private void debug(String message) {
+        log.debug("RedisSemaphore:key={} {}", key, message);
+    }
+
+    /**
+     * data 的 key  前缀
+     */
+    private static final String DATA_KEY_PREFIX = "RedisSemaphoreKey:";
+}
@@ -1,10 +1,13 @@
 package io.github.spring.tools.redis.decorator;
 
+import io.github.spring.tools.redis.DefaultRedisLock;
 import io.github.spring.tools.redis.IRedisLock;
 import io.github.spring.tools.redis.RedisLockClient;
+import io.github.spring.tools.redis.RedisLockEnvironment;
 import io.github.spring.tools.redis.RedisLockReleaseStatus;
 import io.github.spring.tools.redis.RedisLockStatus;
 import io.github.spring.tools.redis.capable.ILockWritable;
+import io.github.spring.tools.redis.store.ILockStore;
 import org.slf4j.Logger;
 
 import java.util.concurrent.TimeUnit;
@@ -71,6 +74,11 @@ public abstract class AbsLockDecorator implements IRedisLock, ILockWritable {
     return delegate.getLockSeconds();
   }
 
+  @Override
+  public long getFencingToken() {
+    return delegate.getFencingToken();
+  }
+
   @Override
   public boolean needUnlock() {
     return ((ILockWritable) delegate).needUnlock();
@@ -109,6 +117,18 @@ public abstract class AbsLockDecorator implements IRedisLock, ILockWritable {
   }
 
 
+  /**
+   * 实际执行者所属的锁环境名称
+   * @return 环境名称
+   */
+  protected String environmentName() {
+    IRedisLock lock = delegate;
+    while (lock instanceof AbsLockDecorator) {
+      lock = ((AbsLockDecorator) lock).delegate;
+    }
+    return lock instanceof DefaultRedisLock ? ((DefaultRedisLock) lock).getEnvironment().getName() : RedisLockEnvironment.DEFAULT_NAME;
+  }
+
   /**
    * 获取 logger 对象
    * @return 对象
@@ -121,6 +141,9 @@ public abstract class AbsLockDecorator implements IRedisLock, ILockWritable {
    * @param message 消息
    */
   protected void debugMessage(String message){
+    if (!getLogger().isDebugEnabled()) {
+      return;
+    }
     getLogger().debug(String.format("%s:RedisLockDecorator --> %s 锁 %s", getClass().getSimpleName(), getKey(), message));
   }
 
@@ -206,6 +229,16 @@ public abstract class AbsLockDecorator implements IRedisLock, ILockWritable {
     return  ((ILockWritable) delegate).getLockClient();
   }
 
+  @Override
+  public ILockStore getLockStore() {
+    return ((ILockWritable) delegate).getLockStore();
+  }
+
+  @Override
+  public Runnable subscribeRelease(Runnable listener) {
+    return delegate.subscribeRelease(listener);
+  }
+
   @Override
   public void unlock() {
     delegate.unlock();
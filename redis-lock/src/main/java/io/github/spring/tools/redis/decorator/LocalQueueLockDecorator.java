@@ -0,0 +1,199 @@
+package io.github.spring.tools.redis.decorator;
+
+import io.github.spring.tools.redis.IRedisLock;
+import io.github.spring.tools.redis.RedisLockStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.springframework.core.annotation.Order;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地排队锁
+ * <p>同一个 JVM 中竞争同一个 key 的线程先在本地排队，只有队头线程访问 redis，
+ * 队头释放锁后按 FIFO 顺序交给下一个本地线程，避免每个线程都轮询 redis</p>
+ * <p>排在 {@link ReentrantLockDecorator} 内层，重入不需要重新排队</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+@Slf4j
+@Order(LocalQueueLockDecorator.ORDER)
+public class LocalQueueLockDecorator extends AbsLockDecorator {
+
+  /**
+   * 每个 key 的本地队列，先按锁环境名称再按 key 区分，不同环境的相同 key 各自排队
+   */
+  private static final ConcurrentHashMap<String, ConcurrentHashMap<String, LocalQueue>> QUEUES = new ConcurrentHashMap<>(4);
+
+  /**
+   * 当前持有的本地队列
+   */
+  private LocalQueue holdQueue;
+
+  /**
+   * 是否已经向 redis 尝试过获取锁
+   */
+  private boolean attempted;
+
+  /**
+   * 构造一个 包装器实例
+   *
+   * @param delegate 实际执行者
+   */
+  public LocalQueueLockDecorator(IRedisLock delegate) {
+    super(delegate);
+  }
+
+  @Override
+  public boolean tryLock() {
+    LocalQueue queue = join(queues(), getKey());
+    // 本地已有线程在获取或持有锁，直接失败，不访问 redis
+    if (!queue.permit.tryAcquire()) {
+      leave(queue);
+      debugMessage("本地队列已有持有者，获取失败");
+      return false;
+    }
+    try {
+      return acquireByHead(queue, -1);
+    } catch (InterruptedException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+    long timeout = System.currentTimeMillis() + unit.toMillis(time);
+    LocalQueue queue = join(queues(), getKey());
+    boolean headed = false;
+    try {
+      headed = queue.permit.tryAcquire(time, unit);
+    } finally {
+      if (!headed) {
+        leave(queue);
+      }
+    }
+    if (!headed) {
+      setStatus(RedisLockStatus.TIMEOUT);
+      debugMessage("本地排队超时");
+      return false;
+    }
+    return acquireByHead(queue, Math.max(timeout - System.currentTimeMillis(), 0));
+  }
+
+  /**
+   * 作为队头访问 redis 获取锁，失败则把队头让给下一个线程
+   * @param queue 本地队列
+   * @param remainMills 剩余等待时间，小于 0 时只尝试一次
+   * @return 结果
+   * @throws InterruptedException 线程中断
+   */
+  private boolean acquireByHead(LocalQueue queue, long remainMills) throws InterruptedException {
+    boolean locked = false;
+    try {
+      attempted = true;
+      locked = remainMills <= 0 ? delegate.tryLock() : delegate.tryLock(remainMills, TimeUnit.MILLISECONDS);
+    } finally {
+      if (locked) {
+        holdQueue = queue;
+      } else {
+        queue.permit.release();
+        leave(queue);
+      }
+    }
+    return locked;
+  }
+
+  @Override
+  public void unlock() {
+    try {
+      if (attempted) {
+        delegate.unlock();
+      }
+    } finally {
+      // 交给本地队列中的下一个线程
+      if (holdQueue != null) {
+        LocalQueue queue = holdQueue;
+        holdQueue = null;
+        queue.permit.release();
+        leave(queue);
+        debugMessage("本地队列交接完成");
+      }
+    }
+  }
+
+  @Override
+  protected Logger getLogger() {
+    return log;
+  }
+
+  /**
+   * 获取锁所在环境的本地队列，环境数量很少，不移除
+   * @return key -> 本地队列
+   */
+  private ConcurrentHashMap<String, LocalQueue> queues() {
+    return QUEUES.computeIfAbsent(environmentName(), name -> new ConcurrentHashMap<>(64));
+  }
+
+  /**
+   * 加入 key 的本地队列
+   * @param queues 锁所在环境的本地队列
+   * @param key 锁的 key
+   * @return 本地队列
+   */
+  private static LocalQueue join(ConcurrentHashMap<String, LocalQueue> queues, String key) {
+    return queues.compute(key, (k, queue) -> {
+      if (queue == null) {
+        queue = new LocalQueue(queues, key);
+      }
+      queue.members++;
+      return queue;
+    });
+  }
+
+  /**
+   * 离开 key 的本地队列，最后一个离开时移除
+   * @param queue 本地队列
+   */
+  private static void leave(LocalQueue queue) {
+    queue.queues.computeIfPresent(queue.key, (k, current) -> current == queue && --current.members <= 0 ? null : current);
+  }
+
+  /**
+   * 单个 key 的本地队列
+   */
+  private static final class LocalQueue {
+
+    /**
+     * 公平的队头许可
+     */
+    private final Semaphore permit = new Semaphore(1, true);
+
+    /**
+     * 所在环境的本地队列
+     */
+    private final ConcurrentHashMap<String, LocalQueue> queues;
+
+    /**
+     * 锁的 key
+     */
+    private final String key;
+
+    /**
+     * 队列中的成员数量，只在所在环境队列的 compute 中读写
+     */
+    private int members;
+
+    private LocalQueue(ConcurrentHashMap<String, LocalQueue> queues, String key) {
+      this.queues = queues;
+      this.key = key;
+    }
+  }
+
+  /**
+   * 排序，需要在可重入锁内层
+   */
+  public static final int ORDER = ORDER_DEFAULT - 100;
+}
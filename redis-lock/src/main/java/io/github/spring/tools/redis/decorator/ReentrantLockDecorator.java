@@ -9,6 +9,7 @@ import org.springframework.core.annotation.Order;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -24,10 +25,13 @@ import static io.github.spring.tools.redis.decorator.AbsLockDecorator.ORDER_DEFA
 @Order(ORDER_DEFAULT)
 public class ReentrantLockDecorator extends AbsLockDecorator {
 
-  private static final ThreadLocal<Map<String, ReentrantLockDecorator>> THREAD_LOCKS = new ThreadLocal<Map<String, ReentrantLockDecorator>>(){
+  /**
+   * 当前线程持有的锁，先按锁环境名称再按 key 区分，不同环境的相同 key 互不影响
+   */
+  private static final ThreadLocal<Map<String, Map<String, ReentrantLockDecorator>>> THREAD_LOCKS = new ThreadLocal<Map<String, Map<String, ReentrantLockDecorator>>>(){
     @Override
-    protected Map<String, ReentrantLockDecorator> initialValue() {
-      return new HashMap<>(8);
+    protected Map<String, Map<String, ReentrantLockDecorator>> initialValue() {
+      return new HashMap<>(4);
     }
   };
 
@@ -46,6 +50,16 @@ public class ReentrantLockDecorator extends AbsLockDecorator {
    */
   private long getLockTime;
 
+  /**
+   * 重入时，当前线程真正持有锁的实例
+   */
+  private ReentrantLockDecorator holder;
+
+  /**
+   * 是否异步获取，异步获取的锁不绑定线程
+   */
+  private boolean async;
+
   /**
    * 构造一个 包装器实例
    *
@@ -77,6 +91,7 @@ public class ReentrantLockDecorator extends AbsLockDecorator {
         // 获取锁
         if (time == -1 ? delegate.tryLock() : delegate.tryLock(time, unit)) {
           debugMessage("获取新锁成功");
+          setReleaseStatus(RedisLockReleaseStatus.NEW);
           setToThread();
           return true;
         }
@@ -92,7 +107,7 @@ public class ReentrantLockDecorator extends AbsLockDecorator {
 
   @Override
   public RedisLockReleaseStatus getReleaseStatus() {
-    return currentReleaseStatus;
+    return async ? super.getReleaseStatus() : currentReleaseStatus;
   }
 
   @Override
@@ -105,11 +120,25 @@ public class ReentrantLockDecorator extends AbsLockDecorator {
     return log;
   }
 
+  @Override
+  public CompletableFuture<Boolean> tryLockAsync(long time, TimeUnit unit) {
+    // 异步获取跨线程执行，不参与重入
+    async = true;
+    return delegate.tryLockAsync(time, unit);
+  }
+
   @Override
   public void unlock() {
+    if (async) {
+      delegate.unlock();
+      debugMessage("释放异步获取的锁");
+      return;
+    }
     // 如果当前清理成功
     if (clearFromThread()) {
       delegate.unlock();
+      // 彻底释放时以实际的释放结果为准
+      setReleaseStatus(delegate.getReleaseStatus());
       debugMessage("彻底释放锁成功");
     }else {
       setReleaseStatus(RedisLockReleaseStatus.SUCCESS);
@@ -124,20 +153,26 @@ public class ReentrantLockDecorator extends AbsLockDecorator {
    */
   boolean exisitsByThread() throws TimeoutException {
     // 获取锁
-    ReentrantLockDecorator lock = THREAD_LOCKS.get().get(getKey());
+    Map<String, ReentrantLockDecorator> locks = THREAD_LOCKS.get().get(environmentName());
+    ReentrantLockDecorator lock = locks == null ? null : locks.get(getKey());
     if (lock == null){
       return false;
     }
     // 检查锁的时间
-    if (System.currentTimeMillis() - lock.getLockTime > TimeUnit.MILLISECONDS.toMillis(lock.getLockSeconds())) {
+    if (System.currentTimeMillis() - lock.getLockTime > TimeUnit.SECONDS.toMillis(lock.getLockSeconds())) {
       // 移除当期那锁
       throw new TimeoutException(getKey());
     }
     // 检查是否在同一个 thread 中
-
+    holder = lock;
     return true;
   }
 
+  @Override
+  public long getFencingToken() {
+    return holder == null ? super.getFencingToken() : holder.getFencingToken();
+  }
+
   @Override
   public RedisLockStatus getStatus() {
     return currentStatus == null ? super.getStatus() : currentStatus;
@@ -150,7 +185,7 @@ public class ReentrantLockDecorator extends AbsLockDecorator {
    */
   void setToThread(){
     getLockTime = System.currentTimeMillis();
-    THREAD_LOCKS.get().put(getKey(), this);
+    THREAD_LOCKS.get().computeIfAbsent(environmentName(), name -> new HashMap<>(8)).put(getKey(), this);
   }
 
   /**
@@ -158,9 +193,12 @@ public class ReentrantLockDecorator extends AbsLockDecorator {
    */
   boolean clearFromThread() {
     // 获取锁
-    ReentrantLockDecorator lock = THREAD_LOCKS.get().get(getKey());
-    if (lock != null && lock == this){
-      THREAD_LOCKS.get().remove(getKey());
+    Map<String, ReentrantLockDecorator> locks = THREAD_LOCKS.get().get(environmentName());
+    if (locks != null && locks.get(getKey()) == this){
+      locks.remove(getKey());
+      if (locks.isEmpty()) {
+        THREAD_LOCKS.get().remove(environmentName());
+      }
       return true;
     }
     return false;
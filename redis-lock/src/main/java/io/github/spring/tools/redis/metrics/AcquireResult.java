@@ -0,0 +1,47 @@
+package io.github.spring.tools.redis.metrics;
+
+/**
+ * 一次获取的结果，作为 redis.lock.acquire 的 result 标签
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public enum AcquireResult {
+
+    /**
+     * 获取成功
+     */
+    ACQUIRED("acquired"),
+
+    /**
+     * 等待超时，不等待的获取失败也记为超时
+     */
+    TIMEOUT("timeout"),
+
+    /**
+     * 等待中线程被中断
+     */
+    INTERRUPTED("interrupted"),
+
+    /**
+     * 获取时抛出异常，例如 redis 不可用
+     */
+    ERROR("error");
+
+    /**
+     * 标签值
+     */
+    private final String tag;
+
+    AcquireResult(String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * 获取标签值
+     * @return 标签值
+     */
+    public String getTag() {
+        return tag;
+    }
+}
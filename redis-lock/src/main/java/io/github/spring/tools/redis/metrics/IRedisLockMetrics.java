@@ -0,0 +1,65 @@
+package io.github.spring.tools.redis.metrics;
+
+/**
+ * 锁的监控指标
+ * <p>每个锁环境一个实例，默认不记录；所有方法在热点路径上调用，实现不能阻塞，也不要使用锁 key 作为标签，避免标签数量无限增长</p>
+ * <p>type 是锁的类型（实现类的简单类名），command 是固定的命令名称，都是有限的取值</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public interface IRedisLockMetrics {
+
+    /**
+     * 不记录任何指标
+     */
+    IRedisLockMetrics NOOP = new IRedisLockMetrics() {};
+
+    /**
+     * 一次获取结束，不等待的获取尝试次数为 1
+     * @param type 锁类型
+     * @param waitNanos 等待的纳秒数
+     * @param attempts 尝试获取的次数
+     * @param sleeps 休眠的次数
+     * @param result 获取结果
+     */
+    default void acquire(String type, long waitNanos, int attempts, int sleeps, AcquireResult result) {
+    }
+
+    /**
+     * 一次持有结束
+     * @param type 锁类型
+     * @param heldNanos 持有的纳秒数
+     */
+    default void held(String type, long heldNanos) {
+    }
+
+    /**
+     * lua 释放失败，降级为 GET + DEL
+     * @param type 锁类型
+     */
+    default void releaseFallback(String type) {
+    }
+
+    /**
+     * 释放失败，锁已过期或者被他人持有
+     * @param type 锁类型
+     */
+    default void releaseLost(String type) {
+    }
+
+    /**
+     * 一次 redis 往返
+     * @param command 命令名称
+     * @param nanos 耗时纳秒数
+     */
+    default void command(String command, long nanos) {
+    }
+
+    /**
+     * 限流器获取令牌
+     * @param acquired 是否获取成功，失败即被限流
+     */
+    default void limiter(boolean acquired) {
+    }
+}
@@ -0,0 +1,152 @@
+package io.github.spring.tools.redis.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 Micrometer 的监控指标
+ * <p>标签只有环境名称、锁类型、命令名称和结果，不包含 key；计时器发布百分位直方图，可以在监控系统中计算 P99</p>
+ * <ul>
+ *     <li>redis.lock.acquire 获取的时长，result=acquired|timeout|interrupted|error</li>
+ *     <li>redis.lock.acquire.attempts / redis.lock.acquire.sleeps 每次等待的尝试、休眠次数</li>
+ *     <li>redis.lock.held 持有时长</li>
+ *     <li>redis.lock.command 每个命令的 redis 往返时长</li>
+ *     <li>redis.lock.timeouts、redis.lock.errors、redis.lock.release.fallback、redis.lock.release.lost、redis.limiter.denied 计数</li>
+ * </ul>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class MicrometerLockMetrics implements IRedisLockMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Tags tags;
+
+    /**
+     * 按锁类型缓存的指标
+     */
+    private final Map<String, LockMeters> lockMeters = new ConcurrentHashMap<>();
+
+    /**
+     * 按命令缓存的计时器
+     */
+    private final Map<String, Timer> commandTimers = new ConcurrentHashMap<>();
+
+    private final Counter limiterAcquired;
+
+    private final Counter limiterDenied;
+
+    /**
+     * 创建一个实例
+     * @param registry 指标注册表
+     * @param environment 锁环境名称，作为 environment 标签
+     */
+    public MicrometerLockMetrics(MeterRegistry registry, String environment) {
+        this.registry = Objects.requireNonNull(registry);
+        this.tags = Tags.of("environment", environment);
+        this.limiterAcquired = Counter.builder("redis.limiter.acquired").tags(tags).register(registry);
+        this.limiterDenied = Counter.builder("redis.limiter.denied").tags(tags).register(registry);
+    }
+
+    @Override
+    public void acquire(String type, long waitNanos, int attempts, int sleeps, AcquireResult result) {
+        LockMeters meters = lockMeters(type);
+        meters.acquire[result.ordinal()].record(waitNanos, TimeUnit.NANOSECONDS);
+        if (result == AcquireResult.TIMEOUT) {
+            meters.timeouts.increment();
+        } else if (result == AcquireResult.INTERRUPTED || result == AcquireResult.ERROR) {
+            meters.errors.increment();
+        }
+        meters.attempts.record(attempts);
+        meters.sleeps.record(sleeps);
+    }
+
+    @Override
+    public void held(String type, long heldNanos) {
+        lockMeters(type).held.record(heldNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void releaseFallback(String type) {
+        lockMeters(type).releaseFallback.increment();
+    }
+
+    @Override
+    public void releaseLost(String type) {
+        lockMeters(type).releaseLost.increment();
+    }
+
+    @Override
+    public void command(String command, long nanos) {
+        Timer timer = commandTimers.get(command);
+        if (timer == null) {
+            timer = commandTimers.computeIfAbsent(command, c -> Timer.builder("redis.lock.command")
+                    .tags(tags).tag("command", c)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void limiter(boolean acquired) {
+        (acquired ? limiterAcquired : limiterDenied).increment();
+    }
+
+    private LockMeters lockMeters(String type) {
+        LockMeters meters = lockMeters.get(type);
+        if (meters == null) {
+            meters = lockMeters.computeIfAbsent(type, t -> new LockMeters(registry, tags.and("type", t)));
+        }
+        return meters;
+    }
+
+    /**
+     * 一种锁类型的所有指标
+     */
+    private static final class LockMeters {
+
+        /**
+         * 按 {@link AcquireResult} 顺序排列的获取计时器
+         */
+        private final Timer[] acquire;
+
+        private final DistributionSummary attempts;
+
+        private final DistributionSummary sleeps;
+
+        private final Timer held;
+
+        private final Counter timeouts;
+
+        private final Counter errors;
+
+        private final Counter releaseFallback;
+
+        private final Counter releaseLost;
+
+        LockMeters(MeterRegistry registry, Tags tags) {
+            AcquireResult[] results = AcquireResult.values();
+            this.acquire = new Timer[results.length];
+            for (AcquireResult result : results) {
+                this.acquire[result.ordinal()] = Timer.builder("redis.lock.acquire").tags(tags).tag("result", result.getTag()).publishPercentileHistogram().register(registry);
+            }
+            this.attempts = DistributionSummary.builder("redis.lock.acquire.attempts").tags(tags).register(registry);
+            this.sleeps = DistributionSummary.builder("redis.lock.acquire.sleeps").tags(tags).register(registry);
+            this.held = Timer.builder("redis.lock.held").tags(tags).publishPercentileHistogram().register(registry);
+            this.timeouts = Counter.builder("redis.lock.timeouts").tags(tags).register(registry);
+            this.errors = Counter.builder("redis.lock.errors").tags(tags).register(registry);
+            this.releaseFallback = Counter.builder("redis.lock.release.fallback").tags(tags).register(registry);
+            this.releaseLost = Counter.builder("redis.lock.release.lost").tags(tags).register(registry);
+        }
+    }
+}
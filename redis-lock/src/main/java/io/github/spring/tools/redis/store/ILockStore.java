@@ -0,0 +1,134 @@
+package io.github.spring.tools.redis.store;
+
+import io.github.spring.tools.redis.breaker.RedisCircuitBreaker;
+import io.github.spring.tools.redis.metrics.IRedisLockMetrics;
+import org.springframework.data.redis.core.types.Expiration;
+
+import java.util.function.Consumer;
+
+/**
+ * 锁存储
+ * <p>锁和限流器依赖的原子操作，{@link io.github.spring.tools.redis.RedisLockClient} 是 redis 的实现，
+ * {@link MemoryLockStore} 是单机的内存实现；公平锁、读写锁、多 key 锁、信号量等依赖 lua 脚本的锁只支持 redis</p>
+ * <p>字节参数是 key、value 的 UTF-8 编码，热点路径上由调用方缓存复用</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public interface ILockStore {
+
+    /**
+     * key 不存在时设置，同时设置过期时间
+     * @param key 锁 key
+     * @param value 锁的值
+     * @param expiration 过期时间
+     * @return 是否设置成功
+     */
+    boolean setNx(byte[] key, byte[] value, Expiration expiration);
+
+    /**
+     * key 不存在时设置，失败时返回持有者剩余的租约
+     * @param key 锁 key
+     * @param value 锁的值
+     * @param lockSeconds 锁定秒数的十进制编码
+     * @return 设置成功返回 0，失败返回持有者剩余的毫秒数，剩余时间未知时返回 -1
+     */
+    long setNxOrPttl(byte[] key, byte[] value, byte[] lockSeconds);
+
+    /**
+     * key 不存在时设置，成功时生成单调递增的 fencing token
+     * @param key 锁 key
+     * @param value 锁的值
+     * @param lockSeconds 锁定秒数
+     * @return 设置成功返回 fencing token，失败返回 0
+     */
+    long setNxWithFencing(String key, String value, int lockSeconds);
+
+    /**
+     * 值一致时删除，删除成功后通知等待者
+     * @param key 锁 key
+     * @param value 锁的值
+     * @param channel 释放通知频道
+     * @return 是否删除
+     */
+    boolean compareAndDelete(byte[] key, byte[] value, byte[] channel);
+
+    /**
+     * 批量续期，值一致时才延长过期时间
+     * @param keys 锁 key 列表
+     * @param values 锁的值列表，和 keys 一一对应
+     * @param leaseMills 续期毫秒数列表
+     * @return 每个 key 的续期结果
+     */
+    boolean[] renew(String[] keys, String[] values, long[] leaseMills);
+
+    /**
+     * 获取数据
+     * @param key key
+     * @return 值，不存在时为 null
+     */
+    String get(String key);
+
+    /**
+     * 设置不过期的数据
+     * @param key key
+     * @param value 值
+     */
+    void set(String key, String value);
+
+    /**
+     * 删除数据
+     * @param key key
+     * @return 是否删除
+     */
+    boolean delete(String key);
+
+    /**
+     * 存储端的当前时间，多个节点共用存储时以此对时
+     * @return 毫秒
+     */
+    long currentTimeMillis();
+
+    /**
+     * 令牌桶限流，补充、检查和消费一次原子完成，不需要加锁，数据格式和 {@link io.github.spring.tools.redis.concurrent.RateLimiterData} 一致
+     * @param key 限流数据 key
+     * @param permitsPerSecond 每秒产生的令牌数
+     * @param maxPermits 最大存储的令牌数量
+     * @param initStoredPermits 第一次初始化时存储的令牌数量
+     * @param permits 获取的令牌数量，小于 0 时取走所有完整的令牌
+     * @param maxWaitMills 令牌不够时最多等待的毫秒数
+     * @return 令牌足够时返回 0，需要等待时已经预支，返回等待的毫秒数，获取失败返回 -1；取走所有令牌时返回取走的数量
+     */
+    default long acquirePermits(String key, double permitsPerSecond, double maxPermits, double initStoredPermits, int permits, long maxWaitMills) {
+        throw new UnsupportedOperationException(String.format("%s 不支持原子令牌桶", getClass().getSimpleName()));
+    }
+
+    /**
+     * 订阅锁释放和过期事件，不支持时由 {@link io.github.spring.tools.redis.RedisLockNotifier} 通过 redis 订阅
+     * @param listener 参数为释放或者过期的锁 key
+     */
+    default void subscribe(Consumer<String> listener) {
+        throw new UnsupportedOperationException(String.format("%s 不支持订阅锁释放事件", getClass().getSimpleName()));
+    }
+
+    /**
+     * 设置监控指标，由锁环境调用，不访问 redis 的存储可以忽略
+     * @param metrics 监控指标
+     */
+    default void setMetrics(IRedisLockMetrics metrics) {
+    }
+
+    /**
+     * 设置熔断器，由锁环境调用，访问 redis 的存储需要记录每次调用的结果
+     * @param circuitBreaker 熔断器
+     */
+    default void setCircuitBreaker(RedisCircuitBreaker circuitBreaker) {
+    }
+
+    /**
+     * 释放存储持有的资源，由 {@link io.github.spring.tools.redis.RedisLockEnvironment#destroy()} 调用，需要可以重复调用
+     * <p>redis 连接由调用方创建和关闭，不在这里处理</p>
+     */
+    default void destroy() {
+    }
+}
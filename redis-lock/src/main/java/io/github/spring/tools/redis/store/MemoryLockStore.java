@@ -0,0 +1,370 @@
+package io.github.spring.tools.redis.store;
+
+import io.github.spring.tools.redis.RedisLockClient;
+import io.github.spring.tools.redis.RedisLockExecutors;
+import io.github.spring.tools.redis.concurrent.RateLimiterData;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.types.Expiration;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 内存锁存储
+ * <p>单机部署和测试使用，不需要 redis，获取、释放没有网络往返；所有操作基于 {@link ConcurrentHashMap} 的原子更新</p>
+ * <p>过期的数据读取时按过期时间判断，同时由时间轮定期清理并通知等待者，清理的精度为一个刻度</p>
+ * <pre>
+ * RedisLockBuilder.builder("").keyPrefix("edge-lock:").buildEnv(new MemoryLockStore());
+ * </pre>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+@Slf4j
+public class MemoryLockStore implements ILockStore {
+
+    /**
+     * 数据
+     */
+    private final ConcurrentHashMap<String, Entry> data = new ConcurrentHashMap<>(256);
+
+    /**
+     * fencing token 计数器，和 redis 一样不过期
+     */
+    private final ConcurrentHashMap<String, AtomicLong> fencingCounters = new ConcurrentHashMap<>();
+
+    /**
+     * 锁释放、过期的监听者
+     */
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 时间轮，每个槽放在这个刻度到期的数据
+     */
+    private final Set<Entry>[] wheel;
+
+    /**
+     * 刻度，毫秒
+     */
+    private final long tickMills;
+
+    /**
+     * 下一个要处理的刻度
+     */
+    private volatile long nextTick;
+
+    /**
+     * 时间轮定时任务
+     */
+    private final ScheduledFuture<?> future;
+
+    /**
+     * 使用默认的刻度和槽数创建
+     */
+    public MemoryLockStore() {
+        this(DEFAULT_TICK_MILLS, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * 创建一个内存锁存储
+     * @param tickMills 时间轮的刻度，毫秒
+     * @param wheelSize 时间轮的槽数
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public MemoryLockStore(long tickMills, int wheelSize) {
+        if (tickMills <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("时间轮的刻度和槽数必须大于 0");
+        }
+        this.tickMills = tickMills;
+        this.wheel = new Set[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = ConcurrentHashMap.newKeySet();
+        }
+        this.nextTick = System.currentTimeMillis() / tickMills;
+        this.future = RedisLockExecutors.scheduler().scheduleAtFixedRate(this::expire, tickMills, tickMills, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean setNx(byte[] key, byte[] value, Expiration expiration) {
+        long expireMills = expiration.isPersistent() ? 0 : expiration.getExpirationTimeInMilliseconds();
+        return setIfAbsent(toString(key), toString(value), expireMills) == null;
+    }
+
+    @Override
+    public long setNxOrPttl(byte[] key, byte[] value, byte[] lockSeconds) {
+        Entry holder = setIfAbsent(toString(key), toString(value), TimeUnit.SECONDS.toMillis(Long.parseLong(toString(lockSeconds))));
+        if (holder == null) {
+            return 0;
+        }
+        if (holder.expireAt == 0) {
+            return -1;
+        }
+        return Math.max(1, holder.expireAt - System.currentTimeMillis());
+    }
+
+    @Override
+    public long setNxWithFencing(String key, String value, int lockSeconds) {
+        long[] token = new long[1];
+        long now = System.currentTimeMillis();
+        data.compute(key, (k, current) -> {
+            if (current != null && !current.isExpired(now)) {
+                return current;
+            }
+            // 在同一个原子更新里生成 token，保证 token 的顺序和获取的顺序一致
+            token[0] = fencingCounters.computeIfAbsent(RedisLockClient.fencingKey(key), c -> new AtomicLong()).incrementAndGet();
+            return replace(k, current, value, now + TimeUnit.SECONDS.toMillis(lockSeconds));
+        });
+        return token[0];
+    }
+
+    @Override
+    public boolean compareAndDelete(byte[] key, byte[] value, byte[] channel) {
+        String k = toString(key);
+        if (remove(k, toString(value))) {
+            publish(k);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean[] renew(String[] keys, String[] values, long[] leaseMills) {
+        boolean[] results = new boolean[keys.length];
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < keys.length; i++) {
+            String value = values[i];
+            long expireAt = now + leaseMills[i];
+            boolean[] renewed = new boolean[1];
+            data.computeIfPresent(keys[i], (k, current) -> {
+                if (current.isExpired(now) || !current.value.equals(value)) {
+                    return current;
+                }
+                renewed[0] = true;
+                return replace(k, current, value, expireAt);
+            });
+            results[i] = renewed[0];
+        }
+        return results;
+    }
+
+    @Override
+    public String get(String key) {
+        Entry entry = data.get(key);
+        return entry == null || entry.isExpired(System.currentTimeMillis()) ? null : entry.value;
+    }
+
+    @Override
+    public void set(String key, String value) {
+        data.compute(key, (k, current) -> replace(k, current, value, 0));
+    }
+
+    @Override
+    public boolean delete(String key) {
+        return remove(key, null);
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public long acquirePermits(String key, double permitsPerSecond, double maxPermits, double initStoredPermits, int permits, long maxWaitMills) {
+        long[] result = new long[1];
+        long now = System.currentTimeMillis();
+        data.compute(key, (k, current) -> {
+            RateLimiterData limiterData = current == null || current.isExpired(now)
+                    ? RateLimiterData.of(permitsPerSecond, maxPermits, initStoredPermits, now)
+                    : RateLimiterData.of(current.value, permitsPerSecond, maxPermits, key);
+            result[0] = limiterData.take(permits, maxWaitMills, now);
+            return replace(k, current, limiterData.toArrayString(), 0);
+        });
+        return result[0];
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        listeners.add(Objects.requireNonNull(listener));
+    }
+
+    /**
+     * 当前保存的数据数量，包含已过期还未清理的
+     * @return 数量
+     */
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * 停止时间轮，清空数据
+     */
+    @Override
+    public void destroy() {
+        future.cancel(false);
+        data.clear();
+        for (Set<Entry> slot : wheel) {
+            slot.clear();
+        }
+    }
+
+    /**
+     * key 不存在或者已过期时设置
+     * @param key key
+     * @param value 值
+     * @param expireMills 过期毫秒数，0 表示不过期
+     * @return 设置成功返回 null，失败返回当前的持有者
+     */
+    private Entry setIfAbsent(String key, String value, long expireMills) {
+        long now = System.currentTimeMillis();
+        Entry[] holder = new Entry[1];
+        data.compute(key, (k, current) -> {
+            if (current != null && !current.isExpired(now)) {
+                holder[0] = current;
+                return current;
+            }
+            return replace(k, current, value, expireMills > 0 ? now + expireMills : 0);
+        });
+        return holder[0];
+    }
+
+    /**
+     * 删除未过期的数据
+     * @param key key
+     * @param value 值一致时才删除，为 null 时不比较
+     * @return 是否删除
+     */
+    private boolean remove(String key, String value) {
+        long now = System.currentTimeMillis();
+        boolean[] removed = new boolean[1];
+        data.computeIfPresent(key, (k, current) -> {
+            if (current.isExpired(now)) {
+                unschedule(current);
+                return null;
+            }
+            if (value != null && !current.value.equals(value)) {
+                return current;
+            }
+            unschedule(current);
+            removed[0] = true;
+            return null;
+        });
+        return removed[0];
+    }
+
+    /**
+     * 在原子更新中替换数据，同时调整时间轮
+     * @param key key
+     * @param current 当前数据
+     * @param value 新的值
+     * @param expireAt 过期时间点，0 表示不过期
+     * @return 新的数据
+     */
+    private Entry replace(String key, Entry current, String value, long expireAt) {
+        if (current != null) {
+            unschedule(current);
+        }
+        Entry entry = new Entry(key, value, expireAt);
+        if (expireAt != 0) {
+            // 放到向上取整的刻度，处理这个刻度时一定已经过期；已经处理过的刻度放到下一个刻度
+            long tick = Math.max((expireAt + tickMills - 1) / tickMills, nextTick);
+            entry.slot = wheel[(int) (tick % wheel.length)];
+            entry.slot.add(entry);
+        }
+        return entry;
+    }
+
+    private void unschedule(Entry entry) {
+        if (entry.slot != null) {
+            entry.slot.remove(entry);
+        }
+    }
+
+    /**
+     * 时间轮转动，清理到期的数据并通知等待者
+     */
+    private void expire() {
+        try {
+            long now = System.currentTimeMillis();
+            long currentTick = now / tickMills;
+            // 调度延迟时补上错过的刻度，最多转一圈
+            long tick = Math.max(nextTick, currentTick - wheel.length + 1);
+            for (; tick <= currentTick; tick++) {
+                Set<Entry> slot = wheel[(int) (tick % wheel.length)];
+                for (Entry entry : slot) {
+                    // 转一圈以上才到期的留在槽里
+                    if (entry.isExpired(now)) {
+                        slot.remove(entry);
+                        if (data.remove(entry.key, entry)) {
+                            publish(entry.key);
+                        }
+                    }
+                }
+                nextTick = tick + 1;
+            }
+        } catch (Exception e) {
+            log.error("内存锁存储清理过期数据失败", e);
+        }
+    }
+
+    /**
+     * 通知监听者
+     * @param key 释放或过期的 key
+     */
+    private void publish(String key) {
+        for (Consumer<String> listener : listeners) {
+            listener.accept(key);
+        }
+    }
+
+    private static String toString(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 一条数据，不可变，续期时替换
+     */
+    private static final class Entry {
+
+        private final String key;
+
+        private final String value;
+
+        /**
+         * 过期时间点，毫秒，0 表示不过期
+         */
+        private final long expireAt;
+
+        /**
+         * 所在的时间轮槽
+         */
+        private Set<Entry> slot;
+
+        Entry(String key, String value, long expireAt) {
+            this.key = key;
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        boolean isExpired(long now) {
+            return expireAt != 0 && expireAt <= now;
+        }
+    }
+
+    /**
+     * 默认刻度，毫秒
+     */
+    public static final long DEFAULT_TICK_MILLS = 100;
+
+    /**
+     * 默认槽数，默认刻度下转一圈约 51 秒
+     */
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+}
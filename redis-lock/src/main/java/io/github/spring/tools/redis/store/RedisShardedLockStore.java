@@ -0,0 +1,437 @@
+package io.github.spring.tools.redis.store;
+
+import io.github.spring.tools.redis.RedisLockClient;
+import io.github.spring.tools.redis.RedislockUtils;
+import io.github.spring.tools.redis.breaker.RedisCircuitBreaker;
+import io.github.spring.tools.redis.metrics.IRedisLockMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * 多个独立 redis 实例的分片锁存储
+ * <p>每个锁 key 通过一致性 hash 环路由到一个实例，锁的吞吐随实例数量线性增长；不是 Redis Cluster，各实例之间没有任何协调</p>
+ * <p>每个实例在环上有 {@link #DEFAULT_VIRTUAL_NODES} 个虚拟节点，位置只和实例名称有关，和顺序无关；增加一个实例时只有约 1/n 的 key 迁移到新实例。
+ * key 带有 hash tag 时只用 hash tag 路由，和 Redis Cluster 的规则一致</p>
+ * <pre>
+ * Map&lt;String, RedisTemplate&lt;String, String&gt;&gt; shards = new LinkedHashMap&lt;&gt;();
+ * shards.put("redis-a", templateA);
+ * shards.put("redis-b", templateB);
+ * RedisLockBuilder.builder("").keyPrefix("redis-lock:").buildEnv(new RedisShardedLockStore(shards));
+ * </pre>
+ * <p>和 {@link MemoryLockStore} 一样只支持普通锁、看门狗、NOTIFY 等待、fencing token 和限流器；
+ * 限流器使用第一个实例的时间，原子模式使用数据所在实例的时间。增加、减少实例后迁移的 key 的 fencing token 会从新实例的计数器继续，不再和之前的 token 比较大小</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+@Slf4j
+public class RedisShardedLockStore implements ILockStore {
+
+    /**
+     * 实例名称 -> 锁客户端
+     */
+    private final Map<String, RedisLockClient> shards;
+
+    /**
+     * 所有实例的锁客户端，和名称的顺序一致
+     */
+    private final RedisLockClient[] clients;
+
+    /**
+     * 环上虚拟节点的位置，升序
+     */
+    private final long[] ring;
+
+    /**
+     * 每个虚拟节点所属的实例在 {@link #clients} 中的下标
+     */
+    private final int[] owners;
+
+    /**
+     * 锁释放、过期的监听者
+     */
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 每个实例的订阅容器，第一次订阅时创建
+     */
+    private final List<RedisMessageListenerContainer> containers = new ArrayList<>();
+
+    /**
+     * 订阅线程，jedis 的订阅会一直阻塞线程，每个实例一个
+     */
+    private final List<ExecutorService> subscribers = new ArrayList<>();
+
+    /**
+     * 消息分发线程
+     */
+    private ExecutorService dispatcher;
+
+    /**
+     * 使用默认的虚拟节点数创建
+     * @param templates 实例名称 -> redis 客户端，名称决定实例在环上的位置，需要保持稳定
+     */
+    public RedisShardedLockStore(Map<String, RedisTemplate<String, String>> templates) {
+        this(templates, DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * 创建一个分片锁存储
+     * @param templates 实例名称 -> redis 客户端，名称决定实例在环上的位置，需要保持稳定
+     * @param virtualNodes 每个实例的虚拟节点数
+     */
+    public RedisShardedLockStore(Map<String, RedisTemplate<String, String>> templates, int virtualNodes) {
+        Objects.requireNonNull(templates);
+        Assert.isTrue(!templates.isEmpty(), "至少需要一个 redis 实例");
+        Assert.isTrue(virtualNodes > 0, "virtualNodes 必须大于0");
+        Map<String, RedisLockClient> named = new LinkedHashMap<>(templates.size() * 2);
+        templates.forEach((name, template) -> named.put(Objects.requireNonNull(name), RedisLockClient.create(Objects.requireNonNull(template))));
+        this.shards = Collections.unmodifiableMap(named);
+        this.clients = named.values().toArray(new RedisLockClient[0]);
+        String[] names = named.keySet().toArray(new String[0]);
+
+        // 位置相同时按实例名称排序，保证各个节点算出的环一致
+        long[][] points = new long[names.length * virtualNodes][];
+        for (int i = 0; i < names.length; i++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                points[i * virtualNodes + v] = new long[]{hash(RedislockUtils.stringToBytes(names[i] + "#" + v)), i};
+            }
+        }
+        Arrays.sort(points, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : names[(int) a[1]].compareTo(names[(int) b[1]]));
+        this.ring = new long[points.length];
+        this.owners = new int[points.length];
+        for (int i = 0; i < points.length; i++) {
+            ring[i] = points[i][0];
+            owners[i] = (int) points[i][1];
+        }
+    }
+
+    @Override
+    public boolean setNx(byte[] key, byte[] value, Expiration expiration) {
+        return shard(key).setNx(key, value, expiration);
+    }
+
+    @Override
+    public long setNxOrPttl(byte[] key, byte[] value, byte[] lockSeconds) {
+        return shard(key).setNxOrPttl(key, value, lockSeconds);
+    }
+
+    @Override
+    public long setNxWithFencing(String key, String value, int lockSeconds) {
+        return shard(key).setNxWithFencing(key, value, lockSeconds);
+    }
+
+    @Override
+    public boolean compareAndDelete(byte[] key, byte[] value, byte[] channel) {
+        return shard(key).compareAndDelete(key, value, channel);
+    }
+
+    /**
+     * 按实例分组续期，每个实例一次批量续期
+     * @param keys 锁 key 列表
+     * @param values 锁的值列表
+     * @param leaseMills 续期时长列表，单位毫秒
+     * @return 每个锁的续期结果
+     */
+    @Override
+    public boolean[] renew(String[] keys, String[] values, long[] leaseMills) {
+        if (clients.length == 1) {
+            return clients[0].renew(keys, values, leaseMills);
+        }
+        List<List<Integer>> groups = new ArrayList<>(clients.length);
+        for (int i = 0; i < clients.length; i++) {
+            groups.add(new ArrayList<>());
+        }
+        for (int i = 0; i < keys.length; i++) {
+            groups.get(indexOf(RedislockUtils.stringToBytes(keys[i]))).add(i);
+        }
+        boolean[] results = new boolean[keys.length];
+        for (int s = 0; s < clients.length; s++) {
+            List<Integer> group = groups.get(s);
+            if (group.isEmpty()) {
+                continue;
+            }
+            String[] groupKeys = new String[group.size()];
+            String[] groupValues = new String[group.size()];
+            long[] groupLeases = new long[group.size()];
+            for (int i = 0; i < group.size(); i++) {
+                groupKeys[i] = keys[group.get(i)];
+                groupValues[i] = values[group.get(i)];
+                groupLeases[i] = leaseMills[group.get(i)];
+            }
+            boolean[] renewed = clients[s].renew(groupKeys, groupValues, groupLeases);
+            for (int i = 0; i < group.size(); i++) {
+                results[group.get(i)] = renewed[i];
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public String get(String key) {
+        return shard(key).get(key);
+    }
+
+    @Override
+    public void set(String key, String value) {
+        shard(key).set(key, value);
+    }
+
+    @Override
+    public boolean delete(String key) {
+        return shard(key).delete(key);
+    }
+
+    /**
+     * 第一个实例的时间，所有节点都以它对时
+     * @return 毫秒
+     */
+    @Override
+    public long currentTimeMillis() {
+        return clients[0].currentTimeMillis();
+    }
+
+    /**
+     * 令牌桶在限流数据所在的实例上执行，使用该实例的时间
+     */
+    @Override
+    public long acquirePermits(String key, double permitsPerSecond, double maxPermits, double initStoredPermits, int permits, long maxWaitMills) {
+        return shard(key).acquirePermits(key, permitsPerSecond, maxPermits, initStoredPermits, permits, maxWaitMills);
+    }
+
+    /**
+     * 订阅所有实例的锁释放频道和 key 过期事件，过期事件需要 redis 开启 notify-keyspace-events Ex
+     * <p>每个实例的订阅只分发路由到该实例的 key，多个分片共用一个 redis 服务（例如不同的库）时同一条消息不会重复分发</p>
+     * @param listener 参数为释放或者过期的锁 key
+     */
+    @Override
+    public synchronized void subscribe(Consumer<String> listener) {
+        listeners.add(Objects.requireNonNull(listener));
+        if (!containers.isEmpty()) {
+            return;
+        }
+        dispatcher = newDaemonExecutor("redis-lock-sharded-notifier");
+        for (int i = 0; i < clients.length; i++) {
+            int shard = i;
+            MessageListener messageListener = (message, pattern) -> onMessage(shard, message);
+            ExecutorService subscriber = newDaemonExecutor("redis-lock-sharded-subscriber");
+            RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+            container.setConnectionFactory(clients[i].getRedisTemplate().getConnectionFactory());
+            container.setTaskExecutor(dispatcher);
+            container.setSubscriptionExecutor(subscriber);
+            container.addMessageListener(messageListener, Arrays.asList(new PatternTopic(RedisLockClient.RELEASE_CHANNEL_PREFIX + "*"),
+                    new PatternTopic(RedisLockClient.EXPIRED_CHANNEL_PATTERN)));
+            container.afterPropertiesSet();
+            container.start();
+            subscribers.add(subscriber);
+            containers.add(container);
+        }
+    }
+
+    @Override
+    public void setMetrics(IRedisLockMetrics metrics) {
+        for (RedisLockClient client : clients) {
+            client.setMetrics(metrics);
+        }
+    }
+
+    /**
+     * 所有实例共用一个熔断器，任一实例故障都会计入
+     * @param circuitBreaker 熔断器
+     */
+    @Override
+    public void setCircuitBreaker(RedisCircuitBreaker circuitBreaker) {
+        for (RedisLockClient client : clients) {
+            client.setCircuitBreaker(circuitBreaker);
+        }
+    }
+
+    /**
+     * 获取 key 所在的实例名称
+     * @param key 锁 key
+     * @return 实例名称
+     */
+    public String shardOf(String key) {
+        RedisLockClient client = shard(key);
+        for (Map.Entry<String, RedisLockClient> entry : shards.entrySet()) {
+            if (entry.getValue() == client) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException(key);
+    }
+
+    /**
+     * 获取所有实例
+     * @return 实例名称 -> 锁客户端
+     */
+    public Map<String, RedisLockClient> getShards() {
+        return shards;
+    }
+
+    /**
+     * 获取每个实例的订阅容器，还没有订阅时为空
+     * @return 实例名称 -> 订阅容器
+     */
+    public synchronized Map<String, RedisMessageListenerContainer> getContainers() {
+        Map<String, RedisMessageListenerContainer> named = new LinkedHashMap<>(containers.size() * 2);
+        Iterator<String> names = shards.keySet().iterator();
+        for (RedisMessageListenerContainer container : containers) {
+            named.put(names.next(), container);
+        }
+        return named;
+    }
+
+    /**
+     * 停止订阅
+     * <p>使用这个存储的 {@link io.github.spring.tools.redis.RedisLockEnvironment#destroy()} 会调用这个方法</p>
+     */
+    @Override
+    public synchronized void destroy() {
+        for (RedisMessageListenerContainer container : containers) {
+            try {
+                container.destroy();
+            } catch (Exception e) {
+                log.error("redis sharded lock store 关闭订阅失败", e);
+            }
+        }
+        containers.clear();
+        subscribers.forEach(ExecutorService::shutdownNow);
+        subscribers.clear();
+        if (dispatcher != null) {
+            dispatcher.shutdownNow();
+            dispatcher = null;
+        }
+    }
+
+    /**
+     * 分发一个实例收到的释放消息和过期事件，不属于该实例的 key 由所在实例的订阅分发
+     * @param shard 收到消息的实例在 {@link #clients} 中的下标
+     * @param message 消息
+     */
+    private void onMessage(int shard, Message message) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        // 释放频道的 key 在频道名中，过期事件的 key 在消息体中
+        String key = channel.startsWith(RedisLockClient.RELEASE_CHANNEL_PREFIX)
+                ? channel.substring(RedisLockClient.RELEASE_CHANNEL_PREFIX.length())
+                : new String(message.getBody(), StandardCharsets.UTF_8);
+        if (indexOf(RedislockUtils.stringToBytes(key)) != shard) {
+            return;
+        }
+        for (Consumer<String> listener : listeners) {
+            listener.accept(key);
+        }
+    }
+
+    private RedisLockClient shard(String key) {
+        return clients[indexOf(RedislockUtils.stringToBytes(key))];
+    }
+
+    private RedisLockClient shard(byte[] key) {
+        return clients[indexOf(key)];
+    }
+
+    /**
+     * 顺时针找到第一个虚拟节点
+     * @param key key 的 UTF-8 编码
+     * @return 实例下标
+     */
+    private int indexOf(byte[] key) {
+        if (clients.length == 1) {
+            return 0;
+        }
+        int index = Arrays.binarySearch(ring, routingHash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == ring.length ? 0 : index];
+    }
+
+    /**
+     * 计算 key 的路由 hash，带有 hash tag 时只计算 hash tag
+     * @param key key 的 UTF-8 编码
+     * @return hash
+     */
+    static long routingHash(byte[] key) {
+        int start = -1;
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] == '{') {
+                start = i;
+                break;
+            }
+        }
+        if (start >= 0) {
+            for (int end = start + 1; end < key.length; end++) {
+                if (key[end] == '}') {
+                    if (end > start + 1) {
+                        return hash(key, start + 1, end);
+                    }
+                    break;
+                }
+            }
+        }
+        return hash(key, 0, key.length);
+    }
+
+    private static long hash(byte[] bytes) {
+        return hash(bytes, 0, bytes.length);
+    }
+
+    /**
+     * 64 位 FNV-1a，最后做一次 murmur3 的混淆，让相近的 key 分散到环上
+     * @param bytes 字节
+     * @param from 开始下标
+     * @param to 结束下标，不包含
+     * @return hash
+     */
+    private static long hash(byte[] bytes, int from, int to) {
+        long h = FNV_OFFSET_BASIS;
+        for (int i = from; i < to; i++) {
+            h ^= bytes[i] & 0xff;
+            h *= FNV_PRIME;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static ExecutorService newDaemonExecutor(String name) {
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 默认每个实例的虚拟节点数
+     */
+    public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+}
@@ -0,0 +1,94 @@
+package io.github.spring.tools.redis;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.data.redis.core.types.Expiration;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * 热点路径内存分配测试类
+ * <p>以直接调用客户端的字节接口为基线，锁本身在获取、释放上额外分配的内存需要在很小的范围内</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class AllocationTest extends AbsLockTest {
+
+    private static final String ALLOCATION_KEY = LOCK_KEY + "-allocation";
+
+    private static final int WARM_UP = 2000;
+
+    private static final int ROUNDS = 1000;
+
+    /**
+     * 每次获取加释放，锁比基线多分配的字节数上限
+     */
+    private static final long MAX_OVERHEAD_BYTES = 256;
+
+    /**
+     * 生成锁的值只分配结果字符串
+     */
+    @Test
+    public void testTokens() {
+        for (int i = 0; i < WARM_UP; i++) {
+            RedisLockTokens.next();
+        }
+        long start = allocatedBytes();
+        for (int i = 0; i < ROUNDS; i++) {
+            RedisLockTokens.next();
+        }
+        long perToken = (allocatedBytes() - start) / ROUNDS;
+        Assert.assertTrue("perToken=" + perToken, perToken <= 256);
+        Assert.assertNotEquals(RedisLockTokens.next(), RedisLockTokens.next());
+    }
+
+    /**
+     * 同一个锁实例反复获取、释放
+     */
+    @Test
+    public void testLockOverhead() {
+        RedisLockClient client = RedisLockEnvironment.getInstance().getLockClient();
+        IRedisLock lock = RedisLockBuilder.builder(ALLOCATION_KEY).build();
+        byte[] key = RedislockUtils.stringToBytes(lock.getKey());
+        byte[] value = RedislockUtils.stringToBytes(RedisLockTokens.next());
+        byte[] channel = RedislockUtils.stringToBytes(RedisLockClient.releaseChannel(lock.getKey()));
+        Expiration expiration = Expiration.seconds(lock.getLockSeconds());
+
+        Runnable baseline = () -> {
+            Assert.assertTrue(client.setNx(key, value, expiration));
+            Assert.assertTrue(client.releaseByLua(key, value, channel));
+        };
+        Runnable locking = () -> {
+            Assert.assertTrue(lock.tryLock());
+            lock.unlock();
+        };
+        // 交替预热，让两条路径都完成 JIT
+        for (int i = 0; i < WARM_UP; i++) {
+            baseline.run();
+            locking.run();
+        }
+        long baselineBytes = perOperation(baseline);
+        long lockBytes = perOperation(locking);
+        Assert.assertTrue(String.format("lock=%s baseline=%s", lockBytes, baselineBytes), lockBytes - baselineBytes <= MAX_OVERHEAD_BYTES);
+    }
+
+    /**
+     * 每次操作分配的字节数，取多次测量的最小值，排除 JIT 编译完成前的干扰
+     */
+    private long perOperation(Runnable operation) {
+        long min = Long.MAX_VALUE;
+        for (int times = 0; times < 5; times++) {
+            long start = allocatedBytes();
+            for (int i = 0; i < ROUNDS; i++) {
+                operation.run();
+            }
+            min = Math.min(min, (allocatedBytes() - start) / ROUNDS);
+        }
+        return min;
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
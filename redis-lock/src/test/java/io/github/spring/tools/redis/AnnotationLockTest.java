@@ -33,6 +33,15 @@ public class AnnotationLockTest extends AbsLockTest{
         assertEquals(String.format("成功->姓名:%s，年龄:%s", PARAM_NAME, PARAM_AGE), demoService.sayHello(PARAM_NAME, PARAM_AGE));
     }
 
+    /**
+     * 获取锁成功时方法只执行一次
+     */
+    @Test
+    public void testExecuteOnce(){
+        int count = demoService.count();
+        assertEquals(count + 1, demoService.count());
+    }
+
     /**
      * 测试执行失败
      */
@@ -0,0 +1,112 @@
+package io.github.spring.tools.redis;
+
+import io.github.spring.tools.redis.exception.TimeoutLockException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步锁测试类
+ * <p>测试 CompletableFuture 方式获取、释放和执行</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class AsyncLockTest extends AbsLockTest {
+
+    private static final String ASYNC_KEY = LOCK_KEY + "-async";
+
+    /**
+     * 异步获取后可以在其他线程释放
+     */
+    @Test
+    public void testTryLockAsync() throws Exception {
+        IRedisLock lock = RedisLockBuilder.builder(ASYNC_KEY).build();
+        Assert.assertTrue(lock.tryLockAsync(1, TimeUnit.SECONDS).get());
+        Assert.assertFalse(RedisLockBuilder.builder(ASYNC_KEY).build().tryLockAsync(300, TimeUnit.MILLISECONDS).get());
+        lock.unlockAsync().get();
+        Assert.assertEquals(RedisLockReleaseStatus.SUCCESS, lock.getReleaseStatus());
+        Assert.assertTrue(async(() -> {
+            IRedisLock other = RedisLockBuilder.builder(ASYNC_KEY).build();
+            try {
+                return other.tryLock();
+            } finally {
+                other.unlock();
+            }
+        }));
+    }
+
+    /**
+     * 等待期间锁被释放，重试获取成功
+     */
+    @Test
+    public void testRetry() throws Exception {
+        IRedisLock lock = RedisLockBuilder.builder(ASYNC_KEY).build();
+        Assert.assertTrue(lock.tryLock());
+        IRedisLock waitLock = RedisLockBuilder.builder(ASYNC_KEY).build();
+        CompletableFuture<Boolean> waiter = waitLock.tryLockAsync(3, TimeUnit.SECONDS);
+        Thread.sleep(300);
+        Assert.assertFalse(waiter.isDone());
+        lock.unlock();
+        Assert.assertTrue(waiter.get());
+        waitLock.unlockAsync().get();
+    }
+
+    /**
+     * 异步执行，获取失败时降级或者以超时异常结束
+     */
+    @Test
+    public void testExecuteAsync() throws Exception {
+        Assert.assertEquals("done", RedisLockBuilder.builder(ASYNC_KEY).build().executeAsync(() -> "done", 1, TimeUnit.SECONDS).get());
+        IRedisLock lock = RedisLockBuilder.builder(ASYNC_KEY).build();
+        Assert.assertTrue(lock.tryLock());
+        try {
+            Assert.assertEquals("fault", RedisLockBuilder.builder(ASYNC_KEY).build().executeAsync(() -> "done", () -> "fault", 0, TimeUnit.SECONDS).get());
+            try {
+                RedisLockBuilder.builder(ASYNC_KEY).build().executeAsync(() -> "done", 0, TimeUnit.SECONDS).get();
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof TimeoutLockException);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * NOTIFY 等待模式收到释放通知后立即重试，不等兜底间隔
+     */
+    @Test
+    public void testNotify() throws Exception {
+        IRedisLock lock = RedisLockBuilder.builder(ASYNC_KEY).build();
+        Assert.assertTrue(lock.tryLock());
+        IRedisLock waitLock = RedisLockBuilder.builder(ASYNC_KEY).waitMode(RedisLockWaitMode.NOTIFY).build();
+        CompletableFuture<Boolean> waiter = waitLock.tryLockAsync(3, TimeUnit.SECONDS);
+        Thread.sleep(300);
+        Assert.assertFalse(waiter.isDone());
+        lock.unlock();
+        Assert.assertTrue(waiter.get(500, TimeUnit.MILLISECONDS));
+        waitLock.unlockAsync().get();
+    }
+
+    /**
+     * 回调不在锁内部的工作线程池中执行，可以指定线程池
+     */
+    @Test
+    public void testCallbackExecutor() throws Exception {
+        String thread = RedisLockBuilder.builder(ASYNC_KEY).build().executeAsync(() -> Thread.currentThread().getName(), 1, TimeUnit.SECONDS).get();
+        Assert.assertTrue(thread, thread.startsWith("redis-lock-callback-"));
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "async-test-callback"));
+        try {
+            Assert.assertEquals("async-test-callback", RedisLockBuilder.builder(ASYNC_KEY).build()
+                    .executeAsync(() -> Thread.currentThread().getName(), null, null, 1, TimeUnit.SECONDS, executor).get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package io.github.spring.tools.redis;
+
+import io.github.spring.tools.redis.concurrent.RedisRateLimiter;
+import io.github.spring.tools.redis.store.MemoryLockStore;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 原子模式限流器测试类
+ * <p>补充、检查和消费一次完成，不加分布式锁</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class AtomicRateLimiterTest extends AbsLockTest {
+
+    private static final String LIMITER_KEY = LOCK_KEY + "-atomic-limiter";
+
+    private static final String MEMORY = "atomic-limiter-memory";
+
+    private final AtomicInteger storeCalls = new AtomicInteger();
+
+    private final AtomicInteger lockCalls = new AtomicInteger();
+
+    private MemoryLockStore store;
+
+    private RedisLockEnvironment environment;
+
+    @Before
+    public void initStore() {
+        store = new MemoryLockStore() {
+
+            @Override
+            public long acquirePermits(String key, double permitsPerSecond, double maxPermits, double initStoredPermits, int permits, long maxWaitMills) {
+                storeCalls.incrementAndGet();
+                return super.acquirePermits(key, permitsPerSecond, maxPermits, initStoredPermits, permits, maxWaitMills);
+            }
+
+            @Override
+            public long setNxOrPttl(byte[] key, byte[] value, byte[] lockSeconds) {
+                lockCalls.incrementAndGet();
+                return super.setNxOrPttl(key, value, lockSeconds);
+            }
+
+            @Override
+            public String get(String key) {
+                lockCalls.incrementAndGet();
+                return super.get(key);
+            }
+        };
+        environment = RedisLockBuilder.builder("").keyPrefix("atomic-limiter:").buildEnv(MEMORY, store);
+    }
+
+    @After
+    public void destroyStore() {
+        environment.destroy();
+        store.destroy();
+    }
+
+    /**
+     * redis 上一次脚本完成获取、预支等待和取走所有令牌
+     */
+    @Test
+    public void testRedis() throws Exception {
+        RedisRateLimiter limiter = RedisRateLimiter.create(LIMITER_KEY + Math.random(), 10, 1.0).atomic(true);
+        assertAcquire(limiter);
+        Assert.assertFalse(RedisRateLimiter.create(LIMITER_KEY + Math.random(), 10, 1.0, 0).atomic(true).tryAcquire(4));
+    }
+
+    /**
+     * 使用 RedisTemplate 的锁客户端执行相同的脚本
+     */
+    @Test
+    public void testTemplateClient() {
+        RedisLockClient client = new RedisLockClient(RedisLockEnvironment.getInstance().getRedisTemplate());
+        String key = LIMITER_KEY + Math.random();
+        try {
+            Assert.assertEquals(0, client.acquirePermits(key, 10, 10, 10, 10, 0));
+            Assert.assertEquals(-1, client.acquirePermits(key, 10, 10, 10, 5, 0));
+            long waitMills = client.acquirePermits(key, 10, 10, 10, 5, 1000);
+            Assert.assertTrue("wait=" + waitMills, waitMills > 300 && waitMills <= 500);
+            Assert.assertEquals(0, client.acquirePermits(key, 10, 10, 10, -1, 0));
+        } finally {
+            client.delete(key);
+        }
+    }
+
+    /**
+     * 内存存储每次获取只访问一次存储，不加锁
+     */
+    @Test
+    public void testMemory() throws Exception {
+        RedisRateLimiter limiter = RedisRateLimiter.create(MEMORY, LIMITER_KEY, 10, 1.0, 1.0).atomic(true);
+        assertAcquire(limiter);
+        Assert.assertEquals(5, storeCalls.get());
+        Assert.assertEquals(0, lockCalls.get());
+    }
+
+    /**
+     * 并发获取时发放的令牌不超过桶的容量
+     */
+    @Test
+    public void testConcurrent() throws Exception {
+        RedisRateLimiter limiter = RedisRateLimiter.create(LIMITER_KEY + Math.random(), 10, 1.0).atomic(true);
+        AtomicInteger acquired = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    if (limiter.tryAcquire(1)) {
+                        acquired.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertTrue("acquired=" + acquired.get(), acquired.get() >= 10 && acquired.get() <= 11);
+    }
+
+    private void assertAcquire(RedisRateLimiter limiter) throws Exception {
+        Assert.assertTrue(limiter.tryAcquire(10));
+        Assert.assertFalse(limiter.tryAcquire(5));
+        long start = System.currentTimeMillis();
+        Assert.assertTrue(limiter.tryAcquire(5, 2, TimeUnit.SECONDS));
+        long waited = System.currentTimeMillis() - start;
+        Assert.assertTrue("waited=" + waited, waited >= 300 && waited < 1000);
+        // 超时时间内不够，不等待
+        start = System.currentTimeMillis();
+        Assert.assertFalse(limiter.tryAcquire(31, 2, TimeUnit.SECONDS));
+        Assert.assertTrue(System.currentTimeMillis() - start < 300);
+        Thread.sleep(1100);
+        long permits = limiter.tryGetAllPermits();
+        Assert.assertTrue("permits=" + permits, permits >= 9 && permits <= 10);
+    }
+}
@@ -0,0 +1,92 @@
+package io.github.spring.tools.redis;
+
+import io.github.spring.tools.redis.backoff.AdaptiveBackoffStrategy;
+import io.github.spring.tools.redis.capable.ILockWritable;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.types.Expiration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 退避策略测试类
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class BackoffTest extends AbsLockTest {
+
+    private static final String BACKOFF_KEY = LOCK_KEY + "-backoff";
+
+    /**
+     * 获取失败时返回持有者剩余的租约
+     */
+    @Test
+    public void testSetNxOrPttl() {
+        RedisLockClient client = RedisLockEnvironment.getInstance().getLockClient();
+        String key = BACKOFF_KEY + "-pttl";
+        byte[] keyBytes = RedislockUtils.stringToBytes(key);
+        byte[] seconds = RedislockUtils.stringToBytes("10");
+        try {
+            Assert.assertEquals(0, client.setNxOrPttl(keyBytes, RedislockUtils.stringToBytes("a"), seconds));
+            long ttl = client.setNxOrPttl(keyBytes, RedislockUtils.stringToBytes("b"), seconds);
+            Assert.assertTrue("ttl=" + ttl, ttl > 9000 && ttl <= 10000);
+            // 没有过期时间的 key
+            setRaw(keyBytes, Expiration.persistent());
+            Assert.assertEquals(-1, client.setNxOrPttl(keyBytes, RedislockUtils.stringToBytes("b"), seconds));
+        } finally {
+            RedisLockEnvironment.getInstance().getRedisTemplate().execute((RedisConnection connection) -> connection.del(keyBytes));
+        }
+    }
+
+    /**
+     * 持有者过期前不会多睡，租约到期后立即获取
+     */
+    @Test
+    public void testWakeAtExpiry() throws Exception {
+        IRedisLock lock = RedisLockBuilder.builder(BACKOFF_KEY).sleepMinMills(3000).sleepMaxMills(4000).spinTimes(1).build();
+        // 其他进程持有 300 毫秒，没有释放通知
+        setRaw(RedislockUtils.stringToBytes(lock.getKey()), Expiration.milliseconds(300));
+        long start = System.currentTimeMillis();
+        Assert.assertTrue(lock.tryLock(5, TimeUnit.SECONDS));
+        long waited = System.currentTimeMillis() - start;
+        lock.unlock();
+        Assert.assertTrue("waited=" + waited, waited < 1500);
+    }
+
+    /**
+     * 自适应退避：指数增长、不超过剩余租约、按持有时长估计起点
+     */
+    @Test
+    public void testAdaptive() throws Exception {
+        AdaptiveBackoffStrategy strategy = new AdaptiveBackoffStrategy();
+        IRedisLock lock = RedisLockBuilder.builder(BACKOFF_KEY + "-adaptive").sleepMinMills(10).sleepMaxMills(1000).backoff(strategy).build();
+        ILockWritable writable = (ILockWritable) RedisLockBuilder.builder(BACKOFF_KEY + "-adaptive").sleepMinMills(10).sleepMaxMills(1000).build();
+        String key = lock.getKey();
+
+        for (int i = 0; i < 100; i++) {
+            long first = strategy.nextSleepMills(key, writable, 1, -1);
+            Assert.assertTrue(first >= 5 && first <= 10);
+            long fifth = strategy.nextSleepMills(key, writable, 5, -1);
+            Assert.assertTrue(fifth >= 80 && fifth <= 160);
+            Assert.assertTrue(strategy.nextSleepMills(key, writable, 30, -1) <= 1000);
+            Assert.assertEquals(3, strategy.nextSleepMills(key, writable, 30, 3));
+        }
+
+        // 释放后记录持有时长
+        Assert.assertTrue(lock.tryLock());
+        Thread.sleep(200);
+        lock.unlock();
+        long expected = strategy.getExpectedHoldMills(key);
+        Assert.assertTrue("expected=" + expected, expected >= 200 && expected < 1000);
+        long first = strategy.nextSleepMills(key, writable, 1, -1);
+        Assert.assertTrue("first=" + first, first >= expected / 4 && first <= expected / 2);
+    }
+
+    private void setRaw(byte[] key, Expiration expiration) {
+        RedisLockEnvironment.getInstance().getRedisTemplate().execute((RedisConnection connection) ->
+                connection.set(key, RedislockUtils.stringToBytes("other"), expiration, RedisStringCommands.SetOption.UPSERT));
+    }
+}
@@ -0,0 +1,116 @@
+package io.github.spring.tools.redis;
+
+import io.github.spring.tools.redis.capable.ILockWritable;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量锁测试类
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class BulkLockTest extends AbsLockTest {
+
+    private static final String BULK_KEY = LOCK_KEY + "-bulk:";
+
+    private static final int SIZE = RedisBulkLock.BATCH_SIZE * 2 + 500;
+
+    private List<String> keys() {
+        List<String> keys = new ArrayList<>(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            keys.add(BULK_KEY + i);
+        }
+        return keys;
+    }
+
+    /**
+     * 被他人持有的 key 单独列出，其余全部获取成功
+     */
+    @Test
+    public void testPartial() {
+        IRedisLock held = RedisLockBuilder.builder(BULK_KEY + 7).build();
+        Assert.assertTrue(held.tryLock());
+        RedisBulkLock bulk = RedisBulkLock.create();
+        BulkLockResult result;
+        try {
+            result = bulk.tryLock(keys());
+            Assert.assertFalse(result.isAllAcquired());
+            Assert.assertEquals(Collections.singletonList(BULK_KEY + 7), result.getMissed());
+            Assert.assertEquals(SIZE - 1, result.getAcquired().size());
+
+            // 第二次批量获取全部失败
+            BulkLockResult other = RedisBulkLock.create().tryLock(keys());
+            Assert.assertTrue(other.getAcquired().isEmpty());
+            Assert.assertTrue(RedisBulkLock.create().unlock(other).isEmpty());
+        } finally {
+            held.unlock();
+        }
+        Assert.assertTrue(bulk.unlock(result).isEmpty());
+
+        // 释放后可以全部获取
+        BulkLockResult again = bulk.tryLock(keys());
+        Assert.assertTrue(again.isAllAcquired());
+        Assert.assertTrue(bulk.unlock(again).isEmpty());
+    }
+
+    /**
+     * 锁被他人替换后释放失败
+     */
+    @Test
+    public void testLost() {
+        RedisBulkLock bulk = RedisBulkLock.create();
+        BulkLockResult result = bulk.tryLock(keys().subList(0, 10));
+        Assert.assertTrue(result.isAllAcquired());
+        RedisLockClient client = new RedisLockClient(RedisLockEnvironment.getInstance().getRedisTemplate());
+        String lockKey = RedisLockEnvironment.getInstance().mergeKey(BULK_KEY + 3, null);
+        Assert.assertTrue(client.releaseByLua(lockKey, result.getValue()));
+        Assert.assertEquals(Collections.singletonList(BULK_KEY + 3), bulk.unlock(result));
+    }
+
+    /**
+     * 后面的批次失败时，前面批次获取的 key 全部释放
+     */
+    @Test
+    public void testBatchFailure() {
+        RedisBulkLock bulk = new RedisBulkLock(ILockWritable.DEFAULT_LOCK_SECONDS, new FailingClient(RedisLockEnvironment.getInstance().getRedisTemplate(), 2));
+        try {
+            bulk.tryLock(keys());
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("batch failed", e.getMessage());
+        }
+        BulkLockResult result = RedisBulkLock.create().tryLock(keys());
+        Assert.assertTrue(result.isAllAcquired());
+        Assert.assertTrue(RedisBulkLock.create().unlock(result).isEmpty());
+    }
+
+    /**
+     * 第 n 次批量获取时抛出异常的客户端
+     */
+    private static class FailingClient extends RedisLockClient {
+
+        private final AtomicInteger batches = new AtomicInteger();
+
+        private final int failAt;
+
+        FailingClient(RedisTemplate<String, String> redisTemplate, int failAt) {
+            super(redisTemplate);
+            this.failAt = failAt;
+        }
+
+        @Override
+        public boolean[] setNxBatch(String[] keys, String value, int lockSeconds) {
+            if (batches.incrementAndGet() == failAt) {
+                throw new IllegalStateException("batch failed");
+            }
+            return super.setNxBatch(keys, value, lockSeconds);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package io.github.spring.tools.redis;
+
+import io.github.spring.tools.redis.breaker.RedisCircuitBreaker;
+import io.github.spring.tools.redis.concurrent.RedisRateLimiter;
+import io.github.spring.tools.redis.concurrent.RedisSemaphore;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * redis 熔断测试类
+ * <p>不可用的 redis 使用没有监听的端口，连接立即被拒绝</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class CircuitBreakerTest extends AbsLockTest {
+
+    private static final String BREAKER_KEY = LOCK_KEY + "-breaker";
+
+    private static final String DOWN = "breaker-down";
+
+    private static final String RECOVER = "breaker-recover";
+
+    private static final String OPEN = "breaker-open";
+
+    private LettuceConnectionFactory factory;
+
+    private RedisCircuitBreaker downBreaker;
+
+    private RedisCircuitBreaker recoverBreaker;
+
+    private RedisLockEnvironment down;
+
+    private RedisLockEnvironment recover;
+
+    private RedisLockEnvironment open;
+
+    @Before
+    public void initEnvironment() {
+        factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", 6399));
+        factory.afterPropertiesSet();
+        downBreaker = new RedisCircuitBreaker(50, 80, 1000, 3, 10, 60000, 1);
+        down = RedisLockBuilder.builder("").keyPrefix("breaker-lock").circuitBreaker(downBreaker).buildEnv(DOWN, new StringRedisTemplate(factory));
+        recoverBreaker = new RedisCircuitBreaker(50, 80, 1000, 3, 10, 200, 2);
+        recover = RedisLockBuilder.builder("").keyPrefix("breaker-lock").circuitBreaker(recoverBreaker).buildEnv(RECOVER, RedisLockEnvironment.getInstance().getRedisTemplate());
+        open = RedisLockBuilder.builder("").keyPrefix("breaker-lock").circuitBreaker(new RedisCircuitBreaker(50, 80, 1000, 1, 10, 60000, 1))
+                .buildEnv(OPEN, RedisLockEnvironment.getInstance().getRedisTemplate());
+        open.getCircuitBreaker().record(1000, true);
+    }
+
+    @After
+    public void destroyEnvironment() {
+        down.destroy();
+        recover.destroy();
+        open.destroy();
+        factory.destroy();
+    }
+
+    /**
+     * 失败率、慢调用率打开，半开探测后关闭或者重新打开
+     */
+    @Test
+    public void testStates() throws Exception {
+        RedisCircuitBreaker breaker = new RedisCircuitBreaker(50, 80, 100, 4, 10, 200, 2);
+        for (int i = 0; i < 3; i++) {
+            breaker.record(1000, true);
+        }
+        // 调用数不足
+        Assert.assertEquals(RedisCircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.record(1000, true);
+        Assert.assertEquals(RedisCircuitBreaker.State.OPEN, breaker.getState());
+        Assert.assertFalse(breaker.allowRequest());
+
+        Thread.sleep(250);
+        Assert.assertTrue(breaker.allowRequest());
+        Assert.assertTrue(breaker.allowRequest());
+        Assert.assertFalse(breaker.allowRequest());
+        Assert.assertEquals(RedisCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.record(1000, false);
+        breaker.record(1000, false);
+        Assert.assertEquals(RedisCircuitBreaker.State.CLOSED, breaker.getState());
+
+        // 慢调用
+        long slowNanos = TimeUnit.MILLISECONDS.toNanos(150);
+        for (int i = 0; i < 4; i++) {
+            breaker.record(i == 0 ? 1000 : slowNanos, false);
+        }
+        Assert.assertEquals(RedisCircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.record(slowNanos, false);
+        Assert.assertEquals(RedisCircuitBreaker.State.OPEN, breaker.getState());
+
+        // 探测失败重新打开
+        Thread.sleep(250);
+        Assert.assertTrue(breaker.allowRequest());
+        breaker.record(1000, true);
+        Assert.assertEquals(RedisCircuitBreaker.State.OPEN, breaker.getState());
+        Assert.assertFalse(breaker.allowRequest());
+    }
+
+    /**
+     * 半开期间只统计放行的探测，其他线程没有经过放行的调用不会关闭或者重新打开
+     */
+    @Test
+    public void testAdmittedProbes() throws Exception {
+        RedisCircuitBreaker breaker = new RedisCircuitBreaker(50, 80, 100, 1, 10, 200, 1);
+        breaker.record(1000, true);
+        Assert.assertEquals(RedisCircuitBreaker.State.OPEN, breaker.getState());
+
+        Thread.sleep(250);
+        Assert.assertTrue(breaker.allowRequest());
+        Assert.assertEquals(RedisCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        async(() -> {
+            breaker.record(1000, false);
+            breaker.record(1000, true);
+            return null;
+        });
+        Assert.assertEquals(RedisCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.record(1000, false);
+        Assert.assertEquals(RedisCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    /**
+     * redis 不可用时打开，之后快速失败，不再等待
+     */
+    @Test
+    public void testFailFast() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            Assert.assertFalse(RedisLockBuilder.builder(BREAKER_KEY).environment(DOWN).build().tryLock());
+        }
+        Assert.assertEquals(RedisCircuitBreaker.State.OPEN, downBreaker.getState());
+
+        IRedisLock lock = RedisLockBuilder.builder(BREAKER_KEY).environment(DOWN).waitMode(RedisLockWaitMode.NOTIFY).build();
+        long start = System.currentTimeMillis();
+        Assert.assertFalse(lock.tryLock(3, TimeUnit.SECONDS));
+        Assert.assertTrue(System.currentTimeMillis() - start < 500);
+        Assert.assertEquals(RedisLockStatus.TIMEOUT, lock.getStatus());
+    }
+
+    /**
+     * 降级为本地锁，进程内互斥，看门狗使用本地存储续期
+     */
+    @Test
+    public void testLocal() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            RedisLockBuilder.builder(BREAKER_KEY).environment(DOWN).build().tryLock();
+        }
+        IRedisLock lock = RedisLockBuilder.builder(BREAKER_KEY).environment(DOWN).lockSeconds(1).watchdog(true)
+                .degradePolicy(RedisLockDegradePolicy.LOCAL).build();
+        Assert.assertTrue(lock.tryLock());
+        Thread.sleep(1500);
+        Assert.assertFalse(async(() -> RedisLockBuilder.builder(BREAKER_KEY).environment(DOWN).degradePolicy(RedisLockDegradePolicy.LOCAL).build().tryLock()));
+        lock.unlock();
+        Assert.assertEquals(RedisLockReleaseStatus.SUCCESS, lock.getReleaseStatus());
+        Assert.assertEquals(0, down.getLocalStore().size());
+
+        IRedisLock local = RedisLockBuilder.builder(BREAKER_KEY).environment(DOWN).degradePolicy(RedisLockDegradePolicy.LOCAL).build();
+        Assert.assertTrue(local.tryLock(1, TimeUnit.SECONDS));
+        local.unlock();
+    }
+
+    /**
+     * 打开时间到后探测成功，恢复使用 redis
+     */
+    @Test
+    public void testRecover() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            recoverBreaker.record(1000, true);
+        }
+        Assert.assertEquals(RedisCircuitBreaker.State.OPEN, recoverBreaker.getState());
+        Assert.assertFalse(RedisLockBuilder.builder(BREAKER_KEY).environment(RECOVER).build().tryLock());
+
+        Thread.sleep(250);
+        IRedisLock lock = RedisLockBuilder.builder(BREAKER_KEY).environment(RECOVER).build();
+        Assert.assertTrue(lock.tryLock());
+        Assert.assertNotNull(recover.getLockClient().get(lock.getKey()));
+        lock.unlock();
+        Assert.assertEquals(RedisLockReleaseStatus.SUCCESS, lock.getReleaseStatus());
+        Assert.assertEquals(RedisCircuitBreaker.State.CLOSED, recoverBreaker.getState());
+    }
+
+    /**
+     * 熔断中所有依赖 redis 的锁和工具都快速失败，redis 可用也不访问；公平锁、多 key 锁、读写锁不降级为本地锁
+     */
+    @Test
+    public void testFailFastAll() throws Exception {
+        Assert.assertEquals(RedisCircuitBreaker.State.OPEN, open.getCircuitBreaker().getState());
+        long start = System.currentTimeMillis();
+        Assert.assertFalse(RedisLockBuilder.builder(BREAKER_KEY).environment(OPEN).fair(true).degradePolicy(RedisLockDegradePolicy.LOCAL).build().tryLock(1, TimeUnit.SECONDS));
+        Assert.assertFalse(RedisLockBuilder.multiBuilder(BREAKER_KEY + "-a", BREAKER_KEY + "-b").environment(OPEN).degradePolicy(RedisLockDegradePolicy.LOCAL).build().tryLock(1, TimeUnit.SECONDS));
+        RedisReadWriteLock readWriteLock = RedisLockBuilder.builder(BREAKER_KEY).environment(OPEN).buildReadWriteLock();
+        Assert.assertFalse(readWriteLock.readLock().tryLock(1, TimeUnit.SECONDS));
+        Assert.assertFalse(readWriteLock.writeLock().tryLock(1, TimeUnit.SECONDS));
+        Assert.assertFalse(RedisSemaphore.create(OPEN, BREAKER_KEY, 2).tryAcquire(1, 1, TimeUnit.SECONDS));
+        Assert.assertFalse(RedisRateLimiter.create(OPEN, BREAKER_KEY + Math.random(), 10, 1.0, 1.0).atomic(true).tryAcquire(1));
+        BulkLockResult result = new RedisBulkLock(10, open.getLockClient()).tryLock(Arrays.asList(BREAKER_KEY + "-a", BREAKER_KEY + "-b"));
+        Assert.assertTrue(result.getAcquired().isEmpty());
+        Assert.assertEquals(2, result.getMissed().size());
+        Assert.assertTrue(System.currentTimeMillis() - start < 500);
+        Assert.assertEquals(0, open.getLocalStore().size());
+    }
+
+    /**
+     * lua 执行失败记录到熔断器，不会当作成功
+     */
+    @Test
+    public void testScriptFailure() throws Exception {
+        IRedisLock lock = RedisLockBuilder.builder(BREAKER_KEY).environment(RECOVER).fair(true).build();
+        String queueKey = RedisLockClient.fairQueueKey(lock.getKey());
+        // 队列 key 类型错误，lua 执行失败
+        recover.getLockClient().set(queueKey, "wrong-type");
+        try {
+            for (int i = 0; i < 3; i++) {
+                Assert.assertFalse(RedisLockBuilder.builder(BREAKER_KEY).environment(RECOVER).fair(true).build().tryLock());
+            }
+            Assert.assertEquals(RedisCircuitBreaker.State.OPEN, recoverBreaker.getState());
+        } finally {
+            recover.getLockClient().delete(queueKey);
+        }
+    }
+}
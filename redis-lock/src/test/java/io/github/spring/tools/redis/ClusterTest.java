@@ -0,0 +1,283 @@
+package io.github.spring.tools.redis;
+
+import io.github.spring.tools.redis.cluster.ClusterSlots;
+import io.github.spring.tools.redis.cluster.IHashTagStrategy;
+import io.github.spring.tools.redis.concurrent.RedisRateLimiter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Redis Cluster key 组合测试类
+ * <p>测试环境是单机 redis，这里验证 slot 计算、hash tag 策略以及锁和关联数据的 key</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class ClusterTest extends AbsLockTest {
+
+    private static final String CLUSTER_KEY = LOCK_KEY + "-cluster";
+
+    private static final String CLUSTER = "cluster";
+
+    private static final String FORCED = "cluster-forced";
+
+    private LettuceConnectionFactory factory;
+
+    private StringRedisTemplate template;
+
+    private RedisLockEnvironment environment;
+
+    /**
+     * 按集群处理、没有 hash tag 策略的环境
+     */
+    private RedisLockEnvironment forced;
+
+    @Before
+    public void initEnvironment() {
+        factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", 6379));
+        factory.setDatabase(5);
+        factory.afterPropertiesSet();
+        template = new StringRedisTemplate(factory);
+        environment = RedisLockBuilder.builder("").keyPrefix("cluster-lock").hashTagStrategy(IHashTagStrategy.LOCK_KEY).buildEnv(CLUSTER, template);
+        forced = RedisLockBuilder.builder("").keyPrefix("cluster-lock").buildEnv(FORCED, new ForcedClusterClient(template));
+    }
+
+    @After
+    public void destroyEnvironment() {
+        environment.destroy();
+        forced.destroy();
+        factory.destroy();
+    }
+
+    /**
+     * slot 计算和 hash tag 解析与 redis 一致
+     */
+    @Test
+    public void testSlots() {
+        Assert.assertEquals(12182, ClusterSlots.slot("foo"));
+        Assert.assertEquals("user1000", ClusterSlots.hashTag("{user1000}.following"));
+        Assert.assertEquals(ClusterSlots.slot("{user1000}.following"), ClusterSlots.slot("{user1000}.followers"));
+        Assert.assertNull(ClusterSlots.hashTag("foo{}{bar}"));
+        Assert.assertEquals("{bar", ClusterSlots.hashTag("foo{{bar}}zap"));
+        Assert.assertFalse(ClusterSlots.hasHashTag("foo"));
+
+        Map<Integer, List<Integer>> groups = ClusterSlots.groupBySlot(new String[]{"{a}1", "{b}1", "{a}2"});
+        Assert.assertEquals(2, groups.size());
+        Assert.assertEquals(Arrays.asList(0, 2), groups.get(ClusterSlots.slot("a")));
+        Assert.assertEquals(Arrays.asList(1), groups.get(ClusterSlots.slot("b")));
+    }
+
+    /**
+     * 内置策略
+     */
+    @Test
+    public void testStrategies() {
+        Assert.assertEquals("key", IHashTagStrategy.NONE.apply("key"));
+        Assert.assertEquals("{key}", IHashTagStrategy.LOCK_KEY.apply("key"));
+        Assert.assertEquals("{tag}key", IHashTagStrategy.LOCK_KEY.apply("{tag}key"));
+        Assert.assertEquals("{orders}key", IHashTagStrategy.fixed("orders").apply("key"));
+        Assert.assertEquals("{tag}key", IHashTagStrategy.fixed("orders").apply("{tag}key"));
+        try {
+            IHashTagStrategy.fixed("a}b");
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains("hash tag"));
+        }
+    }
+
+    /**
+     * 锁 key 带上 hash tag，fencing 计数器、公平锁队列和锁在同一个 slot
+     */
+    @Test
+    public void testLockKeys() {
+        IRedisLock lock = RedisLockBuilder.builder(CLUSTER_KEY).environment(CLUSTER).fencing(true).build();
+        Assert.assertEquals("{cluster-lock-" + CLUSTER_KEY + "}", lock.getKey());
+        Assert.assertTrue(lock.tryLock());
+        try {
+            Assert.assertTrue(lock.getFencingToken() > 0);
+            Assert.assertEquals(ClusterSlots.slot(lock.getKey()), ClusterSlots.slot(RedisLockClient.fencingKey(lock.getKey())));
+            Assert.assertTrue(exists(RedisLockClient.fencingKey(lock.getKey())));
+        } finally {
+            lock.unlock();
+            template.delete(RedisLockClient.fencingKey(lock.getKey()));
+        }
+
+        IRedisLock fair = RedisLockBuilder.builder(CLUSTER_KEY + "-fair").environment(CLUSTER).fair(true).build();
+        Assert.assertTrue(fair.tryLock());
+        try {
+            Assert.assertEquals(ClusterSlots.slot(fair.getKey()), ClusterSlots.slot(RedisLockClient.fairQueueKey(fair.getKey())));
+        } finally {
+            fair.unlock();
+        }
+        Assert.assertFalse(exists(fair.getKey()));
+
+        // 默认环境不处理
+        Assert.assertFalse(ClusterSlots.hasHashTag(RedisLockBuilder.builder(CLUSTER_KEY).build().getKey()));
+    }
+
+    /**
+     * 集群下 fencing 锁、公平锁、读写锁的 key 没有 hash tag 时创建失败
+     */
+    @Test
+    public void testHashTagRequired() {
+        Assert.assertTrue(forced.isCluster());
+        assertRejected(() -> RedisLockBuilder.builder(CLUSTER_KEY).environment(FORCED).fencing(true).build());
+        assertRejected(() -> RedisLockBuilder.builder(CLUSTER_KEY).environment(FORCED).fair(true).build());
+        assertRejected(() -> RedisLockBuilder.builder(CLUSTER_KEY).environment(FORCED).buildReadWriteLock());
+        // 普通锁只有一个 key，带有 hash tag 的 key 可以使用
+        RedisLockBuilder.builder(CLUSTER_KEY).environment(FORCED).build();
+        Assert.assertTrue(ClusterSlots.hasHashTag(RedisLockBuilder.builder("{" + CLUSTER_KEY + "}").environment(FORCED).fencing(true).build().getKey()));
+    }
+
+    /**
+     * 多 key 锁的每个 key 和单 key 锁使用相同的策略；集群下没有共同的 hash tag 时创建失败
+     */
+    @Test
+    public void testMultiKeys() throws Exception {
+        try (IRedisLock lock = RedisLockBuilder.multiBuilder(CLUSTER_KEY + "-a", CLUSTER_KEY + "-b").environment(CLUSTER).build()) {
+            Assert.assertTrue(lock.tryLock());
+            Assert.assertTrue(exists("{cluster-lock-" + CLUSTER_KEY + "-b}"));
+            Assert.assertFalse(async(() -> RedisLockBuilder.builder(CLUSTER_KEY + "-b").environment(CLUSTER).build().tryLock()));
+        }
+
+        try {
+            RedisLockBuilder.multiBuilder(CLUSTER_KEY + "-a", CLUSTER_KEY + "-b").environment(FORCED).build();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().contains("hash tag"));
+        }
+        try (IRedisLock lock = RedisLockBuilder.multiBuilder(CLUSTER_KEY + "-a", CLUSTER_KEY + "-b").environment(FORCED).hashTag("orders").build()) {
+            Assert.assertTrue(lock.tryLock());
+            Assert.assertFalse(async(() -> RedisLockBuilder.builder("{orders}" + CLUSTER_KEY + "-a").environment(FORCED).build().tryLock()));
+        }
+    }
+
+    /**
+     * 限流器的数据 key 使用环境的策略
+     */
+    @Test
+    public void testLimiterKey() {
+        String limiterKey = CLUSTER_KEY + "-limiter";
+        RedisRateLimiter limiter = RedisRateLimiter.create(CLUSTER, limiterKey, 10);
+        Assert.assertTrue(limiter.tryAcquire(1));
+        String dataKey = "{RedisRateLimiterKey:" + limiterKey + "}";
+        Assert.assertTrue(exists(dataKey));
+        template.delete(dataKey);
+    }
+
+    /**
+     * 批量获取、批量续期、批量释放，lettuce 直连和 redisTemplate 两种客户端
+     */
+    @Test
+    public void testBatch() {
+        Assert.assertTrue(environment.getLockClient() instanceof LettuceLockClient);
+        Assert.assertFalse(environment.getLockClient().isCluster());
+        assertBatch(environment.getLockClient());
+        assertBatch(new RedisLockClient(template));
+    }
+
+    /**
+     * 集群连接不支持 pipeline 时，批量命令按节点分组发送
+     */
+    @Test
+    public void testClusterBatch() {
+        StringRedisTemplate noPipeline = new StringRedisTemplate(factory) {
+            @Override
+            public List<Object> executePipelined(RedisCallback<?> action) {
+                throw new UnsupportedOperationException("Pipeline is currently not supported for JedisClusterConnection");
+            }
+        };
+        RedisLockClient client = new ForcedClusterClient(noPipeline);
+        Assert.assertTrue(client.isCluster());
+        assertBatch(client);
+    }
+
+    /**
+     * 集群下各组并行执行，耗时接近一组而不是所有组之和
+     */
+    @Test
+    public void testClusterBatchParallel() {
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        StringRedisTemplate slow = new StringRedisTemplate(factory) {
+            @Override
+            public <T> T execute(RedisCallback<T> action, boolean exposeConnection, boolean pipeline) {
+                threads.add(Thread.currentThread());
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return super.execute(action, exposeConnection, pipeline);
+            }
+        };
+        RedisLockClient client = new ForcedClusterClient(slow);
+        Assert.assertTrue(client.isCluster());
+        String[] keys = {"{a}" + CLUSTER_KEY, "{b}" + CLUSTER_KEY, "{c}" + CLUSTER_KEY};
+        try {
+            long start = System.currentTimeMillis();
+            Assert.assertArrayEquals(new boolean[]{true, true, true}, client.setNxBatch(keys, "value", 10));
+            // 分组一次往返，三个组并行一次往返
+            long elapsed = System.currentTimeMillis() - start;
+            Assert.assertTrue("elapsed=" + elapsed, elapsed < 600);
+            Assert.assertTrue(threads.size() > 1);
+        } finally {
+            template.delete(Arrays.asList(keys));
+        }
+    }
+
+    private void assertBatch(RedisLockClient client) {
+        String[] keys = {"{a}" + CLUSTER_KEY, "{b}" + CLUSTER_KEY, "{c}" + CLUSTER_KEY};
+        template.opsForValue().set(keys[1], "other");
+        try {
+            Assert.assertArrayEquals(new boolean[]{true, false, true}, client.setNxBatch(keys, "value", 10));
+            Assert.assertArrayEquals(new boolean[]{true, false, true}, client.renewByLua(keys, new String[]{"value", "value", "value"}, new long[]{20000, 20000, 20000}));
+            Assert.assertArrayEquals(new boolean[]{true, false, true}, client.releaseBatch(keys, "value"));
+            Assert.assertFalse(exists(keys[0]));
+            Assert.assertTrue(exists(keys[1]));
+        } finally {
+            template.delete(Arrays.asList(keys));
+        }
+    }
+
+    private void assertRejected(Runnable build) {
+        try {
+            build.run();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().contains("hash tag"));
+        }
+    }
+
+    private boolean exists(String key) {
+        return template.execute((RedisConnection connection) -> connection.exists(RedislockUtils.stringToBytes(key)));
+    }
+
+    /**
+     * 按集群处理的锁客户端，单机 redis 上验证集群下的行为
+     */
+    private static class ForcedClusterClient extends RedisLockClient {
+
+        ForcedClusterClient(RedisTemplate<String, String> redisTemplate) {
+            super(redisTemplate);
+        }
+
+        @Override
+        public boolean isCluster() {
+            return true;
+        }
+    }
+}
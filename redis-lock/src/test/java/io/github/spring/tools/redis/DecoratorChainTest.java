@@ -0,0 +1,87 @@
+package io.github.spring.tools.redis;
+
+import io.github.spring.tools.redis.decorator.AbsLockDecorator;
+import io.github.spring.tools.redis.decorator.LocalQueueLockDecorator;
+import io.github.spring.tools.redis.decorator.ReentrantLockDecorator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 装饰者链测试类
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class DecoratorChainTest extends AbsLockTest {
+
+    private static final String CHAIN_KEY = LOCK_KEY + "-chain";
+
+    /**
+     * 按 order 从内到外安装
+     */
+    @Test
+    public void testOrder() {
+        IRedisLock lock = RedisLockBuilder.builder(CHAIN_KEY).addDecorators(LocalQueueLockDecorator.class).build();
+        Assert.assertTrue(lock instanceof ReentrantLockDecorator);
+        Assert.assertNotNull(((AbsLockDecorator) lock).getDecoratorByClass(LocalQueueLockDecorator.class));
+        Assert.assertTrue(lock.tryLock());
+        lock.unlock();
+        Assert.assertFalse(lock.isRollback());
+    }
+
+    /**
+     * 相同的装饰者组合复用同一个链，修改传入的集合不影响已缓存的链
+     */
+    @Test
+    public void testCached() {
+        Set<Class<? extends AbsLockDecorator>> classes = new HashSet<>();
+        classes.add(LocalQueueLockDecorator.class);
+        Set<Class<? extends AbsLockDecorator>> global = Collections.singleton(ReentrantLockDecorator.class);
+        LockDecoratorChain chain = LockDecoratorChain.of(classes, global);
+        Assert.assertSame(chain, LockDecoratorChain.of(new HashSet<>(classes), global));
+        classes.clear();
+        Assert.assertSame(chain, LockDecoratorChain.of(Collections.singleton(LocalQueueLockDecorator.class), global));
+        Assert.assertNotSame(chain, LockDecoratorChain.of(classes, global));
+    }
+
+    /**
+     * 多线程并发创建
+     */
+    @Test
+    public void testConcurrentBuild() throws Exception {
+        int threads = 8;
+        int builds = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        AtomicInteger decorated = new AtomicInteger();
+        for (int i = 0; i < threads; i++) {
+            int index = i;
+            executor.execute(() -> {
+                try {
+                    for (int j = 0; j < builds; j++) {
+                        IRedisLock lock = j % 2 == 0
+                                ? RedisLockBuilder.builder(CHAIN_KEY + index).build()
+                                : RedisLockBuilder.builder(CHAIN_KEY + index).addDecorators(LocalQueueLockDecorator.class).build();
+                        if (lock instanceof ReentrantLockDecorator) {
+                            decorated.incrementAndGet();
+                        }
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        Assert.assertTrue(latch.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+        Assert.assertEquals(threads * builds, decorated.get());
+    }
+}
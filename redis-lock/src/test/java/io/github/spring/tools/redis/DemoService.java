@@ -4,6 +4,8 @@ import io.github.spring.tools.redis.annotation.RedisLock;
 import io.github.spring.tools.redis.exception.TimeoutLockException;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * 测试注解的demo服务类
  * <p>测试注解的demo服务类</p>
@@ -39,6 +41,20 @@ public class DemoService {
         return String.format("成功->姓名:%s，年龄:%s", name, age);
     }
 
+    /**
+     * 执行次数
+     */
+    private final AtomicInteger counts = new AtomicInteger();
+
+    /**
+     * 记录执行次数的业务方法
+     * @return 执行后的次数
+     */
+    @RedisLock(key = "demo-count-key", waitTimeoutMills = -1)
+    public int count(){
+        return counts.incrementAndGet();
+    }
+
     /**
      * 失败的回调方法
      * @param name 姓名
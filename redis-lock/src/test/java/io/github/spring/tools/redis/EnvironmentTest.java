@@ -0,0 +1,202 @@
+package io.github.spring.tools.redis;
+
+import io.github.spring.tools.redis.concurrent.RedisRateLimiter;
+import io.github.spring.tools.redis.decorator.LocalQueueLockDecorator;
+import io.github.spring.tools.redis.decorator.ReentrantLockDecorator;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * 命名锁环境测试类
+ * <p>用同一个 redis 的另一个 database 模拟另一套部署</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class EnvironmentTest extends AbsLockTest {
+
+    private static final String ENVIRONMENT_KEY = LOCK_KEY + "-environment";
+
+    private static final String SECONDARY = "secondary";
+
+    private static final String MIRROR = "mirror";
+
+    private LettuceConnectionFactory factory;
+
+    private StringRedisTemplate template;
+
+    private RedisLockEnvironment secondary;
+
+    @Before
+    public void initEnvironment() {
+        factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", 6379));
+        factory.setDatabase(4);
+        factory.afterPropertiesSet();
+        template = new StringRedisTemplate(factory);
+        secondary = RedisLockBuilder.builder("").keyPrefix("secondary-lock:").watchdog(true).buildEnv(SECONDARY, template);
+    }
+
+    @After
+    public void destroyEnvironment() {
+        secondary.destroy();
+        factory.destroy();
+    }
+
+    /**
+     * 命名环境不替换默认环境，锁写入各自的 redis，互不影响
+     */
+    @Test
+    public void testIsolated() {
+        Assert.assertNotSame(secondary, RedisLockEnvironment.getInstance());
+        Assert.assertSame(secondary, RedisLockEnvironment.getInstance(SECONDARY));
+        Assert.assertSame(RedisLockEnvironment.getInstance(), RedisLockEnvironment.getInstance(""));
+
+        IRedisLock defaultLock = RedisLockBuilder.builder(ENVIRONMENT_KEY).build();
+        IRedisLock secondaryLock = RedisLockBuilder.builder(ENVIRONMENT_KEY).environment(SECONDARY).build();
+        Assert.assertEquals("secondary-lock:-" + ENVIRONMENT_KEY, secondaryLock.getKey());
+        Assert.assertTrue(secondaryLock instanceof DefaultRedisLock);
+        Assert.assertSame(secondary, ((DefaultRedisLock) secondaryLock).getEnvironment());
+
+        Assert.assertTrue(defaultLock.tryLock());
+        Assert.assertTrue(secondaryLock.tryLock());
+        try {
+            Assert.assertTrue(template.hasKey(secondaryLock.getKey()));
+            Assert.assertFalse(template.hasKey(defaultLock.getKey()));
+            Assert.assertFalse(RedisLockEnvironment.getInstance().getRedisTemplate()
+                    .execute((RedisConnection connection) -> connection.exists(RedislockUtils.stringToBytes(secondaryLock.getKey()))));
+        } finally {
+            secondaryLock.unlock();
+            defaultLock.unlock();
+        }
+        Assert.assertFalse(secondaryLock.isRollback());
+        Assert.assertFalse(template.hasKey(secondaryLock.getKey()));
+    }
+
+    /**
+     * 命名环境使用自己的全局参数和看门狗
+     */
+    @Test
+    public void testEnvironmentDefaults() throws Exception {
+        IRedisLock lock = RedisLockBuilder.builder(ENVIRONMENT_KEY).environment(SECONDARY).lockSeconds(1).build();
+        Assert.assertTrue(lock.tryLock());
+        try {
+            Thread.sleep(2000);
+            Assert.assertTrue(template.hasKey(lock.getKey()));
+        } finally {
+            lock.unlock();
+        }
+        Assert.assertFalse(lock.isRollback());
+    }
+
+    /**
+     * 读写锁、限流器也可以选择环境
+     */
+    @Test
+    public void testOtherPrimitives() {
+        RedisReadWriteLock readWriteLock = RedisLockBuilder.builder(ENVIRONMENT_KEY + "-rw").environment(SECONDARY).buildReadWriteLock();
+        IRedisLock writeLock = readWriteLock.writeLock();
+        Assert.assertTrue(writeLock.tryLock());
+        try {
+            Assert.assertTrue(template.hasKey(readWriteLock.getKey()));
+        } finally {
+            writeLock.unlock();
+        }
+
+        RedisRateLimiter limiter = RedisRateLimiter.create(SECONDARY, ENVIRONMENT_KEY + "-limiter", 10);
+        Assert.assertTrue(limiter.tryAcquire(1));
+    }
+
+    /**
+     * 不同环境中相同的 key 在同一个线程里各自获取，不当作重入
+     */
+    @Test
+    public void testReentrantPerEnvironment() {
+        RedisLockEnvironment mirror = RedisLockBuilder.builder("").keyPrefix("redis-lock:")
+                .addDecorators(ReentrantLockDecorator.class).buildEnv(MIRROR, template);
+        try {
+            IRedisLock defaultLock = RedisLockBuilder.builder(ENVIRONMENT_KEY).build();
+            IRedisLock mirrorLock = RedisLockBuilder.builder(ENVIRONMENT_KEY).environment(MIRROR).build();
+            Assert.assertEquals(defaultLock.getKey(), mirrorLock.getKey());
+            Assert.assertTrue(defaultLock.tryLock());
+            try {
+                Assert.assertTrue(mirrorLock.tryLock());
+                try {
+                    Assert.assertTrue(template.hasKey(mirrorLock.getKey()));
+                } finally {
+                    mirrorLock.unlock();
+                }
+                Assert.assertFalse(template.hasKey(mirrorLock.getKey()));
+                Assert.assertTrue(RedisLockEnvironment.getInstance().getRedisTemplate()
+                        .execute((RedisConnection connection) -> connection.exists(RedislockUtils.stringToBytes(defaultLock.getKey()))));
+            } finally {
+                defaultLock.unlock();
+            }
+        } finally {
+            mirror.destroy();
+        }
+    }
+
+    /**
+     * 不同环境中相同的 key 各自在本地排队，不互相阻塞
+     */
+    @Test
+    public void testLocalQueuePerEnvironment() {
+        RedisLockEnvironment mirror = RedisLockBuilder.builder("").keyPrefix("redis-lock:").buildEnv(MIRROR, template);
+        try {
+            IRedisLock defaultLock = RedisLockBuilder.builder(ENVIRONMENT_KEY).addDecorators(LocalQueueLockDecorator.class).build();
+            Assert.assertTrue(defaultLock.tryLock());
+            try {
+                Assert.assertTrue(async(() -> {
+                    IRedisLock mirrorLock = RedisLockBuilder.builder(ENVIRONMENT_KEY).environment(MIRROR)
+                            .addDecorators(LocalQueueLockDecorator.class).build();
+                    try {
+                        return mirrorLock.tryLock();
+                    } finally {
+                        mirrorLock.unlock();
+                    }
+                }));
+            } finally {
+                defaultLock.unlock();
+            }
+        } finally {
+            mirror.destroy();
+        }
+    }
+
+    /**
+     * 销毁后取消注册，可以用相同的名称重新创建
+     */
+    @Test
+    public void testDestroy() {
+        RedisLockEnvironment mirror = RedisLockBuilder.builder("").buildEnv(MIRROR, template);
+        Assert.assertSame(mirror, RedisLockEnvironment.getInstance(MIRROR));
+        mirror.destroy();
+        Assert.assertFalse(RedisLockEnvironment.getInstances().contains(mirror));
+        try {
+            RedisLockEnvironment.getInstance(MIRROR);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // 已取消注册
+        }
+        RedisLockEnvironment again = RedisLockBuilder.builder("").buildEnv(MIRROR, template);
+        try {
+            Assert.assertSame(again, RedisLockEnvironment.getInstance(MIRROR));
+        } finally {
+            again.destroy();
+        }
+    }
+
+    /**
+     * 未注册的环境
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknown() {
+        RedisLockBuilder.builder(ENVIRONMENT_KEY).environment("unknown").build();
+    }
+}
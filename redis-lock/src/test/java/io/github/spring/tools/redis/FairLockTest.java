@@ -0,0 +1,184 @@
+package io.github.spring.tools.redis;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 公平锁测试类
+ * <p>测试等待者按 FIFO 顺序获取锁</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class FairLockTest extends AbsLockTest {
+
+    private static final String FAIR_KEY = LOCK_KEY + "-fair";
+
+    private static final int WAITERS = 3;
+
+    /**
+     * 先等待的先获取
+     */
+    @Test
+    public void testFifo() throws Exception {
+        IRedisLock lock = RedisLockBuilder.builder(FAIR_KEY).fair(true).build();
+        Assert.assertTrue(lock.tryLock());
+        List<Integer> orders = new CopyOnWriteArrayList<>();
+        Thread[] threads = new Thread[WAITERS];
+        for (int i = 0; i < WAITERS; i++) {
+            int index = i;
+            threads[i] = new Thread(() -> {
+                IRedisLock waitLock = RedisLockBuilder.builder(FAIR_KEY).fair(true).build();
+                try {
+                    if (waitLock.tryLock(5, TimeUnit.SECONDS)) {
+                        orders.add(index);
+                        Thread.sleep(50);
+                    }
+                } catch (InterruptedException e) {
+                    throw new IllegalArgumentException(e);
+                } finally {
+                    waitLock.unlock();
+                }
+            });
+            threads[i].start();
+            // 保证排队顺序，前一个进入队列后再启动下一个
+            byte[] queueKey = RedislockUtils.stringToBytes(RedisLockClient.fairQueueKey(lock.getKey()));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (queueSize(queueKey) < i + 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+        }
+        lock.unlock();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(WAITERS, orders.size());
+        for (int i = 0; i < WAITERS; i++) {
+            Assert.assertEquals(Integer.valueOf(i), orders.get(i));
+        }
+    }
+
+    /**
+     * 有人排队时，新来的不等待获取也不能插队
+     */
+    @Test
+    public void testNoBarging() throws Exception {
+        IRedisLock lock = RedisLockBuilder.builder(FAIR_KEY).fair(true).build();
+        Assert.assertTrue(lock.tryLock());
+        Thread waiter = new Thread(() -> {
+            IRedisLock waitLock = RedisLockBuilder.builder(FAIR_KEY).fair(true).build();
+            try {
+                if (waitLock.tryLock(5, TimeUnit.SECONDS)) {
+                    Thread.sleep(500);
+                }
+            } catch (InterruptedException e) {
+                throw new IllegalArgumentException(e);
+            } finally {
+                waitLock.unlock();
+            }
+        });
+        waiter.start();
+        Thread.sleep(200);
+        lock.unlock();
+        // 锁已交接给等待者
+        Assert.assertFalse(async(() -> RedisLockBuilder.builder(FAIR_KEY).fair(true).build().tryLock()));
+        waiter.join();
+        Assert.assertTrue(async(() -> {
+            IRedisLock other = RedisLockBuilder.builder(FAIR_KEY).fair(true).build();
+            try {
+                return other.tryLock();
+            } finally {
+                other.unlock();
+            }
+        }));
+    }
+
+    /**
+     * 等待超时后退出队列，不影响后续获取
+     */
+    @Test
+    public void testTimeoutLeaveQueue() throws Exception {
+        try (IRedisLock lock = RedisLockBuilder.builder(FAIR_KEY).fair(true).build()) {
+            Assert.assertTrue(lock.tryLock());
+            Assert.assertFalse(async(() -> {
+                IRedisLock waiter = RedisLockBuilder.builder(FAIR_KEY).fair(true).build();
+                try {
+                    return waiter.tryLock(300, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    throw new IllegalArgumentException(e);
+                }
+            }));
+        }
+        Assert.assertTrue(async(() -> {
+            IRedisLock other = RedisLockBuilder.builder(FAIR_KEY).fair(true).build();
+            try {
+                return other.tryLock();
+            } finally {
+                other.unlock();
+            }
+        }));
+    }
+
+    /**
+     * 公平锁不支持的配置创建失败，不被静默忽略
+     */
+    @Test
+    public void testUnsupportedOptions() {
+        try {
+            RedisLockBuilder.builder(FAIR_KEY).fair(true).fencing(true).build();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().contains("fencing"));
+        }
+        try {
+            RedisLockBuilder.builder(FAIR_KEY).fair(true).waitMode(RedisLockWaitMode.SPIN).build();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().contains("SPIN"));
+        }
+        RedisLockBuilder.builder(FAIR_KEY).fair(true).waitMode(RedisLockWaitMode.NOTIFY).build();
+    }
+
+    /**
+     * 交接时只唤醒接手的等待者，其他等待者的信号不变
+     */
+    @Test
+    public void testHandOffWakesSuccessor() throws Exception {
+        String key = "redis-lock:" + FAIR_KEY + "-handoff";
+        RedisLockClient client = RedisLockEnvironment.getInstance().getLockClient();
+        RedisLockNotifier notifier = RedisLockEnvironment.getInstance().getNotifier();
+        RedisLockNotifier.Signal first = notifier.subscribeWaiter(key, "first");
+        RedisLockNotifier.Signal second = notifier.subscribeWaiter(key, "second");
+        long lockMills = TimeUnit.SECONDS.toMillis(5);
+        try {
+            Assert.assertTrue(client.fairAcquire(key, "holder", lockMills, FairRedisLock.WAITER_TIMEOUT_MILLS, true));
+            Assert.assertFalse(client.fairAcquire(key, "first", lockMills, FairRedisLock.WAITER_TIMEOUT_MILLS, true));
+            Assert.assertFalse(client.fairAcquire(key, "second", lockMills, FairRedisLock.WAITER_TIMEOUT_MILLS, true));
+            long firstVersion = first.version();
+            long secondVersion = second.version();
+            // 订阅是异步建立的，等待交接通知送达
+            Thread.sleep(200);
+            Assert.assertTrue(client.fairRelease(key, "holder", lockMills));
+            Assert.assertEquals("first", client.get(key));
+            first.await(firstVersion, 2000);
+            Assert.assertNotEquals(firstVersion, first.version());
+            Thread.sleep(100);
+            Assert.assertEquals(secondVersion, second.version());
+        } finally {
+            notifier.unsubscribeWaiter(key, "first", first);
+            notifier.unsubscribeWaiter(key, "second", second);
+            client.fairRelease(key, "first", lockMills);
+            client.fairRelease(key, "second", lockMills);
+        }
+    }
+
+    private long queueSize(byte[] queueKey) {
+        Long size = RedisLockEnvironment.getInstance().getRedisTemplate().execute((RedisConnection connection) -> connection.lLen(queueKey));
+        return size == null ? 0 : size;
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.spring.tools.redis;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * fencing token 测试类
+ * <p>测试获取锁时生成递增的 fencing token</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class FencingLockTest extends AbsLockTest {
+
+    private static final String FENCING_KEY = LOCK_KEY + "-fencing";
+
+    /**
+     * 每次获取锁 token 递增
+     */
+    @Test
+    public void testIncrease() throws Exception {
+        long first;
+        try (IRedisLock lock = RedisLockBuilder.builder(FENCING_KEY).fencing(true).build()) {
+            Assert.assertTrue(lock.tryLock());
+            first = lock.getFencingToken();
+            Assert.assertTrue(first > 0);
+            // 重入得到同一个 token
+            try (IRedisLock inner = RedisLockBuilder.builder(FENCING_KEY).fencing(true).build()) {
+                Assert.assertTrue(inner.tryLock());
+                Assert.assertEquals(first, inner.getFencingToken());
+            }
+        }
+        try (IRedisLock lock = RedisLockBuilder.builder(FENCING_KEY).fencing(true).build()) {
+            Assert.assertTrue(lock.tryLock());
+            Assert.assertTrue(lock.getFencingToken() > first);
+        }
+    }
+
+    /**
+     * 获取失败时 token 为 0
+     */
+    @Test
+    public void testFail() throws Exception {
+        try (IRedisLock lock = RedisLockBuilder.builder(FENCING_KEY).fencing(true).build()) {
+            Assert.assertTrue(lock.tryLock());
+            Assert.assertEquals(Long.valueOf(0L), async(() -> {
+                IRedisLock other = RedisLockBuilder.builder(FENCING_KEY).fencing(true).build();
+                other.tryLock();
+                return other.getFencingToken();
+            }));
+        }
+    }
+}
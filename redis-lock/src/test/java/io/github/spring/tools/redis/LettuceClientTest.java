@@ -0,0 +1,100 @@
+package io.github.spring.tools.redis;
+
+import io.github.spring.tools.redis.concurrent.RedisRateLimiter;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+
+/**
+ * lettuce 锁客户端测试类
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class LettuceClientTest extends AbsLockTest {
+
+    private static final String LETTUCE_KEY = LOCK_KEY + "-lettuce";
+
+    private RedisLockClient client;
+
+    @Before
+    public void initClient() {
+        client = RedisLockEnvironment.getInstance().getLockClient();
+    }
+
+    /**
+     * 默认环境使用 lettuce 共享连接
+     */
+    @Test
+    public void testLock() {
+        Assert.assertTrue(client instanceof LettuceLockClient);
+        IRedisLock lock = RedisLockBuilder.builder(LETTUCE_KEY).build();
+        Assert.assertTrue(lock.tryLock());
+        try {
+            Assert.assertFalse(async(() -> RedisLockBuilder.builder(LETTUCE_KEY).build().tryLock()));
+            Assert.assertTrue(exists(lock.getKey()));
+        } finally {
+            lock.unlock();
+        }
+        Assert.assertEquals(RedisLockReleaseStatus.SUCCESS, lock.getReleaseStatus());
+        Assert.assertFalse(exists(lock.getKey()));
+    }
+
+    /**
+     * 读写不经过 redisTemplate 的序列化
+     */
+    @Test
+    public void testRawBytes() {
+        String key = LETTUCE_KEY + "-raw";
+        client.set(key, "value");
+        try {
+            Assert.assertTrue(exists(key));
+            Assert.assertEquals("value", client.get(key));
+        } finally {
+            Assert.assertTrue(client.delete(key));
+        }
+        Assert.assertNull(client.get(key));
+        Assert.assertFalse(client.delete(key));
+
+        String limiterKey = LETTUCE_KEY + "-limiter";
+        RedisRateLimiter limiter = RedisRateLimiter.create(limiterKey, 10, 1.0);
+        Assert.assertTrue(limiter.tryAcquire(1));
+        Assert.assertTrue(exists("RedisRateLimiterKey:" + limiterKey));
+        client.delete("RedisRateLimiterKey:" + limiterKey);
+    }
+
+    /**
+     * 服务端脚本缓存清空后改用 EVAL
+     */
+    @Test
+    public void testNoScript() throws Exception {
+        RedisLockEnvironment.getInstance().getRedisTemplate().execute((RedisConnection connection) -> {
+            connection.scriptFlush();
+            return null;
+        });
+        IRedisLock lock = RedisLockBuilder.builder(LETTUCE_KEY + "-noscript").lockSeconds(1).watchdog(true).build();
+        Assert.assertTrue(lock.tryLock());
+        try {
+            Thread.sleep(1500);
+            Assert.assertTrue(exists(lock.getKey()));
+        } finally {
+            lock.unlock();
+        }
+        Assert.assertEquals(RedisLockReleaseStatus.SUCCESS, lock.getReleaseStatus());
+        Assert.assertFalse(exists(lock.getKey()));
+    }
+
+    /**
+     * 直接使用 TIME
+     */
+    @Test
+    public void testTime() {
+        Assert.assertTrue(Math.abs(client.queryRedisNow() - System.currentTimeMillis()) < 1000);
+    }
+
+    private boolean exists(String key) {
+        return RedisLockEnvironment.getInstance().getRedisTemplate()
+                .execute((RedisConnection connection) -> connection.exists(RedislockUtils.stringToBytes(key)));
+    }
+}
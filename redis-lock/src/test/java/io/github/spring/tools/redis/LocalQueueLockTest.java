@@ -0,0 +1,72 @@
+package io.github.spring.tools.redis;
+
+import io.github.spring.tools.redis.decorator.LocalQueueLockDecorator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 本地排队锁测试类
+ * <p>测试同一个 JVM 中多个线程竞争同一个 key</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class LocalQueueLockTest extends AbsLockTest {
+
+    private static final String QUEUE_KEY = LOCK_KEY + "-queue";
+
+    private static final int THREADS = 10;
+
+    /**
+     * 所有线程都能依次获取到锁，且同一时刻只有一个持有者
+     */
+    @Test
+    public void testQueue() throws InterruptedException {
+        AtomicInteger holders = new AtomicInteger();
+        AtomicInteger success = new AtomicInteger();
+        AtomicInteger overlap = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            Thread thread = new Thread(() -> {
+                IRedisLock lock = RedisLockBuilder.builder(QUEUE_KEY).addDecorators(LocalQueueLockDecorator.class).build();
+                try {
+                    if (lock.tryLock(10, TimeUnit.SECONDS)) {
+                        if (holders.incrementAndGet() > 1) {
+                            overlap.incrementAndGet();
+                        }
+                        success.incrementAndGet();
+                        Thread.sleep(50);
+                        holders.decrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    lock.unlock();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(THREADS, success.get());
+        Assert.assertEquals(0, overlap.get());
+    }
+
+    /**
+     * 本地已有持有者时，tryLock 直接失败
+     */
+    @Test
+    public void testTryLockFailFast() throws Exception {
+        try (IRedisLock lock = RedisLockBuilder.builder(QUEUE_KEY).addDecorators(LocalQueueLockDecorator.class).build()) {
+            Assert.assertTrue(lock.tryLock());
+            Assert.assertFalse(async(() -> RedisLockBuilder.builder(QUEUE_KEY).addDecorators(LocalQueueLockDecorator.class).build().tryLock()));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package io.github.spring.tools.redis;
+
+import io.github.spring.tools.redis.script.LuaScript;
+import io.github.spring.tools.redis.script.LuaScriptRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * lua 脚本注册表测试类
+ * <p>测试 EVALSHA 和服务端脚本缓存被清空后的自动加载</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class LuaScriptTest extends AbsLockTest {
+
+    private static final String SCRIPT_KEY = LOCK_KEY + "-script";
+
+    /**
+     * 启动时已经加载所有脚本
+     */
+    @Test
+    public void testPreload() {
+        RedisLockClient client = new RedisLockClient(RedisLockEnvironment.getInstance().getRedisTemplate());
+        Assert.assertTrue(client.loadScripts() > 0);
+        String[] shas = LuaScriptRegistry.getScripts().stream().map(LuaScript::getSha1).toArray(String[]::new);
+        List<Boolean> exists = RedisLockEnvironment.getInstance().getRedisTemplate().execute((RedisConnection connection) -> connection.scriptExists(shas));
+        Assert.assertFalse(exists.contains(false));
+    }
+
+    /**
+     * 脚本缓存被清空后，加锁、续期、解锁依然正常
+     */
+    @Test
+    public void testNoScriptFallback() {
+        IRedisLock lock = RedisLockBuilder.builder(SCRIPT_KEY).build();
+        RedisLockClient client = new RedisLockClient(RedisLockEnvironment.getInstance().getRedisTemplate());
+        Assert.assertTrue(lock.tryLock());
+        try {
+            flush();
+            byte[] value = RedisLockEnvironment.getInstance().getRedisTemplate().execute((RedisConnection connection) -> connection.get(RedislockUtils.stringToBytes(lock.getKey())));
+            Assert.assertTrue(client.renewByLua(new String[]{lock.getKey()}, new String[]{new String(value, StandardCharsets.UTF_8)}, new long[]{5000})[0]);
+            flush();
+        } finally {
+            lock.unlock();
+        }
+        Assert.assertFalse(lock.isRollback());
+        Assert.assertFalse(RedisLockEnvironment.getInstance().getRedisTemplate().execute((RedisConnection connection) -> connection.exists(RedislockUtils.stringToBytes(lock.getKey()))));
+        Assert.assertTrue(client.queryRedisNow() > 0);
+    }
+
+    private void flush() {
+        RedisLockEnvironment.getInstance().getRedisTemplate().execute((RedisConnection connection) -> {
+            connection.scriptFlush();
+            return null;
+        });
+    }
+}
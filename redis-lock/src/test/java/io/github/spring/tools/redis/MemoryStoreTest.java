@@ -0,0 +1,185 @@
+package io.github.spring.tools.redis;
+
+import io.github.spring.tools.redis.concurrent.RedisRateLimiter;
+import io.github.spring.tools.redis.store.MemoryLockStore;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.types.Expiration;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 内存锁存储测试类
+ * <p>内存环境注册为命名环境，不影响默认的 redis 环境</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class MemoryStoreTest extends AbsLockTest {
+
+    private static final String MEMORY_KEY = LOCK_KEY + "-memory";
+
+    private static final String MEMORY = "memory";
+
+    private MemoryLockStore store;
+
+    private RedisLockEnvironment environment;
+
+    @Before
+    public void initStore() {
+        store = new MemoryLockStore(20, 64);
+        environment = RedisLockBuilder.builder("").keyPrefix("memory-lock:").buildEnv(MEMORY, store);
+    }
+
+    @After
+    public void destroyStore() {
+        environment.destroy();
+        store.destroy();
+    }
+
+    /**
+     * 销毁环境时一起销毁存储，时间轮停止，数据清空
+     */
+    @Test
+    public void testDestroyWithEnvironment() throws Exception {
+        MemoryLockStore owned = new MemoryLockStore(20, 64);
+        RedisLockEnvironment ownedEnvironment = RedisLockBuilder.builder("").buildEnv(MEMORY + "-owned", owned);
+        IRedisLock lock = RedisLockBuilder.builder(MEMORY_KEY).environment(MEMORY + "-owned").lockSeconds(1).build();
+        Assert.assertTrue(lock.tryLock());
+        Assert.assertEquals(1, owned.size());
+        ownedEnvironment.destroy();
+        Assert.assertEquals(0, owned.size());
+    }
+
+    /**
+     * 获取、互斥、释放，不访问 redis
+     */
+    @Test
+    public void testLock() {
+        IRedisLock lock = RedisLockBuilder.builder(MEMORY_KEY).environment(MEMORY).build();
+        Assert.assertFalse(environment.isRedis());
+        Assert.assertTrue(lock.tryLock());
+        try {
+            Assert.assertFalse(async(() -> RedisLockBuilder.builder(MEMORY_KEY).environment(MEMORY).build().tryLock()));
+            Assert.assertNotNull(store.get(lock.getKey()));
+            Assert.assertFalse(RedisLockEnvironment.getInstance().getRedisTemplate()
+                    .execute((RedisConnection connection) -> connection.exists(RedislockUtils.stringToBytes(lock.getKey()))));
+        } finally {
+            lock.unlock();
+        }
+        Assert.assertEquals(RedisLockReleaseStatus.SUCCESS, lock.getReleaseStatus());
+        Assert.assertNull(store.get(lock.getKey()));
+    }
+
+    /**
+     * 过期时间落在刻度中间时放到向上取整的刻度，清理延迟不超过一个刻度，不会等时间轮转一圈
+     */
+    @Test
+    public void testExpireLatency() throws Exception {
+        MemoryLockStore wheel = new MemoryLockStore(100, 16);
+        Map<String, Long> expected = new ConcurrentHashMap<>();
+        Map<String, Long> latencies = new ConcurrentHashMap<>();
+        wheel.subscribe(key -> latencies.put(key, System.currentTimeMillis() - expected.get(key)));
+        try {
+            for (int i = 0; i < 20; i++) {
+                String key = MEMORY_KEY + "-" + i;
+                long expireMills = 150 + i * 37;
+                expected.put(key, System.currentTimeMillis() + expireMills);
+                Assert.assertTrue(wheel.setNx(RedislockUtils.stringToBytes(key), RedislockUtils.stringToBytes("v"), Expiration.milliseconds(expireMills)));
+            }
+            long deadline = System.currentTimeMillis() + 3000;
+            while (latencies.size() < expected.size() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            Assert.assertEquals(expected.size(), latencies.size());
+            for (Map.Entry<String, Long> latency : latencies.entrySet()) {
+                Assert.assertTrue(latency.toString(), latency.getValue() < 200);
+            }
+        } finally {
+            wheel.destroy();
+        }
+    }
+
+    /**
+     * 过期后由时间轮清理，等待者被唤醒后立即获取
+     */
+    @Test
+    public void testExpire() throws Exception {
+        IRedisLock holder = RedisLockBuilder.builder(MEMORY_KEY + "-expire").environment(MEMORY).lockSeconds(1).build();
+        Assert.assertTrue(holder.tryLock());
+        IRedisLock waiter = RedisLockBuilder.builder(MEMORY_KEY + "-expire").environment(MEMORY)
+                .waitMode(RedisLockWaitMode.NOTIFY).build();
+        long start = System.currentTimeMillis();
+        Assert.assertTrue(waiter.tryLock(3, TimeUnit.SECONDS));
+        long waited = System.currentTimeMillis() - start;
+        waiter.unlock();
+        Assert.assertTrue("waited=" + waited, waited >= 800 && waited < 1500);
+        Assert.assertEquals(0, store.size());
+    }
+
+    /**
+     * 释放后通知等待者
+     */
+    @Test
+    public void testNotify() throws Exception {
+        IRedisLock holder = RedisLockBuilder.builder(MEMORY_KEY + "-notify").environment(MEMORY).build();
+        Assert.assertTrue(holder.tryLock());
+        RedisLockExecutors.scheduler().schedule(holder::unlock, 200, TimeUnit.MILLISECONDS);
+        IRedisLock waiter = RedisLockBuilder.builder(MEMORY_KEY + "-notify").environment(MEMORY)
+                .waitMode(RedisLockWaitMode.NOTIFY).build();
+        long start = System.currentTimeMillis();
+        Assert.assertTrue(waiter.tryLock(3, TimeUnit.SECONDS));
+        long waited = System.currentTimeMillis() - start;
+        waiter.unlock();
+        Assert.assertTrue("waited=" + waited, waited < 600);
+    }
+
+    /**
+     * 看门狗续期、fencing token、持有者剩余租约
+     */
+    @Test
+    public void testAtomics() throws Exception {
+        IRedisLock lock = RedisLockBuilder.builder(MEMORY_KEY + "-watchdog").environment(MEMORY).lockSeconds(1).watchdog(true).build();
+        Assert.assertTrue(lock.tryLock());
+        try {
+            Thread.sleep(1500);
+            Assert.assertNotNull(store.get(lock.getKey()));
+            long ttl = store.setNxOrPttl(RedislockUtils.stringToBytes(lock.getKey()), RedislockUtils.stringToBytes("other"), RedislockUtils.stringToBytes("1"));
+            Assert.assertTrue("ttl=" + ttl, ttl > 0 && ttl <= 1000);
+        } finally {
+            lock.unlock();
+        }
+
+        long first;
+        try (IRedisLock fencing = RedisLockBuilder.builder(MEMORY_KEY + "-fencing").environment(MEMORY).fencing(true).build()) {
+            Assert.assertTrue(fencing.tryLock());
+            first = fencing.getFencingToken();
+            Assert.assertTrue(first > 0);
+        }
+        try (IRedisLock fencing = RedisLockBuilder.builder(MEMORY_KEY + "-fencing").environment(MEMORY).fencing(true).build()) {
+            Assert.assertTrue(fencing.tryLock());
+            Assert.assertEquals(first + 1, fencing.getFencingToken());
+        }
+    }
+
+    /**
+     * 限流器使用内存存储，依赖 lua 的锁不支持
+     */
+    @Test
+    public void testOtherPrimitives() {
+        RedisRateLimiter limiter = RedisRateLimiter.create(MEMORY, MEMORY_KEY + "-limiter", 10);
+        Assert.assertTrue(limiter.tryAcquire(10));
+        Assert.assertFalse(limiter.tryAcquire(5));
+        try {
+            RedisLockBuilder.builder(MEMORY_KEY).environment(MEMORY).fair(true).build();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().contains(MEMORY));
+        }
+    }
+}
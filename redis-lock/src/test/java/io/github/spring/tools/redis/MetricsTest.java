@@ -0,0 +1,157 @@
+package io.github.spring.tools.redis;
+
+import io.github.spring.tools.redis.concurrent.RedisRateLimiter;
+import io.github.spring.tools.redis.metrics.IRedisLockMetrics;
+import io.github.spring.tools.redis.metrics.MicrometerLockMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.types.Expiration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 监控指标测试类
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class MetricsTest extends AbsLockTest {
+
+    private static final String METRICS_KEY = LOCK_KEY + "-metrics";
+
+    private static final String TYPE = DefaultRedisLock.class.getSimpleName();
+
+    private SimpleMeterRegistry registry;
+
+    @Before
+    public void initMetrics() {
+        registry = new SimpleMeterRegistry();
+        RedisLockEnvironment.setMetricsFactory(environment -> new MicrometerLockMetrics(registry, environment.getName()));
+    }
+
+    @After
+    public void destroyMetrics() {
+        RedisLockEnvironment.setMetricsFactory(null);
+        Assert.assertSame(IRedisLockMetrics.NOOP, RedisLockEnvironment.getInstance().getLockClient().getMetrics());
+    }
+
+    /**
+     * 等待获取、持有时长和 redis 往返
+     */
+    @Test
+    public void testAcquireAndHeld() throws Exception {
+        IRedisLock lock = RedisLockBuilder.builder(METRICS_KEY).build();
+        Assert.assertTrue(lock.tryLock(1, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        lock.unlock();
+
+        Assert.assertEquals(1, registry.get("redis.lock.acquire").tags("environment", RedisLockEnvironment.DEFAULT_NAME, "type", TYPE, "result", "acquired").timer().count());
+        Assert.assertEquals(1, registry.get("redis.lock.acquire.attempts").tag("type", TYPE).summary().count());
+        Assert.assertTrue(registry.get("redis.lock.held").tag("type", TYPE).timer().totalTime(TimeUnit.MILLISECONDS) >= 50);
+        Assert.assertTrue(registry.get("redis.lock.command").tag("command", "set-nx-pttl").timer().count() >= 1);
+        Assert.assertTrue(registry.get("redis.lock.command").tag("command", "release").timer().count() >= 1);
+    }
+
+    /**
+     * 等待超时
+     */
+    @Test
+    public void testTimeout() throws Exception {
+        IRedisLock lock = RedisLockBuilder.builder(METRICS_KEY + "-timeout").sleepMinMills(20).sleepMaxMills(40).build();
+        setRaw(lock.getKey(), Expiration.seconds(5));
+        try {
+            Assert.assertFalse(lock.tryLock(300, TimeUnit.MILLISECONDS));
+        } finally {
+            deleteRaw(lock.getKey());
+        }
+        Assert.assertEquals(1, registry.get("redis.lock.timeouts").tag("type", TYPE).counter().count(), 0);
+        Assert.assertEquals(1, registry.get("redis.lock.acquire").tags("type", TYPE, "result", "timeout").timer().count());
+        Assert.assertTrue(registry.get("redis.lock.acquire.sleeps").tag("type", TYPE).summary().max() > 1);
+    }
+
+    /**
+     * 不等待的获取也记录耗时
+     */
+    @Test
+    public void testNoWait() {
+        IRedisLock lock = RedisLockBuilder.builder(METRICS_KEY + "-no-wait").build();
+        Assert.assertTrue(lock.tryLock());
+        try {
+            Assert.assertFalse(async(() -> RedisLockBuilder.builder(METRICS_KEY + "-no-wait").build().tryLock()));
+        } finally {
+            lock.unlock();
+        }
+        Assert.assertEquals(1, registry.get("redis.lock.acquire").tags("type", TYPE, "result", "acquired").timer().count());
+        Assert.assertEquals(1, registry.get("redis.lock.acquire").tags("type", TYPE, "result", "timeout").timer().count());
+        Assert.assertEquals(2, registry.get("redis.lock.acquire.attempts").tag("type", TYPE).summary().count());
+    }
+
+    /**
+     * 等待中被中断不记为超时
+     */
+    @Test
+    public void testInterrupted() throws Exception {
+        IRedisLock lock = RedisLockBuilder.builder(METRICS_KEY + "-interrupted").sleepMinMills(20).sleepMaxMills(40).build();
+        setRaw(lock.getKey(), Expiration.seconds(5));
+        try {
+            Thread waiter = new Thread(() -> {
+                try {
+                    lock.tryLock(3, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    // 预期中断
+                }
+            });
+            waiter.start();
+            Thread.sleep(200);
+            waiter.interrupt();
+            waiter.join(1000);
+        } finally {
+            deleteRaw(lock.getKey());
+        }
+        Assert.assertEquals(1, registry.get("redis.lock.acquire").tags("type", TYPE, "result", "interrupted").timer().count());
+        Assert.assertEquals(0, registry.get("redis.lock.acquire").tags("type", TYPE, "result", "timeout").timer().count());
+        Assert.assertEquals(0, registry.get("redis.lock.timeouts").tag("type", TYPE).counter().count(), 0);
+        Assert.assertEquals(1, registry.get("redis.lock.errors").tag("type", TYPE).counter().count(), 0);
+    }
+
+    /**
+     * 锁过期后被他人持有，释放失败
+     */
+    @Test
+    public void testReleaseLost() {
+        IRedisLock lock = RedisLockBuilder.builder(METRICS_KEY + "-lost").build();
+        Assert.assertTrue(lock.tryLock());
+        setRaw(lock.getKey(), Expiration.seconds(5));
+        try {
+            lock.unlock();
+        } finally {
+            deleteRaw(lock.getKey());
+        }
+        Assert.assertEquals(1, registry.get("redis.lock.release.fallback").tag("type", TYPE).counter().count(), 0);
+        Assert.assertEquals(1, registry.get("redis.lock.release.lost").tag("type", TYPE).counter().count(), 0);
+    }
+
+    /**
+     * 限流器被限流
+     */
+    @Test
+    public void testLimiterDenied() {
+        RedisRateLimiter limiter = RedisRateLimiter.create(METRICS_KEY + Math.random(), 10, 1.0, 0);
+        Assert.assertFalse(limiter.tryAcquire(4));
+        Assert.assertEquals(1, registry.get("redis.limiter.denied").counter().count(), 0);
+    }
+
+    private void setRaw(String key, Expiration expiration) {
+        RedisLockEnvironment.getInstance().getRedisTemplate().execute((RedisConnection connection) ->
+                connection.set(RedislockUtils.stringToBytes(key), RedislockUtils.stringToBytes("other"), expiration, RedisStringCommands.SetOption.UPSERT));
+    }
+
+    private void deleteRaw(String key) {
+        RedisLockEnvironment.getInstance().getRedisTemplate().execute((RedisConnection connection) -> connection.del(RedislockUtils.stringToBytes(key)));
+    }
+}
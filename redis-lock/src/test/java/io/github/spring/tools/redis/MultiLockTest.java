@@ -0,0 +1,146 @@
+package io.github.spring.tools.redis;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多 key 锁测试类
+ * <p>测试多个 key 全部锁定或者全部失败</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class MultiLockTest extends AbsLockTest {
+
+    private static final String KEY_A = LOCK_KEY + "-multi-a";
+
+    private static final String KEY_B = LOCK_KEY + "-multi-b";
+
+    private static final String KEY_C = LOCK_KEY + "-multi-c";
+
+    /**
+     * 全部空闲时全部锁定，释放后全部可用
+     */
+    @Test
+    public void testAllOrNothing() throws Exception {
+        try (IRedisLock lock = RedisLockBuilder.multiBuilder(KEY_B, KEY_A).build()) {
+            Assert.assertTrue(lock.tryLock());
+            Assert.assertFalse(async(() -> RedisLockBuilder.builder(KEY_A).build().tryLock()));
+            Assert.assertFalse(async(() -> RedisLockBuilder.builder(KEY_B).build().tryLock()));
+        }
+        // 其中一个 key 被占用时，一个都不锁定
+        try (IRedisLock single = RedisLockBuilder.builder(KEY_B).build()) {
+            Assert.assertTrue(single.tryLock());
+            Assert.assertFalse(async(() -> RedisLockBuilder.multiBuilder(KEY_A, KEY_B, KEY_C).build().tryLock()));
+            Assert.assertTrue(async(() -> {
+                IRedisLock other = RedisLockBuilder.multiBuilder(KEY_A, KEY_C).build();
+                try {
+                    return other.tryLock();
+                } finally {
+                    other.unlock();
+                }
+            }));
+        }
+    }
+
+    /**
+     * key 排序去重，设置 hash tag 后每个 key 都带上同一个 tag
+     */
+    @Test
+    public void testCanonicalKeys() {
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), MultiRedisLock.canonicalKeys(Arrays.asList("c", "a", "b", "a"), null));
+        Assert.assertEquals(Arrays.asList("{t}a", "{t}b"), MultiRedisLock.canonicalKeys(Arrays.asList("b", "a"), "t"));
+    }
+
+    /**
+     * 等待中的多 key 锁在释放后获取成功
+     */
+    @Test
+    public void testWait() throws Exception {
+        IRedisLock lock = RedisLockBuilder.multiBuilder(KEY_A, KEY_B).build();
+        Assert.assertTrue(lock.tryLock());
+        AsyncHandler<Boolean> waiter = new AsyncHandler<>(() -> {
+            IRedisLock waitLock = RedisLockBuilder.multiBuilder(KEY_B, KEY_A).waitMode(RedisLockWaitMode.NOTIFY).build();
+            try {
+                return waitLock.tryLock(3, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalArgumentException(e);
+            } finally {
+                waitLock.unlock();
+            }
+        });
+        Thread thread = new Thread(waiter);
+        thread.start();
+        Thread.sleep(300);
+        lock.unlock();
+        thread.join();
+        Assert.assertTrue(waiter.getReturnData());
+    }
+
+    /**
+     * 设置 hash tag 后和使用 {tag}key 的单 key 锁互斥
+     */
+    @Test
+    public void testHashTag() throws Exception {
+        try (IRedisLock lock = RedisLockBuilder.multiBuilder(KEY_A, KEY_B).hashTag("multi").build()) {
+            Assert.assertTrue(lock.tryLock());
+            Assert.assertFalse(async(() -> RedisLockBuilder.builder("{multi}" + KEY_B).build().tryLock()));
+        }
+    }
+
+    /**
+     * 多 key 锁不支持看门狗和 fencing token，显式开启时创建失败
+     */
+    @Test
+    public void testUnsupportedOptions() {
+        try {
+            RedisLockBuilder.multiBuilder(KEY_A, KEY_B).watchdog(true).build();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().contains("看门狗"));
+        }
+        try {
+            RedisLockBuilder.multiBuilder(KEY_A, KEY_B).fencing(true).build();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().contains("fencing"));
+        }
+    }
+
+    /**
+     * 等待中的多 key 锁在单 key 锁释放其中一个 key 后被唤醒
+     */
+    @Test
+    public void testWakeBySingleRelease() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            IRedisLock single = RedisLockBuilder.builder(KEY_B).lockSeconds(10).build();
+            try {
+                if (single.tryLock()) {
+                    locked.countDown();
+                    Thread.sleep(300);
+                }
+            } catch (InterruptedException e) {
+                throw new IllegalArgumentException(e);
+            } finally {
+                single.unlock();
+            }
+        });
+        holder.start();
+        Assert.assertTrue(locked.await(1, TimeUnit.SECONDS));
+        IRedisLock waitLock = RedisLockBuilder.multiBuilder(KEY_A, KEY_B).waitMode(RedisLockWaitMode.NOTIFY).build();
+        long start = System.currentTimeMillis();
+        try {
+            Assert.assertTrue(waitLock.tryLock(3, TimeUnit.SECONDS));
+        } finally {
+            waitLock.unlock();
+        }
+        long waited = System.currentTimeMillis() - start;
+        holder.join();
+        Assert.assertTrue("waited=" + waited, waited < 900);
+    }
+}
@@ -0,0 +1,67 @@
+package io.github.spring.tools.redis;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通知模式测试类
+ * <p>测试释放通知唤醒等待者</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class NotifyLockTest extends AbsLockTest {
+
+    private static final String NOTIFY_KEY = LOCK_KEY + "-notify";
+
+    private static final long DEFAULT_WAIT_MILLS = 600;
+
+    /**
+     * 释放后等待者应立即被唤醒，而不是等到兜底时间
+     */
+    @Test
+    public void testWakeUpOnRelease() throws Exception {
+        IRedisLock lock = RedisLockBuilder.builder(NOTIFY_KEY).build();
+        Assert.assertTrue(lock.tryLock());
+        AsyncHandler<Long> waiter = new AsyncHandler<>(() -> {
+            IRedisLock waitLock = RedisLockBuilder.builder(NOTIFY_KEY).waitMode(RedisLockWaitMode.NOTIFY).build();
+            try {
+                Assert.assertTrue(waitLock.tryLock(5, TimeUnit.SECONDS));
+                return System.currentTimeMillis();
+            } catch (InterruptedException e) {
+                throw new IllegalArgumentException(e);
+            } finally {
+                waitLock.unlock();
+            }
+        });
+        Thread thread = new Thread(waiter);
+        thread.start();
+        // 等待者进入等待后再释放
+        Thread.sleep(DEFAULT_WAIT_MILLS);
+        long releaseMills = System.currentTimeMillis();
+        lock.unlock();
+        thread.join();
+        Assert.assertNotNull(waiter.getReturnData());
+        Assert.assertTrue(waiter.getReturnData() - releaseMills < 150);
+    }
+
+    /**
+     * 锁一直被占用时，超时返回失败
+     */
+    @Test
+    public void testTimeout() throws Exception {
+        try (IRedisLock lock = RedisLockBuilder.builder(NOTIFY_KEY).build()) {
+            Assert.assertTrue(lock.tryLock());
+            Assert.assertFalse(async(() -> {
+                IRedisLock waiter = RedisLockBuilder.builder(NOTIFY_KEY).waitMode(RedisLockWaitMode.NOTIFY).build();
+                try {
+                    return waiter.tryLock(1500, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    throw new IllegalArgumentException(e);
+                }
+            }));
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package io.github.spring.tools.redis;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 多数派锁测试类
+ * <p>用同一个 redis 的不同 database 模拟多个独立节点</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class QuorumLockTest extends AbsLockTest {
+
+    private static final String QUORUM_KEY = LOCK_KEY + "-quorum";
+
+    private static final int NODES = 3;
+
+    private final List<LettuceConnectionFactory> factories = new ArrayList<>();
+
+    private final List<RedisTemplate<String, String>> templates = new ArrayList<>();
+
+    private String lockKey;
+
+    @Before
+    public void initNodes() {
+        for (int i = 1; i <= NODES; i++) {
+            LettuceConnectionFactory factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", 6379));
+            factory.setDatabase(i);
+            factory.afterPropertiesSet();
+            factories.add(factory);
+            templates.add(new StringRedisTemplate(factory));
+        }
+    }
+
+    @After
+    public void destroyNodes() {
+        for (RedisTemplate<String, String> template : templates) {
+            template.delete(lockKey);
+        }
+        factories.forEach(LettuceConnectionFactory::destroy);
+    }
+
+    /**
+     * 少数节点被占用时依然获取成功，释放后所有节点都被清理
+     */
+    @Test
+    public void testMinorityHeld() throws Exception {
+        IRedisLock lock = RedisLockBuilder.builder(QUORUM_KEY).quorum(templates).build();
+        lockKey = lock.getKey();
+        templates.get(0).opsForValue().set(lockKey, "other");
+        try {
+            Assert.assertTrue(lock.tryLock());
+            Assert.assertFalse(async(() -> RedisLockBuilder.builder(QUORUM_KEY).quorum(templates).build().tryLock()));
+        } finally {
+            lock.unlock();
+        }
+        Thread.sleep(200);
+        Assert.assertEquals("other", templates.get(0).opsForValue().get(lockKey));
+        Assert.assertNull(templates.get(1).opsForValue().get(lockKey));
+        Assert.assertNull(templates.get(2).opsForValue().get(lockKey));
+    }
+
+    /**
+     * 多数节点被占用时获取失败，已获取的节点被释放
+     */
+    @Test
+    public void testMajorityHeld() throws Exception {
+        IRedisLock lock = RedisLockBuilder.builder(QUORUM_KEY).quorum(templates).build();
+        lockKey = lock.getKey();
+        templates.get(0).opsForValue().set(lockKey, "other");
+        templates.get(1).opsForValue().set(lockKey, "other");
+        Assert.assertFalse(lock.tryLock());
+        Thread.sleep(200);
+        Assert.assertNull(templates.get(2).opsForValue().get(lockKey));
+    }
+
+    /**
+     * 同一个节点的客户端在多数派锁之间复用
+     */
+    @Test
+    public void testClientReuse() throws Exception {
+        IRedisLock lock = RedisLockBuilder.builder(QUORUM_KEY).quorum(templates).build();
+        lockKey = lock.getKey();
+        Assert.assertTrue(lock.tryLock());
+        lock.unlock();
+        RedisLockEnvironment environment = RedisLockEnvironment.getInstance();
+        RedisLockClient client = environment.getQuorumClient(templates.get(0));
+        RedisLockBuilder.builder(QUORUM_KEY).quorum(templates).build();
+        Assert.assertSame(client, environment.getQuorumClient(templates.get(0)));
+        Assert.assertNotSame(client, environment.getQuorumClient(templates.get(1)));
+        Assert.assertSame(environment.getLockClient(), environment.getQuorumClient(environment.getRedisTemplate()));
+    }
+
+    /**
+     * 不能和多 key 锁、公平锁同时使用
+     */
+    @Test
+    public void testUnsupportedCombination() {
+        lockKey = QUORUM_KEY;
+        try {
+            RedisLockBuilder.multiBuilder(QUORUM_KEY + "-a", QUORUM_KEY + "-b").quorum(templates).build();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().contains("多 key"));
+        }
+        try {
+            RedisLockBuilder.builder(QUORUM_KEY).quorum(templates).fair(true).build();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().contains("公平锁"));
+        }
+    }
+
+    /**
+     * 多数派锁不支持看门狗和 fencing token，显式开启时创建失败
+     */
+    @Test
+    public void testUnsupportedOptions() {
+        lockKey = QUORUM_KEY;
+        try {
+            RedisLockBuilder.builder(QUORUM_KEY).quorum(templates).watchdog(true).build();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().contains("看门狗"));
+        }
+        try {
+            RedisLockBuilder.builder(QUORUM_KEY).quorum(templates).fencing(true).build();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().contains("fencing"));
+        }
+    }
+}
@@ -4,6 +4,8 @@ import io.github.spring.tools.redis.concurrent.RedisRateLimiter;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
 
 import java.util.concurrent.TimeUnit;
 
@@ -55,4 +57,32 @@ public class RateLimiterTest extends AbsLockTest{
         Assert.assertTrue(permits > 0);
         Thread.sleep(1000);
     }
+
+    /**
+     * 之前用 JSON、JDK 序列化保存的数据去掉格式后继续使用，不会重新初始化
+     */
+    @Test
+    public void testSerializedData() throws Exception {
+        // 没有令牌，下一个令牌在 1 分钟后，重新初始化时会有令牌
+        String data = String.format("10.0,%s,0.0,10.0", System.currentTimeMillis() + 60000);
+        Assert.assertFalse(tryAcquireFrom(RedislockUtils.stringToBytes("\"" + data + "\"")));
+        Assert.assertFalse(tryAcquireFrom(new JdkSerializationRedisSerializer().serialize(data)));
+        Assert.assertTrue(tryAcquireFrom(RedislockUtils.stringToBytes("\"10.0,0,10.0,10.0\"")));
+    }
+
+    /**
+     * 写入保存的数据后获取一个令牌
+     * @param value 保存的数据
+     * @return 获取结果
+     */
+    private boolean tryAcquireFrom(byte[] value) throws Exception {
+        String key = LOCK_KEY + "-serialized-" + Math.random();
+        byte[] dataKey = RedislockUtils.stringToBytes(RedisLockEnvironment.getInstance().hashTagKey("RedisRateLimiterKey:" + key));
+        RedisLockEnvironment.getInstance().getRedisTemplate().execute((RedisConnection connection) -> connection.set(dataKey, value));
+        try {
+            return RedisRateLimiter.create(key, 10, 1.0).tryAcquire(1, 0, TimeUnit.MILLISECONDS);
+        } finally {
+            RedisLockEnvironment.getInstance().getRedisTemplate().execute((RedisConnection connection) -> connection.del(dataKey));
+        }
+    }
 }
@@ -0,0 +1,100 @@
+package io.github.spring.tools.redis;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 读写锁测试类
+ * <p>测试读锁共享、写锁互斥、写者优先和乐观读</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class ReadWriteLockTest extends AbsLockTest {
+
+    private static final String RW_KEY = LOCK_KEY + "-rw";
+
+    /**
+     * 多个读者可以同时持有，读者持有时写者获取失败
+     */
+    @Test
+    public void testSharedRead() throws Exception {
+        RedisReadWriteLock rwLock = RedisLockBuilder.builder(RW_KEY).buildReadWriteLock();
+        try (IRedisLock first = rwLock.readLock(); IRedisLock second = rwLock.readLock()) {
+            Assert.assertTrue(first.tryLock());
+            Assert.assertTrue(second.tryLock());
+            Assert.assertFalse(rwLock.writeLock().tryLock());
+        }
+        try (IRedisLock write = rwLock.writeLock()) {
+            Assert.assertTrue(write.tryLock());
+            Assert.assertTrue(write.getFencingToken() > 0);
+            Assert.assertFalse(rwLock.readLock().tryLock());
+            Assert.assertFalse(rwLock.writeLock().tryLock());
+        }
+    }
+
+    /**
+     * 写者等待期间，新的读者不能进入，读者释放后写者立即获取
+     */
+    @Test
+    public void testWriterPriority() throws Exception {
+        RedisReadWriteLock rwLock = RedisLockBuilder.builder(RW_KEY).buildReadWriteLock();
+        IRedisLock read = rwLock.readLock();
+        Assert.assertTrue(read.tryLock());
+        AsyncHandler<Boolean> writer = new AsyncHandler<>(() -> {
+            IRedisLock write = rwLock.writeLock();
+            try {
+                return write.tryLock(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalArgumentException(e);
+            } finally {
+                write.unlock();
+            }
+        });
+        Thread thread = new Thread(writer);
+        thread.start();
+        Thread.sleep(300);
+        Assert.assertFalse(rwLock.readLock().tryLock());
+        read.unlock();
+        thread.join();
+        Assert.assertTrue(writer.getReturnData());
+        // 写者释放后读者可以进入
+        try (IRedisLock again = rwLock.readLock()) {
+            Assert.assertTrue(again.tryLock());
+        }
+    }
+
+    /**
+     * 写者超时后撤销写意向，读者可以继续进入
+     */
+    @Test
+    public void testWriterTimeout() throws Exception {
+        RedisReadWriteLock rwLock = RedisLockBuilder.builder(RW_KEY).buildReadWriteLock();
+        try (IRedisLock read = rwLock.readLock()) {
+            Assert.assertTrue(read.tryLock());
+            Assert.assertFalse(rwLock.writeLock().tryLock(300, TimeUnit.MILLISECONDS));
+            try (IRedisLock other = rwLock.readLock()) {
+                Assert.assertTrue(other.tryLock());
+            }
+        }
+    }
+
+    /**
+     * 乐观读期间有写者获取过锁，校验失败
+     */
+    @Test
+    public void testOptimisticRead() throws Exception {
+        RedisReadWriteLock rwLock = RedisLockBuilder.builder(RW_KEY).buildReadWriteLock();
+        long stamp = rwLock.tryOptimisticRead();
+        Assert.assertTrue(stamp > 0);
+        Assert.assertTrue(rwLock.validate(stamp));
+        try (IRedisLock write = rwLock.writeLock()) {
+            Assert.assertTrue(write.tryLock());
+            Assert.assertEquals(0L, rwLock.tryOptimisticRead());
+        }
+        Assert.assertFalse(rwLock.validate(stamp));
+        Assert.assertTrue(rwLock.validate(rwLock.tryOptimisticRead()));
+    }
+}
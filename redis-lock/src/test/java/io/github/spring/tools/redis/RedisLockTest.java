@@ -77,6 +77,46 @@ public class RedisLockTest  extends AbsLockTest {
         }
     }
 
+    /**
+     * 测试 可重入锁按秒计算租期，租期内重入成功，彻底释放后返回实际的释放结果
+     */
+    @Test
+    public void testReentrantLease() throws Exception {
+        IRedisLock lock = RedisLockBuilder.builder(LOCK_KEY).lockSeconds(2).build();
+        try{
+            Assert.assertTrue(lock.tryLock());
+            Assert.assertEquals(RedisLockReleaseStatus.NEW, lock.getReleaseStatus());
+            Thread.sleep(100);
+            innerLock();
+        }finally{
+            lock.unlock();
+        }
+        Assert.assertEquals(RedisLockReleaseStatus.SUCCESS, lock.getReleaseStatus());
+    }
+
+    /**
+     * 同一个实例释放后再次获取使用新的值，迟到的释放不会删除新的锁
+     */
+    @Test
+    public void testFreshToken() {
+        RedisLockClient client = RedisLockEnvironment.getInstance().getLockClient();
+        IRedisLock lock = RedisLockBuilder.builder(LOCK_KEY).build();
+        Assert.assertTrue(lock.tryLock());
+        String first = client.get(lock.getKey());
+        lock.unlock();
+        Assert.assertTrue(lock.tryLock());
+        try {
+            String second = client.get(lock.getKey());
+            Assert.assertNotNull(second);
+            Assert.assertNotEquals(first, second);
+            Assert.assertFalse(client.releaseByLua(lock.getKey(), first));
+            Assert.assertEquals(second, client.get(lock.getKey()));
+        } finally {
+            lock.unlock();
+        }
+        Assert.assertEquals(RedisLockReleaseStatus.SUCCESS, lock.getReleaseStatus());
+    }
+
     private void innerLock(){
         IRedisLock lock = RedisLockBuilder.builder(LOCK_KEY).build();
         try{
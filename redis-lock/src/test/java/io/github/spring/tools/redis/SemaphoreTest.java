@@ -0,0 +1,154 @@
+package io.github.spring.tools.redis;
+
+import io.github.spring.tools.redis.concurrent.RedisSemaphore;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 信号量测试类
+ * <p>测试许可的获取、释放、等待和租期回收</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class SemaphoreTest extends AbsLockTest {
+
+    private static final String SEMAPHORE_KEY = LOCK_KEY + "-semaphore";
+
+    private static final String SECONDARY = "semaphore-secondary";
+
+    private LettuceConnectionFactory factory;
+
+    private FlakyTemplate template;
+
+    private RedisLockEnvironment secondary;
+
+    @Before
+    public void initEnvironment() {
+        factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", 6379));
+        factory.setDatabase(4);
+        factory.afterPropertiesSet();
+        template = new FlakyTemplate(factory);
+        secondary = RedisLockBuilder.builder("").buildEnv(SECONDARY, template);
+    }
+
+    @After
+    public void destroyEnvironment() {
+        secondary.destroy();
+        factory.destroy();
+    }
+
+    /**
+     * 最多同时持有 maxPermits 个许可
+     */
+    @Test
+    public void tryAcquireTest() {
+        RedisSemaphore semaphore = RedisSemaphore.create(SEMAPHORE_KEY + Math.random(), 3);
+        Assert.assertTrue(semaphore.tryAcquire(2));
+        Assert.assertFalse(semaphore.tryAcquire(2));
+        Assert.assertTrue(semaphore.tryAcquire(1));
+        Assert.assertEquals(0, semaphore.availablePermits());
+        Assert.assertEquals(3, semaphore.release(3));
+        Assert.assertEquals(3, semaphore.availablePermits());
+    }
+
+    /**
+     * 其他持有者释放后，等待者立即获取
+     */
+    @Test
+    public void tryAcquireTimeoutTest() throws Exception {
+        String key = SEMAPHORE_KEY + Math.random();
+        RedisSemaphore semaphore = RedisSemaphore.create(key, 1);
+        Assert.assertTrue(semaphore.tryAcquire(1));
+        AsyncHandler<Boolean> waiter = new AsyncHandler<>(() -> {
+            try {
+                return RedisSemaphore.create(key, 1).tryAcquire(1, 5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalArgumentException(e);
+            }
+        });
+        Thread thread = new Thread(waiter);
+        thread.start();
+        Thread.sleep(300);
+        semaphore.release(1);
+        thread.join();
+        Assert.assertTrue(waiter.getReturnData());
+        Assert.assertFalse(semaphore.tryAcquire(1, 300, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * 持有者没有释放，租期过后许可被回收
+     */
+    @Test
+    public void leaseExpireTest() throws Exception {
+        String key = SEMAPHORE_KEY + Math.random();
+        RedisSemaphore crashed = RedisSemaphore.create(key, 1, 500, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(crashed.tryAcquire(1));
+        Assert.assertTrue(RedisSemaphore.create(key, 1).tryAcquire(1, 2, TimeUnit.SECONDS));
+        Assert.assertEquals(0, crashed.release(1));
+    }
+
+    /**
+     * 命名环境的信号量使用该环境的 redis，和默认环境的同名信号量互不影响
+     */
+    @Test
+    public void environmentTest() {
+        String key = SEMAPHORE_KEY + Math.random();
+        RedisSemaphore semaphore = RedisSemaphore.create(key, 1);
+        RedisSemaphore secondarySemaphore = RedisSemaphore.create(SECONDARY, key, 1);
+        Assert.assertTrue(semaphore.tryAcquire(1));
+        Assert.assertTrue(secondarySemaphore.tryAcquire(1));
+        Assert.assertEquals(1, semaphore.release(1));
+        Assert.assertEquals(1, secondarySemaphore.release(1));
+    }
+
+    /**
+     * redis 没有确认释放时许可仍由当前实例持有，恢复后可以再次释放
+     */
+    @Test
+    public void releaseFailureTest() {
+        RedisSemaphore semaphore = RedisSemaphore.create(SECONDARY, SEMAPHORE_KEY + Math.random(), 2);
+        Assert.assertTrue(semaphore.tryAcquire(2));
+        template.failing = true;
+        try {
+            semaphore.release(2);
+            Assert.fail();
+        } catch (RedisConnectionFailureException e) {
+            // 释放失败
+        } finally {
+            template.failing = false;
+        }
+        Assert.assertEquals(0, semaphore.availablePermits());
+        Assert.assertEquals(2, semaphore.release(2));
+        Assert.assertEquals(2, semaphore.availablePermits());
+    }
+
+    /**
+     * 可以模拟 redis 不可用的客户端
+     */
+    private static final class FlakyTemplate extends StringRedisTemplate {
+
+        private volatile boolean failing;
+
+        private FlakyTemplate(LettuceConnectionFactory factory) {
+            super(factory);
+        }
+
+        @Override
+        public <T> T execute(RedisCallback<T> action, boolean exposeConnection, boolean pipeline) {
+            if (failing) {
+                throw new RedisConnectionFailureException("redis down");
+            }
+            return super.execute(action, exposeConnection, pipeline);
+        }
+    }
+}
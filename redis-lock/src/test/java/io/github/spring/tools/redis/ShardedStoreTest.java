@@ -0,0 +1,228 @@
+package io.github.spring.tools.redis;
+
+import io.github.spring.tools.redis.concurrent.RedisRateLimiter;
+import io.github.spring.tools.redis.store.RedisShardedLockStore;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分片锁存储测试类
+ * <p>每个分片使用本地 redis 的一个库，模拟独立的 redis 实例；发布订阅不区分库，每个分片的订阅都会收到所有消息，订阅测试需要断言消息由哪个实例分发</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class ShardedStoreTest extends AbsLockTest {
+
+    private static final String SHARDED_KEY = LOCK_KEY + "-sharded";
+
+    private static final String SHARDED = "sharded";
+
+    private final List<LettuceConnectionFactory> factories = new ArrayList<>();
+
+    private final Map<String, RedisTemplate<String, String>> templates = new LinkedHashMap<>();
+
+    private RedisShardedLockStore store;
+
+    private RedisLockEnvironment environment;
+
+    @Before
+    public void initShards() {
+        for (int i = 0; i < 3; i++) {
+            templates.put("shard-" + i, newTemplate(6 + i));
+        }
+        store = new RedisShardedLockStore(templates);
+        environment = RedisLockBuilder.builder("").keyPrefix("sharded-lock:").buildEnv(SHARDED, store);
+    }
+
+    @After
+    public void destroyShards() {
+        environment.destroy();
+        factories.forEach(LettuceConnectionFactory::destroy);
+    }
+
+    /**
+     * key 均匀分布，相同的 hash tag 在同一个实例，增加实例只迁移约 1/n 的 key，而且只迁移到新实例
+     */
+    @Test
+    public void testRouting() {
+        Map<String, Integer> counts = new HashMap<>();
+        Map<String, String> owners = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            String key = "key-" + i;
+            String shard = store.shardOf(key);
+            counts.merge(shard, 1, Integer::sum);
+            owners.put(key, shard);
+            Assert.assertEquals(shard, store.shardOf(key));
+        }
+        Assert.assertEquals(3, counts.size());
+        counts.values().forEach(count -> Assert.assertTrue("count=" + count, count > 700 && count < 1300));
+        Assert.assertEquals(store.shardOf("{order-1}:a"), store.shardOf("{order-1}:b"));
+
+        Map<String, RedisTemplate<String, String>> grown = new LinkedHashMap<>(templates);
+        grown.put("shard-3", newTemplate(9));
+        RedisShardedLockStore grownStore = new RedisShardedLockStore(grown);
+        int moved = 0;
+        for (Map.Entry<String, String> owner : owners.entrySet()) {
+            String shard = grownStore.shardOf(owner.getKey());
+            if (!shard.equals(owner.getValue())) {
+                Assert.assertEquals("shard-3", shard);
+                moved++;
+            }
+        }
+        Assert.assertTrue("moved=" + moved, moved > 450 && moved < 1050);
+
+        // 名称相同时和顺序无关
+        Map<String, RedisTemplate<String, String>> reversed = new LinkedHashMap<>();
+        reversed.put("shard-2", templates.get("shard-2"));
+        reversed.put("shard-1", templates.get("shard-1"));
+        reversed.put("shard-0", templates.get("shard-0"));
+        RedisShardedLockStore reversedStore = new RedisShardedLockStore(reversed);
+        owners.forEach((key, shard) -> Assert.assertEquals(shard, reversedStore.shardOf(key)));
+    }
+
+    /**
+     * 锁只写入所在的实例，fencing token、看门狗续期可用
+     */
+    @Test
+    public void testLock() throws Exception {
+        Assert.assertFalse(environment.isRedis());
+        IRedisLock lock = RedisLockBuilder.builder(SHARDED_KEY).environment(SHARDED).lockSeconds(1).watchdog(true).fencing(true).build();
+        Assert.assertTrue(lock.tryLock());
+        String shard = store.shardOf(lock.getKey());
+        try {
+            Assert.assertTrue(lock.getFencingToken() > 0);
+            Assert.assertFalse(async(() -> RedisLockBuilder.builder(SHARDED_KEY).environment(SHARDED).build().tryLock()));
+            Thread.sleep(1500);
+            templates.forEach((name, template) -> Assert.assertEquals(name.equals(shard), exists(template, lock.getKey())));
+        } finally {
+            lock.unlock();
+            templates.get(shard).delete(RedisLockClient.fencingKey(lock.getKey()));
+        }
+        Assert.assertEquals(RedisLockReleaseStatus.SUCCESS, lock.getReleaseStatus());
+        Assert.assertFalse(exists(templates.get(shard), lock.getKey()));
+    }
+
+    /**
+     * 释放后通过所在实例的订阅唤醒等待者
+     */
+    @Test
+    public void testNotify() throws Exception {
+        IRedisLock holder = RedisLockBuilder.builder(SHARDED_KEY + "-notify").environment(SHARDED).build();
+        Assert.assertTrue(holder.tryLock());
+        RedisLockExecutors.scheduler().schedule(holder::unlock, 300, TimeUnit.MILLISECONDS);
+        IRedisLock waiter = RedisLockBuilder.builder(SHARDED_KEY + "-notify").environment(SHARDED)
+                .waitMode(RedisLockWaitMode.NOTIFY).build();
+        long start = System.currentTimeMillis();
+        Assert.assertTrue(waiter.tryLock(5, TimeUnit.SECONDS));
+        long waited = System.currentTimeMillis() - start;
+        waiter.unlock();
+        Assert.assertTrue("waited=" + waited, waited < 1000);
+    }
+
+    /**
+     * 每个实例的订阅使用自己的连接，只分发路由到自己的 key，每次释放只分发一次
+     */
+    @Test
+    public void testSubscription() throws Exception {
+        Map<String, Integer> received = new ConcurrentHashMap<>();
+        store.subscribe(key -> received.merge(key, 1, Integer::sum));
+        Map<String, RedisMessageListenerContainer> containers = store.getContainers();
+        Assert.assertEquals(templates.keySet(), containers.keySet());
+        containers.forEach((name, container) -> Assert.assertSame(templates.get(name).getConnectionFactory(), container.getConnectionFactory()));
+
+        Map<String, String> keys = new LinkedHashMap<>();
+        for (int i = 0; keys.size() < templates.size(); i++) {
+            keys.putIfAbsent(store.shardOf(SHARDED_KEY + "-subscription-" + i), SHARDED_KEY + "-subscription-" + i);
+        }
+        // 订阅是异步建立的，先确认每个实例都能收到
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!received.keySet().containsAll(keys.values()) && System.currentTimeMillis() < deadline) {
+            keys.forEach((name, key) -> publishRelease(name, key));
+            Thread.sleep(50);
+        }
+        Assert.assertTrue(received.keySet().containsAll(keys.values()));
+
+        received.clear();
+        keys.forEach(this::publishRelease);
+        Thread.sleep(300);
+        keys.values().forEach(key -> Assert.assertEquals(key, Integer.valueOf(1), received.get(key)));
+    }
+
+    /**
+     * 锁过期的事件同样由所在实例的订阅分发一次，等待者不用等到超时
+     */
+    @Test
+    public void testExpiredSubscription() throws Exception {
+        Map<String, Integer> received = new ConcurrentHashMap<>();
+        store.subscribe(key -> received.merge(key, 1, Integer::sum));
+        Map<String, String> keys = new LinkedHashMap<>();
+        for (int i = 0; keys.size() < templates.size(); i++) {
+            keys.putIfAbsent(store.shardOf(SHARDED_KEY + "-expired-" + i), SHARDED_KEY + "-expired-" + i);
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!received.keySet().containsAll(keys.values()) && System.currentTimeMillis() < deadline) {
+            keys.forEach(this::publishExpired);
+            Thread.sleep(50);
+        }
+        Assert.assertTrue(received.keySet().containsAll(keys.values()));
+
+        received.clear();
+        keys.forEach(this::publishExpired);
+        Thread.sleep(300);
+        keys.values().forEach(key -> Assert.assertEquals(key, Integer.valueOf(1), received.get(key)));
+    }
+
+    /**
+     * 限流器使用分片存储
+     */
+    @Test
+    public void testLimiter() {
+        String limiterKey = SHARDED_KEY + "-limiter";
+        RedisRateLimiter limiter = RedisRateLimiter.create(SHARDED, limiterKey, 10);
+        Assert.assertTrue(limiter.tryAcquire(10));
+        Assert.assertFalse(limiter.tryAcquire(5));
+        String dataKey = "RedisRateLimiterKey:" + limiterKey;
+        Assert.assertTrue(exists(templates.get(store.shardOf(dataKey)), dataKey));
+        store.delete(dataKey);
+    }
+
+    private RedisTemplate<String, String> newTemplate(int database) {
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", 6379));
+        factory.setDatabase(database);
+        factory.afterPropertiesSet();
+        factories.add(factory);
+        return new StringRedisTemplate(factory);
+    }
+
+    private void publishRelease(String shard, String key) {
+        templates.get(shard).convertAndSend(RedisLockClient.RELEASE_CHANNEL_PREFIX + key, "");
+    }
+
+    /**
+     * 模拟 notify-keyspace-events Ex 开启时 key 过期发出的事件
+     */
+    private void publishExpired(String shard, String key) {
+        templates.get(shard).convertAndSend("__keyevent@0__:expired", key);
+    }
+
+    private boolean exists(RedisTemplate<String, String> template, String key) {
+        return template.execute((RedisConnection connection) -> connection.exists(RedislockUtils.stringToBytes(key)));
+    }
+}
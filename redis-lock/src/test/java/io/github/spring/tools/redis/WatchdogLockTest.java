@@ -0,0 +1,77 @@
+package io.github.spring.tools.redis;
+
+import io.github.spring.tools.redis.breaker.RedisCircuitBreaker;
+import io.github.spring.tools.redis.store.MemoryLockStore;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.data.redis.core.types.Expiration;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 看门狗测试类
+ * <p>测试持有锁期间自动续期</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class WatchdogLockTest extends AbsLockTest {
+
+    private static final String WATCHDOG_KEY = LOCK_KEY + "-watchdog";
+
+    /**
+     * 持有时间超过 lockSeconds 后，锁依然有效
+     */
+    @Test
+    public void testRenew() throws Exception {
+        try (IRedisLock lock = RedisLockBuilder.builder(WATCHDOG_KEY).lockSeconds(1).watchdog(true).build()) {
+            Assert.assertTrue(lock.tryLock());
+            Thread.sleep(2500);
+            Assert.assertFalse(async(() -> RedisLockBuilder.builder(WATCHDOG_KEY).build().tryLock()));
+        }
+        // 释放后停止续期，其他人可以获取
+        Assert.assertTrue(async(() -> {
+            IRedisLock lock = RedisLockBuilder.builder(WATCHDOG_KEY).build();
+            try {
+                return lock.tryLock();
+            } finally {
+                lock.unlock();
+            }
+        }));
+    }
+
+    /**
+     * 熔断器打开期间跳过续期，不访问 redis，恢复后继续续期
+     */
+    @Test
+    public void testCircuitOpen() throws Exception {
+        AtomicInteger renewals = new AtomicInteger();
+        MemoryLockStore store = new MemoryLockStore() {
+            @Override
+            public boolean[] renew(String[] keys, String[] values, long[] leaseMills) {
+                renewals.incrementAndGet();
+                return super.renew(keys, values, leaseMills);
+            }
+        };
+        RedisCircuitBreaker breaker = new RedisCircuitBreaker(50, 80, 1000, 1, 10, 60000, 1);
+        RedisLockWatchdog watchdog = new RedisLockWatchdog(store, breaker);
+        try {
+            Assert.assertTrue(store.setNx(RedislockUtils.stringToBytes(WATCHDOG_KEY), RedislockUtils.stringToBytes("value"), Expiration.seconds(3)));
+            RedisLockWatchdog.Lease lease = watchdog.register(WATCHDOG_KEY, "value", 3);
+            breaker.record(1000, true);
+            Assert.assertEquals(RedisCircuitBreaker.State.OPEN, breaker.getState());
+            Thread.sleep(1200);
+            watchdog.renew();
+            Assert.assertEquals(0, renewals.get());
+            Assert.assertFalse(lease.isLost());
+
+            breaker.reset();
+            watchdog.renew();
+            Assert.assertTrue(renewals.get() > 0);
+            Assert.assertFalse(lease.isLost());
+        } finally {
+            watchdog.destroy();
+            store.destroy();
+        }
+    }
+}
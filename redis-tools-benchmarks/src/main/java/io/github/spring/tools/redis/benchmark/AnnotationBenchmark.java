@@ -0,0 +1,99 @@
+package io.github.spring.tools.redis.benchmark;
+
+import io.github.spring.tools.redis.annotation.EnabledRedisLock;
+import io.github.spring.tools.redis.annotation.RedisLock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+
+/**
+ * 注解的热点路径
+ * <p>对比同一个服务上加了 {@link RedisLock} 和没加的方法，差值是切面、key 表达式解析和一次加解锁的开销</p>
+ * <p>注解方式由 spring 上下文初始化默认锁环境，不使用 {@link BenchmarkState}</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+@State(Scope.Benchmark)
+public class AnnotationBenchmark {
+
+    private RedisStandIn redis;
+
+    private AnnotationConfigApplicationContext context;
+
+    private LockedService service;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        redis = new RedisStandIn();
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(RedisStandIn.class, () -> redis);
+        context.register(BenchmarkConfiguration.class);
+        context.refresh();
+        service = context.getBean(LockedService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        redis.close();
+    }
+
+    @Benchmark
+    public String annotated() {
+        return service.locked("benchmark", 1);
+    }
+
+    @Benchmark
+    public String plain() {
+        return service.unlocked("benchmark", 1);
+    }
+
+    /**
+     * 被测试的服务
+     */
+    public static class LockedService {
+
+        @RedisLock(key = "annotation-#{name}-#{id}")
+        public String locked(String name, int id) {
+            return name;
+        }
+
+        public String unlocked(String name, int id) {
+            return name;
+        }
+    }
+
+    @Configuration
+    @EnableAspectJAutoProxy
+    @EnabledRedisLock
+    public static class BenchmarkConfiguration {
+
+        @Bean(destroyMethod = "destroy")
+        public LettuceConnectionFactory redisConnectionFactory(RedisStandIn redis) {
+            return BenchmarkState.newConnectionFactory(redis);
+        }
+
+        @Bean
+        public StringRedisTemplate redisTemplate(RedisConnectionFactory redisConnectionFactory) {
+            return new StringRedisTemplate(redisConnectionFactory);
+        }
+
+        @Bean
+        public LockedService lockedService() {
+            return new LockedService();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package io.github.spring.tools.redis.benchmark;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基准测试入口
+ * <p>默认测量吞吐量并开启 GC 分析器输出分配速率（gc.alloc.rate.norm 为每次操作分配的字节数），命令行参数与 JMH 相同，可以覆盖默认值</p>
+ * <pre>
+ * java -jar redis-tools-benchmarks/target/benchmarks.jar
+ * java -jar redis-tools-benchmarks/target/benchmarks.jar LockBenchmark -wi 1 -i 3
+ * </pre>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        // 命令行没有指定的参数才使用这里的默认值
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(commandLine);
+        if (commandLine.getIncludes().isEmpty()) {
+            options.include(BenchmarkMain.class.getPackage().getName() + ".*Benchmark");
+        }
+        if (commandLine.getBenchModes().isEmpty()) {
+            options.mode(Mode.Throughput);
+        }
+        if (!commandLine.getTimeUnit().hasValue()) {
+            options.timeUnit(TimeUnit.SECONDS);
+        }
+        if (!commandLine.getWarmupIterations().hasValue()) {
+            options.warmupIterations(3);
+        }
+        if (!commandLine.getWarmupTime().hasValue()) {
+            options.warmupTime(TimeValue.seconds(1));
+        }
+        if (!commandLine.getMeasurementIterations().hasValue()) {
+            options.measurementIterations(5);
+        }
+        if (!commandLine.getMeasurementTime().hasValue()) {
+            options.measurementTime(TimeValue.seconds(1));
+        }
+        if (!commandLine.getForkCount().hasValue()) {
+            options.forks(1);
+        }
+        if (commandLine.getProfilers().stream().noneMatch(profiler -> GCProfiler.class.getName().equals(profiler.getKlass()))) {
+            options.addProfiler(GCProfiler.class);
+        }
+        new Runner(options.build()).run();
+    }
+}
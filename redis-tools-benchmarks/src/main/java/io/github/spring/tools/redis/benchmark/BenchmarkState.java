@@ -0,0 +1,75 @@
+package io.github.spring.tools.redis.benchmark;
+
+import io.github.spring.tools.redis.RedisLockBuilder;
+import io.github.spring.tools.redis.RedisLockEnvironment;
+import io.github.spring.tools.redis.decorator.AbsLockDecorator;
+import io.github.spring.tools.redis.decorator.ReentrantLockDecorator;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * 基准测试共享的锁环境
+ * <p>启动 {@link RedisStandIn}，用和 {@link io.github.spring.tools.redis.annotation.EnabledRedisLock} 相同的默认参数初始化默认锁环境</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+@State(Scope.Benchmark)
+public class BenchmarkState {
+
+    /**
+     * 锁 key 的前缀
+     */
+    public static final String KEY_PREFIX = "redis-lock:";
+
+    /**
+     * 使用真实 redis 的系统属性，格式 host:port，不指定时使用 {@link RedisStandIn}
+     */
+    public static final String REDIS_PROPERTY = "benchmark.redis";
+
+    private RedisStandIn redis;
+
+    private LettuceConnectionFactory connectionFactory;
+
+    private RedisLockEnvironment environment;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        redis = new RedisStandIn();
+        connectionFactory = newConnectionFactory(redis);
+        environment = RedisLockBuilder.builder("").keyPrefix(KEY_PREFIX).addDecorators(Collections.<Class<? extends AbsLockDecorator>>singletonList(ReentrantLockDecorator.class))
+                .buildEnv(new StringRedisTemplate(connectionFactory));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        environment.destroy();
+        connectionFactory.destroy();
+        redis.close();
+    }
+
+    /**
+     * 创建连接替身的连接工厂
+     * @param redis redis 替身
+     * @return 已初始化的连接工厂
+     */
+    static LettuceConnectionFactory newConnectionFactory(RedisStandIn redis) {
+        // 指定了真实的 redis 时用于对比替身和真实 redis 的差别
+        String address = System.getProperty(REDIS_PROPERTY);
+        RedisStandaloneConfiguration configuration = address == null
+                ? new RedisStandaloneConfiguration("127.0.0.1", redis.getPort())
+                : new RedisStandaloneConfiguration(address.substring(0, address.lastIndexOf(':')), Integer.parseInt(address.substring(address.lastIndexOf(':') + 1)));
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(configuration);
+        factory.afterPropertiesSet();
+        return factory;
+    }
+}
@@ -0,0 +1,101 @@
+package io.github.spring.tools.redis.benchmark;
+
+import io.github.spring.tools.redis.IRedisLock;
+import io.github.spring.tools.redis.RedisLockBuilder;
+import io.github.spring.tools.redis.decorator.AbsLockDecorator;
+import io.github.spring.tools.redis.decorator.LocalQueueLockDecorator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 锁的热点路径
+ * <ul>
+ *     <li>创建锁：构造锁并安装装饰者链，不访问 redis</li>
+ *     <li>获取、释放：每个线程使用自己的 key，不产生竞争，测量一次 set nx 和一次释放脚本的开销</li>
+ *     <li>重入：已持有锁时再次获取，只经过可重入装饰者，不访问 redis</li>
+ * </ul>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+public class LockBenchmark {
+
+    private static final AtomicInteger THREAD_INDEX = new AtomicInteger();
+
+    /**
+     * 本地排队装饰者，使用列表参数，避免泛型可变参数的警告
+     */
+    private static final List<Class<? extends AbsLockDecorator>> LOCAL_QUEUE = Collections.singletonList(LocalQueueLockDecorator.class);
+
+    /**
+     * 每个线程一个 key
+     */
+    @State(Scope.Thread)
+    public static class ThreadKey {
+
+        String key;
+
+        IRedisLock outer;
+
+        IRedisLock inner;
+
+        @Setup(Level.Trial)
+        public void setUp(BenchmarkState environment) {
+            key = "benchmark-lock-" + THREAD_INDEX.incrementAndGet();
+        }
+
+        @Setup(Level.Iteration)
+        public void lockOuter() {
+            outer = RedisLockBuilder.builder(key + "-reentrant").build();
+            inner = RedisLockBuilder.builder(key + "-reentrant").build();
+            if (!outer.tryLock()) {
+                throw new IllegalStateException("获取外层锁失败: " + outer.getKey());
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void unlockOuter() {
+            outer.unlock();
+        }
+    }
+
+    @Benchmark
+    public IRedisLock build(ThreadKey state) {
+        return RedisLockBuilder.builder(state.key).build();
+    }
+
+    @Benchmark
+    public IRedisLock buildWithLocalQueue(ThreadKey state) {
+        return RedisLockBuilder.builder(state.key).addDecorators(LOCAL_QUEUE).build();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean lockUnlock(ThreadKey state) {
+        IRedisLock lock = RedisLockBuilder.builder(state.key).build();
+        if (lock.tryLock()) {
+            lock.unlock();
+            return true;
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean reentrant(ThreadKey state) {
+        IRedisLock lock = state.inner;
+        if (lock.tryLock()) {
+            lock.unlock();
+            return true;
+        }
+        return false;
+    }
+}
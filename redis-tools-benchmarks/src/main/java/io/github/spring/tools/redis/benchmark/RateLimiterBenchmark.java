@@ -0,0 +1,39 @@
+package io.github.spring.tools.redis.benchmark;
+
+import io.github.spring.tools.redis.concurrent.RedisRateLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 限流器的热点路径
+ * <p>速率足够大，几乎每次都能拿到令牌，测量加锁、读写限流数据和查询 redis 时间的开销；原子模式只有一次脚本调用</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+
+    private RedisRateLimiter limiter;
+
+    private RedisRateLimiter atomicLimiter;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkState environment) {
+        limiter = RedisRateLimiter.create("benchmark-limiter", 1000000);
+        atomicLimiter = RedisRateLimiter.create("benchmark-atomic-limiter", 1000000).atomic(true);
+    }
+
+    @Benchmark
+    public boolean tryAcquire() {
+        return limiter.tryAcquire(1);
+    }
+
+    @Benchmark
+    public boolean tryAcquireAtomic() {
+        return atomicLimiter.tryAcquire(1);
+    }
+}
@@ -0,0 +1,502 @@
+package io.github.spring.tools.redis.benchmark;
+
+import io.github.spring.tools.redis.concurrent.RateLimiterData;
+import io.github.spring.tools.redis.script.LuaScript;
+import io.github.spring.tools.redis.script.LuaScriptRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 进程内的 Redis 替身
+ * <p>监听本地端口，实现 RESP 协议和锁、限流器用到的少量命令，让基准测试不依赖真实的 Redis；
+ * 和 Redis 一样所有命令串行执行，lua 脚本按 {@link LuaScriptRegistry} 中的名称用 Java 模拟，不解释 lua</p>
+ * <p>只用于基准测试，测量的是客户端、序列化和锁本身的开销，不代表真实 Redis 的延迟</p>
+ *
+ * @author Fenghu.Shi
+ * @version 1.2.0
+ */
+@Slf4j
+public class RedisStandIn implements Closeable {
+
+    private static final byte[] OK = "+OK\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] NULL_BULK = "$-1\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final ServerSocket serverSocket;
+
+    private final List<Socket> sockets = new CopyOnWriteArrayList<>();
+
+    /**
+     * 数据，key 按 ISO-8859-1 转换成字符串，保持二进制安全
+     */
+    private final Map<String, Entry> data = new HashMap<>();
+
+    /**
+     * 已加载的脚本，key 为 SHA1
+     */
+    private final Map<String, String> scripts = new HashMap<>();
+
+    private volatile boolean closed;
+
+    /**
+     * 在随机端口上启动
+     * @throws IOException 监听失败
+     */
+    public RedisStandIn() throws IOException {
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "redis-stand-in-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * 获取监听的端口
+     * @return 端口
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+    }
+
+    private void accept() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                sockets.add(socket);
+                Thread worker = new Thread(() -> serve(socket), "redis-stand-in-" + socket.getPort());
+                worker.setDaemon(true);
+                worker.start();
+            } catch (IOException e) {
+                if (!closed) {
+                    log.warn("RedisStandIn 接收连接失败", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+             InputStream in = new BufferedInputStream(s.getInputStream());
+             OutputStream out = new BufferedOutputStream(s.getOutputStream())) {
+            while (!closed) {
+                byte[][] command = readCommand(in);
+                synchronized (data) {
+                    execute(command, out);
+                }
+                // pipeline 中的命令读完后再一起写回
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (EOFException e) {
+            // 客户端关闭连接
+        } catch (IOException e) {
+            if (!closed) {
+                log.debug("RedisStandIn 连接异常", e);
+            }
+        } finally {
+            sockets.remove(socket);
+        }
+    }
+
+    /**
+     * 执行一条命令
+     * @param command 命令和参数
+     * @param out 输出
+     * @throws IOException 写入失败
+     */
+    private void execute(byte[][] command, OutputStream out) throws IOException {
+        String name = ascii(command[0]).toUpperCase();
+        switch (name) {
+            case "PING":
+                writeSimple(out, "PONG");
+                return;
+            case "SELECT":
+            case "CLIENT":
+                out.write(OK);
+                return;
+            case "GET":
+                writeBulk(out, get(command[1]));
+                return;
+            case "SET":
+                set(command, out);
+                return;
+            case "DEL":
+                long deleted = 0;
+                for (int i = 1; i < command.length; i++) {
+                    deleted += data.remove(key(command[i])) != null ? 1 : 0;
+                }
+                writeInteger(out, deleted);
+                return;
+            case "EXISTS":
+                writeInteger(out, get(command[1]) != null ? 1 : 0);
+                return;
+            case "PTTL":
+                writeInteger(out, pttl(command[1]));
+                return;
+            case "PEXPIRE":
+                writeInteger(out, expire(command[1], Long.parseLong(ascii(command[2]))) ? 1 : 0);
+                return;
+            case "EXPIRE":
+                writeInteger(out, expire(command[1], Long.parseLong(ascii(command[2])) * 1000) ? 1 : 0);
+                return;
+            case "PERSIST":
+                writeInteger(out, persist(command[1]) ? 1 : 0);
+                return;
+            case "PUBLISH":
+                writeInteger(out, 0);
+                return;
+            case "SUBSCRIBE":
+            case "PSUBSCRIBE":
+            case "UNSUBSCRIBE":
+            case "PUNSUBSCRIBE":
+                // 只确认订阅，不会推送消息，等待者靠自旋和租约到期获取锁
+                for (int i = 1; i < command.length; i++) {
+                    out.write("*3\r\n".getBytes(StandardCharsets.US_ASCII));
+                    writeBulk(out, name.toLowerCase().getBytes(StandardCharsets.US_ASCII));
+                    writeBulk(out, command[i]);
+                    writeInteger(out, name.contains("UN") ? 0 : i);
+                }
+                return;
+            case "TIME":
+                writeTime(out);
+                return;
+            case "SCRIPT":
+                script(command, out);
+                return;
+            case "EVAL":
+                String source = new String(command[1], StandardCharsets.UTF_8);
+                scripts.put(sha1(source), source);
+                eval(sha1(source), command, out);
+                return;
+            case "EVALSHA":
+                eval(ascii(command[1]).toLowerCase(), command, out);
+                return;
+            default:
+                writeError(out, "ERR unknown command '" + name + "' for redis stand-in");
+        }
+    }
+
+    private void set(byte[][] command, OutputStream out) throws IOException {
+        long expireMills = 0;
+        boolean nx = false;
+        boolean xx = false;
+        for (int i = 3; i < command.length; i++) {
+            String option = ascii(command[i]).toUpperCase();
+            if ("EX".equals(option)) {
+                expireMills = Long.parseLong(ascii(command[++i])) * 1000;
+            } else if ("PX".equals(option)) {
+                expireMills = Long.parseLong(ascii(command[++i]));
+            } else if ("NX".equals(option)) {
+                nx = true;
+            } else if ("XX".equals(option)) {
+                xx = true;
+            }
+        }
+        if (set(command[1], command[2], expireMills, nx, xx)) {
+            out.write(OK);
+        } else {
+            out.write(NULL_BULK);
+        }
+    }
+
+    private void script(byte[][] command, OutputStream out) throws IOException {
+        String sub = ascii(command[1]).toUpperCase();
+        if ("LOAD".equals(sub)) {
+            String source = new String(command[2], StandardCharsets.UTF_8);
+            String sha1 = sha1(source);
+            scripts.put(sha1, source);
+            writeBulk(out, sha1.getBytes(StandardCharsets.US_ASCII));
+        } else if ("FLUSH".equals(sub)) {
+            scripts.clear();
+            out.write(OK);
+        } else if ("EXISTS".equals(sub)) {
+            out.write(("*" + (command.length - 2) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            for (int i = 2; i < command.length; i++) {
+                writeInteger(out, scripts.containsKey(ascii(command[i]).toLowerCase()) ? 1 : 0);
+            }
+        } else {
+            writeError(out, "ERR unknown SCRIPT subcommand " + sub);
+        }
+    }
+
+    /**
+     * 按注册表中的名称模拟执行脚本
+     */
+    private void eval(String sha1, byte[][] command, OutputStream out) throws IOException {
+        if (!scripts.containsKey(sha1)) {
+            writeError(out, "NOSCRIPT No matching script. Please use EVAL.");
+            return;
+        }
+        String scriptName = null;
+        for (LuaScript script : LuaScriptRegistry.getScripts()) {
+            if (script.getSha1().equals(sha1)) {
+                scriptName = script.getName();
+                break;
+            }
+        }
+        int numKeys = Integer.parseInt(ascii(command[2]));
+        byte[][] keys = new byte[numKeys][];
+        System.arraycopy(command, 3, keys, 0, numKeys);
+        byte[][] args = new byte[command.length - 3 - numKeys][];
+        System.arraycopy(command, 3 + numKeys, args, 0, args.length);
+        if (scriptName == null) {
+            writeError(out, "ERR script " + sha1 + " is not supported by redis stand-in");
+            return;
+        }
+        switch (scriptName) {
+            case "redis-lock:release":
+                writeInteger(out, valueEquals(keys[0], args[0]) && data.remove(key(keys[0])) != null ? 1 : 0);
+                return;
+            case "redis-lock:set-nx-pttl":
+                if (set(keys[0], args[0], Long.parseLong(ascii(args[1])) * 1000, true, false)) {
+                    writeInteger(out, 0);
+                } else {
+                    long ttl = pttl(keys[0]);
+                    writeInteger(out, ttl == 0 ? 1 : ttl);
+                }
+                return;
+            case "redis-lock:fencing-set-nx":
+                if (set(keys[0], args[0], Long.parseLong(ascii(args[1])) * 1000, true, false)) {
+                    byte[] current = get(keys[1]);
+                    long token = (current == null ? 0 : Long.parseLong(ascii(current))) + 1;
+                    set(keys[1], String.valueOf(token).getBytes(StandardCharsets.US_ASCII), 0, false, false);
+                    writeInteger(out, token);
+                } else {
+                    writeInteger(out, 0);
+                }
+                return;
+            case "redis-lock:renew":
+                writeInteger(out, valueEquals(keys[0], args[0]) && expire(keys[0], Long.parseLong(ascii(args[1]))) ? 1 : 0);
+                return;
+            case "redis-lock:time":
+                writeTime(out);
+                return;
+            case "redis-lock:token-bucket":
+                writeInteger(out, tokenBucket(keys[0], args));
+                return;
+            default:
+                writeError(out, "ERR script " + scriptName + " is not supported by redis stand-in");
+        }
+    }
+
+    /**
+     * 令牌桶，和 redis 3.2 以上一样使用服务端时间
+     */
+    private long tokenBucket(byte[] key, byte[][] args) {
+        double permitsPerSecond = Double.parseDouble(ascii(args[0]));
+        double maxPermits = Double.parseDouble(ascii(args[1]));
+        long now = System.currentTimeMillis();
+        byte[] current = get(key);
+        RateLimiterData limiterData = current == null
+                ? RateLimiterData.of(permitsPerSecond, maxPermits, Double.parseDouble(ascii(args[2])), now)
+                : RateLimiterData.of(ascii(current), permitsPerSecond, maxPermits, ascii(key));
+        long result = limiterData.take(Integer.parseInt(ascii(args[3])), Long.parseLong(ascii(args[4])), now);
+        set(key, limiterData.toArrayString().getBytes(StandardCharsets.US_ASCII), 0, false, false);
+        return result;
+    }
+
+    private byte[] get(byte[] key) {
+        Entry entry = entry(key);
+        return entry == null ? null : entry.value;
+    }
+
+    private boolean set(byte[] key, byte[] value, long expireMills, boolean nx, boolean xx) {
+        Entry entry = entry(key);
+        if ((nx && entry != null) || (xx && entry == null)) {
+            return false;
+        }
+        data.put(key(key), new Entry(value, expireMills > 0 ? System.currentTimeMillis() + expireMills : 0));
+        return true;
+    }
+
+    private boolean expire(byte[] key, long mills) {
+        Entry entry = entry(key);
+        if (entry == null) {
+            return false;
+        }
+        entry.expireAt = System.currentTimeMillis() + mills;
+        return true;
+    }
+
+    private boolean persist(byte[] key) {
+        Entry entry = entry(key);
+        if (entry == null || entry.expireAt == 0) {
+            return false;
+        }
+        entry.expireAt = 0;
+        return true;
+    }
+
+    private long pttl(byte[] key) {
+        Entry entry = entry(key);
+        if (entry == null) {
+            return -2;
+        }
+        return entry.expireAt == 0 ? -1 : Math.max(0, entry.expireAt - System.currentTimeMillis());
+    }
+
+    private boolean valueEquals(byte[] key, byte[] value) {
+        byte[] current = get(key);
+        return current != null && Arrays.equals(current, value);
+    }
+
+    /**
+     * 获取未过期的数据，过期的顺便删除
+     */
+    private Entry entry(byte[] key) {
+        String k = key(key);
+        Entry entry = data.get(k);
+        if (entry != null && entry.expireAt != 0 && entry.expireAt <= System.currentTimeMillis()) {
+            data.remove(k);
+            return null;
+        }
+        return entry;
+    }
+
+    private static byte[][] readCommand(InputStream in) throws IOException {
+        int type = in.read();
+        if (type == -1) {
+            throw new EOFException();
+        }
+        if (type != '*') {
+            throw new IOException("redis stand-in 只支持 RESP 数组命令");
+        }
+        int count = (int) readLong(in);
+        byte[][] command = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            if (in.read() != '$') {
+                throw new IOException("redis stand-in 只支持 bulk string 参数");
+            }
+            int length = (int) readLong(in);
+            byte[] bytes = new byte[length];
+            int read = 0;
+            while (read < length) {
+                int n = in.read(bytes, read, length - read);
+                if (n == -1) {
+                    throw new EOFException();
+                }
+                read += n;
+            }
+            // \r\n
+            in.read();
+            in.read();
+            command[i] = bytes;
+        }
+        return command;
+    }
+
+    private static long readLong(InputStream in) throws IOException {
+        long value = 0;
+        boolean negative = false;
+        int b;
+        while ((b = in.read()) != '\r') {
+            if (b == -1) {
+                throw new EOFException();
+            }
+            if (b == '-') {
+                negative = true;
+            } else {
+                value = value * 10 + (b - '0');
+            }
+        }
+        in.read();
+        return negative ? -value : value;
+    }
+
+    private static void writeSimple(OutputStream out, String value) throws IOException {
+        out.write(('+' + value + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void writeError(OutputStream out, String message) throws IOException {
+        out.write(('-' + message + "\r\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeInteger(OutputStream out, long value) throws IOException {
+        out.write((":" + value + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void writeBulk(OutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.write(NULL_BULK);
+            return;
+        }
+        out.write(('$' + String.valueOf(value.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(value);
+        out.write('\r');
+        out.write('\n');
+    }
+
+    private static void writeTime(OutputStream out) throws IOException {
+        long micros = System.currentTimeMillis() * 1000;
+        out.write("*2\r\n".getBytes(StandardCharsets.US_ASCII));
+        writeBulk(out, String.valueOf(micros / 1000000).getBytes(StandardCharsets.US_ASCII));
+        writeBulk(out, String.valueOf(micros % 1000000).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String key(byte[] key) {
+        return new String(key, StandardCharsets.ISO_8859_1);
+    }
+
+    private static String ascii(byte[] bytes) {
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private static String sha1(String source) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(40);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 一条数据
+     */
+    private static final class Entry {
+
+        private final byte[] value;
+
+        /**
+         * 过期时间点，毫秒，0 表示不过期
+         */
+        private long expireAt;
+
+        Entry(byte[] value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+}